@@ -0,0 +1,4 @@
+insert into db_version (major, minor, patch, scriptname, description) values (2, 0, '0011', 'U0011AddFeedHttpValidators.sql', 'Add HTTP cache validators to Feed');
+
+ALTER TABLE feed ADD COLUMN httpetag character varying(255);
+ALTER TABLE feed ADD COLUMN httplastmodified character varying(255);
@@ -15,6 +15,7 @@
  */
 package org.eurekastreams.commons.messaging;
 
+import javax.jms.BytesMessage;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.jms.ObjectMessage;
@@ -35,6 +36,9 @@ public class AsyncActionProcessorMDB implements MessageListener
     /** The task handler which will execute the action. */
     private final TaskHandler taskHandler;
 
+    /** Codec for requests sent in the compact format. */
+    private UserActionRequestCodec codec = new UserActionRequestCodec();
+
     /**
      * Constructor.
      *
@@ -46,6 +50,15 @@ public class AsyncActionProcessorMDB implements MessageListener
         taskHandler = inTaskHandler;
     }
 
+    /**
+     * @param inCodec
+     *            Codec for requests sent in the compact format (must know the same parameter codecs as the senders).
+     */
+    public void setCodec(final UserActionRequestCodec inCodec)
+    {
+        codec = inCodec;
+    }
+
     /**
      * Receives a request off the queue and hands it to an action.
      *
@@ -72,9 +85,20 @@ public class AsyncActionProcessorMDB implements MessageListener
                 // run the action.
                 taskHandler.handleTask(userActionRequest);
             }
+            else if (message instanceof BytesMessage)
+            {
+                BytesMessage bytesMessage = (BytesMessage) message;
+                byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(bytes);
+                UserActionRequest userActionRequest = codec.decode(bytes);
+
+                log.debug("found action " + userActionRequest.getActionKey());
+
+                taskHandler.handleTask(userActionRequest);
+            }
             else
             {
-                log.debug("message received is not of ObjectMessage type.");
+                log.debug("message received is not of ObjectMessage or BytesMessage type.");
             }
         }
         catch (Exception e)
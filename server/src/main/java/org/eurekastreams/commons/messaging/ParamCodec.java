@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Writes and reads one kind of action parameters for the {@link UserActionRequestCodec}. Each codec has a unique type
+ * id (written ahead of the parameters) and a fixed field layout; changing a layout requires a new type id.
+ */
+public interface ParamCodec
+{
+    /**
+     * @return Type id written ahead of the parameters (at least {@link UserActionRequestCodec#FIRST_CUSTOM_TYPE_ID}).
+     */
+    int getTypeId();
+
+    /**
+     * @param inParams
+     *            Action parameters (not null).
+     * @return If this codec can write the parameters.
+     */
+    boolean canEncode(Serializable inParams);
+
+    /**
+     * Writes the parameters.
+     *
+     * @param inParams
+     *            Action parameters (accepted by {@link #canEncode(Serializable)}).
+     * @param inOut
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    void encode(Serializable inParams, DataOutput inOut) throws IOException;
+
+    /**
+     * Reads the parameters.
+     *
+     * @param inIn
+     *            Input.
+     * @return Action parameters.
+     * @throws IOException
+     *             On error.
+     */
+    Serializable decode(DataInput inIn) throws IOException;
+}
@@ -0,0 +1,620 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.commons.actions.context.DefaultPrincipal;
+import org.eurekastreams.commons.actions.context.Principal;
+import org.eurekastreams.commons.server.UserActionRequest;
+
+/**
+ * Compact binary format for {@link UserActionRequest}s sent through the queue, used instead of Java serialization of
+ * the whole request. Common parameter types (strings, numbers, id lists, primitive arrays) have built-in encodings;
+ * other types are written by registered {@link ParamCodec}s, and anything else falls back to Java serialization.
+ *
+ * Layout: magic byte, version byte, action key (modified UTF-8), principal (kind byte, then fields), parameter type id
+ * (varint), parameters.
+ */
+public class UserActionRequestCodec
+{
+    /** Lowest type id available to registered codecs (lower ones are built in). */
+    public static final int FIRST_CUSTOM_TYPE_ID = 16;
+
+    /** First byte of every encoded request. */
+    static final byte MAGIC = (byte) 0xE5;
+
+    /** Format version. */
+    static final byte VERSION = 1;
+
+    /** Built-in type: null. */
+    static final int TYPE_NULL = 0;
+
+    /** Built-in type: Java serialization. */
+    static final int TYPE_JAVA = 1;
+
+    /** Built-in type: String. */
+    static final int TYPE_STRING = 2;
+
+    /** Built-in type: Long. */
+    static final int TYPE_LONG = 3;
+
+    /** Built-in type: Integer. */
+    static final int TYPE_INTEGER = 4;
+
+    /** Built-in type: Boolean. */
+    static final int TYPE_BOOLEAN = 5;
+
+    /** Built-in type: ArrayList of non-null Longs (delta encoded). */
+    static final int TYPE_LONG_LIST = 6;
+
+    /** Built-in type: long[] (delta encoded). */
+    static final int TYPE_LONG_ARRAY = 7;
+
+    /** Built-in type: int[]. */
+    static final int TYPE_INT_ARRAY = 8;
+
+    /** Principal kind: none. */
+    private static final int PRINCIPAL_NONE = 0;
+
+    /** Principal kind: DefaultPrincipal fields. */
+    private static final int PRINCIPAL_DEFAULT = 1;
+
+    /** Principal kind: Java serialization. */
+    private static final int PRINCIPAL_JAVA = 2;
+
+    /** Low seven bits of a varint byte. */
+    private static final int VARINT_BITS = 0x7F;
+
+    /** Continuation bit of a varint byte. */
+    private static final int VARINT_MORE = 0x80;
+
+    /** Bits per varint byte. */
+    private static final int VARINT_SHIFT = 7;
+
+    /** Most bytes in a varint long. */
+    private static final int VARINT_MAX_SHIFT = 63;
+
+    /** Registered codecs, in the order they are tried. */
+    private final List<ParamCodec> codecs;
+
+    /** Registered codecs by type id. */
+    private final Map<Integer, ParamCodec> codecsById = new HashMap<Integer, ParamCodec>();
+
+    /**
+     * Constructor with only the built-in encodings.
+     */
+    public UserActionRequestCodec()
+    {
+        this(Collections.<ParamCodec> emptyList());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inCodecs
+     *            Codecs for specific parameter types, tried in order.
+     */
+    public UserActionRequestCodec(final List<ParamCodec> inCodecs)
+    {
+        codecs = new ArrayList<ParamCodec>(inCodecs);
+        for (ParamCodec codec : codecs)
+        {
+            if (codec.getTypeId() < FIRST_CUSTOM_TYPE_ID)
+            {
+                throw new IllegalArgumentException("Type id " + codec.getTypeId() + " is reserved.");
+            }
+            if (codecsById.put(codec.getTypeId(), codec) != null)
+            {
+                throw new IllegalArgumentException("Type id " + codec.getTypeId() + " is registered twice.");
+            }
+        }
+    }
+
+    /**
+     * Encodes a request.
+     *
+     * @param inRequest
+     *            The request.
+     * @return Bytes.
+     * @throws IOException
+     *             If the parameters can't be written.
+     */
+    public byte[] encode(final UserActionRequest inRequest) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(inRequest.getActionKey());
+        writePrincipal(inRequest.getUser(), out);
+        writeParams(inRequest.getParams(), out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a request.
+     *
+     * @param inBytes
+     *            Bytes written by {@link #encode(UserActionRequest)}.
+     * @return The request.
+     * @throws IOException
+     *             If the bytes are not a valid request.
+     */
+    public UserActionRequest decode(final byte[] inBytes) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(inBytes));
+        if (in.readByte() != MAGIC)
+        {
+            throw new IOException("Not an encoded action request.");
+        }
+        byte version = in.readByte();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported action request format version " + version + ".");
+        }
+        String actionKey = in.readUTF();
+        Principal principal = readPrincipal(in);
+        Serializable params = readParams(in);
+        return new UserActionRequest(actionKey, principal, params);
+    }
+
+    /**
+     * Writes the principal.
+     *
+     * @param inPrincipal
+     *            Principal (may be null).
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    private void writePrincipal(final Principal inPrincipal, final DataOutputStream out) throws IOException
+    {
+        if (inPrincipal == null)
+        {
+            out.writeByte(PRINCIPAL_NONE);
+        }
+        else if (inPrincipal.getClass() == DefaultPrincipal.class)
+        {
+            out.writeByte(PRINCIPAL_DEFAULT);
+            writeNullableString(inPrincipal.getAccountId(), out);
+            writeNullableString(inPrincipal.getOpenSocialId(), out);
+            writeNullableLong(inPrincipal.getId(), out);
+        }
+        else
+        {
+            out.writeByte(PRINCIPAL_JAVA);
+            writeJava(inPrincipal, out);
+        }
+    }
+
+    /**
+     * Reads the principal.
+     *
+     * @param in
+     *            Input.
+     * @return Principal (may be null).
+     * @throws IOException
+     *             On error.
+     */
+    private Principal readPrincipal(final DataInputStream in) throws IOException
+    {
+        int kind = in.readByte();
+        switch (kind)
+        {
+        case PRINCIPAL_NONE:
+            return null;
+        case PRINCIPAL_DEFAULT:
+            String accountId = readNullableString(in);
+            String openSocialId = readNullableString(in);
+            return new DefaultPrincipal(accountId, openSocialId, readNullableLong(in));
+        case PRINCIPAL_JAVA:
+            return (Principal) readJava(in);
+        default:
+            throw new IOException("Unknown principal kind " + kind + ".");
+        }
+    }
+
+    /**
+     * Writes the parameters: type id, then the encoded parameters.
+     *
+     * @param inParams
+     *            Parameters (may be null).
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    private void writeParams(final Serializable inParams, final DataOutputStream out) throws IOException
+    {
+        if (inParams == null)
+        {
+            writeVarLong(TYPE_NULL, out);
+        }
+        else if (inParams.getClass() == String.class)
+        {
+            writeVarLong(TYPE_STRING, out);
+            out.writeUTF((String) inParams);
+        }
+        else if (inParams.getClass() == Long.class)
+        {
+            writeVarLong(TYPE_LONG, out);
+            writeSignedVarLong((Long) inParams, out);
+        }
+        else if (inParams.getClass() == Integer.class)
+        {
+            writeVarLong(TYPE_INTEGER, out);
+            writeSignedVarLong((Integer) inParams, out);
+        }
+        else if (inParams.getClass() == Boolean.class)
+        {
+            writeVarLong(TYPE_BOOLEAN, out);
+            out.writeBoolean((Boolean) inParams);
+        }
+        else if (isLongList(inParams))
+        {
+            writeVarLong(TYPE_LONG_LIST, out);
+            List<?> list = (List<?>) inParams;
+            writeVarLong(list.size(), out);
+            long previous = 0;
+            for (Object value : list)
+            {
+                long current = (Long) value;
+                writeSignedVarLong(current - previous, out);
+                previous = current;
+            }
+        }
+        else if (inParams instanceof long[])
+        {
+            writeVarLong(TYPE_LONG_ARRAY, out);
+            long[] array = (long[]) inParams;
+            writeVarLong(array.length, out);
+            long previous = 0;
+            for (long current : array)
+            {
+                writeSignedVarLong(current - previous, out);
+                previous = current;
+            }
+        }
+        else if (inParams instanceof int[])
+        {
+            writeVarLong(TYPE_INT_ARRAY, out);
+            int[] array = (int[]) inParams;
+            writeVarLong(array.length, out);
+            for (int current : array)
+            {
+                writeSignedVarLong(current, out);
+            }
+        }
+        else
+        {
+            for (ParamCodec codec : codecs)
+            {
+                if (codec.canEncode(inParams))
+                {
+                    writeVarLong(codec.getTypeId(), out);
+                    codec.encode(inParams, out);
+                    return;
+                }
+            }
+            writeVarLong(TYPE_JAVA, out);
+            writeJava(inParams, out);
+        }
+    }
+
+    /**
+     * Reads the parameters.
+     *
+     * @param in
+     *            Input.
+     * @return Parameters (may be null).
+     * @throws IOException
+     *             On error.
+     */
+    private Serializable readParams(final DataInputStream in) throws IOException
+    {
+        int type = (int) readVarLong(in);
+        switch (type)
+        {
+        case TYPE_NULL:
+            return null;
+        case TYPE_JAVA:
+            return readJava(in);
+        case TYPE_STRING:
+            return in.readUTF();
+        case TYPE_LONG:
+            return readSignedVarLong(in);
+        case TYPE_INTEGER:
+            return (int) readSignedVarLong(in);
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_LONG_LIST:
+            int listSize = readCount(in);
+            ArrayList<Long> list = new ArrayList<Long>(listSize);
+            long previous = 0;
+            for (int i = 0; i < listSize; i++)
+            {
+                previous += readSignedVarLong(in);
+                list.add(previous);
+            }
+            return list;
+        case TYPE_LONG_ARRAY:
+            long[] longs = new long[readCount(in)];
+            long last = 0;
+            for (int i = 0; i < longs.length; i++)
+            {
+                last += readSignedVarLong(in);
+                longs[i] = last;
+            }
+            return longs;
+        case TYPE_INT_ARRAY:
+            int[] ints = new int[readCount(in)];
+            for (int i = 0; i < ints.length; i++)
+            {
+                ints[i] = (int) readSignedVarLong(in);
+            }
+            return ints;
+        default:
+            ParamCodec codec = codecsById.get(type);
+            if (codec == null)
+            {
+                throw new IOException("No codec registered for parameter type " + type + ".");
+            }
+            return codec.decode(in);
+        }
+    }
+
+    /**
+     * @param inParams
+     *            Parameters.
+     * @return If the parameters are an ArrayList of non-null Longs.
+     */
+    private boolean isLongList(final Serializable inParams)
+    {
+        if (inParams.getClass() != ArrayList.class)
+        {
+            return false;
+        }
+        for (Object value : (List<?>) inParams)
+        {
+            if (value == null || value.getClass() != Long.class)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an element count, guarding against corrupt data.
+     *
+     * @param in
+     *            Input.
+     * @return Count.
+     * @throws IOException
+     *             If the count is impossible.
+     */
+    private int readCount(final DataInputStream in) throws IOException
+    {
+        long count = readVarLong(in);
+        if (count > in.available())
+        {
+            throw new IOException("Element count " + count + " exceeds the remaining data.");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Writes an object with Java serialization (length prefixed).
+     *
+     * @param inObject
+     *            Object.
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    private void writeJava(final Serializable inObject, final DataOutput out) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(inObject);
+        objectOut.close();
+        writeVarLong(bytes.size(), out);
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * Reads an object written with {@link #writeJava(Serializable, DataOutput)}.
+     *
+     * @param in
+     *            Input.
+     * @return Object.
+     * @throws IOException
+     *             On error.
+     */
+    private Serializable readJava(final DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try
+        {
+            return (Serializable) objectIn.readObject();
+        }
+        catch (ClassNotFoundException ex)
+        {
+            throw new IOException("Unknown class in action request: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes a non-negative number as a varint (7 bits per byte, low bits first).
+     *
+     * @param inValue
+     *            Value.
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    public static void writeVarLong(final long inValue, final DataOutput out) throws IOException
+    {
+        long value = inValue;
+        while ((value & ~VARINT_BITS) != 0)
+        {
+            out.writeByte((int) (value & VARINT_BITS) | VARINT_MORE);
+            value >>>= VARINT_SHIFT;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @param in
+     *            Input.
+     * @return Value.
+     * @throws IOException
+     *             On error.
+     */
+    public static long readVarLong(final DataInput in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift <= VARINT_MAX_SHIFT; shift += VARINT_SHIFT)
+        {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & VARINT_BITS) << shift;
+            if ((b & VARINT_MORE) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Writes a signed number as a zigzag varint (small magnitudes take few bytes).
+     *
+     * @param inValue
+     *            Value.
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    public static void writeSignedVarLong(final long inValue, final DataOutput out) throws IOException
+    {
+        writeVarLong((inValue << 1) ^ (inValue >> VARINT_MAX_SHIFT), out);
+    }
+
+    /**
+     * Reads a zigzag varint.
+     *
+     * @param in
+     *            Input.
+     * @return Value.
+     * @throws IOException
+     *             On error.
+     */
+    public static long readSignedVarLong(final DataInput in) throws IOException
+    {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Writes a string which may be null.
+     *
+     * @param inValue
+     *            Value.
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    public static void writeNullableString(final String inValue, final DataOutput out) throws IOException
+    {
+        out.writeBoolean(inValue != null);
+        if (inValue != null)
+        {
+            out.writeUTF(inValue);
+        }
+    }
+
+    /**
+     * Reads a string which may be null.
+     *
+     * @param in
+     *            Input.
+     * @return Value.
+     * @throws IOException
+     *             On error.
+     */
+    public static String readNullableString(final DataInput in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes a Long which may be null.
+     *
+     * @param inValue
+     *            Value.
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             On error.
+     */
+    public static void writeNullableLong(final Long inValue, final DataOutput out) throws IOException
+    {
+        out.writeBoolean(inValue != null);
+        if (inValue != null)
+        {
+            writeSignedVarLong(inValue, out);
+        }
+    }
+
+    /**
+     * Reads a Long which may be null.
+     *
+     * @param in
+     *            Input.
+     * @return Value.
+     * @throws IOException
+     *             On error.
+     */
+    public static Long readNullableLong(final DataInput in) throws IOException
+    {
+        return in.readBoolean() ? readSignedVarLong(in) : null;
+    }
+}
@@ -29,6 +29,7 @@ import org.eurekastreams.commons.client.ActionRequest;
 import org.eurekastreams.commons.exceptions.InvalidActionException;
 import org.eurekastreams.commons.server.service.ActionController;
 import org.eurekastreams.server.persistence.mappers.cache.Transformer;
+import org.eurekastreams.server.persistence.mappers.chained.MapperRequestMemo;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.security.userdetails.UserDetails;
 
@@ -121,7 +122,16 @@ public class ActionExecutor
                 ServiceActionContext actionContext = new ServiceActionContext(actionParameter,
                         principalPopulator.getPrincipal(userDetails.getUsername(), actionRequest.getSessionId()));
                 actionContext.setActionId(actionRequest.getActionKey());
-                result = serviceActionController.execute(actionContext, action);
+                // lookups repeated while executing a read-only action are answered from memory
+                MapperRequestMemo.begin(action.isReadOnly());
+                try
+                {
+                    result = serviceActionController.execute(actionContext, action);
+                }
+                finally
+                {
+                    MapperRequestMemo.end();
+                }
             }
             else if (springBean instanceof TaskHandlerServiceAction)
             {
@@ -133,7 +143,16 @@ public class ActionExecutor
                 ServiceActionContext actionContext = new ServiceActionContext(actionParameter,
                         principalPopulator.getPrincipal(userDetails.getUsername(), actionRequest.getSessionId()));
                 actionContext.setActionId(actionRequest.getActionKey());
-                result = serviceActionController.execute(actionContext, action);
+                // lookups repeated while executing a read-only action are answered from memory
+                MapperRequestMemo.begin(action.isReadOnly());
+                try
+                {
+                    result = serviceActionController.execute(actionContext, action);
+                }
+                finally
+                {
+                    MapperRequestMemo.end();
+                }
             }
             else
             {
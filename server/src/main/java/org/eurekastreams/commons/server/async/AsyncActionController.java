@@ -31,6 +31,7 @@ import org.eurekastreams.commons.exceptions.GeneralException;
 import org.eurekastreams.commons.exceptions.ValidationException;
 import org.eurekastreams.commons.logging.LogFactory;
 import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.DeferredTaskRequests;
 import org.eurekastreams.commons.task.TaskHandler;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
@@ -193,13 +194,17 @@ public class AsyncActionController implements AsynchronousActionController
             throw new GeneralException(ex);
         }
 
-        // Submit the TaskRequests gathered from the execution strategy into the TaskHandlerContext to the TaskHandler.
+        // Submit the TaskRequests gathered from the execution strategy into the TaskHandlerContext to the TaskHandler
+        // (unless executing within a batch, in which case they are held until the batch commits).
         try
         {
             TaskHandler currentTaskHandler = inTaskHandlerAction.getTaskHandler();
             for (UserActionRequest currentRequest : taskHandlerContext.getUserActionRequests())
             {
-                currentTaskHandler.handleTask(currentRequest);
+                if (!DeferredTaskRequests.defer(currentTaskHandler, currentRequest))
+                {
+                    currentTaskHandler.handleTask(currentRequest);
+                }
             }
         }
         catch (Exception ex)
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eurekastreams.commons.server.UserActionRequest;
+
+/**
+ * Holds back the follow-on requests submitted by actions executing on the current thread, so they can be submitted
+ * once an enclosing transaction commits, or dropped if it rolls back. Used by the {@link LaneTaskHandler} for batches,
+ * where each action's own commit only joins the batch's transaction and a failed batch is executed again one action at
+ * a time.
+ */
+public final class DeferredTaskRequests
+{
+    /** Requests held for the current thread (null when not holding). */
+    private static final ThreadLocal<List<Deferred>> HELD = new ThreadLocal<List<Deferred>>();
+
+    /**
+     * Not instantiated.
+     */
+    private DeferredTaskRequests()
+    {
+    }
+
+    /**
+     * Starts holding requests submitted on the current thread.
+     */
+    public static void begin()
+    {
+        HELD.set(new ArrayList<Deferred>());
+    }
+
+    /**
+     * Holds a request if the current thread is holding requests.
+     *
+     * @param inTaskHandler
+     *            Task handler to submit the request to.
+     * @param inRequest
+     *            The request.
+     * @return If the request was held (else the caller should submit it now).
+     */
+    public static boolean defer(final TaskHandler inTaskHandler, final UserActionRequest inRequest)
+    {
+        List<Deferred> held = HELD.get();
+        if (held == null)
+        {
+            return false;
+        }
+        held.add(new Deferred(inTaskHandler, inRequest));
+        return true;
+    }
+
+    /**
+     * Stops holding requests and submits the held ones, in order.
+     *
+     * @throws Exception
+     *             If a task handler fails (the requests after it are not submitted).
+     */
+    public static void submit() throws Exception
+    {
+        List<Deferred> held = HELD.get();
+        HELD.remove();
+        if (held != null)
+        {
+            for (Deferred deferred : held)
+            {
+                deferred.taskHandler.handleTask(deferred.request);
+            }
+        }
+    }
+
+    /**
+     * Stops holding requests and drops the held ones.
+     *
+     * @return Number of requests dropped.
+     */
+    public static int discard()
+    {
+        List<Deferred> held = HELD.get();
+        HELD.remove();
+        return held == null ? 0 : held.size();
+    }
+
+    /**
+     * A held request.
+     */
+    private static class Deferred
+    {
+        /** Task handler to submit the request to. */
+        private final TaskHandler taskHandler;
+
+        /** The request. */
+        private final UserActionRequest request;
+
+        /**
+         * Constructor.
+         *
+         * @param inTaskHandler
+         *            Task handler to submit the request to.
+         * @param inRequest
+         *            The request.
+         */
+        public Deferred(final TaskHandler inTaskHandler, final UserActionRequest inRequest)
+        {
+            taskHandler = inTaskHandler;
+            request = inRequest;
+        }
+    }
+}
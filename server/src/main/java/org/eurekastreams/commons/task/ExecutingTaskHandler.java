@@ -21,6 +21,7 @@ import org.eurekastreams.commons.actions.async.TaskHandlerAsyncAction;
 import org.eurekastreams.commons.actions.context.async.AsyncActionContext;
 import org.eurekastreams.commons.server.UserActionRequest;
 import org.eurekastreams.commons.server.async.AsynchronousActionController;
+import org.eurekastreams.server.persistence.mappers.chained.MapperRequestMemo;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
@@ -60,7 +61,8 @@ public class ExecutingTaskHandler implements TaskHandler, BeanFactoryAware
     }
 
     /**
-     * Handle the action, this means executing it real time on the same thread.
+     * Handle the action, this means executing it real time on the same thread. Run within a read-only action (e.g. as
+     * its follow-on task), a writing action makes the outer action forget the mapper responses it remembered.
      *
      * @param inUserActionRequest
      *            the users action request
@@ -82,14 +84,30 @@ public class ExecutingTaskHandler implements TaskHandler, BeanFactoryAware
                 AsyncAction action = (AsyncAction) springBean;
                 AsyncActionContext actionContext = new AsyncActionContext(inUserActionRequest.getParams());
                 actionContext.setActionId(actionKey);
-                actionController.execute(actionContext, action);
+                MapperRequestMemo.begin(action.isReadOnly());
+                try
+                {
+                    actionController.execute(actionContext, action);
+                }
+                finally
+                {
+                    MapperRequestMemo.end();
+                }
             }
             else if (springBean instanceof TaskHandlerAsyncAction)
             {
                 TaskHandlerAsyncAction action = (TaskHandlerAsyncAction) springBean;
                 AsyncActionContext actionContext = new AsyncActionContext(inUserActionRequest.getParams());
                 actionContext.setActionId(actionKey);
-                actionController.execute(actionContext, action);
+                MapperRequestMemo.begin(action.isReadOnly());
+                try
+                {
+                    actionController.execute(actionContext, action);
+                }
+                finally
+                {
+                    MapperRequestMemo.end();
+                }
             }
             else
             {
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.util.KeyedStatistics;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Task handler which sorts actions into lanes by action key, each lane with its own queue and threads, so interactive
+ * work (cache updates, post fan-out) is never stuck behind bulk work (usage metrics, reindexing). Actions are executed
+ * by the given task handler (normally the in-line executing one, which runs each in its own transaction). Lanes may
+ * execute consecutive requests for the same action in a single transaction; see {@link TaskLane}.
+ *
+ * Used between the queue listener and the executing task handler. Requests waiting in a lane have already been taken
+ * off the queue, so a lane's queue size bounds how many are lost if the node stops; when a lane is full its requests
+ * are executed on the submitting (listener) thread, which holds back further delivery.
+ */
+public class LaneTaskHandler implements TaskHandler
+{
+    /** Statistic (per lane): number of requests waiting when one was added. */
+    public static final String DEPTH_STAT = "depth";
+
+    /** Statistic (per lane): milliseconds a request waited in the lane. */
+    public static final String WAIT_MILLIS_STAT = "wait.millis";
+
+    /** Statistic (per lane): milliseconds an execution (of one request or one batch) took. */
+    public static final String RUN_MILLIS_STAT = "run.millis";
+
+    /** Statistic (per lane): requests executed on the submitting thread because the lane was full. */
+    public static final String REJECTED_STAT = "rejected";
+
+    /** Statistic (per lane): number of requests per batch. */
+    public static final String BATCH_SIZE_STAT = "batch.size";
+
+    /** Statistic (per lane): batches which failed and were executed one request at a time. */
+    public static final String BATCH_FALLBACK_STAT = "batch.fallback";
+
+    /** Separates the lane and statistic name. */
+    public static final String STAT_SEPARATOR = "/";
+
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** The logger. */
+    private final Logger log = Logger.getLogger(LaneTaskHandler.class);
+
+    /** Executes the actions. */
+    private final TaskHandler executor;
+
+    /** Provides the transaction batches are executed in. */
+    private final PlatformTransactionManager transactionManager;
+
+    /** Lanes by name. */
+    private final Map<String, Lane> lanes = new LinkedHashMap<String, Lane>();
+
+    /** Lanes by the keys of the actions routed to them. */
+    private final Map<String, Lane> lanesByActionKey = new HashMap<String, Lane>();
+
+    /** Lane for actions not routed elsewhere. */
+    private final Lane defaultLane;
+
+    /** Statistics by lane. */
+    private final KeyedStatistics statistics;
+
+    /** Set once shut down. */
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructor.
+     *
+     * @param inExecutor
+     *            Executes the actions.
+     * @param inTransactionManager
+     *            Provides the transaction batches are executed in.
+     * @param inLanes
+     *            The lanes.
+     * @param inDefaultLane
+     *            Name of the lane for actions not routed elsewhere.
+     * @param inStatistics
+     *            Statistics by lane.
+     */
+    public LaneTaskHandler(final TaskHandler inExecutor, final PlatformTransactionManager inTransactionManager,
+            final List<TaskLane> inLanes, final String inDefaultLane, final KeyedStatistics inStatistics)
+    {
+        executor = inExecutor;
+        transactionManager = inTransactionManager;
+        statistics = inStatistics;
+
+        for (TaskLane config : inLanes)
+        {
+            Lane lane = new Lane(config);
+            lanes.put(config.getName(), lane);
+            for (String actionKey : config.getActionKeys())
+            {
+                lanesByActionKey.put(actionKey, lane);
+            }
+        }
+        defaultLane = lanes.get(inDefaultLane);
+        if (defaultLane == null)
+        {
+            throw new IllegalArgumentException("Default lane '" + inDefaultLane + "' is not one of the lanes.");
+        }
+
+        for (Lane lane : lanes.values())
+        {
+            lane.start();
+        }
+    }
+
+    /**
+     * Queues the request in its lane.
+     *
+     * @param inUserActionRequest
+     *            The request.
+     */
+    @Override
+    public void handleTask(final UserActionRequest inUserActionRequest)
+    {
+        Lane lane = lanesByActionKey.get(inUserActionRequest.getActionKey());
+        if (lane == null)
+        {
+            lane = defaultLane;
+        }
+        lane.add(inUserActionRequest);
+    }
+
+    /**
+     * @param inLane
+     *            Lane name.
+     * @return Number of requests waiting in the lane.
+     */
+    public int getQueueDepth(final String inLane)
+    {
+        Lane lane = lanes.get(inLane);
+        return lane == null ? 0 : lane.queue.size();
+    }
+
+    /**
+     * @return Number of requests waiting, by lane.
+     */
+    public Map<String, Integer> getQueueDepths()
+    {
+        Map<String, Integer> depths = new LinkedHashMap<String, Integer>();
+        for (Lane lane : lanes.values())
+        {
+            depths.put(lane.config.getName(), lane.queue.size());
+        }
+        return depths;
+    }
+
+    /**
+     * @return Statistics by lane.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Stops the lane threads. Requests still waiting are dropped; later requests are executed on the submitting
+     * thread.
+     */
+    public void shutdown()
+    {
+        stopped = true;
+        for (Lane lane : lanes.values())
+        {
+            lane.stop();
+        }
+    }
+
+    /**
+     * Records a statistic.
+     *
+     * @param inLane
+     *            Lane name.
+     * @param inStat
+     *            Statistic name.
+     * @param inValue
+     *            Sample value.
+     */
+    private void record(final String inLane, final String inStat, final long inValue)
+    {
+        if (statistics != null)
+        {
+            statistics.record(inLane + STAT_SEPARATOR + inStat, inValue);
+        }
+    }
+
+    /**
+     * Executes one request, logging any failure.
+     *
+     * @param inRequest
+     *            The request.
+     */
+    private void execute(final UserActionRequest inRequest)
+    {
+        try
+        {
+            executor.handleTask(inRequest);
+        }
+        catch (Exception ex)
+        {
+            log.error("Exception executing action " + inRequest.getActionKey(), ex);
+        }
+    }
+
+    /**
+     * A request waiting in a lane.
+     */
+    private static class Pending
+    {
+        /** The request. */
+        private final UserActionRequest request;
+
+        /** When it was queued (nanoseconds). */
+        private final long queuedAt = System.nanoTime();
+
+        /**
+         * Constructor.
+         *
+         * @param inRequest
+         *            The request.
+         */
+        public Pending(final UserActionRequest inRequest)
+        {
+            request = inRequest;
+        }
+    }
+
+    /**
+     * A lane: queue and threads.
+     */
+    private class Lane implements Runnable
+    {
+        /** Configuration. */
+        private final TaskLane config;
+
+        /** Waiting requests. */
+        private final BlockingQueue<Pending> queue;
+
+        /** Worker threads. */
+        private final List<Thread> workers = new ArrayList<Thread>();
+
+        /**
+         * Constructor.
+         *
+         * @param inConfig
+         *            Configuration.
+         */
+        public Lane(final TaskLane inConfig)
+        {
+            config = inConfig;
+            queue = new LinkedBlockingQueue<Pending>(Math.max(1, inConfig.getQueueSize()));
+        }
+
+        /**
+         * Starts the worker threads.
+         */
+        public void start()
+        {
+            for (int i = 1; i <= config.getThreads(); i++)
+            {
+                Thread thread = new Thread(this, "task-lane-" + config.getName() + "-" + i);
+                thread.setDaemon(true);
+                workers.add(thread);
+                thread.start();
+            }
+        }
+
+        /**
+         * Stops the worker threads.
+         */
+        public void stop()
+        {
+            for (Thread thread : workers)
+            {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Queues a request, or executes it on the current thread if the lane can't take it.
+         *
+         * @param inRequest
+         *            The request.
+         */
+        public void add(final UserActionRequest inRequest)
+        {
+            if (!stopped && !workers.isEmpty())
+            {
+                record(config.getName(), DEPTH_STAT, queue.size());
+                if (queue.offer(new Pending(inRequest)))
+                {
+                    return;
+                }
+                record(config.getName(), REJECTED_STAT, 1);
+            }
+
+            long start = System.nanoTime();
+            execute(inRequest);
+            record(config.getName(), RUN_MILLIS_STAT, (System.nanoTime() - start) / NANOS_PER_MILLI);
+        }
+
+        /**
+         * Worker loop: takes the next request, plus any directly following requests for the same action if it may be
+         * batched, and executes them.
+         */
+        @Override
+        public void run()
+        {
+            while (!stopped)
+            {
+                Pending first;
+                try
+                {
+                    first = queue.take();
+                }
+                catch (InterruptedException ex)
+                {
+                    return;
+                }
+
+                List<Pending> batch = new ArrayList<Pending>();
+                batch.add(first);
+                Pending other = null;
+                String actionKey = first.request.getActionKey();
+                if (config.isBatched(actionKey))
+                {
+                    while (batch.size() < config.getMaxBatchSize())
+                    {
+                        Pending next = queue.peek();
+                        if (next == null || !actionKey.equals(next.request.getActionKey()))
+                        {
+                            break;
+                        }
+                        // another worker may have taken the peeked request first
+                        next = queue.poll();
+                        if (next == null)
+                        {
+                            break;
+                        }
+                        if (!actionKey.equals(next.request.getActionKey()))
+                        {
+                            other = next;
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+
+                run(batch);
+                if (other != null)
+                {
+                    List<Pending> single = new ArrayList<Pending>(1);
+                    single.add(other);
+                    run(single);
+                }
+            }
+        }
+
+        /**
+         * Executes a request or a batch of requests for the same action.
+         *
+         * @param inBatch
+         *            The requests.
+         */
+        private void run(final List<Pending> inBatch)
+        {
+            long start = System.nanoTime();
+            for (Pending pending : inBatch)
+            {
+                record(config.getName(), WAIT_MILLIS_STAT, (start - pending.queuedAt) / NANOS_PER_MILLI);
+            }
+
+            if (inBatch.size() == 1)
+            {
+                execute(inBatch.get(0).request);
+            }
+            else
+            {
+                record(config.getName(), BATCH_SIZE_STAT, inBatch.size());
+                if (!executeInTransaction(inBatch))
+                {
+                    record(config.getName(), BATCH_FALLBACK_STAT, 1);
+                    for (Pending pending : inBatch)
+                    {
+                        execute(pending.request);
+                    }
+                }
+            }
+            record(config.getName(), RUN_MILLIS_STAT, (System.nanoTime() - start) / NANOS_PER_MILLI);
+        }
+
+        /**
+         * Executes a batch within one transaction. The executor's per-action transactions join it, so a failure of
+         * any action rolls back the whole batch. Follow-on requests submitted by the actions are held until the batch
+         * commits, and dropped if it does not (the one-at-a-time executions submit them again).
+         *
+         * @param inBatch
+         *            The requests.
+         * @return If the batch committed.
+         */
+        private boolean executeInTransaction(final List<Pending> inBatch)
+        {
+            String actionKey = inBatch.get(0).request.getActionKey();
+            DefaultTransactionDefinition transDef = new DefaultTransactionDefinition();
+            transDef.setName("batch of " + actionKey);
+            TransactionStatus transStatus = transactionManager.getTransaction(transDef);
+            DeferredTaskRequests.begin();
+            try
+            {
+                for (Pending pending : inBatch)
+                {
+                    executor.handleTask(pending.request);
+                }
+                transactionManager.commit(transStatus);
+            }
+            catch (Exception ex)
+            {
+                DeferredTaskRequests.discard();
+                log.warn("Batch of " + inBatch.size() + " '" + actionKey
+                        + "' actions failed; executing them one at a time.", ex);
+                if (!transStatus.isCompleted())
+                {
+                    try
+                    {
+                        transactionManager.rollback(transStatus);
+                    }
+                    catch (Exception rollbackEx)
+                    {
+                        log.error("Error rolling back batch of '" + actionKey + "' actions.", rollbackEx);
+                    }
+                }
+                return false;
+            }
+
+            try
+            {
+                DeferredTaskRequests.submit();
+            }
+            catch (Exception ex)
+            {
+                log.error("Error submitting follow-on requests of batch of '" + actionKey + "' actions.", ex);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.util.KeyedStatistics;
+
+/**
+ * Task handler which executes actions asynchronously on a pool of threads in this process, for single-node
+ * installations which don't need a message broker. Actions are executed by the given task handler (normally the
+ * in-line executing one, so each runs in its own transaction through the async action controller, exactly as if it had
+ * come off the queue).
+ *
+ * Each worker has its own deque of requests; requests are dealt to the workers in turn (requests submitted by an
+ * action running on a worker go to that worker's deque), and a worker whose deque is empty takes from the back of the
+ * others'. The number of waiting requests is bounded; when the pool is full, requests are executed on the submitting
+ * thread.
+ *
+ * Without a journal, requests still waiting when the process stops are lost. With a {@link TaskJournal}, accepted
+ * requests are recorded before being queued and unfinished ones are executed again on startup (so an action may
+ * execute twice if the process stops mid-action).
+ *
+ * The workers (and the recovery from the journal) start when {@link #start()} is called, which
+ * {@link LocalTaskHandlerStarter} does once the application context has been refreshed, so recovered actions do not
+ * run against a half-built context. Until then requests are executed on the submitting thread.
+ */
+public class LocalTaskHandler implements TaskHandler
+{
+    /** Statistic: number of requests waiting when one was added. */
+    public static final String DEPTH_STAT = "depth";
+
+    /** Statistic: milliseconds a request waited. */
+    public static final String WAIT_MILLIS_STAT = "wait.millis";
+
+    /** Statistic: milliseconds an action took. */
+    public static final String RUN_MILLIS_STAT = "run.millis";
+
+    /** Statistic: requests executed on the submitting thread because the pool was full. */
+    public static final String REJECTED_STAT = "rejected";
+
+    /** Statistic: requests a worker took from another worker's deque. */
+    public static final String STOLEN_STAT = "stolen";
+
+    /** Statistic: requests which could not be recorded in the journal (queued anyway). */
+    public static final String JOURNAL_ERROR_STAT = "journal.error";
+
+    /** Sequence number of requests not in the journal. */
+    private static final long NOT_JOURNALED = 0;
+
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** The logger. */
+    private final Logger log = Logger.getLogger(LocalTaskHandler.class);
+
+    /** Executes the actions. */
+    private final TaskHandler executor;
+
+    /** Records accepted requests (null for none). */
+    private final TaskJournal journal;
+
+    /** Statistics. */
+    private final KeyedStatistics statistics;
+
+    /** The workers. */
+    private final List<Worker> workers = new ArrayList<Worker>();
+
+    /** Free places for waiting requests. */
+    private final Semaphore freeSlots;
+
+    /** Number of waiting requests (one permit each). */
+    private final Semaphore waiting = new Semaphore(0);
+
+    /** Worker the next request from outside the pool is given to. */
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /** Worker running on the current thread, if any. */
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+
+    /** Set once started. */
+    private volatile boolean started = false;
+
+    /** Set once shut down. */
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructor.
+     *
+     * @param inExecutor
+     *            Executes the actions.
+     * @param inThreads
+     *            Number of worker threads.
+     * @param inCapacity
+     *            Most requests waiting.
+     * @param inJournal
+     *            Records accepted requests (null for none).
+     * @param inStatistics
+     *            Statistics (null for none).
+     */
+    public LocalTaskHandler(final TaskHandler inExecutor, final int inThreads, final int inCapacity,
+            final TaskJournal inJournal, final KeyedStatistics inStatistics)
+    {
+        executor = inExecutor;
+        journal = inJournal;
+        statistics = inStatistics;
+        freeSlots = new Semaphore(Math.max(1, inCapacity));
+
+        for (int i = 1; i <= Math.max(1, inThreads); i++)
+        {
+            workers.add(new Worker("task-local-" + i));
+        }
+    }
+
+    /**
+     * Queues the requests left unfinished by the last run (if there is a journal) and starts the workers. Does nothing
+     * if already started or shut down.
+     *
+     * @throws IOException
+     *             If the journal cannot be read.
+     */
+    public synchronized void start() throws IOException
+    {
+        if (started || stopped)
+        {
+            return;
+        }
+
+        if (journal != null)
+        {
+            // recovered requests may exceed the capacity; they are queued regardless
+            for (Entry<Long, UserActionRequest> entry : journal.recover().entrySet())
+            {
+                enqueue(new Pending(entry.getValue(), entry.getKey(), freeSlots.tryAcquire()));
+            }
+        }
+        for (Worker worker : workers)
+        {
+            worker.thread.start();
+        }
+        started = true;
+    }
+
+    /**
+     * Queues the request, or executes it on the current thread if the pool is full, not started, or shut down.
+     *
+     * @param inUserActionRequest
+     *            The request.
+     */
+    @Override
+    public void handleTask(final UserActionRequest inUserActionRequest)
+    {
+        if (!started || stopped || !freeSlots.tryAcquire())
+        {
+            record(REJECTED_STAT, 1);
+            long start = System.nanoTime();
+            execute(inUserActionRequest);
+            record(RUN_MILLIS_STAT, (System.nanoTime() - start) / NANOS_PER_MILLI);
+            return;
+        }
+
+        long sequence = NOT_JOURNALED;
+        if (journal != null)
+        {
+            try
+            {
+                sequence = journal.add(inUserActionRequest);
+            }
+            catch (IOException ex)
+            {
+                record(JOURNAL_ERROR_STAT, 1);
+                log.warn("Could not record request for " + inUserActionRequest.getActionKey()
+                        + " in the task journal; it will be lost if the process stops before it executes.", ex);
+            }
+        }
+        record(DEPTH_STAT, getQueueDepth());
+        enqueue(new Pending(inUserActionRequest, sequence, true));
+    }
+
+    /**
+     * @return Number of requests waiting.
+     */
+    public int getQueueDepth()
+    {
+        return waiting.availablePermits();
+    }
+
+    /**
+     * @return Statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Stops the workers. Requests still waiting are left in the journal (if any) for the next start, else dropped;
+     * later requests are executed on the submitting thread.
+     */
+    public void shutdown()
+    {
+        stopped = true;
+        for (Worker worker : workers)
+        {
+            worker.thread.interrupt();
+        }
+        int left = getQueueDepth();
+        if (left > 0)
+        {
+            log.warn(left + " queued requests not executed"
+                    + (journal == null ? " and dropped." : "; they will be executed on the next start."));
+        }
+        if (journal != null)
+        {
+            journal.close();
+        }
+    }
+
+    /**
+     * Gives a request to a worker: the current one if submitted by an action on a worker, else the next in turn.
+     *
+     * @param inPending
+     *            The request.
+     */
+    private void enqueue(final Pending inPending)
+    {
+        Worker worker = currentWorker.get();
+        if (worker == null)
+        {
+            worker = workers.get((nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.size());
+        }
+        worker.deque.offerLast(inPending);
+        waiting.release();
+    }
+
+    /**
+     * Records a statistic.
+     *
+     * @param inStat
+     *            Statistic name.
+     * @param inValue
+     *            Sample value.
+     */
+    private void record(final String inStat, final long inValue)
+    {
+        if (statistics != null)
+        {
+            statistics.record(inStat, inValue);
+        }
+    }
+
+    /**
+     * Executes one request, logging any failure.
+     *
+     * @param inRequest
+     *            The request.
+     */
+    private void execute(final UserActionRequest inRequest)
+    {
+        try
+        {
+            executor.handleTask(inRequest);
+        }
+        catch (Exception ex)
+        {
+            log.error("Exception executing action " + inRequest.getActionKey(), ex);
+        }
+    }
+
+    /**
+     * A waiting request.
+     */
+    private static class Pending
+    {
+        /** The request. */
+        private final UserActionRequest request;
+
+        /** Its sequence number in the journal. */
+        private final long sequence;
+
+        /** If it holds a free slot (recovered requests over the capacity do not). */
+        private final boolean holdsSlot;
+
+        /** When it was queued (nanoseconds). */
+        private final long queuedAt = System.nanoTime();
+
+        /**
+         * Constructor.
+         *
+         * @param inRequest
+         *            The request.
+         * @param inSequence
+         *            Its sequence number in the journal.
+         * @param inHoldsSlot
+         *            If it holds a free slot.
+         */
+        public Pending(final UserActionRequest inRequest, final long inSequence, final boolean inHoldsSlot)
+        {
+            request = inRequest;
+            sequence = inSequence;
+            holdsSlot = inHoldsSlot;
+        }
+    }
+
+    /**
+     * A worker thread and its deque.
+     */
+    private class Worker implements Runnable
+    {
+        /** Requests given to this worker. */
+        private final BlockingDeque<Pending> deque = new LinkedBlockingDeque<Pending>();
+
+        /** The thread. */
+        private final Thread thread;
+
+        /**
+         * Constructor.
+         *
+         * @param inName
+         *            Thread name.
+         */
+        public Worker(final String inName)
+        {
+            thread = new Thread(this, inName);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Worker loop: waits for a request to be queued anywhere, then takes the oldest from its own deque or else the
+         * newest from another worker's.
+         */
+        @Override
+        public void run()
+        {
+            currentWorker.set(this);
+            while (!stopped)
+            {
+                try
+                {
+                    waiting.acquire();
+                }
+                catch (InterruptedException ex)
+                {
+                    return;
+                }
+                Pending pending = take();
+                if (pending.holdsSlot)
+                {
+                    freeSlots.release();
+                }
+
+                long start = System.nanoTime();
+                record(WAIT_MILLIS_STAT, (start - pending.queuedAt) / NANOS_PER_MILLI);
+                execute(pending.request);
+                record(RUN_MILLIS_STAT, (System.nanoTime() - start) / NANOS_PER_MILLI);
+                if (pending.sequence != NOT_JOURNALED)
+                {
+                    journal.done(pending.sequence);
+                }
+            }
+        }
+
+        /**
+         * Takes a request. Only called holding a waiting permit, so there is a request for this worker in some deque,
+         * though another worker may take the one this worker was about to; then it looks again.
+         *
+         * @return The request.
+         */
+        private Pending take()
+        {
+            int index = workers.indexOf(this);
+            while (true)
+            {
+                Pending pending = deque.pollFirst();
+                if (pending != null)
+                {
+                    return pending;
+                }
+                for (int i = 1; i < workers.size(); i++)
+                {
+                    pending = workers.get((index + i) % workers.size()).deque.pollLast();
+                    if (pending != null)
+                    {
+                        record(STOLEN_STAT, 1);
+                        return pending;
+                    }
+                }
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.task;
+
+import java.io.IOException;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Starts a {@link LocalTaskHandler} once its application context has been refreshed, so the actions it recovers from
+ * its journal run with every bean in place.
+ *
+ * The handler is only started if the context created it (i.e. it is the configured task handler); this bean does not
+ * create it otherwise, since a context which does not use it must not start its threads or recover its journal.
+ */
+public class LocalTaskHandlerStarter implements ApplicationListener, ApplicationContextAware
+{
+    /** Name of the handler's bean. */
+    private final String beanName;
+
+    /** The context. */
+    private ApplicationContext context;
+
+    /**
+     * Constructor.
+     *
+     * @param inBeanName
+     *            Name of the handler's bean.
+     */
+    public LocalTaskHandlerStarter(final String inBeanName)
+    {
+        beanName = inBeanName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setApplicationContext(final ApplicationContext inContext) throws BeansException
+    {
+        context = inContext;
+    }
+
+    /**
+     * Starts the handler when this bean's own context has been refreshed (events from child contexts are ignored).
+     *
+     * @param inEvent
+     *            The event.
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationEvent inEvent)
+    {
+        if (!(inEvent instanceof ContextRefreshedEvent)
+                || ((ContextRefreshedEvent) inEvent).getApplicationContext() != context
+                || !(context instanceof ConfigurableApplicationContext))
+        {
+            return;
+        }
+
+        ConfigurableListableBeanFactory factory = ((ConfigurableApplicationContext) context).getBeanFactory();
+        if (factory.containsSingleton(beanName))
+        {
+            try
+            {
+                ((LocalTaskHandler) factory.getBean(beanName)).start();
+            }
+            catch (IOException ex)
+            {
+                throw new IllegalStateException("Could not start task handler " + beanName, ex);
+            }
+        }
+    }
+}
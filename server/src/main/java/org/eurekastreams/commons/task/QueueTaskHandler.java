@@ -15,12 +15,16 @@
  */
 package org.eurekastreams.commons.task;
 
+import java.io.IOException;
+
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.ObjectMessage;
 import javax.jms.Session;
 
 import org.apache.log4j.Logger;
+import org.eurekastreams.commons.messaging.UserActionRequestCodec;
 import org.eurekastreams.commons.server.UserActionRequest;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessageCreator;
@@ -43,6 +47,16 @@ public class QueueTaskHandler implements TaskHandler
      */
     private JmsTemplate jmsTemplate;
 
+    /**
+     * Codec for sending requests in the compact format.
+     */
+    private UserActionRequestCodec codec = null;
+
+    /**
+     * If requests are sent in the compact format (when a codec is set); otherwise as serialized objects.
+     */
+    private boolean sendCompact = false;
+
     /**
      * Constructor.
      * 
@@ -56,6 +70,28 @@ public class QueueTaskHandler implements TaskHandler
         Assert.notNull(jmsTemplate.getDefaultDestination(), "JMS template must have default destination set.");
     }
 
+    /**
+     * Sets the codec used to send requests in the compact format.
+     * 
+     * @param inCodec
+     *            Codec.
+     */
+    public void setCodec(final UserActionRequestCodec inCodec)
+    {
+        codec = inCodec;
+    }
+
+    /**
+     * Turns on sending in the compact format. Only enable once every consumer of the queue can read the format.
+     * 
+     * @param inSendCompact
+     *            If requests should be sent in the compact format.
+     */
+    public void setSendCompact(final boolean inSendCompact)
+    {
+        sendCompact = inSendCompact;
+    }
+
     /**
      * Puts a request into a message and places it on the queue.
      * 
@@ -64,10 +100,30 @@ public class QueueTaskHandler implements TaskHandler
      */
     public void handleTask(final UserActionRequest inUserActionRequest)
     {
+        byte[] compact = null;
+        if (sendCompact && codec != null)
+        {
+            try
+            {
+                compact = codec.encode(inUserActionRequest);
+            }
+            catch (IOException ex)
+            {
+                logger.warn("Could not encode request for " + inUserActionRequest.getActionKey()
+                        + "; sending it as a serialized object.", ex);
+            }
+        }
+        final byte[] encoded = compact;
         jmsTemplate.send(new MessageCreator()
         {
             public Message createMessage(final Session session) throws JMSException
             {
+                if (encoded != null)
+                {
+                    BytesMessage message = session.createBytesMessage();
+                    message.writeBytes(encoded);
+                    return message;
+                }
                 ObjectMessage message = session.createObjectMessage(inUserActionRequest);
                 return message;
             }
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.eurekastreams.commons.messaging.UserActionRequestCodec;
+import org.eurekastreams.commons.server.UserActionRequest;
+
+/**
+ * Append-only file recording requests accepted by a {@link LocalTaskHandler} and which of them have finished, so
+ * requests accepted but not yet executed when the process stops can be executed after it restarts. Requests are
+ * written with the {@link UserActionRequestCodec} message format.
+ *
+ * Each record is a type byte followed by the request's sequence number (varint); request records are followed by the
+ * length and bytes of the encoded request. Once the file has grown past the compaction size and at most half of it is
+ * unfinished requests, it is rewritten to contain just those (or truncated if there are none), so it stays within
+ * about twice the size of the unfinished requests however long the process runs. A partial record at the end of the
+ * file (from a crash mid-write) is ignored.
+ */
+public class TaskJournal
+{
+    /** Record type: a request was accepted. */
+    private static final byte RECORD_REQUEST = 1;
+
+    /** Record type: a request finished. */
+    private static final byte RECORD_DONE = 2;
+
+    /** Default size past which the file is compacted. */
+    private static final long DEFAULT_COMPACT_BYTES = 1024 * 1024;
+
+    /** Most bytes in a request record besides the encoded request (type, sequence number varint, length). */
+    private static final int RECORD_OVERHEAD_BYTES = 15;
+
+    /** The logger. */
+    private final Logger log = Logger.getLogger(TaskJournal.class);
+
+    /** The file. */
+    private final File file;
+
+    /** Encodes the requests. */
+    private final UserActionRequestCodec codec;
+
+    /** Size past which the file is compacted. */
+    private long compactBytes = DEFAULT_COMPACT_BYTES;
+
+    /** If each record is forced to disk before returning. */
+    private boolean syncWrites = false;
+
+    /** Stream to the file (null until recovered). */
+    private FileOutputStream fileStream;
+
+    /** Buffered writer over the file stream. */
+    private DataOutputStream out;
+
+    /** Bytes in the file. */
+    private long size;
+
+    /** Sequence number of the next request. */
+    private long nextSequence = 1;
+
+    /** Encoded requests which have not finished, by sequence number, in the order recorded. */
+    private final Map<Long, byte[]> outstanding = new LinkedHashMap<Long, byte[]>();
+
+    /** Bytes of the file taken by the records of the requests which have not finished (at most). */
+    private long outstandingBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param inFile
+     *            The file (created if missing).
+     * @param inCodec
+     *            Encodes the requests.
+     */
+    public TaskJournal(final File inFile, final UserActionRequestCodec inCodec)
+    {
+        file = inFile;
+        codec = inCodec;
+    }
+
+    /**
+     * @param inCompactBytes
+     *            Size past which the file is compacted (once at most half of it is unfinished requests).
+     */
+    public void setCompactBytes(final long inCompactBytes)
+    {
+        compactBytes = inCompactBytes;
+    }
+
+    /**
+     * @param inSyncWrites
+     *            If each record is forced to disk before returning (survives an OS crash, not just a process one).
+     */
+    public void setSyncWrites(final boolean inSyncWrites)
+    {
+        syncWrites = inSyncWrites;
+    }
+
+    /**
+     * Reads the requests which had not finished when the file was last written, rewrites the file to contain just
+     * those, and opens it for appending. Must be called (once) before any other use.
+     *
+     * @return The unfinished requests in the order accepted, by sequence number.
+     * @throws IOException
+     *             If the file cannot be read or written.
+     */
+    public synchronized Map<Long, UserActionRequest> recover() throws IOException
+    {
+        Map<Long, byte[]> pending = new LinkedHashMap<Long, byte[]>();
+        if (file.exists())
+        {
+            readPending(pending);
+        }
+        else if (file.getAbsoluteFile().getParentFile() != null)
+        {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+
+        for (Long sequence : pending.keySet())
+        {
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        rewrite(pending);
+
+        Map<Long, UserActionRequest> requests = new LinkedHashMap<Long, UserActionRequest>();
+        for (Entry<Long, byte[]> entry : pending.entrySet())
+        {
+            try
+            {
+                requests.put(entry.getKey(), codec.decode(entry.getValue()));
+            }
+            catch (IOException ex)
+            {
+                log.error("Discarding unreadable request " + entry.getKey() + " from task journal " + file, ex);
+                done(entry.getKey());
+            }
+        }
+        if (!requests.isEmpty())
+        {
+            log.info("Recovered " + requests.size() + " unfinished requests from task journal " + file);
+        }
+        return requests;
+    }
+
+    /**
+     * Records an accepted request.
+     *
+     * @param inRequest
+     *            The request.
+     * @return Its sequence number (pass to {@link #done(long)} once it finishes).
+     * @throws IOException
+     *             If the request cannot be encoded or written.
+     */
+    public synchronized long add(final UserActionRequest inRequest) throws IOException
+    {
+        if (out == null)
+        {
+            throw new IOException("Task journal " + file + " is not open");
+        }
+        byte[] bytes = codec.encode(inRequest);
+        long sequence = nextSequence++;
+        writeRequest(sequence, bytes);
+        track(sequence, bytes);
+        flush();
+        return sequence;
+    }
+
+    /**
+     * Records that a request finished (successfully or not).
+     *
+     * @param inSequence
+     *            The request's sequence number.
+     */
+    public synchronized void done(final long inSequence)
+    {
+        byte[] bytes = outstanding.remove(inSequence);
+        if (bytes == null || out == null)
+        {
+            return;
+        }
+        outstandingBytes -= bytes.length + RECORD_OVERHEAD_BYTES;
+        try
+        {
+            if (outstanding.isEmpty() && size >= compactBytes)
+            {
+                out.flush();
+                fileStream.getChannel().truncate(0);
+                size = 0;
+                outstandingBytes = 0;
+                return;
+            }
+
+            out.writeByte(RECORD_DONE);
+            UserActionRequestCodec.writeVarLong(inSequence, out);
+            flush();
+            if (size >= compactBytes && outstandingBytes * 2 <= size)
+            {
+                rewrite(outstanding);
+            }
+        }
+        catch (IOException ex)
+        {
+            // worst case the request is executed again after a restart
+            log.warn("Could not record completion of request " + inSequence + " in task journal " + file, ex);
+            if (out == null)
+            {
+                reopen();
+            }
+        }
+    }
+
+    /**
+     * @return Number of recorded requests which have not finished.
+     */
+    public synchronized int getOutstandingCount()
+    {
+        return outstanding.size();
+    }
+
+    /**
+     * Closes the file. Unfinished requests stay in it for the next recovery.
+     */
+    public synchronized void close()
+    {
+        if (out != null)
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException ex)
+            {
+                log.warn("Error closing task journal " + file, ex);
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Rewrites the file to contain just the given requests, and opens it for appending. The requests are written to a
+     * temporary file which is then swapped in, so a crash mid-rewrite leaves the original.
+     *
+     * @param inRequests
+     *            Encoded requests by sequence number.
+     * @throws IOException
+     *             If the file cannot be written or replaced.
+     */
+    private void rewrite(final Map<Long, byte[]> inRequests) throws IOException
+    {
+        if (out != null)
+        {
+            out.close();
+            out = null;
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        open(tempFile, false);
+        try
+        {
+            for (Entry<Long, byte[]> entry : inRequests.entrySet())
+            {
+                writeRequest(entry.getKey(), entry.getValue());
+            }
+            flush();
+        }
+        finally
+        {
+            out.close();
+            out = null;
+        }
+        if (file.exists() && !file.delete())
+        {
+            throw new IOException("Could not replace task journal " + file);
+        }
+        if (!tempFile.renameTo(file))
+        {
+            throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+        open(file, true);
+
+        Map<Long, byte[]> requests = new LinkedHashMap<Long, byte[]>(inRequests);
+        outstanding.clear();
+        outstandingBytes = 0;
+        for (Entry<Long, byte[]> entry : requests.entrySet())
+        {
+            track(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Opens the file for appending again after a failed rewrite left it closed. Requests are still accepted if this
+     * fails, just not recorded.
+     */
+    private void reopen()
+    {
+        try
+        {
+            open(file, true);
+        }
+        catch (IOException ex)
+        {
+            log.error("Could not reopen task journal " + file + "; requests will not be recorded.", ex);
+        }
+    }
+
+    /**
+     * Reads the file, collecting the requests with no completion record.
+     *
+     * @param inPending
+     *            Receives the encoded requests by sequence number.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    private void readPending(final Map<Long, byte[]> inPending) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            while (true)
+            {
+                int type = in.read();
+                if (type < 0)
+                {
+                    break;
+                }
+                long sequence = UserActionRequestCodec.readVarLong(in);
+                if (type == RECORD_REQUEST)
+                {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    inPending.put(sequence, bytes);
+                }
+                else if (type == RECORD_DONE)
+                {
+                    inPending.remove(sequence);
+                }
+                else
+                {
+                    log.warn("Unknown record type " + type + " in task journal " + file + "; ignoring the rest.");
+                    break;
+                }
+            }
+        }
+        catch (EOFException ex)
+        {
+            log.warn("Task journal " + file + " ends with a partial record; ignoring it.");
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Opens a file for writing.
+     *
+     * @param inFile
+     *            The file.
+     * @param inAppend
+     *            If to append to it (else replace it).
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    private void open(final File inFile, final boolean inAppend) throws IOException
+    {
+        fileStream = new FileOutputStream(inFile, inAppend);
+        out = new DataOutputStream(new BufferedOutputStream(fileStream));
+        size = inAppend ? inFile.length() : 0;
+    }
+
+    /**
+     * Writes a request record.
+     *
+     * @param inSequence
+     *            Sequence number.
+     * @param inBytes
+     *            Encoded request.
+     * @throws IOException
+     *             On write error.
+     */
+    private void writeRequest(final long inSequence, final byte[] inBytes) throws IOException
+    {
+        out.writeByte(RECORD_REQUEST);
+        UserActionRequestCodec.writeVarLong(inSequence, out);
+        out.writeInt(inBytes.length);
+        out.write(inBytes);
+    }
+
+    /**
+     * Notes a recorded request has not finished.
+     *
+     * @param inSequence
+     *            Sequence number.
+     * @param inBytes
+     *            Encoded request.
+     */
+    private void track(final long inSequence, final byte[] inBytes)
+    {
+        outstanding.put(inSequence, inBytes);
+        outstandingBytes += inBytes.length + RECORD_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Pushes written records to the file (and the disk if syncing).
+     *
+     * @throws IOException
+     *             On write error.
+     */
+    private void flush() throws IOException
+    {
+        out.flush();
+        size = fileStream.getChannel().size();
+        if (syncWrites)
+        {
+            fileStream.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.task;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration of one lane of the {@link LaneTaskHandler}: the actions routed to it, how many threads execute them,
+ * and which of them may be executed in batches.
+ */
+public class TaskLane
+{
+    /** Default maximum number of actions executed in one batch. */
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    /** Name of the lane (used in statistics). */
+    private final String name;
+
+    /** Number of threads executing the lane's actions. */
+    private final int threads;
+
+    /** Maximum number of actions waiting in the lane. */
+    private final int queueSize;
+
+    /** Keys of the actions routed to the lane. */
+    private Set<String> actionKeys = Collections.emptySet();
+
+    /** Keys of the actions which may be executed in batches. */
+    private Set<String> batchedActionKeys = Collections.emptySet();
+
+    /** Maximum number of actions executed in one batch. */
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * Constructor.
+     *
+     * @param inName
+     *            Name of the lane (used in statistics).
+     * @param inThreads
+     *            Number of threads executing the lane's actions (0 to execute them on the submitting thread).
+     * @param inQueueSize
+     *            Maximum number of actions waiting in the lane; once full, actions are executed on the submitting
+     *            thread.
+     */
+    public TaskLane(final String inName, final int inThreads, final int inQueueSize)
+    {
+        name = inName;
+        threads = inThreads;
+        queueSize = inQueueSize;
+    }
+
+    /**
+     * @return Name of the lane.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return Number of threads executing the lane's actions.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * @return Maximum number of actions waiting in the lane.
+     */
+    public int getQueueSize()
+    {
+        return queueSize;
+    }
+
+    /**
+     * @return Keys of the actions routed to the lane.
+     */
+    public Set<String> getActionKeys()
+    {
+        return actionKeys;
+    }
+
+    /**
+     * @param inActionKeys
+     *            Keys of the actions routed to the lane.
+     */
+    public void setActionKeys(final Collection<String> inActionKeys)
+    {
+        actionKeys = new HashSet<String>(inActionKeys);
+    }
+
+    /**
+     * Sets the actions which may be executed in batches: consecutive requests for the same action are executed within
+     * one transaction (falling back to one transaction each if the batch fails). Only list actions whose requests are
+     * independent of one another. Follow-up requests submitted by task handler actions are held until the batch
+     * commits, and dropped if it fails (the one-at-a-time executions submit them again).
+     *
+     * @param inBatchedActionKeys
+     *            Keys of the actions which may be executed in batches.
+     */
+    public void setBatchedActionKeys(final Collection<String> inBatchedActionKeys)
+    {
+        batchedActionKeys = new HashSet<String>(inBatchedActionKeys);
+    }
+
+    /**
+     * @param inActionKey
+     *            Action key.
+     * @return If the action may be executed in batches.
+     */
+    public boolean isBatched(final String inActionKey)
+    {
+        return batchedActionKeys.contains(inActionKey);
+    }
+
+    /**
+     * @return Maximum number of actions executed in one batch.
+     */
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param inMaxBatchSize
+     *            Maximum number of actions executed in one batch.
+     */
+    public void setMaxBatchSize(final int inMaxBatchSize)
+    {
+        maxBatchSize = inMaxBatchSize;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named after their pool and numbered (name-1, name-2, ...), so background pools neither hold
+ * up shutdown nor show up anonymously in thread dumps.
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+    /** Number of threads created. */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** Name for the threads. */
+    private final String name;
+
+    /**
+     * Constructor.
+     *
+     * @param inName
+     *            Name for the threads.
+     */
+    public DaemonThreadFactory(final String inName)
+    {
+        name = inName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Thread newThread(final Runnable inRunnable)
+    {
+        Thread thread = new Thread(inRunnable, name + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
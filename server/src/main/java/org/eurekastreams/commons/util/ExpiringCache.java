@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe in-memory cache with a maximum number of entries (least recently used are evicted first) and a time to
+ * live per entry. Meant for small per-node caches of remote lookups (e.g. image dimensions or page metadata by URL)
+ * where serving a slightly stale value is fine but unbounded growth is not.
+ *
+ * @param <K>
+ *            Key type.
+ * @param <V>
+ *            Value type.
+ */
+public class ExpiringCache<K, V>
+{
+    /** Statistic: lookups answered from the cache. */
+    public static final String HIT_STAT = "hit";
+
+    /** Statistic: lookups not in the cache (or expired). */
+    public static final String MISS_STAT = "miss";
+
+    /** Statistic: entries evicted to stay under the size limit. */
+    public static final String EVICT_STAT = "evict";
+
+    /** Load factor of the map. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Entries, least recently used first. */
+    private final Map<K, Entry<V>> entries;
+
+    /** Maximum number of entries. */
+    private final int maxEntries;
+
+    /** Default time to live in milliseconds. */
+    private final long defaultTimeToLiveMillis;
+
+    /** Statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inMaxEntries
+     *            Maximum number of entries.
+     * @param inDefaultTimeToLiveMillis
+     *            Time to live for entries stored without one, in milliseconds.
+     */
+    public ExpiringCache(final int inMaxEntries, final long inDefaultTimeToLiveMillis)
+    {
+        maxEntries = inMaxEntries;
+        defaultTimeToLiveMillis = inDefaultTimeToLiveMillis;
+        entries = new LinkedHashMap<K, Entry<V>>(Math.min(inMaxEntries, Short.MAX_VALUE) + 1, LOAD_FACTOR, true);
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param inKey
+     *            Key.
+     * @return The value, null if absent or expired.
+     */
+    public V get(final K inKey)
+    {
+        Entry<V> entry;
+        synchronized (entries)
+        {
+            entry = entries.get(inKey);
+            if (entry != null && entry.expires <= System.currentTimeMillis())
+            {
+                entries.remove(inKey);
+                entry = null;
+            }
+        }
+        statistics.increment(entry == null ? MISS_STAT : HIT_STAT);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Stores a value with the default time to live.
+     *
+     * @param inKey
+     *            Key.
+     * @param inValue
+     *            Value.
+     */
+    public void put(final K inKey, final V inValue)
+    {
+        put(inKey, inValue, defaultTimeToLiveMillis);
+    }
+
+    /**
+     * Stores a value.
+     *
+     * @param inKey
+     *            Key.
+     * @param inValue
+     *            Value.
+     * @param inTimeToLiveMillis
+     *            Milliseconds until the value expires.
+     */
+    public void put(final K inKey, final V inValue, final long inTimeToLiveMillis)
+    {
+        Entry<V> entry = new Entry<V>(inValue, System.currentTimeMillis() + inTimeToLiveMillis);
+        synchronized (entries)
+        {
+            entries.put(inKey, entry);
+            Iterator<Entry<V>> iter = entries.values().iterator();
+            while (entries.size() > maxEntries && iter.hasNext())
+            {
+                iter.next();
+                iter.remove();
+                statistics.increment(EVICT_STAT);
+            }
+        }
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param inKey
+     *            Key.
+     */
+    public void remove(final K inKey)
+    {
+        synchronized (entries)
+        {
+            entries.remove(inKey);
+        }
+    }
+
+    /**
+     * @return Number of entries (including any expired ones not yet removed).
+     */
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return Hit, miss, and eviction statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * A value and when it expires.
+     *
+     * @param <V>
+     *            Value type.
+     */
+    private static class Entry<V>
+    {
+        /** Value. */
+        private final V value;
+
+        /** Expiration time. */
+        private final long expires;
+
+        /**
+         * Constructor.
+         *
+         * @param inValue
+         *            Value.
+         * @param inExpires
+         *            Expiration time.
+         */
+        Entry(final V inValue, final long inExpires)
+        {
+            value = inValue;
+            expires = inExpires;
+        }
+    }
+}
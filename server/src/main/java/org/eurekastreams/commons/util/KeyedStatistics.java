@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe set of named counters/measurements (e.g. per cache key prefix, per host, per queue lane). Each name
+ * tracks the number of samples, their total, and the largest sample. The number of distinct names is capped; samples
+ * for names past the cap are folded into {@link #OVERFLOW_KEY} so the statistics can't grow without bound.
+ */
+public class KeyedStatistics
+{
+    /** Name under which samples are recorded once the name limit is reached. */
+    public static final String OVERFLOW_KEY = "(other)";
+
+    /** Default maximum number of distinct names. */
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    /** Statistics by name. */
+    private final ConcurrentMap<String, Stat> stats = new ConcurrentHashMap<String, Stat>();
+
+    /** Maximum number of distinct names. */
+    private final int maxKeys;
+
+    /**
+     * Constructor.
+     */
+    public KeyedStatistics()
+    {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inMaxKeys
+     *            Maximum number of distinct names to track.
+     */
+    public KeyedStatistics(final int inMaxKeys)
+    {
+        maxKeys = inMaxKeys;
+    }
+
+    /**
+     * Counts one occurrence.
+     *
+     * @param inKey
+     *            Name.
+     */
+    public void increment(final String inKey)
+    {
+        record(inKey, 1);
+    }
+
+    /**
+     * Records a sample (a count, a duration in milliseconds, a byte count...).
+     *
+     * @param inKey
+     *            Name.
+     * @param inValue
+     *            Sample value.
+     */
+    public void record(final String inKey, final long inValue)
+    {
+        getStat(inKey).add(inValue);
+    }
+
+    /**
+     * Gets the statistic for a name.
+     *
+     * @param inKey
+     *            Name.
+     * @return The statistic, null if nothing has been recorded under the name.
+     */
+    public Stat get(final String inKey)
+    {
+        return stats.get(inKey);
+    }
+
+    /**
+     * Gets the number of samples recorded for a name.
+     *
+     * @param inKey
+     *            Name.
+     * @return Number of samples.
+     */
+    public long getCount(final String inKey)
+    {
+        Stat stat = stats.get(inKey);
+        return stat == null ? 0 : stat.getCount();
+    }
+
+    /**
+     * Gets the total of the samples recorded for a name.
+     *
+     * @param inKey
+     *            Name.
+     * @return Total of the samples.
+     */
+    public long getTotal(final String inKey)
+    {
+        Stat stat = stats.get(inKey);
+        return stat == null ? 0 : stat.getTotal();
+    }
+
+    /**
+     * @return A sorted copy of all the statistics.
+     */
+    public Map<String, Stat> getAll()
+    {
+        return new TreeMap<String, Stat>(stats);
+    }
+
+    /**
+     * Clears all statistics.
+     */
+    public void reset()
+    {
+        stats.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return getAll().toString();
+    }
+
+    /**
+     * Finds or creates the statistic for a name.
+     *
+     * @param inKey
+     *            Name.
+     * @return Statistic.
+     */
+    private Stat getStat(final String inKey)
+    {
+        Stat stat = stats.get(inKey);
+        if (stat == null)
+        {
+            String key = stats.size() < maxKeys ? inKey : OVERFLOW_KEY;
+            stat = new Stat();
+            Stat existing = stats.putIfAbsent(key, stat);
+            if (existing != null)
+            {
+                stat = existing;
+            }
+        }
+        return stat;
+    }
+
+    /**
+     * Accumulated samples for one name.
+     */
+    public static class Stat
+    {
+        /** Number of samples. */
+        private final AtomicLong count = new AtomicLong();
+
+        /** Total of samples. */
+        private final AtomicLong total = new AtomicLong();
+
+        /** Largest sample. */
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        /**
+         * Adds a sample.
+         *
+         * @param inValue
+         *            Sample value.
+         */
+        void add(final long inValue)
+        {
+            count.incrementAndGet();
+            total.addAndGet(inValue);
+            long currentMax = max.get();
+            while (inValue > currentMax && !max.compareAndSet(currentMax, inValue))
+            {
+                currentMax = max.get();
+            }
+        }
+
+        /**
+         * @return Number of samples.
+         */
+        public long getCount()
+        {
+            return count.get();
+        }
+
+        /**
+         * @return Total of samples.
+         */
+        public long getTotal()
+        {
+            return total.get();
+        }
+
+        /**
+         * @return Largest sample (0 if none).
+         */
+        public long getMax()
+        {
+            return count.get() == 0 ? 0 : max.get();
+        }
+
+        /**
+         * @return Mean of samples (0 if none).
+         */
+        public double getMean()
+        {
+            long n = count.get();
+            return n == 0 ? 0 : (double) total.get() / n;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            return "count=" + getCount() + " total=" + getTotal() + " max=" + getMax();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load, and callers arriving while it is in
+ * progress wait for and share its result (or exception) instead of running the same load again.
+ *
+ * @param <Key>
+ *            the key type
+ * @param <Value>
+ *            the value type
+ */
+public class SingleFlight<Key, Value>
+{
+    /**
+     * Stands in for a null key (the map does not allow nulls).
+     */
+    private static final Object NULL_KEY = new Object();
+
+    /**
+     * Loads in progress, by key.
+     */
+    private final ConcurrentMap<Object, FutureTask<Value>> inFlight = //
+    new ConcurrentHashMap<Object, FutureTask<Value>>();
+
+    /**
+     * Runs the load for the key, or waits for the one already running.
+     *
+     * @param inKey
+     *            the key
+     * @param inLoader
+     *            loads the value
+     * @return the value
+     */
+    public Value execute(final Key inKey, final Callable<Value> inLoader)
+    {
+        Object key = inKey == null ? NULL_KEY : inKey;
+        FutureTask<Value> task = new FutureTask<Value>(inLoader);
+        FutureTask<Value> running = inFlight.putIfAbsent(key, task);
+        if (running == null)
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        }
+        return getResult(running);
+    }
+
+    /**
+     * @param inKey
+     *            the key
+     * @return if a load of the key is in progress
+     */
+    public boolean isInFlight(final Key inKey)
+    {
+        return inFlight.containsKey(inKey == null ? NULL_KEY : inKey);
+    }
+
+    /**
+     * @return the number of loads in progress
+     */
+    public int getInFlightCount()
+    {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets a load's result, rethrowing its exception.
+     *
+     * @param inTask
+     *            the load
+     * @return the value
+     */
+    private Value getResult(final FutureTask<Value> inTask)
+    {
+        try
+        {
+            return inTask.get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for a load in progress", ex);
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
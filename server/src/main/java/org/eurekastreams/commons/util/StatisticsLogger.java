@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics.Stat;
+
+/**
+ * Periodically logs (at info level) sets of {@link KeyedStatistics}, so statistics kept by components such as the
+ * task lanes and the feed refresh engine can be watched in the logs. Statistics are cumulative since startup; sets
+ * with nothing recorded are skipped.
+ */
+public class StatisticsLogger
+{
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Statistics by name. */
+    private final Map<String, KeyedStatistics> statistics;
+
+    /** Runs the logging (null if disabled). */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param inStatistics
+     *            Statistics to log, by the name to log them under.
+     * @param inIntervalSeconds
+     *            Seconds between logging them (0 to not log them).
+     */
+    public StatisticsLogger(final Map<String, KeyedStatistics> inStatistics, final long inIntervalSeconds)
+    {
+        statistics = new LinkedHashMap<String, KeyedStatistics>(inStatistics);
+        if (inIntervalSeconds <= 0)
+        {
+            scheduler = null;
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("statistics-logger"));
+        scheduler.scheduleAtFixedRate(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    logAll();
+                }
+                catch (RuntimeException ex)
+                {
+                    // an exception would cancel further runs
+                    log.warn("Error logging statistics", ex);
+                }
+            }
+        }, inIntervalSeconds, inIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Logs the statistics.
+     */
+    public void logAll()
+    {
+        if (!log.isInfoEnabled())
+        {
+            return;
+        }
+        for (Entry<String, KeyedStatistics> entry : statistics.entrySet())
+        {
+            String report = format(entry.getValue());
+            if (report.length() > 0)
+            {
+                log.info("Statistics for " + entry.getKey() + ":" + report);
+            }
+        }
+    }
+
+    /**
+     * Formats a set of statistics, one per line.
+     *
+     * @param inStatistics
+     *            The statistics.
+     * @return The formatted statistics (empty if nothing has been recorded).
+     */
+    public static String format(final KeyedStatistics inStatistics)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Entry<String, Stat> entry : inStatistics.getAll().entrySet())
+        {
+            Stat stat = entry.getValue();
+            sb.append("\n    ").append(entry.getKey()).append(": count=").append(stat.getCount()).append(" mean=")
+                    .append(Math.round(stat.getMean())).append(" max=").append(stat.getMax());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops the logging.
+     */
+    public void shutdown()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+        }
+    }
+}
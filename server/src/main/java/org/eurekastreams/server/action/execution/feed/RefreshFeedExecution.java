@@ -17,6 +17,7 @@ package org.eurekastreams.server.action.execution.feed;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -31,6 +32,7 @@ import org.eurekastreams.commons.actions.ExecutionStrategy;
 import org.eurekastreams.commons.actions.context.ActionContext;
 import org.eurekastreams.commons.exceptions.ExecutionException;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
 import org.eurekastreams.server.action.request.feed.RefreshFeedRequest;
 import org.eurekastreams.server.domain.DomainGroup;
 import org.eurekastreams.server.domain.EntityType;
@@ -42,18 +44,24 @@ import org.eurekastreams.server.domain.stream.ActivityVerb;
 import org.eurekastreams.server.domain.stream.BaseObjectType;
 import org.eurekastreams.server.domain.stream.plugins.Feed;
 import org.eurekastreams.server.domain.stream.plugins.FeedSubscriber;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.FindByIdMapper;
 import org.eurekastreams.server.persistence.mappers.InsertMapper;
 import org.eurekastreams.server.persistence.mappers.UpdateMapper;
 import org.eurekastreams.server.persistence.mappers.cache.Cache;
 import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.db.GetFeedSubscriberStreamsDbMapper.SubscriberStream;
 import org.eurekastreams.server.persistence.mappers.requests.FindByIdRequest;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceListRequest;
 import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.FeedObjectActivityBuilder;
+import org.eurekastreams.server.service.actions.strategies.activity.plugins.FeedRefreshEngine;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.ObjectBuilderForSpecificUrl;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.rome.ActivityStreamsModule;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.rome.FeedFactory;
 import org.eurekastreams.server.service.opensocial.gadgets.spec.GadgetMetaDataFetcher;
+import org.eurekastreams.server.service.utility.http.ConditionalFetch;
+import org.eurekastreams.server.service.utility.http.NotModifiedException;
 
 import com.sun.syndication.feed.module.SyModule;
 import com.sun.syndication.feed.synd.SyndEntryImpl;
@@ -92,6 +100,24 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
      */
     private static final int DAYS_IN_YEAR = 365;
 
+    /** Statistic (per host): feeds fetched (including unchanged ones). */
+    public static final String FETCH_STAT = "fetch";
+
+    /** Statistic (per host): milliseconds per fetch. */
+    public static final String FETCH_MILLIS_STAT = "fetch.millis";
+
+    /** Statistic (per host): bytes downloaded per fetch. */
+    public static final String BYTES_STAT = "bytes";
+
+    /** Statistic (per host): fetches answered 304 Not Modified. */
+    public static final String NOT_MODIFIED_STAT = "notmodified";
+
+    /** Statistic (per host): activities created per fetch. */
+    public static final String ACTIVITIES_STAT = "activities";
+
+    /** Statistic (per host): fetches which failed. */
+    public static final String ERROR_STAT = "error";
+
     /**
      * Logger.
      */
@@ -151,6 +177,28 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
      */
     private List<String> outOfOrderFeeds;
 
+    /**
+     * If feeds are fetched with the validators from their last fetch (If-None-Match/If-Modified-Since).
+     */
+    private boolean conditionalGet = false;
+
+    /**
+     * Fetch statistics by host (optional).
+     */
+    private KeyedStatistics statistics = null;
+
+    /**
+     * Resolves the streams of all of a feed's subscribers at once (optional; if absent, each subscriber is loaded
+     * individually with the person/group finders).
+     */
+    private DomainMapper<Collection<FeedSubscriber>, Map<FeedSubscriber, SubscriberStream>> //
+    subscriberStreamsMapper = null;
+
+    /**
+     * Inserts all of a refresh's activities at once (optional; if absent, each is inserted individually).
+     */
+    private DomainMapper<PersistenceListRequest<Activity>, List<Long>> activityBatchInserter = null;
+
     /**
      * Default constructor.
      * 
@@ -198,6 +246,44 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
         outOfOrderFeeds = inOutOfOrderFeeds;
     }
 
+    /**
+     * @param inConditionalGet
+     *            If feeds are fetched with the validators from their last fetch, skipping unchanged feeds.
+     */
+    public void setConditionalGet(final boolean inConditionalGet)
+    {
+        conditionalGet = inConditionalGet;
+    }
+
+    /**
+     * @param inStatistics
+     *            Fetch statistics by host.
+     */
+    public void setStatistics(final KeyedStatistics inStatistics)
+    {
+        statistics = inStatistics;
+    }
+
+    /**
+     * @param inMapper
+     *            Resolves the streams of all of a feed's subscribers at once.
+     */
+    public void setSubscriberStreamsMapper(
+            final DomainMapper<Collection<FeedSubscriber>, Map<FeedSubscriber, SubscriberStream>> inMapper)
+    {
+        subscriberStreamsMapper = inMapper;
+    }
+
+    /**
+     * @param inActivityBatchInserter
+     *            Inserts all of a refresh's activities at once.
+     */
+    public void setActivityBatchInserter(
+            final DomainMapper<PersistenceListRequest<Activity>, List<Long>> inActivityBatchInserter)
+    {
+        activityBatchInserter = inActivityBatchInserter;
+    }
+
     /**
      * {@inheritDoc}.
      * 
@@ -213,6 +299,12 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
         Date lastPostDate = feed.getLastPostDate();
         Long updateFrequency = null;
         Boolean isOutOfOrder = false;
+        boolean notModified = false;
+        int activityCount = 0;
+        String host = FeedRefreshEngine.getHost(feed.getUrl());
+        ConditionalFetch conditional = null;
+        boolean singleRequest = false;
+        long fetchStart = System.currentTimeMillis();
 
         log.info("Processor feed: " + feed.getUrl());
         for (String oooFeed : outOfOrderFeeds)
@@ -236,7 +328,28 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
             {
                 requestorAccounts.add(feedSubscriber.getRequestor().getAccountId());
             }
-            Map<String, SyndFeed> syndFeeds = feedFetcherFactory.getSyndicatedFeed(feed.getUrl(), requestorAccounts);
+            Map<String, SyndFeed> syndFeeds;
+            if (conditionalGet)
+            {
+                conditional = new ConditionalFetch(feed.getHttpETag(), feed.getHttpLastModified());
+                ConditionalFetch.bind(conditional);
+                try
+                {
+                    syndFeeds = feedFetcherFactory.getSyndicatedFeed(feed.getUrl(), requestorAccounts);
+                }
+                finally
+                {
+                    ConditionalFetch.unbind();
+                }
+
+                // validators only describe the response if there was a single (anonymous) request
+                singleRequest = conditional.getRequestCount() == 1;
+            }
+            else
+            {
+                syndFeeds = feedFetcherFactory.getSyndicatedFeed(feed.getUrl(), requestorAccounts);
+            }
+            recordFetch(host, fetchStart, conditional);
 
             FeedObjectActivityBuilder selectedObjectMapper = null;
             for (ObjectBuilderForSpecificUrl entry : specificUrlMappers)
@@ -250,6 +363,7 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
 
             // iterate through all feed instances returned by the fetcher
             List<Activity> insertedActivities = new LinkedList<Activity>();
+            Map<FeedSubscriber, SubscriberStream> subscriberStreams = null;
             for (Map.Entry<String, SyndFeed> mapEntry : syndFeeds.entrySet())
             {
                 SyndFeed syndFeed = mapEntry.getValue();
@@ -341,7 +455,31 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
                             {
                                 Activity activityForIndividual = (Activity) activity.clone();
 
-                                if (feedSubscriber.getEntityType().equals(EntityType.PERSON))
+                                if (subscriberStreamsMapper != null)
+                                {
+                                    if (subscriberStreams == null)
+                                    {
+                                        subscriberStreams = subscriberStreamsMapper.execute(feed
+                                                .getFeedSubscribers());
+                                    }
+                                    SubscriberStream stream = subscriberStreams.get(feedSubscriber);
+                                    if (stream == null)
+                                    {
+                                        log.info("Ignoring missing or locked subscriber: "
+                                                + feedSubscriber.getEntityType() + " "
+                                                + feedSubscriber.getEntityId());
+                                    }
+                                    else
+                                    {
+                                        activityForIndividual.setActorId(stream.getActorId());
+                                        activityForIndividual.setRecipientStreamScope(stream.getStreamScope());
+                                        activityForIndividual.setIsDestinationStreamPublic(stream.isPublicStream());
+
+                                        activityForIndividual.setActorType(feedSubscriber.getEntityType());
+                                        insertedActivities.add(activityForIndividual);
+                                    }
+                                }
+                                else if (feedSubscriber.getEntityType().equals(EntityType.PERSON))
                                 {
                                     Person person = personFinder.execute(new FindByIdRequest("Person", feedSubscriber
                                             .getEntityId()));
@@ -389,12 +527,21 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
             {
                 ArrayList<Long> insertedActivityIds = new ArrayList<Long>();
                 Collections.reverse(insertedActivities);
-                for (Activity activity : insertedActivities)
+                if (activityBatchInserter != null)
                 {
-                    activityDBInserter.execute(new PersistenceRequest<Activity>(activity));
-                    insertedActivityIds.add(activity.getId());
+                    insertedActivityIds.addAll(activityBatchInserter.execute(new PersistenceListRequest<Activity>(
+                            insertedActivities)));
+                }
+                else
+                {
+                    for (Activity activity : insertedActivities)
+                    {
+                        activityDBInserter.execute(new PersistenceRequest<Activity>(activity));
+                        insertedActivityIds.add(activity.getId());
+                    }
                 }
                 Collections.reverse(insertedActivityIds);
+                activityCount = insertedActivityIds.size();
 
                 // TODO: this is not performant; fix
                 if (cache.get(CacheKeys.BUFFERED_ACTIVITIES) == null)
@@ -406,24 +553,82 @@ public class RefreshFeedExecution implements ExecutionStrategy<ActionContext>
                     cache.addToTopOfList(CacheKeys.BUFFERED_ACTIVITIES, insertedActivityIds);
                 }
             }
+
+            // only keep the new validators once the entries are stored: if anything above failed, the old ones make
+            // the next refresh fetch (and process) the feed again rather than get a 304
+            if (conditional != null)
+            {
+                feed.setHttpETag(singleRequest ? conditional.getResponseETag() : null);
+                feed.setHttpLastModified(singleRequest ? conditional.getResponseLastModified() : null);
+            }
+        }
+        catch (NotModifiedException ex)
+        {
+            log.info("Feed not modified: " + feed.getUrl());
+            notModified = true;
+            recordFetch(host, fetchStart, conditional);
+            record(host, NOT_MODIFIED_STAT, 1);
         }
         catch (Exception ex)
         {
             log.error("Error retrieving feed: " + feed.getUrl(), ex);
+            record(host, ERROR_STAT, 1);
         }
         finally
         {
-            feed.setLastSeenGUID(lastSeenGUID);
-            feed.setIsFeedBroken(brokenFeed);
-            feed.setLastPostDate(lastPostDate);
+            if (!notModified)
+            {
+                feed.setLastSeenGUID(lastSeenGUID);
+                feed.setIsFeedBroken(brokenFeed);
+                feed.setLastPostDate(lastPostDate);
+                feed.setUpdateFrequency(updateFrequency);
+            }
             feed.setLastUpdated(new Date().getTime() / MS_IN_MIN);
-            feed.setUpdateFrequency(updateFrequency);
             feed.setPending(false);
         }
 
+        record(host, ACTIVITIES_STAT, activityCount);
         return null;
     }
 
+    /**
+     * Records statistics for a completed fetch.
+     * 
+     * @param inHost
+     *            the feed's host.
+     * @param inStart
+     *            when the fetch started.
+     * @param inConditional
+     *            the conditional fetch, if used.
+     */
+    private void recordFetch(final String inHost, final long inStart, final ConditionalFetch inConditional)
+    {
+        record(inHost, FETCH_STAT, 1);
+        record(inHost, FETCH_MILLIS_STAT, System.currentTimeMillis() - inStart);
+        if (inConditional != null)
+        {
+            record(inHost, BYTES_STAT, inConditional.getBytes());
+        }
+    }
+
+    /**
+     * Records a statistic for a host, if statistics are being kept.
+     * 
+     * @param inHost
+     *            the host.
+     * @param inStat
+     *            the statistic name.
+     * @param inValue
+     *            the value.
+     */
+    private void record(final String inHost, final String inStat, final long inValue)
+    {
+        if (statistics != null)
+        {
+            statistics.record(inHost + FeedRefreshEngine.STAT_SEPARATOR + inStat, inValue);
+        }
+    }
+
     /**
      * Get the Activity object from an ATOM entry.
      * 
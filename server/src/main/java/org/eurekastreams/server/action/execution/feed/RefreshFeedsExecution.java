@@ -29,6 +29,7 @@ import org.eurekastreams.server.domain.stream.plugins.Feed;
 import org.eurekastreams.server.persistence.mappers.GetRefreshableFeedsMapper;
 import org.eurekastreams.server.persistence.mappers.SetRefreshableFeedsAsPending;
 import org.eurekastreams.server.persistence.mappers.requests.CurrentDateInMinutesRequest;
+import org.eurekastreams.server.service.actions.strategies.activity.plugins.FeedRefreshEngine;
 
 /**
  * Feed refresh task. Get the feeds that need to be updated. Pop an action on the queue. Set them as pending.
@@ -86,17 +87,17 @@ public class RefreshFeedsExecution implements TaskHandlerExecutionStrategy<Actio
                 / (MILLISECONDSINMINUTE));
 
         List<Feed> feeds = getFeedsMapper.execute(request);
-        List<Long> feedIds = new ArrayList<Long>();
+        List<RefreshFeedRequest> refreshRequests = new ArrayList<RefreshFeedRequest>();
         for (Feed feed : feeds)
         {
-            feedIds.add(feed.getId());
+            refreshRequests.add(new RefreshFeedRequest(feed.getId(), FeedRefreshEngine.getHost(feed.getUrl())));
         }
         setFeedsAsPendingMapper.execute(request);
 
-        for (Long id : feedIds)
+        for (RefreshFeedRequest refreshRequest : refreshRequests)
         {
              inActionContext.getUserActionRequests().add(
-                        new UserActionRequest("refreshFeedAction", null, new RefreshFeedRequest(id)));
+                        new UserActionRequest("refreshFeedAction", null, refreshRequest));
         }
 
         return null;
@@ -193,8 +193,11 @@ public class DeleteGroupFromDBExecution implements TaskHandlerExecutionStrategy<
         {
             startSize = inActionContext.getUserActionRequests().size();
         }
-        // purge fixed set of cache keys.
-        generateSingleDeleteKeyFromCacheTask(getKeysToPurgeFromCache(deleteGroupResponse), inActionContext);
+        // purge fixed set of cache keys, and the followers' group count counters (their groupsCount columns were just
+        // changed, so the counters are rebuilt from them).
+        Set<String> keysToPurge = getKeysToPurgeFromCache(deleteGroupResponse);
+        keysToPurge.addAll(createKeys(CacheKeys.GROUP_COUNT_BY_PERSON_ID, followerIds));
+        generateSingleDeleteKeyFromCacheTask(keysToPurge, inActionContext);
 
         if (log.isDebugEnabled())
         {
@@ -409,8 +412,9 @@ public class DeleteGroupFromDBExecution implements TaskHandlerExecutionStrategy<
         keysToPurgeFromCache.add(CacheKeys.GROUP_BY_SHORT_NAME + inRequest.getGroupShortName());
         keysToPurgeFromCache.add(CacheKeys.GROUP_BY_ID + inRequest.getGroupId());
 
-        // remove follower person ids list for group
+        // remove follower person ids list and follower count for group
         keysToPurgeFromCache.add(CacheKeys.FOLLOWERS_BY_GROUP + inRequest.getGroupId());
+        keysToPurgeFromCache.add(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID + inRequest.getGroupId());
 
         // remove coordinator ids list for group.
         keysToPurgeFromCache.add(CacheKeys.COORDINATOR_PERSON_IDS_BY_GROUP_ID + inRequest.getGroupId());
@@ -51,7 +51,9 @@ import org.eurekastreams.server.persistence.DomainGroupMapper;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.cache.AddCachedGroupFollower;
 import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
 import org.eurekastreams.server.persistence.mappers.db.DeleteRequestForGroupMembership;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateSuggestionCandidatesRequest;
 import org.eurekastreams.server.persistence.mappers.stream.GetDomainGroupsByShortNames;
 import org.eurekastreams.server.search.modelview.DomainGroupModelView;
 import org.eurekastreams.server.search.modelview.PersonModelView;
@@ -91,9 +93,9 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
     private final AddCachedGroupFollower addCachedGroupFollowerMapper;
 
     /**
-     * Local instance of the GetGroupFollowerIds mapper.
+     * Follower and following counters.
      */
-    private final DomainMapper<Long, List<Long>> followerIdsMapper;
+    private final FollowCounters followCounters;
 
     /**
      * Mapper to remove group access requests.
@@ -123,8 +125,8 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
      *            - instance of the DomainGroupMapper mapper.
      * @param inAddCachedGroupFollowerMapper
      *            - instance of the AddCachedGroupFollower mapper.
-     * @param inFollowerIdsMapper
-     *            - mapper to get the follower ids for a group
+     * @param inFollowCounters
+     *            - follower and following counters.
      * @param inDeleteRequestForGroupMembershipMapper
      *            Mapper to remove group access requests.
      * @param inPostActivityExecutor
@@ -137,7 +139,7 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
             final DomainMapper<Long, PersonModelView> inGetPersonByIdMapper,
             final DomainMapper<String, Long> inGetPersonIdFromAccountIdMapper,
             final DomainGroupMapper inDomainGroupMapper, final AddCachedGroupFollower inAddCachedGroupFollowerMapper,
-            final DomainMapper<Long, List<Long>> inFollowerIdsMapper,
+            final FollowCounters inFollowCounters,
             final DeleteRequestForGroupMembership inDeleteRequestForGroupMembershipMapper,
             final TaskHandlerExecutionStrategy inPostActivityExecutor,
             final DomainMapper<Set<String>, Boolean> inDeleteCacheKeyMapper)
@@ -147,7 +149,7 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
         getPersonIdFromAccountIdMapper = inGetPersonIdFromAccountIdMapper;
         domainGroupMapper = inDomainGroupMapper;
         addCachedGroupFollowerMapper = inAddCachedGroupFollowerMapper;
-        followerIdsMapper = inFollowerIdsMapper;
+        followCounters = inFollowCounters;
         deleteRequestForGroupMembershipMapper = inDeleteRequestForGroupMembershipMapper;
         postActivityExecutor = inPostActivityExecutor;
         deleteCacheKeyMapper = inDeleteCacheKeyMapper;
@@ -172,6 +174,7 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
         FollowerStatus followerStatus;
         String targetName;
         boolean isPending = false;
+        int followerCountDelta = 0;
         List<UserActionRequest> asyncRequests = inActionContext.getUserActionRequests();
         final Serializable params = inActionContext.getActionContext().getParams();
 
@@ -218,14 +221,13 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
         {
         case FOLLOWING:
             // Update the db and cache for list of followers and following.
-            domainGroupMapper.addFollower(followerId, targetId);
+            if (domainGroupMapper.addFollower(followerId, targetId))
+            {
+                followerCountDelta = 1;
+            }
             // Update the cache list of followers
             addCachedGroupFollowerMapper.execute(followerId, targetId);
 
-            // Queue async action to remove the newly followed group from cache (to sync follower counts)
-            asyncRequests.add(new UserActionRequest("deleteCacheKeysAction", null, (Serializable) Collections
-                    .singleton(CacheKeys.GROUP_BY_ID + targetId)));
-
             // remove any requests from the user for group membership
             if (deleteRequestForGroupMembershipMapper
                     .execute(new RequestForGroupMembershipRequest(targetId, followerId)))
@@ -311,11 +313,10 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
             }
 
             // Update the db for list of followers and following.
-            domainGroupMapper.removeFollower(followerId, targetId);
-
-            // Queue async action to remove the newly followed group from cache (to sync follower counts)
-            asyncRequests.add(new UserActionRequest("deleteCacheKeysAction", null, (Serializable) Collections
-                    .singleton(CacheKeys.GROUP_BY_ID + targetId)));
+            if (domainGroupMapper.removeFollower(followerId, targetId))
+            {
+                followerCountDelta = -1;
+            }
 
             // Remove the current user that is severing a relationship with the target group
             // from the list of followers for that target group.
@@ -353,7 +354,19 @@ public class SetFollowingGroupStatusExecution implements TaskHandlerExecutionStr
             // nothing to do here.
         }
 
-        return followerIdsMapper.execute(targetId).size();
+        // Update the counts shown on the group's and person's profiles (the model views themselves stay cached); the
+        // counters are adjusted once the transaction commits.
+        if (followerCountDelta != 0)
+        {
+            followCounters.adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, followerId, followerCountDelta);
+
+            // Post an async action to update the cached stream suggestions affected by this membership change.
+            asyncRequests.add(new UserActionRequest("updateSuggestionCandidates", null,
+                    new UpdateSuggestionCandidatesRequest(followerId, targetId, EntityType.GROUP,
+                            followerCountDelta > 0)));
+        }
+        return (int) followCounters.adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, targetId,
+                followerCountDelta);
     }
 
     /**
@@ -31,10 +31,14 @@ import org.eurekastreams.server.action.request.notification.CreateNotificationsR
 import org.eurekastreams.server.action.request.notification.TargetEntityNotificationsRequest;
 import org.eurekastreams.server.action.request.profile.SetFollowingStatusRequest;
 import org.eurekastreams.server.action.request.stream.DeleteIdsFromListsRequest;
+import org.eurekastreams.server.domain.EntityType;
 import org.eurekastreams.server.persistence.PersonMapper;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.cache.AddCachedPersonFollower;
 import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateFollowedByActivitiesRequest;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateSuggestionCandidatesRequest;
 
 /**
  * This class provides the Following Strategy for a Person object.
@@ -63,9 +67,9 @@ public class SetFollowingPersonStatusExecution implements TaskHandlerExecutionSt
     private final AddCachedPersonFollower addCachedFollowerMapper;
 
     /**
-     * Local instance of the cache mapper for retrieving followers of a user.
+     * Follower and following counters.
      */
-    private final DomainMapper<Long, List<Long>> followerIdsMapper;
+    private final FollowCounters followCounters;
 
     /**
      * Constructor for the FollowingPersonStrategy.
@@ -76,18 +80,18 @@ public class SetFollowingPersonStatusExecution implements TaskHandlerExecutionSt
      *            - mapper to get person id from account id.
      * @param inAddCachedFollowerMapper
      *            - instance of AddCachedPersonFollower mapper.
-     * @param inFollowerIdsMapper
-     *            - instance of GetFollowerIds mapper.
+     * @param inFollowCounters
+     *            - follower and following counters.
      */
     public SetFollowingPersonStatusExecution(final PersonMapper inMapper,
             final DomainMapper<String, Long> inGetPersonIdByAccountIdMapper,
             final AddCachedPersonFollower inAddCachedFollowerMapper,
-            final DomainMapper<Long, List<Long>> inFollowerIdsMapper)
+            final FollowCounters inFollowCounters)
     {
         mapper = inMapper;
         getPersonIdByAccountIdMapper = inGetPersonIdByAccountIdMapper;
         addCachedFollowerMapper = inAddCachedFollowerMapper;
-        followerIdsMapper = inFollowerIdsMapper;
+        followCounters = inFollowCounters;
     }
 
     /**
@@ -108,7 +112,7 @@ public class SetFollowingPersonStatusExecution implements TaskHandlerExecutionSt
         }
 
         List<UserActionRequest> asyncRequests = inActionContext.getUserActionRequests();
-        int followingCount;
+        int followerCountDelta = 0;
 
         Long followerPersonId;
         Long followedPersonId = getPersonIdByAccountIdMapper.execute(request.getTargetUniqueId());
@@ -127,17 +131,18 @@ public class SetFollowingPersonStatusExecution implements TaskHandlerExecutionSt
         {
         case FOLLOWING:
             logger.trace("Add new following to the list of following.");
-            mapper.addFollower(followerPersonId, followedPersonId);
+            if (mapper.addFollower(followerPersonId, followedPersonId))
+            {
+                followerCountDelta = 1;
+            }
             addCachedFollowerMapper.execute(followerPersonId, followedPersonId);
 
-            // Queue async action to remove the newly followed person from cache (to sync follower counts)
-            asyncRequests.add(new UserActionRequest("deleteCacheKeysAction", null, (Serializable) Collections
-                    .singleton(CacheKeys.PERSON_BY_ID + followedPersonId)));
-
             logger.trace("Submit async action to update all cached activities.");
 
-            // Post an async action to update the cache for the user's list of following activity ids.
-            asyncRequests.add(new UserActionRequest("refreshFollowedByActivities", null, followerPersonId));
+            // Post an async action to merge the followed person's activity into the user's list of following
+            // activity ids.
+            asyncRequests.add(new UserActionRequest("updateFollowedByActivities", null,
+                    new UpdateFollowedByActivitiesRequest(followerPersonId, followedPersonId, true)));
 
             // queues up new follower notifications.
             asyncRequests
@@ -149,11 +154,10 @@ public class SetFollowingPersonStatusExecution implements TaskHandlerExecutionSt
         case NOTFOLLOWING:
             logger.trace("Remove new following from the list of following.");
 
-            mapper.removeFollower(followerPersonId, followedPersonId);
-
-            // Queue async action to remove the newly followed person from cache (to sync follower counts)
-            asyncRequests.add(new UserActionRequest("deleteCacheKeysAction", null, (Serializable) Collections
-                    .singleton(CacheKeys.PERSON_BY_ID + followedPersonId)));
+            if (mapper.removeFollower(followerPersonId, followedPersonId))
+            {
+                followerCountDelta = -1;
+            }
 
             // Remove the current user that is severing a relationship with the target
             // from the list of followers for that target user.
@@ -167,16 +171,31 @@ public class SetFollowingPersonStatusExecution implements TaskHandlerExecutionSt
                     Collections.singletonList(CacheKeys.PEOPLE_FOLLOWED_BY_PERSON + followerPersonId), Collections
                             .singletonList(followedPersonId))));
 
-            // Post an async action to update the cache for the user's list of following activity ids.
-            asyncRequests.add(new UserActionRequest("refreshFollowedByActivities", null, followerPersonId));
+            // Post an async action to take the unfollowed person's activity out of the user's list of following
+            // activity ids.
+            asyncRequests.add(new UserActionRequest("updateFollowedByActivities", null,
+                    new UpdateFollowedByActivitiesRequest(followerPersonId, followedPersonId, false)));
             break;
         default:
             // do nothing.
         }
 
-        followingCount = followerIdsMapper.execute(followedPersonId).size();
+        // Update the counts shown on both people's profiles (the model views themselves stay cached); the
+        // counters are adjusted once the transaction commits.
+        if (followerCountDelta != 0)
+        {
+            followCounters.adjustAfterCommit(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID, followerPersonId,
+                    followerCountDelta);
+
+            // Post an async action to update the cached stream suggestions affected by this follow change.
+            asyncRequests.add(new UserActionRequest("updateSuggestionCandidates", null,
+                    new UpdateSuggestionCandidatesRequest(followerPersonId, followedPersonId, EntityType.PERSON,
+                            followerCountDelta > 0)));
+        }
+        long followerCount = followCounters.adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, followedPersonId,
+                followerCountDelta);
 
-        return new Integer(followingCount);
+        return new Integer((int) followerCount);
     }
 
 }
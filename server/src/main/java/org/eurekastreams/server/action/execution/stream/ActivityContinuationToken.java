@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.action.execution.stream;
+
+/**
+ * Builds and reads the opaque continuation tokens returned with a page of activities sorted by date. A client passes
+ * the token back (as "continuation" in the request, in place of "maxId") to get the page after it. Clients must not
+ * interpret the token; its contents may change between versions.
+ */
+public final class ActivityContinuationToken
+{
+    /** Prefix identifying the format of the token. */
+    private static final String VERSION_PREFIX = "1.";
+
+    /** Radix used to encode the ID. */
+    private static final int RADIX = Character.MAX_RADIX;
+
+    /** Hide constructor. */
+    private ActivityContinuationToken()
+    {
+    }
+
+    /**
+     * Builds a token for continuing after an activity.
+     *
+     * @param inLastActivityId
+     *            ID of the last activity returned.
+     * @return the token.
+     */
+    public static String encode(final long inLastActivityId)
+    {
+        return VERSION_PREFIX + Long.toString(inLastActivityId, RADIX);
+    }
+
+    /**
+     * Reads a token.
+     *
+     * @param inToken
+     *            the token.
+     * @return the ID of the last activity returned; the next page holds activities with smaller IDs.
+     * @throws IllegalArgumentException
+     *             if the token is not valid.
+     */
+    public static long decode(final String inToken)
+    {
+        if (inToken == null || !inToken.startsWith(VERSION_PREFIX))
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + inToken);
+        }
+        try
+        {
+            return Long.parseLong(inToken.substring(VERSION_PREFIX.length()), RADIX);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + inToken, ex);
+        }
+    }
+}
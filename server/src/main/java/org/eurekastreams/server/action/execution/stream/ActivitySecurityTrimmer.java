@@ -15,17 +15,19 @@
  */
 package org.eurekastreams.server.action.execution.stream;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import net.sf.json.JSONObject;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
 import org.eurekastreams.server.domain.stream.ActivitySecurityDTO;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.LongArrayList;
 import org.eurekastreams.server.persistence.mappers.cache.GetPrivateCoordinatedAndFollowedGroupIdsForUser;
 
 /**
@@ -73,37 +75,84 @@ public class ActivitySecurityTrimmer implements ListTrimmer, ActivityQueryListTr
      * @return the activityIDs that the user has permission to see.
      */
     public List<Long> trim(final List<Long> activityIds, final Long userPersonId)
+    {
+        return trim(activityIds, userPersonId, null);
+    }
+
+    /**
+     * Trim activities that the user does not have permission to see.
+     *
+     * @param activityIds
+     *            the activityIDs.
+     * @param userPersonId
+     *            the user's id.
+     * @param visibleGroups
+     *            holder remembering the ids of the private groups the user can see across calls (may be null).
+     * @return the activityIDs that the user has permission to see, in their original order.
+     */
+    private List<Long> trim(final List<Long> activityIds, final Long userPersonId,
+            final VisibleGroups visibleGroups)
     {
         log.debug("Trimming " + activityIds.size() + " activity ids for person#" + userPersonId);
-        Set<Long> accessibleGroupIds = getVisibleGroupsForUserMapper.execute(userPersonId);
+        if (activityIds.isEmpty())
+        {
+            return new LongArrayList();
+        }
+
+        Set<Long> accessibleGroupIds = visibleGroups == null ? null : visibleGroups.getGroupIds(userPersonId);
 
         final Collection<ActivitySecurityDTO> securityDTOs = securityMapper.execute(activityIds);
 
-        final List<Long> visibleActivities = new LinkedList<Long>();
+        final boolean debug = log.isDebugEnabled();
+
+        // collect the visible ids in a sorted primitive array so the original order can be restored with a binary
+        // search per id instead of a list scan
+        final long[] visibleActivities = new long[securityDTOs.size()];
+        int visibleCount = 0;
 
         for (ActivitySecurityDTO actSec : securityDTOs)
         {
-            if (actSec.getExists()
-                    && (actSec.isDestinationStreamPublic() || accessibleGroupIds.contains(actSec
-                            .getDestinationEntityId())))
+            boolean permitted = false;
+            if (actSec.getExists())
+            {
+                if (actSec.isDestinationStreamPublic())
+                {
+                    permitted = true;
+                }
+                else
+                {
+                    if (accessibleGroupIds == null)
+                    {
+                        accessibleGroupIds = getVisibleGroupsForUserMapper.execute(userPersonId);
+                        if (visibleGroups != null)
+                        {
+                            visibleGroups.setGroupIds(userPersonId, accessibleGroupIds);
+                        }
+                    }
+                    permitted = accessibleGroupIds.contains(actSec.getDestinationEntityId());
+                }
+            }
+
+            if (permitted)
             {
-                log.debug("Activity with ID permitted: " + actSec.getId());
-                visibleActivities.add(actSec.getId());
+                visibleActivities[visibleCount++] = actSec.getId();
             }
-            else
+            if (debug)
             {
-                log.debug("Activity with ID NOT permitted: " + actSec.getId());
+                log.debug("Activity with ID " + (permitted ? "" : "NOT ") + "permitted: " + actSec.getId());
             }
         }
 
+        Arrays.sort(visibleActivities, 0, visibleCount);
+
         // Preserve order
-        final List<Long> orderedActivities = new LinkedList<Long>();
+        final LongArrayList orderedActivities = new LongArrayList(visibleCount);
 
-        for (int i = 0; i < activityIds.size(); i++)
+        for (Long activityId : activityIds)
         {
-            if (visibleActivities.contains(activityIds.get(i)))
+            if (Arrays.binarySearch(visibleActivities, 0, visibleCount, activityId) >= 0)
             {
-                orderedActivities.add(activityIds.get(i));
+                orderedActivities.addLong(activityId);
             }
         }
 
@@ -113,11 +162,57 @@ public class ActivitySecurityTrimmer implements ListTrimmer, ActivityQueryListTr
     /**
      * {@inheritDoc}
      *
-     * Note: Trimmer is stateless. So as a shortcut, we can put the class and the factory in one class.
+     * Note: Returns a trimmer for the one request, which remembers the user's visible private groups so each page of
+     * the request doesn't fetch them again.
      */
     @Override
     public ListTrimmer getTrimmer(final JSONObject inRequest, final Long inUserEntityId)
     {
-        return this;
+        final VisibleGroups visibleGroups = new VisibleGroups();
+        return new ListTrimmer()
+        {
+            public List<Long> trim(final List<Long> inActivityIds, final Long inUserPersonId)
+            {
+                return ActivitySecurityTrimmer.this.trim(inActivityIds, inUserPersonId, visibleGroups);
+            }
+        };
+    }
+
+    /**
+     * Holds the ids of the private groups a user can see, for the duration of one request.
+     */
+    private static class VisibleGroups
+    {
+        /** The user the group ids are for. */
+        private Long userPersonId;
+
+        /** The group ids. */
+        private Set<Long> groupIds;
+
+        /**
+         * Gets the group ids, if known.
+         *
+         * @param inUserPersonId
+         *            the user's id.
+         * @return the group ids, or null if they have not been fetched for this user.
+         */
+        public Set<Long> getGroupIds(final Long inUserPersonId)
+        {
+            return groupIds != null && ObjectUtils.equals(userPersonId, inUserPersonId) ? groupIds : null;
+        }
+
+        /**
+         * Remembers the group ids.
+         *
+         * @param inUserPersonId
+         *            the user's id.
+         * @param inGroupIds
+         *            the group ids.
+         */
+        public void setGroupIds(final Long inUserPersonId, final Set<Long> inGroupIds)
+        {
+            userPersonId = inUserPersonId;
+            groupIds = inGroupIds;
+        }
     }
 }
@@ -31,6 +31,11 @@ public class DeleteActivityCacheUpdateExecution implements ExecutionStrategy<Act
      */
     private DeleteActivityCacheUpdate deleteActivityCacheUpdateDAO;
 
+    /**
+     * Removes the activity's hashtags from its stream's popular hashtag counts (optional).
+     */
+    private DeletedActivityHashTagCountsStrategy hashTagCountsStrategy;
+
     /**
      * Constructor.
      * 
@@ -42,6 +47,15 @@ public class DeleteActivityCacheUpdateExecution implements ExecutionStrategy<Act
         deleteActivityCacheUpdateDAO = inDeleteActivityCacheUpdateDAO;
     }
 
+    /**
+     * @param inHashTagCountsStrategy
+     *            removes the activity's hashtags from its stream's popular hashtag counts.
+     */
+    public void setHashTagCountsStrategy(final DeletedActivityHashTagCountsStrategy inHashTagCountsStrategy)
+    {
+        hashTagCountsStrategy = inHashTagCountsStrategy;
+    }
+
     /**
      * Update cache after activity deletion.
      * 
@@ -52,7 +66,13 @@ public class DeleteActivityCacheUpdateExecution implements ExecutionStrategy<Act
     @Override
     public Boolean execute(final ActionContext inActionContext)
     {
-        return deleteActivityCacheUpdateDAO.execute((DeleteActivityCacheUpdateRequest) inActionContext.getParams());
+        DeleteActivityCacheUpdateRequest request = (DeleteActivityCacheUpdateRequest) inActionContext.getParams();
+        Boolean result = deleteActivityCacheUpdateDAO.execute(request);
+        if (hashTagCountsStrategy != null && request.getActivity() != null)
+        {
+            hashTagCountsStrategy.execute(request.getActivity());
+        }
+        return result;
     }
 
 }
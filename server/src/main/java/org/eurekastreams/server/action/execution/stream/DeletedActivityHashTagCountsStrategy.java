@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.action.execution.stream;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
+import org.eurekastreams.server.domain.EntityType;
+import org.eurekastreams.server.domain.strategies.HashTagExtractor;
+import org.eurekastreams.server.domain.stream.ActivityDTO;
+import org.eurekastreams.server.domain.stream.HashTag;
+import org.eurekastreams.server.domain.stream.StreamEntityDTO;
+import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateStreamHashTagCountsRequest;
+import org.eurekastreams.server.persistence.mappers.stream.ActivityContentExtractor;
+
+/**
+ * Removes a deleted activity's hashtags from its destination stream's cached popular hashtag counts. The hashtags are
+ * parsed from the activity's content the same way as when it was posted (see
+ * {@link StoreStreamHashTagsForActivityStrategyImpl}).
+ */
+public class DeletedActivityHashTagCountsStrategy
+{
+    /**
+     * Hashtag extractor.
+     */
+    private final HashTagExtractor hashTagExtractor;
+
+    /**
+     * Content extractor - pulls out content for hashtag parsing.
+     */
+    private final ActivityContentExtractor contentExtractor;
+
+    /**
+     * Mapper to adjust the stream's cached hashtag counts.
+     */
+    private final DomainMapper<UpdateStreamHashTagCountsRequest, Boolean> hashTagCountsUpdater;
+
+    /**
+     * Constructor.
+     *
+     * @param inHashTagExtractor
+     *            hash tag extractor
+     * @param inContentExtractor
+     *            the activity content extractor
+     * @param inHashTagCountsUpdater
+     *            mapper to adjust the stream's cached hashtag counts
+     */
+    public DeletedActivityHashTagCountsStrategy(final HashTagExtractor inHashTagExtractor,
+            final ActivityContentExtractor inContentExtractor,
+            final DomainMapper<UpdateStreamHashTagCountsRequest, Boolean> inHashTagCountsUpdater)
+    {
+        hashTagExtractor = inHashTagExtractor;
+        contentExtractor = inContentExtractor;
+        hashTagCountsUpdater = inHashTagCountsUpdater;
+    }
+
+    /**
+     * Remove the activity's hashtags from its stream's counts.
+     *
+     * @param inActivity
+     *            the deleted activity
+     */
+    public void execute(final ActivityDTO inActivity)
+    {
+        StreamEntityDTO destination = inActivity.getDestinationStream();
+        if (destination == null
+                || (destination.getType() != EntityType.PERSON && destination.getType() != EntityType.GROUP))
+        {
+            return;
+        }
+
+        String content = contentExtractor.extractContent(inActivity.getBaseObjectType(), inActivity
+                .getBaseObjectProperties());
+        if (content == null)
+        {
+            return;
+        }
+
+        // normalize the same way hashtags are stored
+        Set<String> hashTags = new LinkedHashSet<String>();
+        for (String hashTag : hashTagExtractor.extractAll(content))
+        {
+            hashTags.add(new HashTag(hashTag).getContent());
+        }
+        if (hashTags.isEmpty())
+        {
+            return;
+        }
+
+        ScopeType scopeType = destination.getType() == EntityType.PERSON ? ScopeType.PERSON : ScopeType.GROUP;
+        hashTagCountsUpdater.execute(new UpdateStreamHashTagCountsRequest(new StreamPopularHashTagsRequest(scopeType,
+                destination.getUniqueIdentifier()), hashTags, inActivity.getPostedTime(), -1));
+    }
+}
@@ -130,7 +130,8 @@ public class GetActivitiesByRequestExecution implements ExecutionStrategy<Princi
 
         final int currentMax = request.getInt("count");
 
-        if (!query.containsKey("sortBy") || query.getString("sortBy").equals("date"))
+        final boolean sortedByDate = !query.containsKey("sortBy") || query.getString("sortBy").equals("date");
+        if (sortedByDate)
         {
             request.put("count", currentMax + 1);
         }
@@ -157,6 +158,12 @@ public class GetActivitiesByRequestExecution implements ExecutionStrategy<Princi
             }
 
             results.remove(currentMax);
+
+            if (sortedByDate && currentMax > 0)
+            {
+                // results are in descending id order, so the next page continues after the last one returned
+                pagedSet.setContinuation(ActivityContinuationToken.encode(results.get(currentMax - 1)));
+            }
         }
 
         final List<ActivityDTO> dtoResults = bulkActivitiesMapper.execute(results);
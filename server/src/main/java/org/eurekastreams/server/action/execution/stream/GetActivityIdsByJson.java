@@ -23,22 +23,41 @@ import net.sf.json.JSONObject;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.LongArrayList;
 import org.eurekastreams.server.search.modelview.PersonModelView;
+import org.eurekastreams.server.service.actions.strategies.activity.DescendingIdMergeCursor;
 import org.eurekastreams.server.service.actions.strategies.activity.ListCollider;
 import org.eurekastreams.server.service.actions.strategies.activity.datasources.DescendingOrderDataSource;
 import org.eurekastreams.server.service.actions.strategies.activity.datasources.SortedDataSource;
+import org.eurekastreams.server.service.actions.strategies.activity.datasources.StreamingDescendingOrderDataSource;
 
 /**
  * Get Activity IDs with a JSON request.
  */
 public class GetActivityIdsByJson
 {
+    /**
+     * Statistic holding the number of passes over the data made per request.
+     */
+    public static final String PASSES_STAT = "passes";
+
+    /**
+     * Statistic holding the number of data source fetches made per request.
+     */
+    public static final String FETCHES_STAT = "fetches";
+
     /**
      * Logger.
      */
     private final Log log = LogFactory.make();
 
+    /**
+     * Per-request statistics.
+     */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
     /**
      * Data source that MUST provide results in descending order of ID.
      */
@@ -118,6 +137,42 @@ public class GetActivityIdsByJson
      * @return the activity ids.
      */
     public List<Long> execute(final String inRequest, final Long userEntityId)
+    {
+        RequestCounts counts = new RequestCounts();
+        try
+        {
+            return execute(inRequest, userEntityId, counts);
+        }
+        finally
+        {
+            statistics.record(PASSES_STAT, counts.passes);
+            statistics.record(FETCHES_STAT, counts.fetches);
+        }
+    }
+
+    /**
+     * Gets the per-request statistics: {@link #PASSES_STAT} records the number of passes over the data made for each
+     * request and {@link #FETCHES_STAT} the number of data source fetches (cache and index reads).
+     *
+     * @return the statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Get activity ids base on a request and user entity ID.
+     *
+     * @param inRequest
+     *            the request.
+     * @param userEntityId
+     *            the user entity ID.
+     * @param counts
+     *            counts of the work done for the request.
+     * @return the activity ids.
+     */
+    private List<Long> execute(final String inRequest, final Long userEntityId, final RequestCounts counts)
     {
         String request = inRequest;
         log.debug("Attempted to parse: " + inRequest);
@@ -147,6 +202,11 @@ public class GetActivityIdsByJson
         {
             maxActivityId = jsonRequest.getLong("maxId");
         }
+        if (jsonRequest.containsKey("continuation"))
+        {
+            maxActivityId = Math.min(maxActivityId, ActivityContinuationToken.decode(jsonRequest
+                    .getString("continuation")));
+        }
 
         // build list of trimmers
         List<ListTrimmer> trimmers = new ArrayList<ListTrimmer>();
@@ -168,7 +228,35 @@ public class GetActivityIdsByJson
 
         List<Long> allKeys = new ArrayList<Long>();
 
+        // the search runs on this thread: it uses the caller's session and transaction
         final List<Long> sortedDataSet = sortedDataSource.fetch(jsonRequest, userEntityId);
+        counts.fetches++;
+
+        // read the lists once for a cursor (their parts are read concurrently by the data source); the batches below
+        // take their ids from it rather than reading the lists again
+        DescendingIdMergeCursor cursor = null;
+        if (descendingOrderdataSource instanceof StreamingDescendingOrderDataSource)
+        {
+            cursor = ((StreamingDescendingOrderDataSource) descendingOrderdataSource).fetchCursor(jsonRequest,
+                    userEntityId);
+            counts.fetches++;
+        }
+
+        // when only the descending order data source applies and it can stream, read it lazily instead of fetching
+        // and colliding ever larger batches
+        if (sortedDataSet == null)
+        {
+            if (cursor != null)
+            {
+                if (maxActivityId < Long.MAX_VALUE)
+                {
+                    // resume directly after the client's last activity
+                    cursor.skipToBelow(maxActivityId);
+                }
+                return executeFromCursor(cursor, maxResults, minActivityId, maxActivityId, trimmers, userEntityId,
+                        counts);
+            }
+        }
 
         // The pass.
         int pass = 1;
@@ -180,6 +268,9 @@ public class GetActivityIdsByJson
 
         boolean reachedMinActivityIdWhenSortingByIdDescending = false;
         boolean sortedByIdDescending = false;
+
+        // ids read so far from the cursor, if the lists were read through one
+        List<Long> cursorIds = new ArrayList<Long>();
         do
         {
             allKeys.clear();
@@ -189,7 +280,22 @@ public class GetActivityIdsByJson
 
             jsonRequest.put("count", batchSize);
 
-            final List<Long> descendingOrderDataSet = descendingOrderdataSource.fetch(jsonRequest, userEntityId);
+            final List<Long> descendingOrderDataSet;
+            if (cursor != null)
+            {
+                // the lists were already read for the cursor, so take the ids from it rather than reading them again
+                while (cursorIds.size() < batchSize && cursor.hasNext())
+                {
+                    cursorIds.add(cursor.nextLong());
+                }
+                descendingOrderDataSet = cursorIds;
+            }
+            else
+            {
+                descendingOrderDataSet = descendingOrderdataSource.fetch(jsonRequest, userEntityId);
+                counts.fetches++;
+            }
+            counts.passes++;
 
             if (descendingOrderDataSet != null)
             {
@@ -298,4 +404,91 @@ public class GetActivityIdsByJson
 
         return results;
     }
+
+    /**
+     * Gets activity ids by reading pages from a cursor over IDs in descending order and trimming each page, until
+     * enough results are found or the IDs run out.
+     *
+     * @param cursor
+     *            the cursor.
+     * @param maxResults
+     *            the number of results wanted.
+     * @param minActivityId
+     *            results must be greater than this ID.
+     * @param maxActivityId
+     *            results must be less than this ID.
+     * @param trimmers
+     *            the trimmers to apply to each page.
+     * @param userEntityId
+     *            the user entity ID.
+     * @param counts
+     *            counts of the work done for the request.
+     * @return the activity ids.
+     */
+    private List<Long> executeFromCursor(final DescendingIdMergeCursor cursor, final int maxResults,
+            final long minActivityId, final long maxActivityId, final List<ListTrimmer> trimmers,
+            final Long userEntityId, final RequestCounts counts)
+    {
+        List<Long> results = new ArrayList<Long>();
+
+        // start with the same batch size as the first pass above, then double it with each page
+        int batchSize = maxResults * 2;
+        boolean reachedMinActivityId = false;
+
+        while (results.size() < maxResults && !reachedMinActivityId && cursor.hasNext())
+        {
+            counts.passes++;
+            LongArrayList ids = new LongArrayList();
+            while (ids.size() < batchSize && cursor.hasNext())
+            {
+                long id = cursor.nextLong();
+                if (id <= minActivityId)
+                {
+                    reachedMinActivityId = true;
+                    break;
+                }
+                if (id < maxActivityId)
+                {
+                    ids.addLong(id);
+                }
+            }
+
+            if (ids.isEmpty())
+            {
+                continue;
+            }
+            List<Long> page = ids;
+            log.debug("Sending a page of " + page.size() + " out for security trimming.");
+
+            for (ListTrimmer trimmer : trimmers)
+            {
+                page = trimmer.trim(page, userEntityId);
+            }
+            for (Long item : page)
+            {
+                results.add(item);
+                if (results.size() >= maxResults)
+                {
+                    log.debug("Filled a full page of " + results.size() + " results.");
+                    return results;
+                }
+            }
+
+            batchSize *= 2;
+        }
+
+        return results;
+    }
+
+    /**
+     * Counts of the work done for one request.
+     */
+    private static class RequestCounts
+    {
+        /** Passes over the data. */
+        private int passes;
+
+        /** Data source fetches. */
+        private int fetches;
+    }
 }
@@ -18,6 +18,7 @@ package org.eurekastreams.server.action.execution.stream;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +34,7 @@ import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
 import org.eurekastreams.server.persistence.mappers.requests.UniqueStringRequest;
 import org.eurekastreams.server.service.actions.strategies.links.ConnectionFacade;
 import org.eurekastreams.server.service.actions.strategies.links.HtmlLinkParser;
+import org.eurekastreams.server.service.actions.strategies.links.LinkInformationCache;
 
 /**
  * Retrieve the {@link LinkInformation} for a given url.
@@ -65,6 +67,11 @@ public class GetParsedLinkInformationExecution implements ExecutionStrategy<Prin
      */
     private InsertMapper<LinkInformation> insertMapper = null;
 
+    /**
+     * Cache of recently requested links (optional).
+     */
+    private LinkInformationCache linkCache = null;
+
     /**
      * Constructor.
      * 
@@ -87,6 +94,15 @@ public class GetParsedLinkInformationExecution implements ExecutionStrategy<Prin
         parsingStrategies = inParsingStrategies;
     }
 
+    /**
+     * @param inLinkCache
+     *            Cache of recently requested links; null to fetch every time.
+     */
+    public void setLinkCache(final LinkInformationCache inLinkCache)
+    {
+        linkCache = inLinkCache;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -96,18 +112,46 @@ public class GetParsedLinkInformationExecution implements ExecutionStrategy<Prin
     public Serializable execute(final PrincipalActionContext inActionContext) throws ExecutionException
     {
         String url = (String) inActionContext.getParams();
+        final String accountId = inActionContext.getPrincipal().getAccountId();
 
-        LinkInformation theLink = null;
+        // First see if the user supplied a url with a protocol. If they didn't
+        // prepend http:// onto it.
+        if (!Pattern.matches("^([a-z]+://.+)", url))
+        {
+            url = "http://" + url;
+        }
 
-        try
+        if (linkCache == null)
         {
-            // First see if the user supplied a url with a protocol. If they didn't
-            // prepend http:// onto it.
-            if (!Pattern.matches("^([a-z]+://.+)", url))
+            return fetchLinkInformation(url, accountId);
+        }
+
+        final String requestedUrl = url;
+        return linkCache.get(requestedUrl, new Callable<LinkInformation>()
+        {
+            public LinkInformation call()
             {
-                url = "http://" + url;
+                return fetchLinkInformation(requestedUrl, accountId);
             }
-            url = connection.getFinalUrl(url, inActionContext.getPrincipal().getAccountId());
+        });
+    }
+
+    /**
+     * Retrieves the {@link LinkInformation} for a url from the database, or by downloading and parsing it.
+     *
+     * @param inUrl
+     *            the url (with protocol).
+     * @param accountId
+     *            account id of the user making the request.
+     * @return the link information, null if it couldn't be retrieved.
+     */
+    private LinkInformation fetchLinkInformation(final String inUrl, final String accountId)
+    {
+        LinkInformation theLink = null;
+
+        try
+        {
+            String url = connection.getFinalUrl(inUrl, accountId);
 
             UniqueStringRequest req = new UniqueStringRequest(url);
             theLink = mapper.execute(req);
@@ -125,7 +169,7 @@ public class GetParsedLinkInformationExecution implements ExecutionStrategy<Prin
                 log.debug("Downloading resource: " + url);
                 try
                 {
-                    String htmlString = connection.downloadFile(url, inActionContext.getPrincipal().getAccountId());
+                    String htmlString = connection.downloadFile(url, accountId);
                     htmlString = htmlString.replace("\\s+", " ");
 
                     String host = connection.getHost(url);
@@ -137,8 +181,7 @@ public class GetParsedLinkInformationExecution implements ExecutionStrategy<Prin
                         if (match.find())
                         {
                             log.debug("Found: " + strategy.getRegex());
-                            strategy.parseLinkInformation(htmlString, theLink, inActionContext.getPrincipal()
-                                    .getAccountId());
+                            strategy.parseLinkInformation(htmlString, theLink, accountId);
                             break;
                         }
                         else
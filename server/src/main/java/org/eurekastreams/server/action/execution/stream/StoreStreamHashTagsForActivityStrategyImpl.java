@@ -15,18 +15,24 @@
  */
 package org.eurekastreams.server.action.execution.stream;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
 import org.eurekastreams.server.domain.strategies.HashTagExtractor;
 import org.eurekastreams.server.domain.stream.Activity;
 import org.eurekastreams.server.domain.stream.HashTag;
 import org.eurekastreams.server.domain.stream.StreamHashTag;
 import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.InsertBatchMapper;
 import org.eurekastreams.server.persistence.mappers.InsertMapper;
 import org.eurekastreams.server.persistence.mappers.chained.DecoratedPartialResponseDomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceListRequest;
 import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateStreamHashTagCountsRequest;
 import org.eurekastreams.server.persistence.mappers.stream.ActivityContentExtractor;
 
 /**
@@ -60,6 +66,16 @@ public class StoreStreamHashTagsForActivityStrategyImpl implements StoreStreamHa
      */
     private final InsertMapper<StreamHashTag> streamHashTagInsertMapper;
 
+    /**
+     * Mapper to insert all of an activity's stream hashtags at once (optional; else inserted one at a time).
+     */
+    private InsertBatchMapper<StreamHashTag> streamHashTagBatchInsertMapper;
+
+    /**
+     * Mapper to add the hashtags to the stream's cached popular hashtag counts (optional).
+     */
+    private DomainMapper<UpdateStreamHashTagCountsRequest, Boolean> hashTagCountsUpdater;
+
     /**
      * Constructor for the PostActivityAsyncExecutionStrategy class.
      * 
@@ -83,6 +99,26 @@ public class StoreStreamHashTagsForActivityStrategyImpl implements StoreStreamHa
         streamHashTagInsertMapper = inStreamHashTagInsertMapper;
     }
 
+    /**
+     * @param inStreamHashTagBatchInsertMapper
+     *            mapper to insert all of an activity's stream hashtags at once
+     */
+    public void setStreamHashTagBatchInsertMapper(
+            final InsertBatchMapper<StreamHashTag> inStreamHashTagBatchInsertMapper)
+    {
+        streamHashTagBatchInsertMapper = inStreamHashTagBatchInsertMapper;
+    }
+
+    /**
+     * @param inHashTagCountsUpdater
+     *            mapper to add the hashtags to the stream's cached popular hashtag counts
+     */
+    public void setHashTagCountsUpdater(
+            final DomainMapper<UpdateStreamHashTagCountsRequest, Boolean> inHashTagCountsUpdater)
+    {
+        hashTagCountsUpdater = inHashTagCountsUpdater;
+    }
+
     /**
      * Parse and insert any necessary StreamHashTags for the input activity.
      * 
@@ -111,6 +147,8 @@ public class StoreStreamHashTagsForActivityStrategyImpl implements StoreStreamHa
             return;
         }
 
+        List<StreamHashTag> streamHashTags = new ArrayList<StreamHashTag>();
+        List<String> hashTagContents = new ArrayList<String>();
         for (HashTag hashTag : hashTagMapper.execute(hashTagStrings))
         {
             // insert the activity hashtag for the destination stream
@@ -121,7 +159,25 @@ public class StoreStreamHashTagsForActivityStrategyImpl implements StoreStreamHa
             }
 
             streamHashTag = new StreamHashTag(hashTag, inActivity, recipientStreamKey, scopeType);
-            streamHashTagInsertMapper.execute(new PersistenceRequest<StreamHashTag>(streamHashTag));
+            if (streamHashTagBatchInsertMapper != null)
+            {
+                streamHashTags.add(streamHashTag);
+            }
+            else
+            {
+                streamHashTagInsertMapper.execute(new PersistenceRequest<StreamHashTag>(streamHashTag));
+            }
+            hashTagContents.add(hashTag.getContent());
+        }
+        if (!streamHashTags.isEmpty())
+        {
+            streamHashTagBatchInsertMapper.execute(new PersistenceListRequest<StreamHashTag>(streamHashTags));
+        }
+
+        if (hashTagCountsUpdater != null && !hashTagContents.isEmpty())
+        {
+            hashTagCountsUpdater.execute(new UpdateStreamHashTagCountsRequest(new StreamPopularHashTagsRequest(
+                    scopeType, recipientStreamKey), hashTagContents, inActivity.getPostedTime(), 1));
         }
     }
 
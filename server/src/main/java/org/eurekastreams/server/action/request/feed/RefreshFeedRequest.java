@@ -33,6 +33,11 @@ public class RefreshFeedRequest implements Serializable
      */
     private Long feedId;
 
+    /**
+     * Host the feed is on (used to limit how many feeds from one host are refreshed at once).
+     */
+    private String host;
+
     /**
      * Constructor.
      * 
@@ -43,6 +48,20 @@ public class RefreshFeedRequest implements Serializable
     {
     	feedId = inFeedId;
     }
+
+    /**
+     * Constructor.
+     * 
+     * @param inFeedId
+     *            the feed id.
+     * @param inHost
+     *            the host the feed is on.
+     */
+    public RefreshFeedRequest(final Long inFeedId, final String inHost)
+    {
+        feedId = inFeedId;
+        host = inHost;
+    }
     
     /**
      * Gets the feed id.
@@ -52,4 +71,13 @@ public class RefreshFeedRequest implements Serializable
     {
     	return feedId;
     }
+
+    /**
+     * Gets the host the feed is on.
+     * @return the host, null if not known.
+     */
+    public String getHost()
+    {
+        return host;
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.action.request.notification;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.eurekastreams.commons.messaging.ParamCodec;
+import org.eurekastreams.commons.messaging.UserActionRequestCodec;
+import org.eurekastreams.server.action.request.notification.CreateNotificationsRequest.RequestType;
+
+/**
+ * Compact queue encoding for the common notification requests: {@link CreateNotificationsRequest},
+ * {@link TargetEntityNotificationsRequest}, {@link ActivityNotificationsRequest} and
+ * {@link CommentNotificationsRequest}. Other request classes fall back to Java serialization.
+ */
+public class NotificationsRequestCodec implements ParamCodec
+{
+    /** Type id. */
+    private static final int TYPE_ID = UserActionRequestCodec.FIRST_CUSTOM_TYPE_ID;
+
+    /** Kind: CreateNotificationsRequest. */
+    private static final int KIND_BASE = 0;
+
+    /** Kind: TargetEntityNotificationsRequest. */
+    private static final int KIND_TARGET = 1;
+
+    /** Kind: ActivityNotificationsRequest. */
+    private static final int KIND_ACTIVITY = 2;
+
+    /** Kind: CommentNotificationsRequest. */
+    private static final int KIND_COMMENT = 3;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTypeId()
+    {
+        return TYPE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final Serializable inParams)
+    {
+        return getKind(inParams) >= 0;
+    }
+
+    /**
+     * @param inParams
+     *            Parameters.
+     * @return Kind of request, -1 if not handled.
+     */
+    private int getKind(final Serializable inParams)
+    {
+        Class< ? > type = inParams.getClass();
+        if (type == CreateNotificationsRequest.class)
+        {
+            return KIND_BASE;
+        }
+        if (type == TargetEntityNotificationsRequest.class)
+        {
+            return KIND_TARGET;
+        }
+        if (type == ActivityNotificationsRequest.class)
+        {
+            return KIND_ACTIVITY;
+        }
+        if (type == CommentNotificationsRequest.class)
+        {
+            return KIND_COMMENT;
+        }
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final Serializable inParams, final DataOutput inOut) throws IOException
+    {
+        int kind = getKind(inParams);
+        CreateNotificationsRequest request = (CreateNotificationsRequest) inParams;
+        inOut.writeByte(kind);
+        inOut.writeUTF(request.getType().name());
+        UserActionRequestCodec.writeSignedVarLong(request.getActorId(), inOut);
+        if (kind >= KIND_TARGET)
+        {
+            UserActionRequestCodec.writeSignedVarLong(((TargetEntityNotificationsRequest) request)
+                    .getTargetEntityId(), inOut);
+        }
+        if (kind >= KIND_ACTIVITY)
+        {
+            UserActionRequestCodec.writeSignedVarLong(((ActivityNotificationsRequest) request).getActivityId(),
+                    inOut);
+        }
+        if (kind == KIND_COMMENT)
+        {
+            UserActionRequestCodec.writeSignedVarLong(((CommentNotificationsRequest) request).getCommentId(), inOut);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable decode(final DataInput inIn) throws IOException
+    {
+        int kind = inIn.readByte();
+        RequestType type;
+        try
+        {
+            type = RequestType.valueOf(inIn.readUTF());
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IOException("Unknown notification request type: " + ex.getMessage());
+        }
+        long actorId = UserActionRequestCodec.readSignedVarLong(inIn);
+        switch (kind)
+        {
+        case KIND_BASE:
+            return new CreateNotificationsRequest(type, actorId);
+        case KIND_TARGET:
+            return new TargetEntityNotificationsRequest(type, actorId, UserActionRequestCodec.readSignedVarLong(inIn));
+        case KIND_ACTIVITY:
+            long streamEntityId = UserActionRequestCodec.readSignedVarLong(inIn);
+            return new ActivityNotificationsRequest(type, actorId, streamEntityId, UserActionRequestCodec
+                    .readSignedVarLong(inIn));
+        case KIND_COMMENT:
+            long commentStreamEntityId = UserActionRequestCodec.readSignedVarLong(inIn);
+            long activityId = UserActionRequestCodec.readSignedVarLong(inIn);
+            return new CommentNotificationsRequest(type, actorId, commentStreamEntityId, activityId,
+                    UserActionRequestCodec.readSignedVarLong(inIn));
+        default:
+            throw new IOException("Unknown notification request kind " + kind + ".");
+        }
+    }
+}
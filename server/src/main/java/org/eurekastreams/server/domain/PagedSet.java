@@ -63,6 +63,11 @@ public class PagedSet<T> implements Serializable
      */
     private String elapsedTime;
 
+    /**
+     * token to pass back to get the next page (null if there is none or the set does not support it).
+     */
+    private String continuation;
+
     /**
      * no argument constructor.
      *
@@ -247,4 +252,25 @@ public class PagedSet<T> implements Serializable
     {
         elapsedTime = inElapsedTime;
     }
+
+    /**
+     * Get the token to pass back to get the next page.
+     *
+     * @return the token, or null if there is no next page.
+     */
+    public String getContinuation()
+    {
+        return continuation;
+    }
+
+    /**
+     * Sets the token to pass back to get the next page.
+     *
+     * @param inContinuation
+     *            the token.
+     */
+    public void setContinuation(final String inContinuation)
+    {
+        continuation = inContinuation;
+    }
 }
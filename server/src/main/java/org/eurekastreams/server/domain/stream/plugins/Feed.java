@@ -101,6 +101,18 @@ public class Feed extends DomainEntity implements Serializable
     @Column(nullable = true)
     private Boolean broken;
 
+    /**
+     * ETag returned with the feed when last fetched (sent back as If-None-Match).
+     */
+    @Column(nullable = true)
+    private String httpETag;
+
+    /**
+     * Last-Modified header returned with the feed when last fetched (sent back as If-Modified-Since).
+     */
+    @Column(nullable = true)
+    private String httpLastModified;
+
     /**
      * The plugin the feed belongs to.
      */
@@ -327,4 +339,38 @@ public class Feed extends DomainEntity implements Serializable
         broken = inBroken;
     }
 
+    /**
+     * @return the ETag returned with the feed when last fetched.
+     */
+    public String getHttpETag()
+    {
+        return httpETag;
+    }
+
+    /**
+     * @param inHttpETag
+     *            the ETag returned with the feed.
+     */
+    public void setHttpETag(final String inHttpETag)
+    {
+        httpETag = inHttpETag;
+    }
+
+    /**
+     * @return the Last-Modified header returned with the feed when last fetched.
+     */
+    public String getHttpLastModified()
+    {
+        return httpLastModified;
+    }
+
+    /**
+     * @param inHttpLastModified
+     *            the Last-Modified header returned with the feed.
+     */
+    public void setHttpLastModified(final String inHttpLastModified)
+    {
+        httpLastModified = inHttpLastModified;
+    }
+
 }
@@ -89,8 +89,9 @@ public class DomainGroupMapper extends DomainEntityMapper<DomainGroup> implement
      *            The id of the follower Person
      * @param followingId
      *            The entity id being Followed.
+     * @return true if the relationship was created, false if it already existed.
      */
-    public void addFollower(final long followerId, final long followingId)
+    public boolean addFollower(final long followerId, final long followingId)
     {
         Query q = getEntityManager()
                 .createQuery("FROM GroupFollower where followerId=:followerId and followingId=:followingId")
@@ -99,7 +100,7 @@ public class DomainGroupMapper extends DomainEntityMapper<DomainGroup> implement
         if (q.getResultList().size() > 0)
         {
             // already following
-            return;
+            return false;
         }
 
         // add follower
@@ -123,6 +124,8 @@ public class DomainGroupMapper extends DomainEntityMapper<DomainGroup> implement
 
         // reindex the following in the search index
         getFullTextSession().index(followingEntity);
+
+        return true;
     }
 
     /**
@@ -209,8 +212,9 @@ public class DomainGroupMapper extends DomainEntityMapper<DomainGroup> implement
      *            The if of the follower Person
      * @param followingId
      *            The group id being Followed.
+     * @return true if the relationship was removed, false if it did not exist.
      */
-    public void removeFollower(final long followerId, final long followingId)
+    public boolean removeFollower(final long followerId, final long followingId)
     {
         int rowsDeleted = getEntityManager()
                 .createQuery("DELETE FROM GroupFollower where followerId=:followerId and followingId=:followingId")
@@ -219,7 +223,7 @@ public class DomainGroupMapper extends DomainEntityMapper<DomainGroup> implement
         if (rowsDeleted == 0)
         {
             // not following, short circuit.
-            return;
+            return false;
         }
 
         // now update the counts for persons.
@@ -238,6 +242,8 @@ public class DomainGroupMapper extends DomainEntityMapper<DomainGroup> implement
 
         // reindex the following in the search index
         getFullTextSession().index(followingEntity);
+
+        return true;
     }
 
     /**
@@ -57,8 +57,9 @@ public interface FollowMapper
      *            The follower entity id
      * @param followingId
      *            The id of the entity being Followed.
+     * @return true if the relationship was created, false if it already existed.
      */
-    void addFollower(long followerId, long followingId);
+    boolean addFollower(long followerId, long followingId);
 
     /**
      * Removes a follower/following relationship between two entities.
@@ -67,8 +68,9 @@ public interface FollowMapper
      *            The follower entity id
      * @param followingId
      *            The id of the entity being Followed.
+     * @return true if the relationship was removed, false if it did not exist.
      */
-    void removeFollower(long followerId, long followingId);
+    boolean removeFollower(long followerId, long followingId);
 
     /**
      * Returns true if follower/following relationship exists false otherwise.
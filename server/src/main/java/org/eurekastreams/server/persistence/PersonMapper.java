@@ -105,8 +105,9 @@ public class PersonMapper extends DomainEntityMapper<Person> implements FollowMa
      *            The id of the follower Person
      * @param followingId
      *            The id of the person being Followed.
+     * @return true if the relationship was created, false if it already existed.
      */
-    public void addFollower(final long followerId, final long followingId)
+    public boolean addFollower(final long followerId, final long followingId)
     {
         Query q = getEntityManager().createQuery(
                 "FROM Follower where followerId=:followerId and followingId=:followingId").setParameter("followerId",
@@ -115,7 +116,7 @@ public class PersonMapper extends DomainEntityMapper<Person> implements FollowMa
         if (q.getResultList().size() > 0)
         {
             // already following
-            return;
+            return false;
         }
 
         // add follower
@@ -141,6 +142,8 @@ public class PersonMapper extends DomainEntityMapper<Person> implements FollowMa
         Person followingEntity = findById(followingId);
 
         getFullTextSession().index(followingEntity);
+
+        return true;
     }
 
     /**
@@ -150,8 +153,9 @@ public class PersonMapper extends DomainEntityMapper<Person> implements FollowMa
      *            The id of the follower Person
      * @param followingId
      *            The person id being Followed.
+     * @return true if the relationship was removed, false if it did not exist.
      */
-    public void removeFollower(final long followerId, final long followingId)
+    public boolean removeFollower(final long followerId, final long followingId)
     {
         int rowsDeleted = getEntityManager().createQuery(
                 "DELETE FROM Follower where followerId=:followerId and followingId=:followingId").setParameter(
@@ -160,7 +164,7 @@ public class PersonMapper extends DomainEntityMapper<Person> implements FollowMa
         if (rowsDeleted == 0)
         {
             // not following, short circuit.
-            return;
+            return false;
         }
         // now update the counts for persons subtracting 1 for themselves.
         getEntityManager().createQuery(
@@ -178,6 +182,8 @@ public class PersonMapper extends DomainEntityMapper<Person> implements FollowMa
 
         // reindex the following in the search index
         getFullTextSession().index(followingEntity);
+
+        return true;
     }
 
     /**
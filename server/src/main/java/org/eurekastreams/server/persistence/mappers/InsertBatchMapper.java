@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.eurekastreams.commons.model.DomainEntity;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceListRequest;
+
+/**
+ * Inserts a list of entities in one pass through the entity manager and returns their generated ids. Unlike
+ * {@link InsertBulkMapper}, this participates in the caller's transaction: it flushes once at the end and leaves
+ * committing to the caller, so entity listeners and search indexing run as for a single insert.
+ *
+ * @param <TDomainEntityType>
+ *            the domain entity.
+ */
+public class InsertBatchMapper<TDomainEntityType extends DomainEntity> extends
+        BaseArgDomainMapper<PersistenceListRequest<TDomainEntityType>, List<Long>>
+{
+    /**
+     * Inserts the entities.
+     *
+     * @param inRequest
+     *            The entities to insert.
+     * @return The generated ids, in the order of the entities.
+     */
+    @Override
+    public List<Long> execute(final PersistenceListRequest<TDomainEntityType> inRequest)
+    {
+        List<TDomainEntityType> entities = inRequest.getDomainEnities();
+        List<Long> ids = new ArrayList<Long>(entities.size());
+        if (entities.isEmpty())
+        {
+            return ids;
+        }
+
+        EntityManager entityManager = getEntityManager();
+        for (TDomainEntityType entity : entities)
+        {
+            entityManager.persist(entity);
+        }
+        entityManager.flush();
+
+        for (TDomainEntityType entity : entities)
+        {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+}
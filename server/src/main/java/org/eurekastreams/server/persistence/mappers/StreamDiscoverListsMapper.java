@@ -17,26 +17,47 @@ package org.eurekastreams.server.persistence.mappers;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
 import org.eurekastreams.server.domain.dto.FeaturedStreamDTO;
 import org.eurekastreams.server.domain.dto.StreamDTO;
 import org.eurekastreams.server.domain.dto.StreamDiscoverListsDTO;
 import org.eurekastreams.server.domain.dto.SublistWithResultCount;
 import org.eurekastreams.server.persistence.mappers.requests.MapperRequest;
 import org.eurekastreams.server.service.actions.strategies.RepopulateTempWeekdaysSinceDateStrategy;
+import org.eurekastreams.server.service.actions.strategies.activity.datasources.ParallelDataSourceFetcher;
 
 /**
- * Mapper to piece together the results of different mappers to feed the streams discovery page.
+ * Mapper to piece together the results of different mappers to feed the streams discovery page. The lists are
+ * independent, so when given a fetcher with threads they are generated concurrently; in that case each list mapper runs
+ * on its own thread, outside the caller's transaction, so should be wrapped in its own (e.g. by
+ * MapperTransactionDecorator) and must not rely on the caller's uncommitted TempWeekdaysSinceDate data. The time taken
+ * by each list is recorded in the statistics.
  */
 public class StreamDiscoverListsMapper extends BaseArgDomainMapper<Serializable, StreamDiscoverListsDTO>
 {
+    /** Statistic holding the milliseconds taken generating a list (prefixed by the list name). */
+    public static final String MILLIS_STAT = ".millis";
+
     /**
      * Logger.
      */
     private Log log = LogFactory.make();
 
+    /**
+     * Runs the list mappers (on the calling thread by default).
+     */
+    private ParallelDataSourceFetcher fetcher = new ParallelDataSourceFetcher(0, 0);
+
+    /**
+     * Generation time by list.
+     */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
     /**
      * Mapper to retrieve featured stream DTOs.
      */
@@ -86,7 +107,7 @@ public class StreamDiscoverListsMapper extends BaseArgDomainMapper<Serializable,
      * @param inMostRecentStreamsMapper
      *            mapper to retrieve the most recent stream DTOs.
      * @param inRepopulateTempWeekdaysSinceDateStrategy
-     *            strategy to repopulate the TempWeekdaysSinceDate table
+     *            strategy to repopulate the TempWeekdaysSinceDate table (null if no list mapper uses it)
      * @param inNumberOfDaysOfWeekdayCountDataToGenerate
      *            number of days to generate weekday count data for.
      */
@@ -120,27 +141,97 @@ public class StreamDiscoverListsMapper extends BaseArgDomainMapper<Serializable,
     {
         log.info("Beginning to generate Stream Discovery lists for all users.");
 
-        log.info("Regenerating weekday count temp data for " + numberOfDaysOfWeekdayCountDataToGenerate + " days");
-        repopulateTempWeekdaysSinceDateStrategy.execute(numberOfDaysOfWeekdayCountDataToGenerate);
+        if (repopulateTempWeekdaysSinceDateStrategy != null)
+        {
+            log.info("Regenerating weekday count temp data for " + numberOfDaysOfWeekdayCountDataToGenerate
+                    + " days");
+            repopulateTempWeekdaysSinceDateStrategy.execute(numberOfDaysOfWeekdayCountDataToGenerate);
+        }
 
-        StreamDiscoverListsDTO result = new StreamDiscoverListsDTO();
+        long deadline = fetcher.getDeadline();
+        Future<List<FeaturedStreamDTO>> featured = start("featured", featuredStreamDTOMapper);
+        Future<SublistWithResultCount<StreamDTO>> mostActive = start("mostActive", mostActiveStreamsMapper);
+        Future<List<StreamDTO>> mostViewed = start("mostViewed", mostViewedStreamsMapper);
+        Future<List<StreamDTO>> mostFollowed = start("mostFollowed", mostFollowedStreamsMapper);
+        Future<List<StreamDTO>> mostRecent = start("mostRecent", mostRecentStreamsMapper);
 
-        log.info("Generating the list of featured streams");
-        result.setFeaturedStreams(featuredStreamDTOMapper.execute(null));
+        StreamDiscoverListsDTO result = new StreamDiscoverListsDTO();
+        result.setFeaturedStreams(await(featured, deadline, "featured"));
+        result.setMostActiveStreams(await(mostActive, deadline, "mostActive"));
+        result.setMostViewedStreams(await(mostViewed, deadline, "mostViewed"));
+        result.setMostFollowedStreams(await(mostFollowed, deadline, "mostFollowed"));
+        result.setMostRecentStreams(await(mostRecent, deadline, "mostRecent"));
 
-        log.info("Generating the list of most active streams");
-        result.setMostActiveStreams(mostActiveStreamsMapper.execute(null));
+        log.info("Finished generating Stream Discovery lists for all users.");
+        return result;
+    }
 
-        log.info("Generating the list of most viewed streams.");
-        result.setMostViewedStreams(mostViewedStreamsMapper.execute(null));
+    /**
+     * Starts generating a list.
+     *
+     * @param <T>
+     *            type of the list.
+     * @param inName
+     *            name of the list.
+     * @param inMapper
+     *            mapper generating the list.
+     * @return future for the list.
+     */
+    private <T> Future<T> start(final String inName, final DomainMapper< ? , T> inMapper)
+    {
+        return fetcher.submit(new Callable<T>()
+        {
+            public T call()
+            {
+                log.info("Generating the list of " + inName + " streams");
+                long begin = System.currentTimeMillis();
+                T list = inMapper.execute(null);
+                long elapsed = System.currentTimeMillis() - begin;
+                statistics.record(inName + MILLIS_STAT, elapsed);
+                log.info("Generated the list of " + inName + " streams in " + elapsed + "ms");
+                return list;
+            }
+        });
+    }
 
-        log.info("Generating the list of most followed streams.");
-        result.setMostFollowedStreams(mostFollowedStreamsMapper.execute(null));
+    /**
+     * Waits for a list.
+     *
+     * @param <T>
+     *            type of the list.
+     * @param inFuture
+     *            future for the list.
+     * @param inDeadline
+     *            deadline (in system milliseconds).
+     * @param inName
+     *            name of the list.
+     * @return the list.
+     */
+    private <T> T await(final Future<T> inFuture, final long inDeadline, final String inName)
+    {
+        T list = fetcher.await(inFuture, inDeadline, inName, null);
+        if (inFuture.isCancelled())
+        {
+            // don't let a partial result replace the cached lists
+            throw new RuntimeException("Stream Discovery list " + inName + " was not generated.");
+        }
+        return list;
+    }
 
-        log.info("Generating the list of most recent streams.");
-        result.setMostRecentStreams(mostRecentStreamsMapper.execute(null));
+    /**
+     * @param inFetcher
+     *            runs the list mappers; with threads, the lists are generated concurrently.
+     */
+    public void setFetcher(final ParallelDataSourceFetcher inFetcher)
+    {
+        fetcher = inFetcher;
+    }
 
-        log.info("Finished generating Stream Discovery lists for all users.");
-        return result;
+    /**
+     * @return the milliseconds taken generating each list.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
     }
 }
@@ -19,15 +19,30 @@ import java.util.Calendar;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.TaskHandler;
+import org.eurekastreams.commons.util.ExpiringCache;
 import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
 import org.eurekastreams.server.persistence.mappers.stream.StreamPopularHashTagsReportDTO;
 
 /**
- * Wrapping mapper to get the popular hashtags from another mapper, then return null if it's expired.
+ * Wrapping mapper to get the popular hashtags from another mapper, then return null if it's expired. If given a task
+ * handler, an expired report is returned anyway and an action is queued to regenerate it in the background.
  */
 public class StreamPopularHashTagsMapper implements
         DomainMapper<StreamPopularHashTagsRequest, StreamPopularHashTagsReportDTO>
 {
+    /**
+     * Milliseconds per minute.
+     */
+    private static final long MILLIS_PER_MINUTE = 60000L;
+
+    /**
+     * Most streams whose regeneration is remembered as queued (beyond this the oldest are forgotten, which at worst
+     * queues a stream's regeneration twice).
+     */
+    private static final int MAX_REFRESHES_QUEUED = 10000;
+
     /**
      * Logger.
      */
@@ -43,6 +58,21 @@ public class StreamPopularHashTagsMapper implements
      */
     private final DomainMapper<StreamPopularHashTagsRequest, StreamPopularHashTagsReportDTO> popularHashTagsMapper;
 
+    /**
+     * Task handler to queue background regeneration on (null to regenerate in-line).
+     */
+    private TaskHandler refreshTaskHandler;
+
+    /**
+     * Key of the action which regenerates a stream's report.
+     */
+    private String refreshActionKey;
+
+    /**
+     * Streams whose regeneration was queued within the expiration period, so each stream's is queued once per period.
+     */
+    private final ExpiringCache<String, Boolean> refreshesQueued;
+
     /**
      * Constructor.
      *
@@ -57,6 +87,26 @@ public class StreamPopularHashTagsMapper implements
     {
         popularHashTagsMapper = inPopularHashTagsMapper;
         popularHashTagsExpirationInMinutes = inPopularHashTagsExpirationInMinutes;
+        refreshesQueued = new ExpiringCache<String, Boolean>(MAX_REFRESHES_QUEUED,
+                inPopularHashTagsExpirationInMinutes * MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * @param inRefreshTaskHandler
+     *            task handler to queue background regeneration of expired reports on
+     */
+    public void setRefreshTaskHandler(final TaskHandler inRefreshTaskHandler)
+    {
+        refreshTaskHandler = inRefreshTaskHandler;
+    }
+
+    /**
+     * @param inRefreshActionKey
+     *            key of the action which regenerates a stream's report
+     */
+    public void setRefreshActionKey(final String inRefreshActionKey)
+    {
+        refreshActionKey = inRefreshActionKey;
     }
 
     /**
@@ -76,8 +126,15 @@ public class StreamPopularHashTagsMapper implements
             Calendar earliestValidReportDate = Calendar.getInstance();
             earliestValidReportDate.add(Calendar.MINUTE, 0 - popularHashTagsExpirationInMinutes);
 
+            String streamKey = inRequest.getStreamEntityScopeType() + "-" + inRequest.getStreamEntityUniqueKey();
             if (hashTagReport.getReportGenerationDate().before(earliestValidReportDate.getTime()))
             {
+                if (refreshTaskHandler != null)
+                {
+                    queueRefresh(inRequest, streamKey);
+                    return hashTagReport;
+                }
+
                 // this report is expired - regenerate
                 if (log.isInfoEnabled())
                 {
@@ -86,7 +143,43 @@ public class StreamPopularHashTagsMapper implements
                 }
                 return null;
             }
+            refreshesQueued.remove(streamKey);
         }
         return hashTagReport;
     }
+
+    /**
+     * Queues regeneration of a stream's report unless already queued within the expiration period.
+     *
+     * @param inRequest
+     *            request containing the stream type and unique key
+     * @param inStreamKey
+     *            key identifying the stream
+     */
+    private void queueRefresh(final StreamPopularHashTagsRequest inRequest, final String inStreamKey)
+    {
+        synchronized (refreshesQueued)
+        {
+            if (refreshesQueued.get(inStreamKey) != null)
+            {
+                return;
+            }
+            refreshesQueued.put(inStreamKey, Boolean.TRUE);
+        }
+
+        if (log.isInfoEnabled())
+        {
+            log.info("Popular HashTag report for stream " + inStreamKey
+                    + " is expired - returning it while it is regenerated in the background.");
+        }
+        try
+        {
+            refreshTaskHandler.handleTask(new UserActionRequest(refreshActionKey, null, inRequest));
+        }
+        catch (Exception ex)
+        {
+            log.error("Error queuing regeneration of popular HashTag report for stream " + inStreamKey, ex);
+            refreshesQueued.remove(inStreamKey);
+        }
+    }
 }
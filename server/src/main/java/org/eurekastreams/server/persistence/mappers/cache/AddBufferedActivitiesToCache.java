@@ -18,6 +18,7 @@ package org.eurekastreams.server.persistence.mappers.cache;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eurekastreams.server.domain.stream.ActivityDTO;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
@@ -105,15 +106,21 @@ public class AddBufferedActivitiesToCache extends CachedDomainMapper
             updateActorActivityStreamMapper.execute(activity);
         }
 
+        // prepend to the everyone list and all the followers' lists in one batch
+        Map<String, List<Long>> listUpdates = new HashMap<String, List<Long>>();
         if (!allActivityIds.isEmpty())
         {
-            cache.addToTopOfList(CacheKeys.EVERYONE_ACTIVITY_IDS, allActivityIds);
+            listUpdates.put(CacheKeys.EVERYONE_ACTIVITY_IDS, allActivityIds);
         }
 
         for (Long compositeId : activitesByFollower.keySet())
         {
-            ArrayList<Long> ids = activitesByFollower.get(compositeId);
-            cache.addToTopOfList(CacheKeys.ACTIVITIES_BY_FOLLOWING + compositeId, ids);
+            listUpdates.put(CacheKeys.ACTIVITIES_BY_FOLLOWING + compositeId, activitesByFollower.get(compositeId));
+        }
+
+        if (!listUpdates.isEmpty())
+        {
+            cache.addToTopOfLists(listUpdates);
         }
 
         return true;
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eurekastreams.server.domain.dto.StreamDTO;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.SuggestedStreamsRequest;
+
+/**
+ * Serves the top suggested streams of one type for a person from their precomputed suggestion candidates, skipping
+ * streams the person has blocked from suggestions.
+ *
+ * @param <V>
+ *            Type of stream model view returned.
+ */
+public abstract class BaseGetSuggestedStreamsMapper<V extends StreamDTO> implements
+        DomainMapper<SuggestedStreamsRequest, List<V>>
+{
+    /** Gets the person's suggestion candidates. */
+    private final DomainMapper<Long, SuggestionCandidates> candidatesMapper;
+
+    /** Gets the stream scope ids the person has blocked from suggestions. */
+    private final DomainMapper<Long, List<Long>> blockedScopeIdsMapper;
+
+    /** Gets the model views by ids. */
+    private final DomainMapper<List<Long>, List<V>> viewsMapper;
+
+    /**
+     * Constructor.
+     *
+     * @param inCandidatesMapper
+     *            Gets the person's suggestion candidates.
+     * @param inBlockedScopeIdsMapper
+     *            Gets the stream scope ids the person has blocked from suggestions.
+     * @param inViewsMapper
+     *            Gets the model views by ids.
+     */
+    protected BaseGetSuggestedStreamsMapper(final DomainMapper<Long, SuggestionCandidates> inCandidatesMapper,
+            final DomainMapper<Long, List<Long>> inBlockedScopeIdsMapper,
+            final DomainMapper<List<Long>, List<V>> inViewsMapper)
+    {
+        candidatesMapper = inCandidatesMapper;
+        blockedScopeIdsMapper = inBlockedScopeIdsMapper;
+        viewsMapper = inViewsMapper;
+    }
+
+    /**
+     * Gets the suggested streams, best first.
+     *
+     * @param inRequest
+     *            The person and number of streams wanted.
+     * @return The suggested streams, with the follower count holding the number of connections to the stream.
+     */
+    @Override
+    public List<V> execute(final SuggestedStreamsRequest inRequest)
+    {
+        int count = inRequest.getStreamCount();
+        List<V> results = new ArrayList<V>(count);
+        SuggestionCandidates.ScoredIds candidates = getCandidates(candidatesMapper.execute(inRequest.getPersonId()));
+        if (count <= 0 || candidates.size() == 0)
+        {
+            return results;
+        }
+
+        Set<Long> blockedScopeIds = new HashSet<Long>(blockedScopeIdsMapper.execute(inRequest.getPersonId()));
+        long[] ranked = candidates.getIdsByScore();
+
+        // fetch in chunks a little larger than needed, since some candidates will be filtered out
+        int chunkSize = count * 2;
+        for (int start = 0; start < ranked.length && results.size() < count; start += chunkSize)
+        {
+            List<Long> ids = new ArrayList<Long>(chunkSize);
+            for (int i = start; i < ranked.length && i < start + chunkSize; i++)
+            {
+                ids.add(ranked[i]);
+            }
+            // the views mapper need not return views in the order asked, so walk the chunk in score order
+            Map<Long, V> viewsById = new HashMap<Long, V>();
+            for (V view : viewsMapper.execute(ids))
+            {
+                if (view != null)
+                {
+                    viewsById.put(view.getId(), view);
+                }
+            }
+            for (Long id : ids)
+            {
+                V view = viewsById.get(id);
+                if (view != null && !blockedScopeIds.contains(view.getStreamScopeId()) && isAllowed(view))
+                {
+                    results.add(buildSuggestion(view, candidates.getScore(view.getId())));
+                    if (results.size() >= count)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param inCandidates
+     *            The person's suggestion candidates.
+     * @return The scored candidates of this mapper's stream type.
+     */
+    protected abstract SuggestionCandidates.ScoredIds getCandidates(SuggestionCandidates inCandidates);
+
+    /**
+     * @param inView
+     *            A candidate stream.
+     * @return If the stream may be suggested.
+     */
+    protected abstract boolean isAllowed(V inView);
+
+    /**
+     * Builds the suggestion returned to the caller. A new model view is returned rather than modifying the (possibly
+     * shared) cached one.
+     *
+     * @param inView
+     *            The stream's model view.
+     * @param inScore
+     *            Number of connections to the stream.
+     * @return The suggestion.
+     */
+    protected abstract V buildSuggestion(V inView, int inScore);
+}
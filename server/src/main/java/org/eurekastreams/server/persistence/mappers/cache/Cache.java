@@ -103,6 +103,24 @@ public interface Cache
      */
     void setList(String inKey, List<Long> inValue);
 
+    /**
+     * Sets many values in one batch (e.g. refreshing the cache after a database fill). Implementations may write the
+     * batch after this returns, off the caller's thread.
+     *
+     * @param inValuesByKey
+     *            the objects to store, keyed by the key to store each under.
+     */
+    void setMulti(Map<String, ?> inValuesByKey);
+
+    /**
+     * Sets many lists in one batch, replacing whatever was there before. Implementations may write the batch after
+     * this returns, off the caller's thread.
+     *
+     * @param inValuesByKey
+     *            the lists to store, keyed by the key to store each under.
+     */
+    void setLists(Map<String, ? extends List<Long>> inValuesByKey);
+
     /**
      * Sets a value in the cache replacing whatever was there before 
      * and returning the original value to the caller.
@@ -116,6 +134,20 @@ public interface Cache
      *               create a new method (suggestion setListCASPost).
      */
     ArrayList<Long> setListCAS(String inKey, List<Long> inValue); 
+
+    /**
+     * Atomically replaces a cached value with one computed from it (compare and swap), computing it again from the
+     * latest value whenever another writer changed the value first. A value which is not in cache is left alone. A
+     * value which can't be updated (too many conflicts or errors) is deleted so that it is rebuilt.
+     *
+     * @param inKey
+     *            the key of the value.
+     * @param inUpdater
+     *            computes the new value from the current one (which it may modify); returns null to leave the value
+     *            unchanged.
+     * @return the value stored, or null if nothing was stored.
+     */
+    Object update(String inKey, Transformer<Object, Object> inUpdater);
     
     /**
      * Deletes a value from the cache.
@@ -157,6 +189,15 @@ public interface Cache
      */
     void addToTopOfList(String inKey, Long inValue);
 
+    /**
+     * Prepends values to many cached lists in one batch (e.g. fanning a post out to followers' lists). As with
+     * addToTopOfList, lists that are not already in cache are not created.
+     *
+     * @param inValuesByKey
+     *            the values to prepend, keyed by the key of the cached list.
+     */
+    void addToTopOfLists(Map<String, ? extends List<Long>> inValuesByKey);
+
     /**
      * Removes a specified value from a cached List of Long values.
      * 
@@ -202,4 +243,38 @@ public interface Cache
      */
     void removeFromSet(String inKey, Long inValue);
 
+    /**
+     * Atomically adds to a counter in the cache. Counters are created with addCounter; a counter that is not in cache
+     * is left alone (the caller decides how to reconcile it). Counters do not go below zero.
+     *
+     * @param inKey
+     *            the key of the counter.
+     * @param inDelta
+     *            the amount to add (negative to subtract).
+     * @return the new value of the counter, or null if the counter is not in cache.
+     */
+    Long increment(String inKey, long inDelta);
+
+    /**
+     * Creates a counter in the cache unless one is already there, so a counter rebuilt from its source of record never
+     * overwrites increments made meanwhile by others. Counters expire periodically so they are reconciled with their
+     * source of record.
+     *
+     * @param inKey
+     *            the key of the counter.
+     * @param inValue
+     *            the value.
+     * @return false if the counter was already in cache (and was left alone), else true.
+     */
+    boolean addCounter(String inKey, long inValue);
+
+    /**
+     * Gets a collection of counters from the cache.
+     *
+     * @param inKeys
+     *            the keys of the counters.
+     * @return the values of the counters found in cache, by key.
+     */
+    Map<String, Long> multiGetCounters(Collection<String> inKeys);
+
 }
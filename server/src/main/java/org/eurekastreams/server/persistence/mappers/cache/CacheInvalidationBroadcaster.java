@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.Collection;
+
+/**
+ * Notifies other nodes that a cache key has changed so they drop any copy they hold locally.
+ */
+public interface CacheInvalidationBroadcaster
+{
+    /**
+     * Notifies other nodes that a key has changed.
+     *
+     * @param inKey
+     *            The cache key.
+     */
+    void broadcastInvalidation(String inKey);
+
+    /**
+     * Notifies other nodes that a batch of keys has changed, as one notification.
+     *
+     * @param inKeys
+     *            The cache keys.
+     */
+    void broadcastInvalidations(Collection<String> inKeys);
+}
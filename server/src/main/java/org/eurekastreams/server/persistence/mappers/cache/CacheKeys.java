@@ -124,6 +124,12 @@ public final class CacheKeys
      */
     public static final String ACTIVITIES_BY_FOLLOWING = "CmpFwg:";
 
+    /**
+     * Key for the signature of the followed groups whose activity is pushed into a person's ACTIVITIES_BY_FOLLOWING
+     * list.
+     */
+    public static final String ACTIVITIES_BY_FOLLOWING_SIGNATURE = "CmpFwgSig:";
+
     /**
      * Key for getting the IDs of the system administrators.
      */
@@ -159,6 +165,11 @@ public final class CacheKeys
      */
     public static final String POPULAR_HASH_TAGS_BY_STREAM_TYPE_AND_SHORT_NAME = "PHT:";
 
+    /**
+     * Bucketed hashtag counts (from which the popular hashtag list is kept up to date) by stream type and short name.
+     */
+    public static final String POPULAR_HASH_TAG_COUNTS_BY_STREAM_TYPE_AND_SHORT_NAME = "PHTC:";
+
     /**
      * Cache key for the everyone activity list.
      */
@@ -223,4 +234,42 @@ public final class CacheKeys
      * Key for a person's encryption key.
      */
     public static final String CRYPTO_KEY_BY_PERSON_ID = "PerCrK:";
+
+    /**
+     * Counter of the people following a person.
+     */
+    public static final String FOLLOWER_COUNT_BY_PERSON_ID = "PerFwrCnt:";
+
+    /**
+     * Counter of the people a person follows.
+     */
+    public static final String FOLLOWING_COUNT_BY_PERSON_ID = "PerFwgCnt:";
+
+    /**
+     * Counter of the groups a person follows.
+     */
+    public static final String GROUP_COUNT_BY_PERSON_ID = "PerGrpCnt:";
+
+    /**
+     * Counter of the people following a group.
+     */
+    public static final String FOLLOWER_COUNT_BY_GROUP_ID = "GrpFwrCnt:";
+
+    /**
+     * Key for a person's precomputed stream suggestion candidates.
+     */
+    public static final String SUGGESTION_CANDIDATES_BY_PERSON_ID = "PerSugg:";
+
+    /**
+     * Returns the prefix portion of a cache key (through the first colon), used to group statistics by key type.
+     *
+     * @param inKey
+     *            Cache key.
+     * @return The key's prefix, or the whole key if it has no colon (single-instance keys like SystemSettings).
+     */
+    public static String getPrefix(final String inKey)
+    {
+        int index = inKey.indexOf(':');
+        return index < 0 ? inKey : inKey.substring(0, index + 1);
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.server.persistence.mappers.stream.CachedDomainMapper;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Follower and following counts of people and groups, kept as counters in cache so that following or unfollowing does
+ * not have to load follower lists or evict model views to keep counts current.
+ *
+ * The counts columns on Person and DomainGroup remain the source of record. A counter that is not in cache (never
+ * loaded, evicted, or expired) is rebuilt from its column; counters expire periodically so that any drift (e.g. from
+ * bulk deletes that bypass the counters) is corrected.
+ *
+ * Changes made within a transaction should use adjustAfterCommit, so that a rolled back change does not leave the
+ * counter off by its delta until it next expires.
+ */
+public class FollowCounters extends CachedDomainMapper
+{
+    /**
+     * Logger.
+     */
+    private final Log log = LogFactory.make();
+
+    /**
+     * Queries for the source of record of each counter, by counter key prefix.
+     */
+    private static final Map<String, String> SOURCE_QUERIES = new HashMap<String, String>();
+
+    static
+    {
+        SOURCE_QUERIES.put(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID,
+                "select id, followersCount from Person where id in (:ids)");
+        SOURCE_QUERIES.put(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID,
+                "select id, followingCount from Person where id in (:ids)");
+        SOURCE_QUERIES.put(CacheKeys.GROUP_COUNT_BY_PERSON_ID, "select id, groupsCount from Person where id in (:ids)");
+        SOURCE_QUERIES.put(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID,
+                "select id, followersCount from DomainGroup where id in (:ids)");
+    }
+
+    /**
+     * Adjusts a counter. Must be called after the corresponding change is written to the database (in the same
+     * transaction), since a counter that is not in cache is rebuilt from the database.
+     *
+     * @param inPrefix
+     *            Counter key prefix (one of the *_COUNT_BY_* CacheKeys).
+     * @param inId
+     *            Id of the person or group.
+     * @param inDelta
+     *            Amount to add (negative to subtract, 0 to just read the counter).
+     * @return The new count.
+     */
+    public long adjust(final String inPrefix, final long inId, final long inDelta)
+    {
+        Long count = getCache().increment(inPrefix + inId, inDelta);
+        if (count == null)
+        {
+            count = reconcile(inPrefix, Collections.singletonList(inId)).get(inPrefix + inId);
+        }
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * Adjusts a counter once the current transaction commits; if it rolls back, the counter is left alone. Must be
+     * called after the corresponding change is written to the database. Without an active transaction synchronization
+     * this is the same as adjust.
+     *
+     * A counter that is not in cache is left to be rebuilt from the committed column on its next use. One rebuilt by
+     * another request between this transaction's commit and the adjustment already includes the change and ends up
+     * off by the delta until it expires; that window is a few milliseconds.
+     *
+     * @param inPrefix
+     *            Counter key prefix (one of the *_COUNT_BY_* CacheKeys).
+     * @param inId
+     *            Id of the person or group.
+     * @param inDelta
+     *            Amount to add (negative to subtract).
+     * @return The count as it will be once the transaction commits.
+     */
+    public long adjustAfterCommit(final String inPrefix, final long inId, final long inDelta)
+    {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            return adjust(inPrefix, inId, inDelta);
+        }
+
+        final String key = inPrefix + inId;
+        Long count = getCache().multiGetCounters(Collections.singletonList(key)).get(key);
+        if (count == null)
+        {
+            // the database already includes the change, but is not committed, so must not be used to rebuild the
+            // counter in cache
+            count = load(inPrefix, Collections.singletonList(inId)).get(key);
+        }
+        else
+        {
+            count += inDelta;
+        }
+
+        if (inDelta != 0)
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    try
+                    {
+                        getCache().increment(key, inDelta);
+                    }
+                    catch (Exception ex)
+                    {
+                        log.warn("Error adjusting counter " + key + " after commit; it will be rebuilt on expiry", ex);
+                    }
+                }
+            });
+        }
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * Gets counters for a batch of people or groups.
+     *
+     * @param inPrefixes
+     *            Counter key prefixes (one or more of the *_COUNT_BY_* CacheKeys).
+     * @param inIds
+     *            Ids of the people or groups.
+     * @return Counts by counter key (prefix + id); entities that do not exist are omitted.
+     */
+    public Map<String, Long> get(final Collection<String> inPrefixes, final Collection<Long> inIds)
+    {
+        List<String> keys = new ArrayList<String>(inPrefixes.size() * inIds.size());
+        for (String prefix : inPrefixes)
+        {
+            for (Long id : inIds)
+            {
+                keys.add(prefix + id);
+            }
+        }
+
+        Map<String, Long> counts = new HashMap<String, Long>(getCache().multiGetCounters(keys));
+        if (counts.size() < keys.size())
+        {
+            for (String prefix : inPrefixes)
+            {
+                List<Long> missing = new ArrayList<Long>();
+                for (Long id : inIds)
+                {
+                    if (!counts.containsKey(prefix + id))
+                    {
+                        missing.add(id);
+                    }
+                }
+                if (!missing.isEmpty())
+                {
+                    counts.putAll(reconcile(prefix, missing));
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Rebuilds counters from the database.
+     *
+     * @param inPrefix
+     *            Counter key prefix.
+     * @param inIds
+     *            Ids of the people or groups.
+     * @return Counts by counter key.
+     */
+    private Map<String, Long> reconcile(final String inPrefix, final List<Long> inIds)
+    {
+        if (log.isDebugEnabled())
+        {
+            log.debug("Rebuilding " + inIds.size() + " counters with prefix " + inPrefix + " from the database");
+        }
+
+        Map<String, Long> counts = load(inPrefix, inIds);
+        List<String> lost = new ArrayList<String>();
+        for (Map.Entry<String, Long> entry : counts.entrySet())
+        {
+            if (!getCache().addCounter(entry.getKey(), entry.getValue()))
+            {
+                lost.add(entry.getKey());
+            }
+        }
+
+        // another request rebuilt these first and may have adjusted them since; theirs are current
+        if (!lost.isEmpty())
+        {
+            counts.putAll(getCache().multiGetCounters(lost));
+        }
+        return counts;
+    }
+
+    /**
+     * Reads counts from the database.
+     *
+     * @param inPrefix
+     *            Counter key prefix.
+     * @param inIds
+     *            Ids of the people or groups.
+     * @return Counts by counter key.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> load(final String inPrefix, final List<Long> inIds)
+    {
+        String query = SOURCE_QUERIES.get(inPrefix);
+        if (query == null)
+        {
+            throw new IllegalArgumentException("Unknown counter: " + inPrefix);
+        }
+
+        Map<String, Long> counts = new HashMap<String, Long>();
+        List<Object[]> rows = getEntityManager().createQuery(query).setParameter("ids", inIds).getResultList();
+        for (Object[] row : rows)
+        {
+            counts.put(inPrefix + row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+}
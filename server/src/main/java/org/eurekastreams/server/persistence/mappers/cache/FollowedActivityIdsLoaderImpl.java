@@ -16,6 +16,7 @@
 package org.eurekastreams.server.persistence.mappers.cache;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.persistence.Query;
@@ -29,6 +30,10 @@ import org.eurekastreams.server.persistence.mappers.BaseDomainMapper;
  */
 public class FollowedActivityIdsLoaderImpl extends BaseDomainMapper implements FollowedActivityIdsLoader
 {
+    /**
+     * Decides which followed groups' activity is included (optional; no group activity is included without it).
+     */
+    private FollowingTimelinePolicy timelinePolicy;
 
     /**
      * {@inheritDoc}
@@ -39,6 +44,13 @@ public class FollowedActivityIdsLoaderImpl extends BaseDomainMapper implements F
 
         results.addAll(getPersonActivityIdsFollowed(inPersonId, inMaxResults));
 
+        // include activity from the followed groups which are pushed to the list on post
+        if (timelinePolicy != null && timelinePolicy.isEnabled())
+        {
+            results.addAll(getPushedGroupActivityIdsFollowed(inPersonId, inMaxResults));
+            Collections.sort(results, Collections.reverseOrder());
+        }
+
         // trim list if needed.
         if (results.size() > inMaxResults)
         {
@@ -73,4 +85,37 @@ public class FollowedActivityIdsLoaderImpl extends BaseDomainMapper implements F
 
         return query.getResultList();
     }
+
+    /**
+     * Returns list of activity ids for groups the user is following which are small enough to have their activity
+     * pushed to followers.
+     *
+     * @param inPersonId
+     *            The user's id.
+     * @param inMaxResults
+     *            Max. number of ids to return
+     * @return List of activity ids for pushed groups the user is following.
+     */
+    @SuppressWarnings("unchecked")
+    private List< ? extends Long> getPushedGroupActivityIdsFollowed(final long inPersonId, final int inMaxResults)
+    {
+        String queryString = "SELECT a.id FROM Activity a, GroupFollower gf, DomainGroup followedGroup "
+                + "WHERE gf.pk.followerId = :userId AND followedGroup.id = gf.pk.followingId "
+                + "AND followedGroup.followersCount <= :maxFollowers "
+                + "AND a.recipientStreamScope = followedGroup.streamScope ORDER BY a.id DESC";
+
+        Query query = getEntityManager().createQuery(queryString).setParameter("userId", inPersonId).setParameter(
+                "maxFollowers", timelinePolicy.getMaxGroupFollowers()).setMaxResults(inMaxResults);
+
+        return query.getResultList();
+    }
+
+    /**
+     * @param inTimelinePolicy
+     *            Decides which followed groups' activity is included.
+     */
+    public void setTimelinePolicy(final FollowingTimelinePolicy inTimelinePolicy)
+    {
+        timelinePolicy = inTimelinePolicy;
+    }
 }
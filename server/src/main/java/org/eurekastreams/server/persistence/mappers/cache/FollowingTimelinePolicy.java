@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.eurekastreams.commons.util.KeyedStatistics;
+
+/**
+ * Decides which streams are pushed into a person's materialized "following" timeline (the
+ * {@link CacheKeys#ACTIVITIES_BY_FOLLOWING} list) when an activity is posted, and which are left to be pulled and
+ * merged at read time.
+ *
+ * Person streams are always pushed. Group streams are pushed only while the group has at most the configured number
+ * of followers; posts to larger groups would cost one list write per follower, so their lists are read instead. A
+ * threshold of zero (the default) keeps groups entirely pull-at-read, as before.
+ */
+public class FollowingTimelinePolicy
+{
+    /** Statistic: number of timelines written per person stream post (write amplification). */
+    public static final String PERSON_FANOUT_STAT = "fanout.person";
+
+    /** Statistic: number of timelines written per group stream post (write amplification). */
+    public static final String GROUP_FANOUT_STAT = "fanout.group";
+
+    /** Statistic: group stream posts not pushed because the group is over the threshold. */
+    public static final String GROUP_PULL_STAT = "pull.group";
+
+    /** Statistic: milliseconds to assemble a following stream from the timeline plus pulled group streams. */
+    public static final String TIMELINE_READ_STAT = "read.timeline";
+
+    /** Statistic: milliseconds to assemble a following stream entirely at read time. */
+    public static final String PULL_READ_STAT = "read.pull";
+
+    /** Statistic: group streams pulled per following stream read. */
+    public static final String PULLED_STREAMS_STAT = "read.pulledStreams";
+
+    /** Statistic: timelines discarded because the person's set of pushed groups changed. */
+    public static final String REBUILD_STAT = "rebuild";
+
+    /** Statistic: timelines updated by merging in the stream of a newly followed person. */
+    public static final String FOLLOW_MERGE_STAT = "follow.merge";
+
+    /** Statistic: timelines updated by taking out the stream of an unfollowed person. */
+    public static final String UNFOLLOW_SUBTRACT_STAT = "follow.subtract";
+
+    /** Statistic: timelines rebuilt entirely from the database. */
+    public static final String FULL_REBUILD_STAT = "fullRebuild";
+
+    /** Seed for the signature hash. */
+    private static final long SIGNATURE_SEED = 1125899906842597L;
+
+    /** Multiplier for the signature hash. */
+    private static final long SIGNATURE_MULTIPLIER = 31L;
+
+    /** Largest number of followers a group may have for its activity to be pushed; 0 disables group pushes. */
+    private final int maxGroupFollowers;
+
+    /** Fan-out and read statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inMaxGroupFollowers
+     *            Largest number of followers a group may have for its activity to be pushed to followers' timelines;
+     *            0 disables group pushes.
+     */
+    public FollowingTimelinePolicy(final int inMaxGroupFollowers)
+    {
+        maxGroupFollowers = inMaxGroupFollowers;
+    }
+
+    /**
+     * @return If any group activity is pushed into timelines.
+     */
+    public boolean isEnabled()
+    {
+        return maxGroupFollowers > 0;
+    }
+
+    /**
+     * @return Largest number of followers a group may have for its activity to be pushed.
+     */
+    public int getMaxGroupFollowers()
+    {
+        return maxGroupFollowers;
+    }
+
+    /**
+     * Determines if a group's activity is pushed into its followers' timelines.
+     *
+     * @param inFollowersCount
+     *            Number of followers of the group.
+     * @return If the group's activity is pushed.
+     */
+    public boolean isGroupPushed(final int inFollowersCount)
+    {
+        return isEnabled() && inFollowersCount <= maxGroupFollowers;
+    }
+
+    /**
+     * Computes an order-independent signature of the groups whose activity a person's timeline holds. A timeline built
+     * for a different signature (the person followed or unfollowed a group, or a group crossed the threshold) is
+     * missing or holding the wrong group activity and must be rebuilt.
+     *
+     * @param inGroupIds
+     *            Ids of the pushed groups the person follows.
+     * @return Signature.
+     */
+    public static long getSignature(final Collection<Long> inGroupIds)
+    {
+        long[] ids = new long[inGroupIds.size()];
+        int i = 0;
+        for (Long id : inGroupIds)
+        {
+            ids[i++] = id;
+        }
+        Arrays.sort(ids);
+
+        long signature = SIGNATURE_SEED;
+        for (long id : ids)
+        {
+            signature = signature * SIGNATURE_MULTIPLIER + id;
+        }
+        return signature;
+    }
+
+    /**
+     * @return Fan-out (write amplification) and read latency statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.search.modelview.DomainGroupModelView;
+
+/**
+ * Gets the suggested group streams for a person: groups followed by the people they follow, ranked by how many of the
+ * people they follow do so.
+ */
+public class GetSuggestedGroupsForPersonMapper extends BaseGetSuggestedStreamsMapper<DomainGroupModelView>
+{
+    /**
+     * Constructor.
+     *
+     * @param inCandidatesMapper
+     *            Gets the person's suggestion candidates.
+     * @param inBlockedScopeIdsMapper
+     *            Gets the stream scope ids the person has blocked from suggestions.
+     * @param inGroupsMapper
+     *            Gets the group model views by ids.
+     */
+    public GetSuggestedGroupsForPersonMapper(final DomainMapper<Long, SuggestionCandidates> inCandidatesMapper,
+            final DomainMapper<Long, List<Long>> inBlockedScopeIdsMapper,
+            final DomainMapper<List<Long>, List<DomainGroupModelView>> inGroupsMapper)
+    {
+        super(inCandidatesMapper, inBlockedScopeIdsMapper, inGroupsMapper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SuggestionCandidates.ScoredIds getCandidates(final SuggestionCandidates inCandidates)
+    {
+        return inCandidates.getGroups();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isAllowed(final DomainGroupModelView inView)
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DomainGroupModelView buildSuggestion(final DomainGroupModelView inView, final int inScore)
+    {
+        return new DomainGroupModelView(inView.getId(), inView.getShortName(), inView.getName(), (long) inScore,
+                inView.getDateAdded(), inView.getStreamScopeId(), inView.isPublic());
+    }
+}
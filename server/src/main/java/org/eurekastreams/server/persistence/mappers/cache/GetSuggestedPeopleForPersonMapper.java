@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+
+/**
+ * Gets the suggested people streams for a person: people followed by the people they follow, ranked by how many of the
+ * people they follow do so.
+ */
+public class GetSuggestedPeopleForPersonMapper extends BaseGetSuggestedStreamsMapper<PersonModelView>
+{
+    /**
+     * Constructor.
+     *
+     * @param inCandidatesMapper
+     *            Gets the person's suggestion candidates.
+     * @param inBlockedScopeIdsMapper
+     *            Gets the stream scope ids the person has blocked from suggestions.
+     * @param inPeopleMapper
+     *            Gets the person model views by ids.
+     */
+    public GetSuggestedPeopleForPersonMapper(final DomainMapper<Long, SuggestionCandidates> inCandidatesMapper,
+            final DomainMapper<Long, List<Long>> inBlockedScopeIdsMapper,
+            final DomainMapper<List<Long>, List<PersonModelView>> inPeopleMapper)
+    {
+        super(inCandidatesMapper, inBlockedScopeIdsMapper, inPeopleMapper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SuggestionCandidates.ScoredIds getCandidates(final SuggestionCandidates inCandidates)
+    {
+        return inCandidates.getPeople();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isAllowed(final PersonModelView inView)
+    {
+        return !inView.isAccountLocked();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PersonModelView buildSuggestion(final PersonModelView inView, final int inScore)
+    {
+        return new PersonModelView(inView.getId(), inView.getAccountId(), inView.getPreferredName(), inView
+                .getLastName(), inView.getDisplayName(), inView.getDisplayNameSuffix(), (long) inScore, inView
+                .getDateAdded(), inView.getStreamScopeId());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.stream.BaseArgCachedDomainMapper;
+
+/**
+ * Gets a person's suggestion candidates from cache, building them when missing or too old. Follow events keep the
+ * cached candidates current (see UpdateSuggestionCandidatesCacheMapper); the periodic rebuild corrects any drift.
+ */
+public class GetSuggestionCandidatesCacheMapper extends BaseArgCachedDomainMapper<Long, SuggestionCandidates>
+{
+    /** Builds the candidates from the database. */
+    private final DomainMapper<Long, SuggestionCandidates> buildMapper;
+
+    /** Age (millis) after which candidates are rebuilt. */
+    private final long maxAgeMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param inBuildMapper
+     *            Builds the candidates from the database.
+     * @param inMaxAgeMillis
+     *            Age (millis) after which candidates are rebuilt.
+     */
+    public GetSuggestionCandidatesCacheMapper(final DomainMapper<Long, SuggestionCandidates> inBuildMapper,
+            final long inMaxAgeMillis)
+    {
+        buildMapper = inBuildMapper;
+        maxAgeMillis = inMaxAgeMillis;
+    }
+
+    /**
+     * Gets the candidates.
+     *
+     * @param inPersonId
+     *            Person id.
+     * @return The candidates.
+     */
+    @Override
+    public SuggestionCandidates execute(final Long inPersonId)
+    {
+        String key = CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + inPersonId;
+        SuggestionCandidates candidates = (SuggestionCandidates) getCache().get(key);
+        if (candidates == null || candidates.getBuildTime() + maxAgeMillis < System.currentTimeMillis())
+        {
+            candidates = buildMapper.execute(inPersonId);
+            getCache().set(key, candidates);
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+
+/**
+ * Broadcasts near cache invalidations over a JMS topic and applies the ones received from other nodes.
+ */
+public class JmsCacheInvalidationBroadcaster implements CacheInvalidationBroadcaster, MessageListener
+{
+    /** Name of the message property identifying the sending node. */
+    static final String NODE_PROPERTY = "nearCacheNode";
+
+    /** Separates the keys in a message (cache keys never contain line breaks). */
+    static final String KEY_SEPARATOR = "\n";
+
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Template for sending to the invalidation topic. */
+    private final JmsTemplate jmsTemplate;
+
+    /** The local cache to apply received invalidations to. */
+    private final NearCache nearCache;
+
+    /** Identifies this node so it can ignore its own messages. */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Constructor.
+     *
+     * @param inJmsTemplate
+     *            Template for sending to the invalidation topic (as its default destination).
+     * @param inNearCache
+     *            The local cache to apply received invalidations to.
+     */
+    public JmsCacheInvalidationBroadcaster(final JmsTemplate inJmsTemplate, final NearCache inNearCache)
+    {
+        jmsTemplate = inJmsTemplate;
+        nearCache = inNearCache;
+        nearCache.setInvalidationBroadcaster(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void broadcastInvalidation(final String inKey)
+    {
+        broadcastInvalidations(Collections.singletonList(inKey));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void broadcastInvalidations(final Collection<String> inKeys)
+    {
+        if (inKeys.isEmpty())
+        {
+            return;
+        }
+
+        final StringBuilder text = new StringBuilder();
+        for (String key : inKeys)
+        {
+            if (text.length() > 0)
+            {
+                text.append(KEY_SEPARATOR);
+            }
+            text.append(key);
+        }
+
+        try
+        {
+            jmsTemplate.send(new MessageCreator()
+            {
+                public Message createMessage(final Session inSession) throws JMSException
+                {
+                    TextMessage message = inSession.createTextMessage(text.toString());
+                    message.setStringProperty(NODE_PROPERTY, nodeId);
+                    return message;
+                }
+            });
+        }
+        catch (Exception ex)
+        {
+            // other nodes will pick the change up when their copy expires
+            log.error("Unable to broadcast near cache invalidation of " + inKeys, ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessage(final Message inMessage)
+    {
+        try
+        {
+            if (inMessage instanceof TextMessage && !nodeId.equals(inMessage.getStringProperty(NODE_PROPERTY)))
+            {
+                for (String key : ((TextMessage) inMessage).getText().split(KEY_SEPARATOR))
+                {
+                    nearCache.invalidateLocal(key);
+                }
+            }
+        }
+        catch (JMSException ex)
+        {
+            log.error("Unable to read near cache invalidation message.", ex);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * List of Long backed by a primitive long[]. Values are only boxed when read through the List interface; callers that
+ * know about this class should use getLong() and toLongArray() to avoid the allocation.
+ */
+public class LongArrayList extends AbstractList<Long> implements RandomAccess
+{
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * The backing array.
+     */
+    private long[] values;
+
+    /**
+     * Number of values in use.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public LongArrayList()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inCapacity
+     *            initial capacity.
+     */
+    public LongArrayList(final int inCapacity)
+    {
+        values = new long[inCapacity];
+    }
+
+    /**
+     * Constructor - wraps the given array without copying.
+     *
+     * @param inValues
+     *            the values.
+     * @param inSize
+     *            the number of values in use.
+     */
+    public LongArrayList(final long[] inValues, final int inSize)
+    {
+        values = inValues;
+        size = inSize;
+    }
+
+    /**
+     * Constructor - copies a collection.
+     *
+     * @param inValues
+     *            the values to copy.
+     */
+    public LongArrayList(final Collection<Long> inValues)
+    {
+        this(inValues.size());
+        if (inValues instanceof LongArrayList)
+        {
+            LongArrayList other = (LongArrayList) inValues;
+            System.arraycopy(other.values, 0, values, 0, other.size);
+            size = other.size;
+        }
+        else
+        {
+            for (Long value : inValues)
+            {
+                values[size++] = value;
+            }
+        }
+    }
+
+    /**
+     * Get a value without boxing it.
+     *
+     * @param inIndex
+     *            the index.
+     * @return the value.
+     */
+    public long getLong(final int inIndex)
+    {
+        rangeCheck(inIndex);
+        return values[inIndex];
+    }
+
+    /**
+     * Append a value without boxing it.
+     *
+     * @param inValue
+     *            the value.
+     */
+    public void addLong(final long inValue)
+    {
+        ensureCapacity(size + 1);
+        values[size++] = inValue;
+        modCount++;
+    }
+
+    /**
+     * Find the index of a value without boxing it.
+     *
+     * @param inValue
+     *            the value.
+     * @return the first index of the value, or -1 if not present.
+     */
+    public int indexOfLong(final long inValue)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (values[i] == inValue)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Drops everything past the given size.
+     *
+     * @param inSize
+     *            the new size; ignored if not smaller than the current size.
+     */
+    public void truncate(final int inSize)
+    {
+        if (inSize < size)
+        {
+            size = Math.max(inSize, 0);
+            modCount++;
+        }
+    }
+
+    /**
+     * @return a copy of the values as a primitive array.
+     */
+    public long[] toLongArray()
+    {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long get(final int inIndex)
+    {
+        return getLong(inIndex);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long set(final int inIndex, final Long inValue)
+    {
+        rangeCheck(inIndex);
+        long old = values[inIndex];
+        values[inIndex] = inValue;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(final int inIndex, final Long inValue)
+    {
+        if (inIndex < 0 || inIndex > size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + inIndex + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(values, inIndex, values, inIndex + 1, size - inIndex);
+        values[inIndex] = inValue;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long remove(final int inIndex)
+    {
+        rangeCheck(inIndex);
+        long old = values[inIndex];
+        System.arraycopy(values, inIndex + 1, values, inIndex, size - inIndex - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc} Compacts in place in a single pass rather than shifting the array once per removed value.
+     */
+    @Override
+    public boolean removeAll(final Collection<?> inValues)
+    {
+        Collection<?> lookup = inValues.size() > 1 && !(inValues instanceof Set) ? new HashSet<Object>(inValues)
+                : inValues;
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (!lookup.contains(values[i]))
+            {
+                values[kept++] = values[i];
+            }
+        }
+        boolean changed = kept != size;
+        if (changed)
+        {
+            size = kept;
+            modCount++;
+        }
+        return changed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Grow the backing array if needed.
+     *
+     * @param inCapacity
+     *            the required capacity.
+     */
+    private void ensureCapacity(final int inCapacity)
+    {
+        if (inCapacity > values.length)
+        {
+            values = Arrays.copyOf(values, Math.max(inCapacity, values.length + (values.length >> 1) + 1));
+        }
+    }
+
+    /**
+     * Check an index.
+     *
+     * @param inIndex
+     *            the index.
+     */
+    private void rangeCheck(final int inIndex)
+    {
+        if (inIndex < 0 || inIndex >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + inIndex + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts lists of longs to and from the byte[] stored in cache.
+ *
+ * Two formats are understood:
+ * <ul>
+ * <li>Legacy: each value written as a fixed 8-byte big-endian long.</li>
+ * <li>Compact (version 1): one or more blocks, each made of the marker byte, a varint count, then the zig-zag varint
+ * delta of each value from the one before it. Descending activity ids produce small deltas, so most values take one or
+ * two bytes.</li>
+ * </ul>
+ *
+ * Both formats are self-delimiting per value/block, so a compact block may be prepended (memcached prepend) onto
+ * existing legacy or compact data, and a mix of the two decodes correctly. This lets the compact format be turned on
+ * while older readers are still draining. The marker byte can never start a legacy value since ids are positive.
+ */
+public class LongListCodec
+{
+    /**
+     * Marker byte that starts a version 1 compact block.
+     */
+    static final byte COMPACT_V1_MARKER = (byte) 0xC1;
+
+    /**
+     * Size of a legacy encoded value.
+     */
+    private static final int LEGACY_VALUE_SIZE = 8;
+
+    /**
+     * Maximum bytes in a varint encoded long.
+     */
+    private static final int MAX_VARLONG_SIZE = 10;
+
+    /**
+     * Maximum bytes in a varint encoded int.
+     */
+    private static final int MAX_VARINT_SIZE = 5;
+
+    /**
+     * Bits per varint byte.
+     */
+    private static final int VARINT_SHIFT = 7;
+
+    /**
+     * Varint payload mask.
+     */
+    private static final int VARINT_PAYLOAD = 0x7F;
+
+    /**
+     * Varint continuation bit.
+     */
+    private static final int VARINT_CONTINUE = 0x80;
+
+    /**
+     * Mask for an unsigned byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Whether to write the compact format (reading always accepts both).
+     */
+    private final boolean writeCompact;
+
+    /**
+     * Constructor.
+     *
+     * @param inWriteCompact
+     *            true to write the compact format; false to keep writing the legacy format (use until every reader
+     *            has been upgraded).
+     */
+    public LongListCodec(final boolean inWriteCompact)
+    {
+        writeCompact = inWriteCompact;
+    }
+
+    /**
+     * @return whether the compact format is written.
+     */
+    public boolean isWriteCompact()
+    {
+        return writeCompact;
+    }
+
+    /**
+     * Encode a list of longs.
+     *
+     * @param inValues
+     *            the values.
+     * @return the encoded bytes, null if inValues is null.
+     */
+    public byte[] encode(final List<Long> inValues)
+    {
+        if (inValues == null)
+        {
+            return null;
+        }
+        return writeCompact ? encodeCompact(inValues) : encodeLegacy(inValues);
+    }
+
+    /**
+     * Decode bytes from cache.
+     *
+     * @param inBytes
+     *            the encoded bytes.
+     * @return the values, null if inBytes is null.
+     * @throws IOException
+     *             if the bytes are not a valid encoding.
+     */
+    public LongArrayList decode(final byte[] inBytes) throws IOException
+    {
+        if (inBytes == null)
+        {
+            return null;
+        }
+
+        int length = inBytes.length;
+        int[] pos = new int[] { 0 };
+
+        // size guess: exact for a single compact block, exact for pure legacy
+        int capacity = length / LEGACY_VALUE_SIZE;
+        if (length > 0 && inBytes[0] == COMPACT_V1_MARKER)
+        {
+            pos[0] = 1;
+            capacity = Math.min(readVarInt(inBytes, pos), length);
+            pos[0] = 0;
+        }
+        LongArrayList values = new LongArrayList(capacity);
+
+        while (pos[0] < length)
+        {
+            if (inBytes[pos[0]] == COMPACT_V1_MARKER)
+            {
+                pos[0]++;
+                int count = readVarInt(inBytes, pos);
+                long previous = 0;
+                for (int i = 0; i < count; i++)
+                {
+                    long raw = readVarLong(inBytes, pos);
+                    previous += (raw >>> 1) ^ -(raw & 1);
+                    values.addLong(previous);
+                }
+            }
+            else
+            {
+                if (length - pos[0] < LEGACY_VALUE_SIZE)
+                {
+                    throw new IOException("Truncated legacy value at offset " + pos[0]);
+                }
+                long value = 0;
+                for (int i = 0; i < LEGACY_VALUE_SIZE; i++)
+                {
+                    value = (value << Byte.SIZE) | (inBytes[pos[0]++] & BYTE_MASK);
+                }
+                values.addLong(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Encode in the legacy fixed-width format.
+     *
+     * @param inValues
+     *            the values.
+     * @return the bytes.
+     */
+    private byte[] encodeLegacy(final List<Long> inValues)
+    {
+        byte[] out = new byte[inValues.size() * LEGACY_VALUE_SIZE];
+        int pos = 0;
+        for (long value : inValues)
+        {
+            for (int shift = (LEGACY_VALUE_SIZE - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE)
+            {
+                out[pos++] = (byte) (value >>> shift);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Encode as a single compact block.
+     *
+     * @param inValues
+     *            the values.
+     * @return the bytes.
+     */
+    private byte[] encodeCompact(final List<Long> inValues)
+    {
+        int count = inValues.size();
+        LongArrayList primitive = inValues instanceof LongArrayList ? (LongArrayList) inValues : null;
+        byte[] buffer = new byte[1 + MAX_VARINT_SIZE + count * MAX_VARLONG_SIZE];
+        int pos = 0;
+        buffer[pos++] = COMPACT_V1_MARKER;
+        pos = writeVarLong(buffer, pos, count);
+
+        long previous = 0;
+        if (primitive != null)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                long value = primitive.getLong(i);
+                pos = writeDelta(buffer, pos, value - previous);
+                previous = value;
+            }
+        }
+        else
+        {
+            for (long value : inValues)
+            {
+                pos = writeDelta(buffer, pos, value - previous);
+                previous = value;
+            }
+        }
+
+        byte[] out = new byte[pos];
+        System.arraycopy(buffer, 0, out, 0, pos);
+        return out;
+    }
+
+    /**
+     * Write a signed delta as a zig-zag varint.
+     *
+     * @param inBuffer
+     *            the buffer.
+     * @param inPos
+     *            position to write at.
+     * @param inDelta
+     *            the delta.
+     * @return the position after the value.
+     */
+    private static int writeDelta(final byte[] inBuffer, final int inPos, final long inDelta)
+    {
+        return writeVarLong(inBuffer, inPos, (inDelta << 1) ^ (inDelta >> (Long.SIZE - 1)));
+    }
+
+    /**
+     * Write an unsigned varint.
+     *
+     * @param inBuffer
+     *            the buffer.
+     * @param inPos
+     *            position to write at.
+     * @param inValue
+     *            the value.
+     * @return the position after the value.
+     */
+    private static int writeVarLong(final byte[] inBuffer, final int inPos, final long inValue)
+    {
+        int pos = inPos;
+        long value = inValue;
+        while ((value & ~VARINT_PAYLOAD) != 0)
+        {
+            inBuffer[pos++] = (byte) ((value & VARINT_PAYLOAD) | VARINT_CONTINUE);
+            value >>>= VARINT_SHIFT;
+        }
+        inBuffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * Read an unsigned varint.
+     *
+     * @param inBytes
+     *            the bytes.
+     * @param inPos
+     *            single element array holding the read position; advanced past the value.
+     * @return the value.
+     * @throws IOException
+     *             if the value runs past the end of the data or is too long.
+     */
+    private static long readVarLong(final byte[] inBytes, final int[] inPos) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += VARINT_SHIFT)
+        {
+            if (inPos[0] >= inBytes.length)
+            {
+                throw new IOException("Truncated compact list value at offset " + inPos[0]);
+            }
+            int b = inBytes[inPos[0]++];
+            value |= (long) (b & VARINT_PAYLOAD) << shift;
+            if ((b & VARINT_CONTINUE) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Malformed compact list value at offset " + inPos[0]);
+    }
+
+    /**
+     * Read an unsigned varint that must fit in an int.
+     *
+     * @param inBytes
+     *            the bytes.
+     * @param inPos
+     *            single element array holding the read position; advanced past the value.
+     * @return the value.
+     * @throws IOException
+     *             if the value is invalid.
+     */
+    private static int readVarInt(final byte[] inBytes, final int[] inPos) throws IOException
+    {
+        long value = readVarLong(inBytes, inPos);
+        if (value < 0 || value > Integer.MAX_VALUE)
+        {
+            throw new IOException("Invalid compact list count " + value);
+        }
+        return (int) value;
+    }
+}
@@ -15,26 +15,33 @@
  */
 package org.eurekastreams.server.persistence.mappers.cache;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import net.spy.memcached.CASMutation;
 import net.spy.memcached.CASMutator;
+import net.spy.memcached.CASResponse;
+import net.spy.memcached.CASValue;
 import net.spy.memcached.MemcachedClient;
 import net.spy.memcached.transcoders.SerializingTranscoder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.DaemonThreadFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
 
 /**
  * Cache implementation that stores data using memcached.
@@ -56,11 +63,66 @@ public class MemcachedCache implements Cache
      */
     private static final int MAX_EXPIRATION_TIME = 60 * 60 * 24 * 30;
 
+    /**
+     * Expiration time of counters; when a counter expires it is rebuilt from its source of record.
+     */
+    private static final int COUNTER_EXPIRATION_TIME = 60 * 60 * 24;
+
+    /**
+     * Number of rounds of cas retries a batch operation makes before giving up on a key.
+     */
+    private static final int MAX_BATCH_CAS_ATTEMPTS = 10;
+
+    /**
+     * How long to wait for the reply to one operation in a batch.
+     */
+    private static final long BATCH_OPERATION_TIMEOUT_MILLIS = 2500;
+
+    /**
+     * Number of entries prepended to lists (counted per slot of keys) between checks of whether a list needs trimming.
+     */
+    private static final int TRIM_CHECK_ENTRIES = 100;
+
+    /**
+     * Number of slots keys are hashed into when counting prepended entries.
+     */
+    private static final int TRIM_CHECK_SLOTS = 4096;
+
+    /**
+     * Maximum number of batched writes waiting for an asynchronous write thread; beyond this callers write themselves.
+     */
+    private static final int MAX_PENDING_WRITE_BATCHES = 1000;
+
     /**
      * Maximum number of items to keep in any memcached list.
      */
     private int maxListSize;
 
+    /**
+     * Converts lists of longs to/from the bytes stored in memcached.
+     */
+    private final LongListCodec listCodec;
+
+    /**
+     * Counts of list trims by key prefix.
+     */
+    private final KeyedStatistics trimStatistics = new KeyedStatistics();
+
+    /**
+     * Entries prepended to lists since they were last checked for trimming, by slot of key.
+     */
+    private final AtomicIntegerArray prependedEntries = new AtomicIntegerArray(TRIM_CHECK_SLOTS);
+
+    /**
+     * Statistics on batched list operations.
+     */
+    private final KeyedStatistics batchStatistics = new KeyedStatistics();
+
+    /**
+     * Makes batched writes off the caller's thread; null to make them on the caller's thread.
+     */
+    private ThreadPoolExecutor writeExecutor;
+
     /**
      * Constructor.
      *
@@ -70,9 +132,25 @@ public class MemcachedCache implements Cache
      *            the maximum size a list can grow to before it is trimmed
      */
     public MemcachedCache(final MemcachedClient inClient, final int inMaxListSize)
+    {
+        this(inClient, inMaxListSize, new LongListCodec(false));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inClient
+     *            the memcached client to set.
+     * @param inMaxListSize
+     *            the maximum size a list can grow to before it is trimmed
+     * @param inListCodec
+     *            converts lists of longs to/from the bytes stored in memcached
+     */
+    public MemcachedCache(final MemcachedClient inClient, final int inMaxListSize, final LongListCodec inListCodec)
     {
         client = inClient;
         maxListSize = inMaxListSize;
+        listCodec = inListCodec;
     }
 
     /**
@@ -151,7 +229,7 @@ public class MemcachedCache implements Cache
         }
 
         // use newInValue moving forward
-        final List<Long> newInValue = tempInValue;
+        final List<Long> newInValue = capped(tempInValue);
 
         if (log.isTraceEnabled())
         {
@@ -222,6 +300,54 @@ public class MemcachedCache implements Cache
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Object update(final String inKey, final Transformer<Object, Object> inUpdater)
+    {
+        if (log.isTraceEnabled())
+        {
+            log.trace("Updating '" + inKey + "'");
+        }
+
+        Collection<String> failed = new ArrayList<String>(1);
+        SerializingTranscoder transcoder = new SerializingTranscoder();
+        CASResponse response = null;
+        for (int attempt = 0; attempt < MAX_BATCH_CAS_ATTEMPTS; attempt++)
+        {
+            CASValue<Object> current = waitFor(inKey, client.asyncGets(inKey), failed);
+            if (current == null)
+            {
+                // not cached - nothing to update (or the read failed, in which case the value is dropped below)
+                response = null;
+                break;
+            }
+            Object updated = inUpdater.transform(current.getValue());
+            if (updated == null)
+            {
+                return null;
+            }
+            response = waitFor(inKey, client.asyncCAS(inKey, current.getCas(), MAX_EXPIRATION_TIME, updated,
+                    transcoder), failed);
+            if (response != CASResponse.EXISTS)
+            {
+                if (response == CASResponse.OK)
+                {
+                    return updated;
+                }
+                break;
+            }
+        }
+
+        // a value we could not update is out of date; drop it so it gets rebuilt
+        if (!failed.isEmpty() || response == CASResponse.EXISTS)
+        {
+            log.error("Unable to update " + inKey + " after " + MAX_BATCH_CAS_ATTEMPTS + " attempts; deleting it.");
+            delete(inKey);
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -241,14 +367,13 @@ public class MemcachedCache implements Cache
 
         try
         {
-            byte[] bytesToSet = getBytesFromList(inValue);
+            byte[] bytesToSet = getBytesFromList(capped(inValue));
             if (bytesToSet != null)
             {
                 this.set(inKey, bytesToSet);
             }
             else
             {
-                // a null here really means delete the key
                 this.delete(inKey);
             }
         }
@@ -260,6 +385,146 @@ public class MemcachedCache implements Cache
 
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Without asynchronous write threads (the default) this costs the caller the same as a set per key: the client
+     * already queues each set without awaiting its reply. With write threads, serializing and sending the batch (and
+     * awaiting the replies) happen after the caller has moved on.
+     */
+    public void setMulti(final Map<String, ?> inValuesByKey)
+    {
+        final Map<String, Object> values = new LinkedHashMap<String, Object>(inValuesByKey);
+        submitWrite(new Runnable()
+        {
+            public void run()
+            {
+                writeBatch("setMulti", values);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The lists are written as in setMulti.
+     */
+    public void setLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        final Map<String, List<Long>> lists = new LinkedHashMap<String, List<Long>>(inValuesByKey);
+        submitWrite(new Runnable()
+        {
+            public void run()
+            {
+                Map<String, Object> values = new LinkedHashMap<String, Object>();
+                for (Map.Entry<String, List<Long>> entry : lists.entrySet())
+                {
+                    if (entry.getValue() == null)
+                    {
+                        // cannot pass null to memcached
+                        log.warn("In setLists, attempting to pass in NULL to memcached for key " + entry.getKey());
+                        continue;
+                    }
+                    try
+                    {
+                        values.put(entry.getKey(), getBytesFromList(capped(entry.getValue())));
+                    }
+                    catch (IOException e)
+                    {
+                        log.error("Error setting memcached list with passed in value for key " + entry.getKey()
+                                + ".  Exception : " + e.toString());
+                    }
+                }
+                writeBatch("setLists", values);
+            }
+        });
+    }
+
+    /**
+     * Makes a batch of writes on the write threads if there are any, else on the caller's thread.
+     *
+     * @param inWrite
+     *            the writes
+     */
+    private void submitWrite(final Runnable inWrite)
+    {
+        if (writeExecutor == null)
+        {
+            inWrite.run();
+        }
+        else
+        {
+            writeExecutor.execute(inWrite);
+        }
+    }
+
+    /**
+     * Sends a batch of sets (or deletes, for null values) before awaiting any reply, and records the batch's latency:
+     * as NAME.millis when the replies were awaited, else as NAME.send.millis (the time to send the batch only).
+     *
+     * @param inStatisticName
+     *            name under which to record the batch's statistics
+     * @param inValuesByKey
+     *            the values to set, by key
+     */
+    private void writeBatch(final String inStatisticName, final Map<String, Object> inValuesByKey)
+    {
+        long start = System.currentTimeMillis();
+
+        Map<String, Future<Boolean>> writes = new LinkedHashMap<String, Future<Boolean>>();
+        for (Map.Entry<String, Object> entry : inValuesByKey.entrySet())
+        {
+            if (log.isTraceEnabled())
+            {
+                log.trace("Setting to cache '" + entry.getKey() + "' - " + entry.getValue());
+            }
+            if (entry.getValue() != null)
+            {
+                writes.put(entry.getKey(), client.set(entry.getKey(), MAX_EXPIRATION_TIME, entry.getValue()));
+            }
+            else
+            {
+                writes.put(entry.getKey(), client.delete(entry.getKey()));
+            }
+        }
+
+        // only wait for the replies off the caller's thread, where the wait costs the caller nothing; a single set
+        // does not wait either
+        boolean awaited = writeExecutor != null;
+        if (awaited)
+        {
+            for (Map.Entry<String, Future<Boolean>> entry : writes.entrySet())
+            {
+                waitFor(entry.getKey(), entry.getValue());
+            }
+        }
+
+        batchStatistics.record(inStatisticName + (awaited ? ".millis" : ".send.millis"), System.currentTimeMillis()
+                - start);
+        batchStatistics.record(inStatisticName + ".keys", writes.size());
+    }
+
+    /**
+     * Sets the number of threads making batched writes (setMulti, setLists) after the caller has moved on. With 0
+     * (the default) the caller makes them, exactly as if it set each key. When too many batches are waiting the caller
+     * makes its own.
+     *
+     * @param inThreads
+     *            number of write threads
+     */
+    public void setAsyncWriteThreads(final int inThreads)
+    {
+        if (inThreads <= 0)
+        {
+            writeExecutor = null;
+            return;
+        }
+        writeExecutor = new ThreadPoolExecutor(inThreads, inThreads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_WRITE_BATCHES), new DaemonThreadFactory("memcached-write"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        writeExecutor.allowCoreThreadTimeOut(true);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -289,7 +554,10 @@ public class MemcachedCache implements Cache
         {
             log.trace("Getting bulk: " + inKeys.toString());
         }
-        return client.getBulk(inKeys);
+        long start = System.currentTimeMillis();
+        Map<String, Object> results = client.getBulk(inKeys);
+        batchStatistics.record("multiGet.millis", System.currentTimeMillis() - start);
+        return results;
     }
 
     /**
@@ -382,6 +650,7 @@ public class MemcachedCache implements Cache
         if (bytesToPrepend != null)
         {
             client.prepend(0, inKey, bytesToPrepend);
+            notePrepended(inKey, inValue.size());
         }
     }
 
@@ -395,116 +664,136 @@ public class MemcachedCache implements Cache
 
     /**
      * {@inheritDoc}
+     *
+     * This is a plain read; it never writes. Lists are kept near the maximum on the write side, so a list which has
+     * grown past it since it was last trimmed is only truncated in the copy returned.
      */
     public ArrayList<Long> getList(final String inKey, final int inMaximumEntries)
     {
-        // This is how we modify a list when we find one in the cache.
-        CASMutation<Object> mutation = new CASMutation<Object>()
+        if (log.isTraceEnabled())
         {
+            log.trace("Getting list " + inKey);
+        }
 
-            // This is only invoked when a value actually exists.
-            public Object getNewValue(final Object current)
-            {
-                // retrieve the list from the bytes stored in memcache
-                ArrayList<Long> toReturn = new ArrayList<Long>();
-                try
-                {
-                    toReturn = getListFromBytes(current);
-                }
-                catch (IOException e)
-                {
-                    // problem getting the key .. return a null so the client goes
-                    // to the database
-                    log.error("Unable to retrieve LIST key " + inKey + " from memcached.  Exception " + e.getMessage());
-                    toReturn = null;
-                }
-
-                // check list size and trim if necessary
-                if (toReturn != null && toReturn.size() > inMaximumEntries)
-                {
-                    ArrayList<Long> trimmed = (ArrayList<Long>) toReturn.subList(0, inMaximumEntries - 1);
-
-                    // set the trimmed list back to memcached
-                    toReturn = trimmed;
-
-                    if (log.isInfoEnabled())
-                    {
-                        log.info("Trimming list " + inKey + " to size of " + inMaximumEntries);
-                    }
-                }
-
-                try
-                {
-                    return getBytesFromList(toReturn);
-                }
-                catch (IOException e)
-                {
-                    // CAS timeout exceeded, return null because nothing was
-                    // stored in cache.
-                    log.error("Error in getList in getBytesFromList.  Key " + inKey + " Exception " + e.toString());
-                    return null;
-                }
-            }
-        };
-
-        // The mutator who'll do all the low-level stuff.
-        SerializingTranscoder transcoder = new SerializingTranscoder();
-        CASMutator<Object> mutator = new CASMutator<Object>(client, transcoder);
-
-        // This returns whatever value was successfully stored within the
-        // cache -- either the initial list as above, or a mutated existing
-        // one
+        LongArrayList list;
         try
         {
-            // The initial value -- only used when there's no list stored under
-            // the key.
-            byte[] initialValue = null;
-
-            return getListFromBytes(mutator.cas(inKey, initialValue, MAX_EXPIRATION_TIME, mutation));
+            list = getPrimitiveListFromBytes(client.get(inKey));
         }
         catch (Exception e)
         {
-            // error, return null because nothing was stored in cache.
+            // problem getting the key .. return a null so the client goes to the database
             log.error("Error in getList, general exception.  Key " + inKey + " Exception " + e.toString());
             return null;
         }
+
+        if (list == null)
+        {
+            return null;
+        }
+
+        if (list.size() > inMaximumEntries)
+        {
+            list.truncate(inMaximumEntries);
+        }
+
+        return new ArrayList<Long>(list);
+    }
+
+    /**
+     * Caps a list being written to the maximum list size.
+     *
+     * @param inList
+     *            the list
+     * @return the list, or its first entries if it is too long
+     */
+    private List<Long> capped(final List<Long> inList)
+    {
+        return inList.size() > maxListSize ? inList.subList(0, maxListSize) : inList;
+    }
+
+    /**
+     * Notes entries prepended to a list, and trims the list once enough entries have been prepended (to it or to
+     * other lists whose keys share its slot) that it may have grown past the maximum size.
+     *
+     * @param inKey
+     *            the key of the list
+     * @param inEntries
+     *            the number of entries prepended
+     */
+    private void notePrepended(final String inKey, final int inEntries)
+    {
+        int slot = (inKey.hashCode() & Integer.MAX_VALUE) % TRIM_CHECK_SLOTS;
+        if (prependedEntries.addAndGet(slot, inEntries) >= TRIM_CHECK_ENTRIES)
+        {
+            prependedEntries.set(slot, 0);
+            trimList(inKey, maxListSize);
+        }
     }
 
     /**
-     * Get the byte[] from a ArrayList&lt;Long&gt;.
+     * Trims a cached list down to a maximum size if it has grown past it. The list is only written if it is over the
+     * maximum, and only if it has not changed since it was read; a list which changed is left for the next check.
      *
-     * @param inListOfLongs
-     *            the list of longs to convert
-     * @return the byte[] representation of the ArrayList
-     * @throws IOException
-     *             thrown if any errors encountered
+     * @param inKey
+     *            the key of the list
+     * @param inMaximumEntries
+     *            the maximum number of entries to keep
      */
-    protected byte[] getBytesFromList(final List<Long> inListOfLongs) throws IOException
+    protected void trimList(final String inKey, final int inMaximumEntries)
     {
-        if (inListOfLongs == null)
+        // the prepend which triggered this was sent on the same connection, so this read sees it
+        CASValue<Object> current = waitFor(inKey, client.asyncGets(inKey));
+        if (current == null)
         {
-            return null;
+            return;
         }
 
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bytes);
-        byte[] toReturn = null;
         try
         {
-            for (Long oneLong : inListOfLongs)
+            LongArrayList list = getPrimitiveListFromBytes(current.getValue());
+            if (list == null || list.size() <= inMaximumEntries)
             {
-                out.writeLong(oneLong);
-                out.flush();
+                return;
             }
 
-            toReturn = bytes.toByteArray();
+            if (log.isInfoEnabled())
+            {
+                log.info("Trimming list " + inKey + " to size of " + inMaximumEntries);
+            }
+            trimStatistics.increment(CacheKeys.getPrefix(inKey));
+
+            list.truncate(inMaximumEntries);
+            waitFor(inKey, client.asyncCAS(inKey, current.getCas(), MAX_EXPIRATION_TIME, getBytesFromList(list),
+                    new SerializingTranscoder()));
         }
-        finally
+        catch (IOException e)
         {
-            out.close();
+            // not fatal: the list stays oversized until it is next checked, and reads only return the maximum
+            log.error("Error in trimList decoding list.  Key " + inKey + " Exception " + e.toString());
         }
+    }
 
-        return toReturn;
+    /**
+     * @return the number of list trims performed, by key prefix
+     */
+    public KeyedStatistics getTrimStatistics()
+    {
+        return trimStatistics;
+    }
+
+    /**
+     * Get the byte[] from a ArrayList&lt;Long&gt;.
+     *
+     * @param inListOfLongs
+     *            the list of longs to convert
+     * @return the byte[] representation of the ArrayList
+     * @throws IOException
+     *             thrown if any errors encountered
+     */
+    protected byte[] getBytesFromList(final List<Long> inListOfLongs) throws IOException
+    {
+        return listCodec.encode(inListOfLongs);
     }
 
     /**
@@ -518,28 +807,23 @@ public class MemcachedCache implements Cache
      */
     protected ArrayList<Long> getListFromBytes(final Object inBytesOfLongs) throws IOException
     {
-        if (inBytesOfLongs == null)
-        {
-            return null;
-        }
-
-        ArrayList<Long> toReturn = new ArrayList<Long>();
-
-        ByteArrayInputStream bytes = new ByteArrayInputStream((byte[]) inBytesOfLongs);
-        DataInputStream input = new DataInputStream(bytes);
-        try
-        {
-            while (input.available() > 0)
-            {
-                toReturn.add(input.readLong());
-            }
-        }
-        finally
-        {
-            input.close();
-        }
+        LongArrayList values = getPrimitiveListFromBytes(inBytesOfLongs);
+        return values == null ? null : new ArrayList<Long>(values);
+    }
 
-        return toReturn;
+    /**
+     * Convert the memcached object into a primitive-backed list. Used when the list is only inspected or modified
+     * before being written back, so the values never need to be boxed.
+     *
+     * @param inBytesOfLongs
+     *            the byte[] to convert
+     * @return the values, null if inBytesOfLongs is null
+     * @throws IOException
+     *             thrown if any errors
+     */
+    protected LongArrayList getPrimitiveListFromBytes(final Object inBytesOfLongs) throws IOException
+    {
+        return listCodec.decode((byte[]) inBytesOfLongs);
     }
 
     /**
@@ -558,13 +842,17 @@ public class MemcachedCache implements Cache
             public Object getNewValue(final Object current)
             {
                 Object toReturn = current;
-                List<Long> list;
+                LongArrayList list;
                 try
                 {
-                    list = getListFromBytes(current);
+                    list = getPrimitiveListFromBytes(current);
                     if (list != null)
                     {
-                        list.remove(inValue);
+                        int index = list.indexOfLong(inValue);
+                        if (index >= 0)
+                        {
+                            list.remove(index);
+                        }
                     }
 
                     // always convert back to byte[] to return to memcached
@@ -601,64 +889,200 @@ public class MemcachedCache implements Cache
 
     /**
      * {@inheritDoc}
+     *
+     * All keys are processed together: the gets for every key are sent before any reply is awaited, then the cas
+     * writes for every changed list, and only the keys that lost a cas race are fetched and written again.
      */
     public void removeFromLists(final List<String> inKeys, final List<Long> inValues)
     {
-        Map<String, ArrayList<Long>> results = multiGetList(inKeys);
-        for (final String key : results.keySet())
+        if (log.isTraceEnabled())
         {
-            if (log.isTraceEnabled())
+            log.trace("Removing from lists " + inKeys + ", values: " + inValues);
+        }
+
+        long start = System.currentTimeMillis();
+        Set<Long> valuesToRemove = new HashSet<Long>(inValues);
+        Collection<String> pending = new LinkedHashSet<String>(inKeys);
+        Collection<String> failed = new LinkedHashSet<String>();
+        SerializingTranscoder transcoder = new SerializingTranscoder();
+        int conflicts = 0;
+
+        for (int attempt = 0; attempt < MAX_BATCH_CAS_ATTEMPTS && !pending.isEmpty(); attempt++)
+        {
+            // pipeline the gets
+            Map<String, Future<CASValue<Object>>> gets = new LinkedHashMap<String, Future<CASValue<Object>>>();
+            for (String key : pending)
             {
-                log.trace("Removing from list '" + key + "', values: " + inValues);
+                gets.put(key, client.asyncGets(key));
             }
 
-            CASMutation<Object> mutation = new CASMutation<Object>()
+            // pipeline the writes of the lists that changed
+            Map<String, Future<CASResponse>> writes = new LinkedHashMap<String, Future<CASResponse>>();
+            for (Map.Entry<String, Future<CASValue<Object>>> entry : gets.entrySet())
             {
-                // This is only invoked when a list already exists.
-                public Object getNewValue(final Object current)
+                String key = entry.getKey();
+                CASValue<Object> current = waitFor(key, entry.getValue(), failed);
+                if (current == null)
                 {
-                    Object toReturn = current;
-                    List<Long> list;
-                    try
-                    {
-                        list = getListFromBytes(current);
-                        if (list != null)
-                        {
-                            list.removeAll(inValues);
-                        }
-
-                        // always convert back to byte[] to return to memcached
-                        toReturn = getBytesFromList(list);
-                    }
-                    catch (IOException e)
+                    // not cached - nothing to remove (or the read failed, in which case the list is dropped below)
+                    continue;
+                }
+                try
+                {
+                    LongArrayList list = getPrimitiveListFromBytes(current.getValue());
+                    if (list != null && list.removeAll(valuesToRemove))
                     {
-                        // we had a problem serializing from cache ... log an error
-                        // and continue assuming the app will reload from database for the next reader
-                        log.error("Unable to retrieve key " + key + " from memcached.  Not able to delete " + inValues
-                                + " from list.");
+                        writes.put(key, client.asyncCAS(key, current.getCas(), MAX_EXPIRATION_TIME,
+                                getBytesFromList(list), transcoder));
                     }
-                    return toReturn;
                 }
-            };
+                catch (IOException e)
+                {
+                    // we had a problem serializing from cache ... log an error
+                    // and continue assuming the app will reload from database for the next reader
+                    log.error("Unable to retrieve key " + key + " from memcached.  Not able to delete " + inValues
+                            + " from list.");
+                }
+            }
+
+            // collect the keys that were changed underneath us and go around again for just those
+            pending = new ArrayList<String>();
+            for (Map.Entry<String, Future<CASResponse>> entry : writes.entrySet())
+            {
+                if (waitFor(entry.getKey(), entry.getValue(), failed) == CASResponse.EXISTS)
+                {
+                    pending.add(entry.getKey());
+                    conflicts++;
+                }
+            }
+        }
 
-            SerializingTranscoder transcoder = new SerializingTranscoder();
-            CASMutator<Object> mutator = new CASMutator<Object>(client, transcoder);
+        // lists we could not update would still hold the removed ids; drop them so they get rebuilt
+        for (String key : pending)
+        {
+            log.error("Unable to remove values from list " + key + " after " + MAX_BATCH_CAS_ATTEMPTS
+                    + " attempts; deleting it.");
+            failed.add(key);
+        }
+        for (String key : failed)
+        {
+            this.deleteList(key);
+        }
 
-            // This returns whatever value was successfully stored within the cache,
-            // either the initial list or a mutated existing one
+        batchStatistics.record("removeFromLists.millis", System.currentTimeMillis() - start);
+        batchStatistics.record("removeFromLists.keys", inKeys.size());
+        batchStatistics.record("removeFromLists.conflicts", conflicts);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * All the prepends are sent before any reply is awaited.
+     */
+    public void addToTopOfLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        long start = System.currentTimeMillis();
+
+        Map<String, Future<Boolean>> prepends = new LinkedHashMap<String, Future<Boolean>>();
+        for (Map.Entry<String, ? extends List<Long>> entry : inValuesByKey.entrySet())
+        {
+            if (entry.getValue() == null)
+            {
+                // cannot pass null to memcached
+                log.warn("In addToTopOfLists, attempting to pass in NULL to memcached for key " + entry.getKey());
+                continue;
+            }
             try
             {
-                byte[] initialValue = null;
-                mutator.cas(key, initialValue, MAX_EXPIRATION_TIME, mutation);
+                // NOTE: as with addToTopOfList, memcached will not create lists that are not there
+                prepends.put(entry.getKey(), client.prepend(0, entry.getKey(), getBytesFromList(entry.getValue())));
+            }
+            catch (IOException e)
+            {
+                log.error("Unable to prepend LIST key " + entry.getKey() + " into memcached.  Exception "
+                        + e.getMessage());
             }
-            catch (Exception e)
+        }
+
+        // wait for the replies so the batch latency reflects the time to get everything written
+        List<String> prepended = new ArrayList<String>();
+        for (Map.Entry<String, Future<Boolean>> entry : prepends.entrySet())
+        {
+            if (Boolean.TRUE.equals(waitFor(entry.getKey(), entry.getValue())))
             {
-                log.error("Nothing to delete from memcached for key - " + key, e);
+                prepended.add(entry.getKey());
             }
+        }
 
+        batchStatistics.record("addToTopOfLists.millis", System.currentTimeMillis() - start);
+        batchStatistics.record("addToTopOfLists.keys", prepends.size());
+
+        // lists which were there to prepend to may need trimming (checked after the batch is recorded, so the
+        // occasional trim does not count against its latency)
+        for (String key : prepended)
+        {
+            notePrepended(key, inValuesByKey.get(key).size());
         }
     }
 
+    /**
+     * Waits for the result of an asynchronous memcached operation.
+     *
+     * @param <T>
+     *            result type
+     * @param inKey
+     *            the key the operation was for (for logging)
+     * @param inFuture
+     *            the pending operation
+     * @return the result, or null if the operation failed or timed out
+     */
+    private <T> T waitFor(final String inKey, final Future<T> inFuture)
+    {
+        return waitFor(inKey, inFuture, null);
+    }
+
+    /**
+     * Waits for the result of an asynchronous memcached operation, noting the key if the operation failed or timed
+     * out (as opposed to completing with a null result, such as a miss).
+     *
+     * @param <T>
+     *            result type
+     * @param inKey
+     *            the key the operation was for
+     * @param inFuture
+     *            the pending operation
+     * @param inFailedKeys
+     *            collection to add the key to if the operation failed or timed out; null if not needed
+     * @return the result, or null if the operation failed or timed out
+     */
+    private <T> T waitFor(final String inKey, final Future<T> inFuture, final Collection<String> inFailedKeys)
+    {
+        try
+        {
+            return inFuture.get(BATCH_OPERATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (Exception e)
+        {
+            inFuture.cancel(false);
+            log.error("Error in batch operation communicating with memcache.  Key " + inKey + " Exception "
+                    + e.toString());
+            if (inFailedKeys != null)
+            {
+                inFailedKeys.add(inKey);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return latency (millis), key counts and cas conflicts of batched operations, with batched writes (setMulti,
+     *         setLists) and bulk reads (multiGet) recorded separately
+     */
+    public KeyedStatistics getBatchStatistics()
+    {
+        return batchStatistics;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -739,4 +1163,57 @@ public class MemcachedCache implements Cache
             log.error("Nothing to delete from memcached for key - " + inKey, e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long increment(final String inKey, final long inDelta)
+    {
+        if (log.isTraceEnabled())
+        {
+            log.trace("Incrementing counter '" + inKey + "' by " + inDelta);
+        }
+
+        // memcached returns -1 when the key is not present, and stops decrements at zero
+        long result = inDelta < 0 ? client.decr(inKey, (int) -inDelta) : client.incr(inKey, (int) inDelta);
+        return result < 0 ? null : result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean addCounter(final String inKey, final long inValue)
+    {
+        if (log.isTraceEnabled())
+        {
+            log.trace("Adding counter '" + inKey + "' - " + inValue);
+        }
+
+        // stored as a decimal string, which is the form memcached's incr/decr operate on
+        Boolean added = waitFor(inKey,
+                client.add(inKey, COUNTER_EXPIRATION_TIME, Long.toString(Math.max(inValue, 0))));
+        // if the answer never came, treat the counter as added; it will be reconciled when it expires
+        return !Boolean.FALSE.equals(added);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> multiGetCounters(final Collection<String> inKeys)
+    {
+        Map<String, Long> counters = new HashMap<String, Long>();
+        for (Map.Entry<String, Object> entry : multiGet(inKeys).entrySet())
+        {
+            try
+            {
+                // decr can leave trailing spaces in the stored value
+                counters.put(entry.getKey(), Long.valueOf(entry.getValue().toString().trim()));
+            }
+            catch (NumberFormatException e)
+            {
+                log.error("Counter in memcached is not a number.  Key " + entry.getKey());
+            }
+        }
+        return counters;
+    }
 }
@@ -15,7 +15,9 @@
  */
 package org.eurekastreams.server.persistence.mappers.cache;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eurekastreams.server.persistence.mappers.chained.RefreshStrategy;
 import org.eurekastreams.server.persistence.mappers.stream.CachedDomainMapper;
@@ -51,10 +53,11 @@ public class MultiSetKeyedSingleValueCacheMapper<TRequestType> extends CachedDom
      */
     public void refresh(final List<TRequestType> inRequest, final List<Long> inResponse)
     {
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
         for (int i = 0; i < inRequest.size() && i < inResponse.size(); i++)
         {
-            getCache().set(keyPrefix + inRequest.get(i).toString(), inResponse.get(i));
+            values.put(keyPrefix + inRequest.get(i).toString(), inResponse.get(i));
         }
-
+        getCache().setMulti(values);
     }
 }
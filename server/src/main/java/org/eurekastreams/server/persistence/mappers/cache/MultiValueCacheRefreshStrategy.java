@@ -17,6 +17,8 @@ package org.eurekastreams.server.persistence.mappers.cache;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
@@ -93,6 +95,7 @@ public class MultiValueCacheRefreshStrategy<Request, Response> implements
     @Override
     public void refresh(final Collection<Request> inRequest, final Collection<Response> inResponse)
     {
+        Map<String, Serializable> values = new LinkedHashMap<String, Serializable>();
         for (Response r : inResponse)
         {
             String key = cacheKeyPrefix + cacheKeySuffixTransformer.transform(r);
@@ -101,9 +104,10 @@ public class MultiValueCacheRefreshStrategy<Request, Response> implements
             {
                 log.debug("Caching value for key: " + key);
             }
-            cache.set(key, cacheValueTransformer.transform(r));
-
+            values.put(key, cacheValueTransformer.transform(r));
         }
 
+        // one batch, which the cache may write off this thread
+        cache.setMulti(values);
     }
 }
@@ -0,0 +1,695 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
+
+/**
+ * Cache decorator which keeps a bounded in-JVM copy of frequently read single values (people, groups, activities) in
+ * front of the shared cache.
+ *
+ * Only keys whose prefix has a configured time-to-live are held locally; everything else (including all list
+ * operations) goes straight to the wrapped cache. Values are held in serialized form so that every caller gets its own
+ * copy (callers routinely modify what they get back from cache) and so the tier can be bounded by bytes. Eviction is
+ * least-recently-used.
+ *
+ * Any write or delete through this cache drops the local copy and is broadcast so other nodes drop theirs. Writes to
+ * the shared cache may still be on their way when the local copy is dropped (and the shared cache is read through a
+ * different client than it is written through), so for a short while after a key is dropped values read for it are
+ * passed through without being held; otherwise a read racing the write could hold the old value for the full time to
+ * live.
+ */
+public class NearCache implements Cache
+{
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** The shared cache being fronted. */
+    private final Cache remote;
+
+    /** Milliseconds per second. */
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    /** Initial capacity of the local map. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Load factor of the local map. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Default milliseconds after a key is dropped during which values read for it are not held. */
+    private static final long DEFAULT_INVALIDATION_HOLD_MILLIS = 5000L;
+
+    /** Local entries in least-recently-used order. Guarded by itself. */
+    private final LinkedHashMap<String, Entry> local = new LinkedHashMap<String, Entry>(INITIAL_CAPACITY,
+            LOAD_FACTOR, true);
+
+    /** Time to live (millis) of local entries by key prefix; keys with other prefixes are not held locally. */
+    private final Map<String, Long> timeToLiveByPrefix = new HashMap<String, Long>();
+
+    /** Maximum total bytes of values held locally. */
+    private final long maxBytes;
+
+    /** Current total bytes of values held locally. Guarded by local. */
+    private long currentBytes;
+
+    /**
+     * Count of local invalidations. Guarded by local. A value fetched from the shared cache is only kept if no
+     * invalidation happened while it was being fetched, since it may predate the change.
+     */
+    private long invalidationCount;
+
+    /**
+     * Time (millis) until which values read for recently dropped keys are not held, by key, in order of expiration.
+     * Guarded by local.
+     */
+    private final LinkedHashMap<String, Long> recentlyInvalidated = new LinkedHashMap<String, Long>();
+
+    /** Milliseconds after a key is dropped during which values read for it are not held. */
+    private long invalidationHoldMillis = DEFAULT_INVALIDATION_HOLD_MILLIS;
+
+    /** Tells other nodes to drop keys. */
+    private CacheInvalidationBroadcaster invalidationBroadcaster;
+
+    /** Hit/miss/eviction counts by key prefix. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inRemote
+     *            The shared cache being fronted.
+     * @param inMaxBytes
+     *            Maximum total bytes of values to hold locally. With 0 nothing is held locally, but changes are still
+     *            broadcast (for nodes such as the task processor that mostly write).
+     * @param inTimeToLiveSecondsByPrefix
+     *            Time to live (seconds) of local entries by key prefix (see CacheKeys). Only keys with these prefixes
+     *            are held locally.
+     */
+    public NearCache(final Cache inRemote, final long inMaxBytes,
+            final Map<String, Integer> inTimeToLiveSecondsByPrefix)
+    {
+        remote = inRemote;
+        maxBytes = inMaxBytes;
+        for (Map.Entry<String, Integer> entry : inTimeToLiveSecondsByPrefix.entrySet())
+        {
+            timeToLiveByPrefix.put(entry.getKey(), entry.getValue() * MILLIS_PER_SECOND);
+        }
+    }
+
+    /**
+     * @param inInvalidationBroadcaster
+     *            Tells other nodes to drop keys.
+     */
+    public void setInvalidationBroadcaster(final CacheInvalidationBroadcaster inInvalidationBroadcaster)
+    {
+        invalidationBroadcaster = inInvalidationBroadcaster;
+    }
+
+    /**
+     * @param inInvalidationHoldMillis
+     *            Milliseconds after a key is dropped (by a change here or on another node) during which values read
+     *            for it are not held locally; should cover the time for a write to reach the shared cache.
+     */
+    public void setInvalidationHoldMillis(final long inInvalidationHoldMillis)
+    {
+        invalidationHoldMillis = inInvalidationHoldMillis;
+    }
+
+    /**
+     * @return Hit/miss/eviction counts by key prefix.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Drops a key from the local tier only (used when another node reports a change).
+     *
+     * @param inKey
+     *            The key.
+     */
+    public void invalidateLocal(final String inKey)
+    {
+        synchronized (local)
+        {
+            invalidationCount++;
+            if (invalidationHoldMillis > 0)
+            {
+                long now = System.currentTimeMillis();
+                // re-added so the map stays in expiration order
+                recentlyInvalidated.remove(inKey);
+                recentlyInvalidated.put(inKey, now + invalidationHoldMillis);
+                Iterator<Long> iter = recentlyInvalidated.values().iterator();
+                while (iter.hasNext() && iter.next() <= now)
+                {
+                    iter.remove();
+                }
+            }
+            Entry entry = local.remove(inKey);
+            if (entry != null)
+            {
+                currentBytes -= entry.data.length;
+                statistics.increment(entry.prefix + "invalidate");
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String inKey)
+    {
+        String prefix = CacheKeys.getPrefix(inKey);
+        Long ttl = timeToLiveByPrefix.get(prefix);
+        if (ttl == null || maxBytes <= 0)
+        {
+            return remote.get(inKey);
+        }
+
+        Object value = getLocal(inKey, prefix);
+        if (value == null)
+        {
+            statistics.increment(prefix + "miss");
+            long generation = getInvalidationCount();
+            value = remote.get(inKey);
+            putLocal(inKey, prefix, ttl, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> multiGet(final Collection<String> inKeys)
+    {
+        if (maxBytes <= 0)
+        {
+            return remote.multiGet(inKeys);
+        }
+
+        Map<String, Object> results = new HashMap<String, Object>();
+        List<String> remoteKeys = new ArrayList<String>();
+        for (String key : inKeys)
+        {
+            String prefix = CacheKeys.getPrefix(key);
+            Object value = timeToLiveByPrefix.containsKey(prefix) ? getLocal(key, prefix) : null;
+            if (value != null)
+            {
+                results.put(key, value);
+            }
+            else
+            {
+                remoteKeys.add(key);
+            }
+        }
+
+        if (!remoteKeys.isEmpty())
+        {
+            long generation = getInvalidationCount();
+            Map<String, Object> remoteResults = remote.multiGet(remoteKeys);
+            for (String key : remoteKeys)
+            {
+                String prefix = CacheKeys.getPrefix(key);
+                Long ttl = timeToLiveByPrefix.get(prefix);
+                if (ttl != null)
+                {
+                    statistics.increment(prefix + "miss");
+                    putLocal(key, prefix, ttl, remoteResults.get(key), generation);
+                }
+            }
+            results.putAll(remoteResults);
+        }
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final String inKey, final Object inValue)
+    {
+        remote.set(inKey, inValue);
+        invalidate(inKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMulti(final Map<String, ?> inValuesByKey)
+    {
+        remote.setMulti(inValuesByKey);
+
+        // tell the other nodes about the whole batch at once
+        List<String> heldKeys = new ArrayList<String>();
+        for (String key : inValuesByKey.keySet())
+        {
+            if (timeToLiveByPrefix.containsKey(CacheKeys.getPrefix(key)))
+            {
+                invalidateLocal(key);
+                heldKeys.add(key);
+            }
+        }
+        if (invalidationBroadcaster != null && !heldKeys.isEmpty())
+        {
+            invalidationBroadcaster.broadcastInvalidations(heldKeys);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String inKey)
+    {
+        remote.delete(inKey);
+        invalidate(inKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        remote.clear();
+        synchronized (local)
+        {
+            local.clear();
+            currentBytes = 0;
+        }
+    }
+
+    /**
+     * Drops a key locally and on other nodes, if it is of a type held locally.
+     *
+     * @param inKey
+     *            The key.
+     */
+    private void invalidate(final String inKey)
+    {
+        if (timeToLiveByPrefix.containsKey(CacheKeys.getPrefix(inKey)))
+        {
+            invalidateLocal(inKey);
+            if (invalidationBroadcaster != null)
+            {
+                invalidationBroadcaster.broadcastInvalidation(inKey);
+            }
+        }
+    }
+
+    /**
+     * Looks up a value in the local tier.
+     *
+     * @param inKey
+     *            The key.
+     * @param inPrefix
+     *            The key's prefix.
+     * @return A fresh copy of the value, or null if not held or expired.
+     */
+    private Object getLocal(final String inKey, final String inPrefix)
+    {
+        byte[] data;
+        synchronized (local)
+        {
+            Entry entry = local.get(inKey);
+            if (entry == null)
+            {
+                return null;
+            }
+            if (entry.expires <= System.currentTimeMillis())
+            {
+                local.remove(inKey);
+                currentBytes -= entry.data.length;
+                statistics.increment(inPrefix + "expire");
+                return null;
+            }
+            data = entry.data;
+        }
+
+        statistics.increment(inPrefix + "hit");
+        try
+        {
+            return SerializationUtils.deserialize(data);
+        }
+        catch (SerializationException ex)
+        {
+            log.warn("Unable to restore locally cached value for " + inKey, ex);
+            invalidateLocal(inKey);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a value in the local tier, evicting least recently used entries to make room.
+     *
+     * @param inKey
+     *            The key.
+     * @param inPrefix
+     *            The key's prefix.
+     * @param inTimeToLive
+     *            Time to live in millis.
+     * @param inValue
+     *            The value (ignored if null or not serializable).
+     * @param inGeneration
+     *            Invalidation count from before the value was fetched.
+     */
+    private void putLocal(final String inKey, final String inPrefix, final long inTimeToLive, final Object inValue,
+            final long inGeneration)
+    {
+        if (!(inValue instanceof Serializable))
+        {
+            return;
+        }
+
+        byte[] data;
+        try
+        {
+            data = SerializationUtils.serialize((Serializable) inValue);
+        }
+        catch (SerializationException ex)
+        {
+            log.warn("Unable to hold value for " + inKey + " locally", ex);
+            return;
+        }
+        if (data.length > maxBytes)
+        {
+            return;
+        }
+
+        synchronized (local)
+        {
+            if (inGeneration != invalidationCount || isRecentlyInvalidated(inKey))
+            {
+                return;
+            }
+
+            Entry old = local.put(inKey, new Entry(inPrefix, data, System.currentTimeMillis() + inTimeToLive));
+            if (old != null)
+            {
+                currentBytes -= old.data.length;
+            }
+            currentBytes += data.length;
+
+            Iterator<Map.Entry<String, Entry>> iter = local.entrySet().iterator();
+            while (currentBytes > maxBytes && iter.hasNext())
+            {
+                Entry eldest = iter.next().getValue();
+                iter.remove();
+                currentBytes -= eldest.data.length;
+                statistics.increment(eldest.prefix + "evict");
+            }
+        }
+    }
+
+    /**
+     * Checks if a key was dropped too recently for a value read for it to be trusted. Call holding local.
+     *
+     * @param inKey
+     *            The key.
+     * @return True if values read for the key should not be held yet.
+     */
+    private boolean isRecentlyInvalidated(final String inKey)
+    {
+        Long until = recentlyInvalidated.get(inKey);
+        if (until == null)
+        {
+            return false;
+        }
+        if (until <= System.currentTimeMillis())
+        {
+            recentlyInvalidated.remove(inKey);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Count of local invalidations so far.
+     */
+    private long getInvalidationCount()
+    {
+        synchronized (local)
+        {
+            return invalidationCount;
+        }
+    }
+
+    /**
+     * @return Number of entries held locally.
+     */
+    public int getLocalEntryCount()
+    {
+        synchronized (local)
+        {
+            return local.size();
+        }
+    }
+
+    /**
+     * @return Number of bytes held locally.
+     */
+    public long getLocalByteCount()
+    {
+        synchronized (local)
+        {
+            return currentBytes;
+        }
+    }
+
+    // ---------- lists and sets are not held locally ----------
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Long> getList(final String inKey, final int inMaximumEntries)
+    {
+        return remote.getList(inKey, inMaximumEntries);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Long> getList(final String inKey)
+    {
+        return remote.getList(inKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, ArrayList<Long>> multiGetList(final Collection<String> inKeys)
+    {
+        return remote.multiGetList(inKeys);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setList(final String inKey, final List<Long> inValue)
+    {
+        remote.setList(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        remote.setLists(inValuesByKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Long> setListCAS(final String inKey, final List<Long> inValue)
+    {
+        return remote.setListCAS(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object update(final String inKey, final Transformer<Object, Object> inUpdater)
+    {
+        // dropped whatever the outcome: a null result or a failure doesn't mean the shared value is unchanged
+        try
+        {
+            return remote.update(inKey, inUpdater);
+        }
+        finally
+        {
+            invalidate(inKey);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteList(final String inKey)
+    {
+        remote.deleteList(inKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToTopOfList(final String inKey, final List<Long> inValues)
+    {
+        remote.addToTopOfList(inKey, inValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToTopOfList(final String inKey, final Long inValue)
+    {
+        remote.addToTopOfList(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToTopOfLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        remote.addToTopOfLists(inValuesByKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromList(final String inKey, final Long inValue)
+    {
+        remote.removeFromList(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromLists(final List<String> inKeys, final List<Long> inValues)
+    {
+        remote.removeFromLists(inKeys, inValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Long> addToSet(final String inKey, final Long inValue)
+    {
+        return remote.addToSet(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromSet(final String inKey, final Long inValue)
+    {
+        remote.removeFromSet(inKey, inValue);
+    }
+
+    // ---------- counters change too often to hold locally ----------
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long increment(final String inKey, final long inDelta)
+    {
+        return remote.increment(inKey, inDelta);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addCounter(final String inKey, final long inValue)
+    {
+        return remote.addCounter(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> multiGetCounters(final Collection<String> inKeys)
+    {
+        return remote.multiGetCounters(inKeys);
+    }
+
+    /**
+     * A locally held value.
+     */
+    private static class Entry
+    {
+        /** Key prefix (for statistics). */
+        private final String prefix;
+
+        /** Serialized value. */
+        private final byte[] data;
+
+        /** Expiration time. */
+        private final long expires;
+
+        /**
+         * Constructor.
+         *
+         * @param inPrefix
+         *            Key prefix.
+         * @param inData
+         *            Serialized value.
+         * @param inExpires
+         *            Expiration time.
+         */
+        public Entry(final String inPrefix, final byte[] inData, final long inExpires)
+        {
+            prefix = inPrefix;
+            data = inData;
+            expires = inExpires;
+        }
+    }
+}
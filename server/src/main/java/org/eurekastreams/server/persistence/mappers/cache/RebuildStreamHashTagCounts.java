@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.stream.BaseArgCachedDomainMapper;
+import org.eurekastreams.server.persistence.mappers.stream.StreamHashTagCounts;
+import org.eurekastreams.server.persistence.mappers.stream.StreamPopularHashTagsReportDTO;
+
+/**
+ * Rebuilds a stream's hashtag counts from the database and stores them and the popular hashtag report generated from
+ * them in cache. From then on {@link UpdateStreamHashTagCounts} keeps both up to date as activities come and go.
+ */
+public class RebuildStreamHashTagCounts extends
+        BaseArgCachedDomainMapper<StreamPopularHashTagsRequest, StreamPopularHashTagsReportDTO>
+{
+    /** Builds the counts from the database. */
+    private final DomainMapper<StreamPopularHashTagsRequest, StreamHashTagCounts> countsDbMapper;
+
+    /** Transformer from stream to cache key suffix. */
+    private final StreamPopularHashTagsRequestCacheKeySuffixTransformer keySuffixTransformer;
+
+    /** Max number of popular hashtags to report. */
+    private final int maxNumberOfPopularHashTags;
+
+    /**
+     * Constructor.
+     *
+     * @param inCountsDbMapper
+     *            builds the counts from the database
+     * @param inKeySuffixTransformer
+     *            transformer from stream to cache key suffix
+     * @param inMaxNumberOfPopularHashTags
+     *            max number of popular hashtags to report
+     */
+    public RebuildStreamHashTagCounts(
+            final DomainMapper<StreamPopularHashTagsRequest, StreamHashTagCounts> inCountsDbMapper,
+            final StreamPopularHashTagsRequestCacheKeySuffixTransformer inKeySuffixTransformer,
+            final Integer inMaxNumberOfPopularHashTags)
+    {
+        countsDbMapper = inCountsDbMapper;
+        keySuffixTransformer = inKeySuffixTransformer;
+        maxNumberOfPopularHashTags = inMaxNumberOfPopularHashTags;
+    }
+
+    /**
+     * Rebuild the counts and report for a stream.
+     *
+     * @param inRequest
+     *            type of stream and unique key of the entity stream
+     * @return the popular hashtag report
+     */
+    @Override
+    public StreamPopularHashTagsReportDTO execute(final StreamPopularHashTagsRequest inRequest)
+    {
+        StreamHashTagCounts counts = countsDbMapper.execute(inRequest);
+        StreamPopularHashTagsReportDTO report = new StreamPopularHashTagsReportDTO(counts
+                .getTop(maxNumberOfPopularHashTags), counts.getRebuiltDate());
+
+        String suffix = keySuffixTransformer.transform(inRequest);
+        getCache().set(CacheKeys.POPULAR_HASH_TAG_COUNTS_BY_STREAM_TYPE_AND_SHORT_NAME + suffix, counts);
+        getCache().set(CacheKeys.POPULAR_HASH_TAGS_BY_STREAM_TYPE_AND_SHORT_NAME + suffix, report);
+        return report;
+    }
+}
@@ -27,6 +27,11 @@ import org.eurekastreams.server.persistence.mappers.stream.CachedDomainMapper;
 public class RefreshFollowedByActivitiesCacheMapper extends CachedDomainMapper implements
         RefreshStrategy<Long, List<Long>>
 {
+    /**
+     * Policy holding the following timeline statistics.
+     */
+    private FollowingTimelinePolicy timelinePolicy;
+
     /**
      * Refresh.
      *
@@ -39,5 +44,18 @@ public class RefreshFollowedByActivitiesCacheMapper extends CachedDomainMapper i
     public void refresh(final Long request, final List<Long> data)
     {
         getCache().setList(CacheKeys.ACTIVITIES_BY_FOLLOWING + request, data);
+        if (timelinePolicy != null)
+        {
+            timelinePolicy.getStatistics().increment(FollowingTimelinePolicy.FULL_REBUILD_STAT);
+        }
+    }
+
+    /**
+     * @param inTimelinePolicy
+     *            policy holding the following timeline statistics.
+     */
+    public void setTimelinePolicy(final FollowingTimelinePolicy inTimelinePolicy)
+    {
+        timelinePolicy = inTimelinePolicy;
     }
 }
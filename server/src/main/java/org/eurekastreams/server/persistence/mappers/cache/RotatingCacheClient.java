@@ -80,6 +80,15 @@ public class RotatingCacheClient implements Cache
         writeCacheRotator.getNext().addToTopOfList(inKey, inValue);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToTopOfLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        writeCacheRotator.getNext().addToTopOfLists(inValuesByKey);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -194,6 +203,24 @@ public class RotatingCacheClient implements Cache
         writeCacheRotator.getNext().setList(inKey, inValue);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMulti(final Map<String, ?> inValuesByKey)
+    {
+        writeCacheRotator.getNext().setMulti(inValuesByKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        writeCacheRotator.getNext().setLists(inValuesByKey);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -203,4 +230,40 @@ public class RotatingCacheClient implements Cache
         return writeCacheRotator.getNext().setListCAS(inKey, inValue);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object update(final String inKey, final Transformer<Object, Object> inUpdater)
+    {
+        return writeCacheRotator.getNext().update(inKey, inUpdater);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long increment(final String inKey, final long inDelta)
+    {
+        return writeCacheRotator.getNext().increment(inKey, inDelta);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addCounter(final String inKey, final long inValue)
+    {
+        return writeCacheRotator.getNext().addCounter(inKey, inValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> multiGetCounters(final Collection<String> inKeys)
+    {
+        return readCacheRotator.getNext().multiGetCounters(inKeys);
+    }
+
 }
@@ -15,7 +15,9 @@
  */
 package org.eurekastreams.server.persistence.mappers.cache;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eurekastreams.server.persistence.mappers.chained.RefreshStrategy;
 import org.eurekastreams.server.persistence.mappers.stream.CachedDomainMapper;
@@ -48,10 +50,11 @@ public class SetKeyedCollectionCacheMapper<TRequestType> extends CachedDomainMap
      */
     public void refresh(final List<TRequestType> inRequest, final List<List<Long>> inResponse)
     {
+        Map<String, List<Long>> values = new LinkedHashMap<String, List<Long>>();
         for (int i = 0; i < inRequest.size() && i < inResponse.size(); i++)
         {
-            getCache().setList(keyPrefix + inRequest.get(i).toString(), inResponse.get(i));
+            values.put(keyPrefix + inRequest.get(i).toString(), inResponse.get(i));
         }
-
+        getCache().setLists(values);
     }
 }
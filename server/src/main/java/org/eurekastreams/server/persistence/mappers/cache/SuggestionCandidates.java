@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * A person's precomputed "people/groups you may know" candidates: each person or group followed by someone the person
+ * follows, scored by how many of the people the person follows follow it. Also holds the ids of the people and groups
+ * the person already follows, so that follow events can be applied without looking them up again.
+ *
+ * Everything is kept in sorted primitive arrays so the structure is compact in cache and cheap to update. The candidate
+ * lists are trimmed to the best scores; a candidate dropped by trimming that later gains a follower comes back with
+ * only the newly counted score, until the whole structure is rebuilt.
+ */
+public class SuggestionCandidates implements Serializable
+{
+    /** Serial version uid. */
+    private static final long serialVersionUID = -3061985416542791133L;
+
+    /** Empty array. */
+    private static final long[] NO_IDS = new long[0];
+
+    /** Id of the person the suggestions are for. */
+    private final long personId;
+
+    /** When the candidates were built from the database. */
+    private final long buildTime;
+
+    /** Ids of the people the person follows (sorted, excluding the person). */
+    private long[] followedPersonIds;
+
+    /** Ids of the groups the person follows (sorted). */
+    private long[] followedGroupIds;
+
+    /** Candidate people. */
+    private final ScoredIds people;
+
+    /** Candidate groups. */
+    private final ScoredIds groups;
+
+    /**
+     * Builds the candidates.
+     *
+     * @param inPersonId
+     *            Id of the person the suggestions are for.
+     * @param inBuildTime
+     *            When the data was read.
+     * @param inFollowedPersonIds
+     *            Ids of the people the person follows.
+     * @param inFollowedGroupIds
+     *            Ids of the groups the person follows.
+     * @param inPersonOccurrences
+     *            Ids of the people followed by the people the person follows, once per follow.
+     * @param inGroupOccurrences
+     *            Ids of the groups followed by the people the person follows, once per follow.
+     * @param inMaxCandidates
+     *            Maximum number of people and of groups to keep.
+     */
+    public SuggestionCandidates(final long inPersonId, final long inBuildTime, final long[] inFollowedPersonIds,
+            final long[] inFollowedGroupIds, final long[] inPersonOccurrences, final long[] inGroupOccurrences,
+            final int inMaxCandidates)
+    {
+        personId = inPersonId;
+        buildTime = inBuildTime;
+        followedPersonIds = sortedWithout(inFollowedPersonIds, inPersonId);
+        followedGroupIds = sortedWithout(inFollowedGroupIds, null);
+        people = ScoredIds.count(inPersonOccurrences, followedPersonIds, inPersonId);
+        groups = ScoredIds.count(inGroupOccurrences, followedGroupIds, null);
+        trim(inMaxCandidates);
+    }
+
+    /**
+     * @return Id of the person the suggestions are for.
+     */
+    public long getPersonId()
+    {
+        return personId;
+    }
+
+    /**
+     * @return When the candidates were built from the database.
+     */
+    public long getBuildTime()
+    {
+        return buildTime;
+    }
+
+    /**
+     * @return Candidate people.
+     */
+    public ScoredIds getPeople()
+    {
+        return people;
+    }
+
+    /**
+     * @return Candidate groups.
+     */
+    public ScoredIds getGroups()
+    {
+        return groups;
+    }
+
+    /**
+     * @param inId
+     *            Person id.
+     * @return If the person follows (or is) the given person, i.e. it can never be a candidate.
+     */
+    public boolean isFollowingPerson(final long inId)
+    {
+        return inId == personId || Arrays.binarySearch(followedPersonIds, inId) >= 0;
+    }
+
+    /**
+     * @param inId
+     *            Group id.
+     * @return If the person follows the given group.
+     */
+    public boolean isFollowingGroup(final long inId)
+    {
+        return Arrays.binarySearch(followedGroupIds, inId) >= 0;
+    }
+
+    /**
+     * Records that the person followed or unfollowed another person. Candidate scores are adjusted separately.
+     *
+     * @param inId
+     *            Person id.
+     * @param inFollowing
+     *            If now following.
+     */
+    public void setFollowingPerson(final long inId, final boolean inFollowing)
+    {
+        if (inId != personId)
+        {
+            followedPersonIds = inFollowing ? insert(followedPersonIds, inId) : remove(followedPersonIds, inId);
+        }
+    }
+
+    /**
+     * Records that the person followed or unfollowed a group. Candidate scores are adjusted separately.
+     *
+     * @param inId
+     *            Group id.
+     * @param inFollowing
+     *            If now following.
+     */
+    public void setFollowingGroup(final long inId, final boolean inFollowing)
+    {
+        followedGroupIds = inFollowing ? insert(followedGroupIds, inId) : remove(followedGroupIds, inId);
+    }
+
+    /**
+     * Counts how many of the given ids are people the person follows.
+     *
+     * @param inIds
+     *            Ids (e.g. the followers of someone).
+     * @return Count.
+     */
+    public int countFollowedPeople(final Collection<Long> inIds)
+    {
+        int count = 0;
+        for (Long id : inIds)
+        {
+            if (id != personId && Arrays.binarySearch(followedPersonIds, id) >= 0)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Trims both candidate lists to the best scores.
+     *
+     * @param inMaxCandidates
+     *            Maximum number of people and of groups to keep.
+     */
+    public void trim(final int inMaxCandidates)
+    {
+        people.trim(inMaxCandidates);
+        groups.trim(inMaxCandidates);
+    }
+
+    /**
+     * Inserts a value into a sorted array if not present.
+     *
+     * @param inSorted
+     *            Sorted array.
+     * @param inValue
+     *            Value.
+     * @return Array with the value.
+     */
+    private static long[] insert(final long[] inSorted, final long inValue)
+    {
+        int index = Arrays.binarySearch(inSorted, inValue);
+        if (index >= 0)
+        {
+            return inSorted;
+        }
+        index = -index - 1;
+        long[] result = new long[inSorted.length + 1];
+        System.arraycopy(inSorted, 0, result, 0, index);
+        result[index] = inValue;
+        System.arraycopy(inSorted, index, result, index + 1, inSorted.length - index);
+        return result;
+    }
+
+    /**
+     * Removes a value from a sorted array if present.
+     *
+     * @param inSorted
+     *            Sorted array.
+     * @param inValue
+     *            Value.
+     * @return Array without the value.
+     */
+    private static long[] remove(final long[] inSorted, final long inValue)
+    {
+        int index = Arrays.binarySearch(inSorted, inValue);
+        if (index < 0)
+        {
+            return inSorted;
+        }
+        long[] result = new long[inSorted.length - 1];
+        System.arraycopy(inSorted, 0, result, 0, index);
+        System.arraycopy(inSorted, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    /**
+     * Returns a sorted copy of the values with duplicates (and optionally one value) removed.
+     *
+     * @param inValues
+     *            Values.
+     * @param inExclude
+     *            Value to leave out, or null.
+     * @return Sorted distinct values.
+     */
+    private static long[] sortedWithout(final long[] inValues, final Long inExclude)
+    {
+        if (inValues.length == 0)
+        {
+            return NO_IDS;
+        }
+        long[] sorted = inValues.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if ((size == 0 || sorted[i] != sorted[size - 1]) && (inExclude == null || sorted[i] != inExclude))
+            {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * Ids with scores, held as parallel arrays sorted by id.
+     */
+    public static class ScoredIds implements Serializable
+    {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 5407312887218104458L;
+
+        /** Ids (sorted). */
+        private long[] ids;
+
+        /** Score of each id (always positive). */
+        private int[] scores;
+
+        /**
+         * Constructor.
+         *
+         * @param inIds
+         *            Ids (sorted).
+         * @param inScores
+         *            Score of each id.
+         */
+        private ScoredIds(final long[] inIds, final int[] inScores)
+        {
+            ids = inIds;
+            scores = inScores;
+        }
+
+        /**
+         * Scores ids by the number of times each occurs.
+         *
+         * @param inOccurrences
+         *            Ids, repeated once per occurrence.
+         * @param inExcludeSorted
+         *            Ids to leave out (sorted).
+         * @param inExclude
+         *            Another id to leave out, or null.
+         * @return Scored ids.
+         */
+        private static ScoredIds count(final long[] inOccurrences, final long[] inExcludeSorted,
+                final Long inExclude)
+        {
+            long[] sorted = inOccurrences.clone();
+            Arrays.sort(sorted);
+            long[] ids = new long[sorted.length];
+            int[] scores = new int[sorted.length];
+            int size = 0;
+            for (int i = 0; i < sorted.length;)
+            {
+                long id = sorted[i];
+                int start = i;
+                while (i < sorted.length && sorted[i] == id)
+                {
+                    i++;
+                }
+                if ((inExclude == null || id != inExclude) && Arrays.binarySearch(inExcludeSorted, id) < 0)
+                {
+                    ids[size] = id;
+                    scores[size++] = i - start;
+                }
+            }
+            return new ScoredIds(Arrays.copyOf(ids, size), Arrays.copyOf(scores, size));
+        }
+
+        /**
+         * @return Number of ids.
+         */
+        public int size()
+        {
+            return ids.length;
+        }
+
+        /**
+         * @param inId
+         *            Id.
+         * @return Score of the id, 0 if not present.
+         */
+        public int getScore(final long inId)
+        {
+            int index = Arrays.binarySearch(ids, inId);
+            return index >= 0 ? scores[index] : 0;
+        }
+
+        /**
+         * Adds to the score of an id, adding or removing the id as needed.
+         *
+         * @param inId
+         *            Id.
+         * @param inDelta
+         *            Amount to add (may be negative).
+         */
+        public void adjust(final long inId, final int inDelta)
+        {
+            setScore(inId, getScore(inId) + inDelta);
+        }
+
+        /**
+         * Sets the score of an id; a score of zero or less removes the id.
+         *
+         * @param inId
+         *            Id.
+         * @param inScore
+         *            Score.
+         */
+        public void setScore(final long inId, final int inScore)
+        {
+            int index = Arrays.binarySearch(ids, inId);
+            if (index >= 0)
+            {
+                if (inScore > 0)
+                {
+                    scores[index] = inScore;
+                }
+                else
+                {
+                    long[] newIds = new long[ids.length - 1];
+                    int[] newScores = new int[ids.length - 1];
+                    System.arraycopy(ids, 0, newIds, 0, index);
+                    System.arraycopy(ids, index + 1, newIds, index, newIds.length - index);
+                    System.arraycopy(scores, 0, newScores, 0, index);
+                    System.arraycopy(scores, index + 1, newScores, index, newScores.length - index);
+                    ids = newIds;
+                    scores = newScores;
+                }
+            }
+            else if (inScore > 0)
+            {
+                index = -index - 1;
+                long[] newIds = new long[ids.length + 1];
+                int[] newScores = new int[ids.length + 1];
+                System.arraycopy(ids, 0, newIds, 0, index);
+                System.arraycopy(ids, index, newIds, index + 1, ids.length - index);
+                System.arraycopy(scores, 0, newScores, 0, index);
+                System.arraycopy(scores, index, newScores, index + 1, scores.length - index);
+                newIds[index] = inId;
+                newScores[index] = inScore;
+                ids = newIds;
+                scores = newScores;
+            }
+        }
+
+        /**
+         * Removes an id.
+         *
+         * @param inId
+         *            Id.
+         */
+        public void remove(final long inId)
+        {
+            setScore(inId, 0);
+        }
+
+        /**
+         * @return The ids ordered by descending score (ties by ascending id).
+         */
+        public long[] getIdsByScore()
+        {
+            Integer[] order = new Integer[ids.length];
+            for (int i = 0; i < order.length; i++)
+            {
+                order[i] = i;
+            }
+            // ids are sorted, so a stable sort on score keeps ties in id order
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                public int compare(final Integer inA, final Integer inB)
+                {
+                    return scores[inB] - scores[inA];
+                }
+            });
+            long[] result = new long[order.length];
+            for (int i = 0; i < order.length; i++)
+            {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+
+        /**
+         * Keeps only the best scoring ids.
+         *
+         * @param inMax
+         *            Maximum number of ids to keep.
+         */
+        public void trim(final int inMax)
+        {
+            if (ids.length <= inMax)
+            {
+                return;
+            }
+            long[] keep = Arrays.copyOf(getIdsByScore(), inMax);
+            Arrays.sort(keep);
+            int[] keepScores = new int[inMax];
+            for (int i = 0; i < inMax; i++)
+            {
+                keepScores[i] = getScore(keep[i]);
+            }
+            ids = keep;
+            scores = keepScores;
+        }
+    }
+}
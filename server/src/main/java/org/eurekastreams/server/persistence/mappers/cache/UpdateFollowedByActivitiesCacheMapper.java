@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateFollowedByActivitiesRequest;
+import org.eurekastreams.server.persistence.mappers.stream.BaseArgCachedDomainMapper;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+
+/**
+ * Updates a person's cached list of followed activity when they follow or unfollow someone, by merging in (or taking
+ * out) the cached activity list of the followed person's stream, instead of rebuilding the whole list from the
+ * database. The followed list holds exactly the activities of the followed people's streams (plus any pushed group
+ * activity), so this gives the same list the database would. If the person's list is not cached there is nothing to
+ * do (it is built on the next read); if the followed stream's list is not cached, the person's list is rebuilt from
+ * the database.
+ */
+public class UpdateFollowedByActivitiesCacheMapper extends
+        BaseArgCachedDomainMapper<UpdateFollowedByActivitiesRequest, Boolean>
+{
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Mapper to get the followed person (for their stream). */
+    private final DomainMapper<List<Long>, List<PersonModelView>> getPeopleByIdsMapper;
+
+    /** Mapper which rebuilds a person's followed activity list from the database. */
+    private final DomainMapper<Long, List<Long>> rebuildMapper;
+
+    /** Maximum number of activity ids to keep in the list (the number the database rebuild gets). */
+    private final int maxItems;
+
+    /** Policy holding the following timeline statistics. */
+    private FollowingTimelinePolicy timelinePolicy;
+
+    /**
+     * Constructor.
+     *
+     * @param inGetPeopleByIdsMapper
+     *            Mapper to get the followed person (for their stream).
+     * @param inRebuildMapper
+     *            Mapper which rebuilds a person's followed activity list from the database.
+     * @param inMaxItems
+     *            Maximum number of activity ids to keep in the list.
+     */
+    public UpdateFollowedByActivitiesCacheMapper(
+            final DomainMapper<List<Long>, List<PersonModelView>> inGetPeopleByIdsMapper,
+            final DomainMapper<Long, List<Long>> inRebuildMapper, final int inMaxItems)
+    {
+        getPeopleByIdsMapper = inGetPeopleByIdsMapper;
+        rebuildMapper = inRebuildMapper;
+        maxItems = inMaxItems;
+    }
+
+    /**
+     * Updates the list.
+     *
+     * @param inRequest
+     *            the follower, the person followed or unfollowed, and which.
+     * @return true if the list was updated incrementally, false if it was not cached or was rebuilt.
+     */
+    @Override
+    public Boolean execute(final UpdateFollowedByActivitiesRequest inRequest)
+    {
+        String listKey = CacheKeys.ACTIVITIES_BY_FOLLOWING + inRequest.getFollowerId();
+        List<Long> followedActivityIds = getCache().getList(listKey);
+        if (followedActivityIds == null)
+        {
+            log.debug("Followed activity list for person " + inRequest.getFollowerId() + " is not cached.");
+            return false;
+        }
+
+        List<PersonModelView> people = getPeopleByIdsMapper.execute(Collections.singletonList(inRequest
+                .getFollowedId()));
+        List<Long> streamActivityIds = people.isEmpty() ? null : getCache().getList(
+                CacheKeys.ENTITY_STREAM_BY_SCOPE_ID + people.get(0).getStreamId());
+        if (streamActivityIds == null)
+        {
+            log.info("Stream of person " + inRequest.getFollowedId() + " is not cached; rebuilding followed "
+                    + "activity list for person " + inRequest.getFollowerId());
+            rebuildMapper.execute(inRequest.getFollowerId());
+            return false;
+        }
+
+        List<Long> result;
+        if (inRequest.isFollowing())
+        {
+            result = merge(followedActivityIds, streamActivityIds);
+            recordStatistic(FollowingTimelinePolicy.FOLLOW_MERGE_STAT);
+        }
+        else
+        {
+            result = subtract(followedActivityIds, streamActivityIds);
+            recordStatistic(FollowingTimelinePolicy.UNFOLLOW_SUBTRACT_STAT);
+        }
+        getCache().setList(listKey, result);
+        return true;
+    }
+
+    /**
+     * Merges two lists of activity ids, each newest (highest) first, dropping duplicates.
+     *
+     * @param inFirst
+     *            a list.
+     * @param inSecond
+     *            another list.
+     * @return the merged list, newest first, at most maxItems long.
+     */
+    private List<Long> merge(final List<Long> inFirst, final List<Long> inSecond)
+    {
+        List<Long> result = new ArrayList<Long>(Math.min(maxItems, inFirst.size() + inSecond.size()));
+        int i = 0;
+        int j = 0;
+        while (result.size() < maxItems && (i < inFirst.size() || j < inSecond.size()))
+        {
+            Long next;
+            if (j >= inSecond.size() || (i < inFirst.size() && inFirst.get(i) >= inSecond.get(j)))
+            {
+                next = inFirst.get(i++);
+            }
+            else
+            {
+                next = inSecond.get(j++);
+            }
+            if (result.isEmpty() || !result.get(result.size() - 1).equals(next))
+            {
+                result.add(next);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes a list of activity ids from another.
+     *
+     * @param inList
+     *            the list.
+     * @param inRemove
+     *            the ids to remove.
+     * @return the remaining ids, in order.
+     */
+    private List<Long> subtract(final List<Long> inList, final List<Long> inRemove)
+    {
+        Set<Long> remove = new HashSet<Long>(inRemove);
+        List<Long> result = new ArrayList<Long>(inList.size());
+        for (Long id : inList)
+        {
+            if (!remove.contains(id))
+            {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts an update.
+     *
+     * @param inName
+     *            name of the statistic.
+     */
+    private void recordStatistic(final String inName)
+    {
+        if (timelinePolicy != null)
+        {
+            timelinePolicy.getStatistics().increment(inName);
+        }
+    }
+
+    /**
+     * @param inTimelinePolicy
+     *            policy holding the following timeline statistics.
+     */
+    public void setTimelinePolicy(final FollowingTimelinePolicy inTimelinePolicy)
+    {
+        timelinePolicy = inTimelinePolicy;
+    }
+}
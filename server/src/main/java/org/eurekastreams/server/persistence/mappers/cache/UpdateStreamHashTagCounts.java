@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateStreamHashTagCountsRequest;
+import org.eurekastreams.server.persistence.mappers.stream.BaseArgCachedDomainMapper;
+import org.eurekastreams.server.persistence.mappers.stream.StreamHashTagCounts;
+import org.eurekastreams.server.persistence.mappers.stream.StreamPopularHashTagsReportDTO;
+
+/**
+ * Adjusts a stream's cached hashtag counts for an activity being posted or deleted and re-stores the popular hashtag
+ * report, so the report stays current without being regenerated from the database. Streams with no cached counts are
+ * left alone (their counts are built on the next read).
+ *
+ * The counts are updated with compare and swap, so concurrent updates to the same stream's counts are not lost. The
+ * counts are still periodically rebuilt from the database (the report's generation date is the rebuild date, so it
+ * expires as before).
+ */
+public class UpdateStreamHashTagCounts extends BaseArgCachedDomainMapper<UpdateStreamHashTagCountsRequest, Boolean>
+{
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Transformer from stream to cache key suffix. */
+    private final StreamPopularHashTagsRequestCacheKeySuffixTransformer keySuffixTransformer;
+
+    /** Max number of popular hashtags to report. */
+    private final int maxNumberOfPopularHashTags;
+
+    /**
+     * Constructor.
+     *
+     * @param inKeySuffixTransformer
+     *            transformer from stream to cache key suffix
+     * @param inMaxNumberOfPopularHashTags
+     *            max number of popular hashtags to report
+     */
+    public UpdateStreamHashTagCounts(final StreamPopularHashTagsRequestCacheKeySuffixTransformer inKeySuffixTransformer,
+            final Integer inMaxNumberOfPopularHashTags)
+    {
+        keySuffixTransformer = inKeySuffixTransformer;
+        maxNumberOfPopularHashTags = inMaxNumberOfPopularHashTags;
+    }
+
+    /**
+     * Adjust the counts.
+     *
+     * @param inRequest
+     *            the stream, hashtags and adjustment
+     * @return whether the stream had cached counts to update
+     */
+    @Override
+    public Boolean execute(final UpdateStreamHashTagCountsRequest inRequest)
+    {
+        String suffix = keySuffixTransformer.transform(inRequest.getStream());
+        final long now = System.currentTimeMillis();
+        final long postedTime = inRequest.getPostedTime() == null ? now : inRequest.getPostedTime().getTime();
+        StreamHashTagCounts counts = (StreamHashTagCounts) getCache().update(
+                CacheKeys.POPULAR_HASH_TAG_COUNTS_BY_STREAM_TYPE_AND_SHORT_NAME + suffix,
+                new Transformer<Object, Object>()
+                {
+                    public Object transform(final Object inCurrent)
+                    {
+                        StreamHashTagCounts current = (StreamHashTagCounts) inCurrent;
+                        for (String hashTag : inRequest.getHashTags())
+                        {
+                            current.add(hashTag, postedTime, inRequest.getAmount(), now);
+                        }
+                        current.expire(now);
+                        return current;
+                    }
+                });
+        if (counts == null)
+        {
+            log.debug("No cached hashtag counts for stream " + suffix);
+            return false;
+        }
+
+        getCache().set(CacheKeys.POPULAR_HASH_TAGS_BY_STREAM_TYPE_AND_SHORT_NAME + suffix,
+                new StreamPopularHashTagsReportDTO(counts.getTop(maxNumberOfPopularHashTags), counts
+                        .getRebuiltDate()));
+        return true;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.server.domain.EntityType;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateSuggestionCandidatesRequest;
+import org.eurekastreams.server.persistence.mappers.stream.BaseArgCachedDomainMapper;
+
+/**
+ * Applies a single follow or unfollow to the cached suggestion candidates it affects: those of the person who followed
+ * (whose friends-of-friends changed) and those of each of their followers (for whom the followed stream gained or lost
+ * a path). Only entries already in cache are touched; missing entries are built fully on their next read.
+ */
+public class UpdateSuggestionCandidatesCacheMapper extends
+        BaseArgCachedDomainMapper<UpdateSuggestionCandidatesRequest, Boolean>
+{
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Gets the ids of the people following a person. */
+    private final DomainMapper<Long, List<Long>> personFollowersMapper;
+
+    /** Gets the ids of the people a person follows. */
+    private final DomainMapper<Long, List<Long>> followedPeopleMapper;
+
+    /** Gets the ids of the groups a person follows. */
+    private final DomainMapper<Long, List<Long>> followedGroupsMapper;
+
+    /** Gets the ids of the people following a group. */
+    private final DomainMapper<Long, List<Long>> groupFollowersMapper;
+
+    /** Maximum number of people and of groups kept per person. */
+    private final int maxCandidates;
+
+    /**
+     * Constructor.
+     *
+     * @param inPersonFollowersMapper
+     *            Gets the ids of the people following a person.
+     * @param inFollowedPeopleMapper
+     *            Gets the ids of the people a person follows.
+     * @param inFollowedGroupsMapper
+     *            Gets the ids of the groups a person follows.
+     * @param inGroupFollowersMapper
+     *            Gets the ids of the people following a group.
+     * @param inMaxCandidates
+     *            Maximum number of people and of groups kept per person.
+     */
+    public UpdateSuggestionCandidatesCacheMapper(final DomainMapper<Long, List<Long>> inPersonFollowersMapper,
+            final DomainMapper<Long, List<Long>> inFollowedPeopleMapper,
+            final DomainMapper<Long, List<Long>> inFollowedGroupsMapper,
+            final DomainMapper<Long, List<Long>> inGroupFollowersMapper, final int inMaxCandidates)
+    {
+        personFollowersMapper = inPersonFollowersMapper;
+        followedPeopleMapper = inFollowedPeopleMapper;
+        followedGroupsMapper = inFollowedGroupsMapper;
+        groupFollowersMapper = inGroupFollowersMapper;
+        maxCandidates = inMaxCandidates;
+    }
+
+    /**
+     * Updates the cached candidates affected by the follow or unfollow.
+     *
+     * @param inRequest
+     *            The request.
+     * @return True.
+     */
+    @Override
+    public Boolean execute(final UpdateSuggestionCandidatesRequest inRequest)
+    {
+        long personId = inRequest.getFollowerId();
+        long streamId = inRequest.getFollowedId();
+        boolean isPerson = inRequest.getFollowedType() == EntityType.PERSON;
+        boolean following = inRequest.isFollowing();
+        int delta = following ? 1 : -1;
+
+        if (isPerson && personId == streamId)
+        {
+            return true;
+        }
+
+        String personKey = CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + personId;
+        List<String> keys = new ArrayList<String>();
+        keys.add(personKey);
+        for (Long followerId : personFollowersMapper.execute(personId))
+        {
+            if (followerId != personId)
+            {
+                keys.add(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + followerId);
+            }
+        }
+        Map<String, Object> cached = getCache().multiGet(keys);
+
+        // the person's own candidates: the followed stream's connections become (or stop being) friends-of-friends
+        SuggestionCandidates own = (SuggestionCandidates) cached.get(personKey);
+        if (own != null)
+        {
+            if (isPerson)
+            {
+                own.setFollowingPerson(streamId, following);
+                for (Long id : followedPeopleMapper.execute(streamId))
+                {
+                    if (!own.isFollowingPerson(id))
+                    {
+                        own.getPeople().adjust(id, delta);
+                    }
+                }
+                for (Long id : followedGroupsMapper.execute(streamId))
+                {
+                    if (!own.isFollowingGroup(id))
+                    {
+                        own.getGroups().adjust(id, delta);
+                    }
+                }
+                if (following)
+                {
+                    own.getPeople().remove(streamId);
+                }
+                else
+                {
+                    own.getPeople().setScore(streamId,
+                            own.countFollowedPeople(personFollowersMapper.execute(streamId)));
+                }
+            }
+            else
+            {
+                own.setFollowingGroup(streamId, following);
+                if (following)
+                {
+                    own.getGroups().remove(streamId);
+                }
+                else
+                {
+                    own.getGroups().setScore(streamId, own.countFollowedPeople(groupFollowersMapper.execute(streamId)));
+                }
+            }
+            own.trim(maxCandidates);
+            getCache().set(personKey, own);
+        }
+
+        // each follower of the person gains (or loses) one path to the followed stream
+        for (Map.Entry<String, Object> entry : cached.entrySet())
+        {
+            SuggestionCandidates candidates = (SuggestionCandidates) entry.getValue();
+            if (candidates == null || entry.getKey().equals(personKey))
+            {
+                continue;
+            }
+            if (isPerson)
+            {
+                if (candidates.isFollowingPerson(streamId))
+                {
+                    continue;
+                }
+                candidates.getPeople().adjust(streamId, delta);
+            }
+            else
+            {
+                if (candidates.isFollowingGroup(streamId))
+                {
+                    continue;
+                }
+                candidates.getGroups().adjust(streamId, delta);
+            }
+            candidates.trim(maxCandidates);
+            getCache().set(entry.getKey(), candidates);
+        }
+
+        if (log.isDebugEnabled())
+        {
+            log.debug("Updated up to " + cached.size() + " cached suggestion candidate entries after person "
+                    + personId + (following ? " followed " : " unfollowed ") + inRequest.getFollowedType() + " "
+                    + streamId);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache.cachedfieldpopulators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
+import org.eurekastreams.server.search.modelview.DomainGroupModelView;
+
+/**
+ * Decorates a mapper of group model views to fill in follower counts from the follow counters, so that cached model
+ * views do not need to be evicted when the counts change.
+ */
+public class DomainGroupFollowCountsPopulator implements DomainMapper<List<Long>, List<DomainGroupModelView>>
+{
+    /**
+     * Counters used.
+     */
+    private static final List<String> PREFIXES = Arrays.asList(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID);
+
+    /**
+     * Mapper providing the model views.
+     */
+    private final DomainMapper<List<Long>, List<DomainGroupModelView>> decorated;
+
+    /**
+     * Follow counters.
+     */
+    private final FollowCounters followCounters;
+
+    /**
+     * Constructor.
+     *
+     * @param inDecorated
+     *            Mapper providing the model views.
+     * @param inFollowCounters
+     *            Follow counters.
+     */
+    public DomainGroupFollowCountsPopulator(final DomainMapper<List<Long>, List<DomainGroupModelView>> inDecorated,
+            final FollowCounters inFollowCounters)
+    {
+        decorated = inDecorated;
+        followCounters = inFollowCounters;
+    }
+
+    /**
+     * Gets the model views and fills in their counts.
+     *
+     * @param inIds
+     *            Group ids.
+     * @return Group model views.
+     */
+    @Override
+    public List<DomainGroupModelView> execute(final List<Long> inIds)
+    {
+        List<DomainGroupModelView> groups = decorated.execute(inIds);
+        if (groups == null || groups.isEmpty())
+        {
+            return groups;
+        }
+
+        List<Long> ids = new ArrayList<Long>(groups.size());
+        for (DomainGroupModelView group : groups)
+        {
+            ids.add(group.getEntityId());
+        }
+
+        Map<String, Long> counts = followCounters.get(PREFIXES, ids);
+        for (DomainGroupModelView group : groups)
+        {
+            Long count = counts.get(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID + group.getEntityId());
+            if (count != null)
+            {
+                group.setFollowersCount(count.intValue());
+            }
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache.cachedfieldpopulators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+
+/**
+ * Decorates a mapper of person model views to fill in follower, following, and group counts from the follow counters,
+ * so that cached model views do not need to be evicted when the counts change.
+ */
+public class PersonFollowCountsPopulator implements DomainMapper<List<Long>, List<PersonModelView>>
+{
+    /**
+     * Counters used.
+     */
+    private static final List<String> PREFIXES = Arrays.asList(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID,
+            CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID, CacheKeys.GROUP_COUNT_BY_PERSON_ID);
+
+    /**
+     * Mapper providing the model views.
+     */
+    private final DomainMapper<List<Long>, List<PersonModelView>> decorated;
+
+    /**
+     * Follow counters.
+     */
+    private final FollowCounters followCounters;
+
+    /**
+     * Constructor.
+     *
+     * @param inDecorated
+     *            Mapper providing the model views.
+     * @param inFollowCounters
+     *            Follow counters.
+     */
+    public PersonFollowCountsPopulator(final DomainMapper<List<Long>, List<PersonModelView>> inDecorated,
+            final FollowCounters inFollowCounters)
+    {
+        decorated = inDecorated;
+        followCounters = inFollowCounters;
+    }
+
+    /**
+     * Gets the model views and fills in their counts.
+     *
+     * @param inIds
+     *            Person ids.
+     * @return Person model views.
+     */
+    @Override
+    public List<PersonModelView> execute(final List<Long> inIds)
+    {
+        List<PersonModelView> people = decorated.execute(inIds);
+        if (people == null || people.isEmpty())
+        {
+            return people;
+        }
+
+        List<Long> ids = new ArrayList<Long>(people.size());
+        for (PersonModelView person : people)
+        {
+            ids.add(person.getEntityId());
+        }
+
+        Map<String, Long> counts = followCounters.get(PREFIXES, ids);
+        for (PersonModelView person : people)
+        {
+            Long count = counts.get(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + person.getEntityId());
+            if (count != null)
+            {
+                person.setFollowersCount(count.intValue());
+            }
+            count = counts.get(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + person.getEntityId());
+            if (count != null)
+            {
+                person.setFollowingCount(count.intValue());
+            }
+            count = counts.get(CacheKeys.GROUP_COUNT_BY_PERSON_ID + person.getEntityId());
+            if (count != null)
+            {
+                person.setGroupsCount(count.intValue());
+            }
+        }
+        return people;
+    }
+}
@@ -15,8 +15,15 @@
  */
 package org.eurekastreams.server.persistence.mappers.chained;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.SingleFlight;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 
 /**
@@ -55,6 +62,16 @@ public class DecoratedPartialResponseDomainMapper<Request, Response> implements
      */
     private RefreshStrategy<Request, Response> refreshStrategy;
 
+    /**
+     * Coalesces concurrent loads of the same request from the decorated mapper; null unless enabled.
+     */
+    private SingleFlight<Request, Response> singleFlight;
+
+    /**
+     * Whether to remember responses for the rest of the current action.
+     */
+    private boolean memoize;
+
     /**
      * Constructor with data refreshing. The refresher is used to update the main datasource with the results from the
      * decorated one.
@@ -82,13 +99,38 @@ public class DecoratedPartialResponseDomainMapper<Request, Response> implements
 
     /**
      * Get the results from the mapper, falling through to the decorated mapper if the main mapper doesn't completely
-     * satisfy the request.
+     * satisfy the request. When memoizing, a response already found during the current action is reused.
      *
      * @param request
      *            the request to use to retreive the data
      * @return the response as built from the mapper and the decorated mapper
      */
+    @SuppressWarnings("unchecked")
     public Response execute(final Request request)
+    {
+        if (memoize)
+        {
+            Response remembered = (Response) MapperRequestMemo.get(this, request);
+            if (remembered != null)
+            {
+                return listCopyOf(remembered);
+            }
+            Response response = load(request);
+            MapperRequestMemo.put(this, refreshStrategy, request, listCopyOf(response));
+            return response;
+        }
+        return load(request);
+    }
+
+    /**
+     * Get the results from the mapper, falling through to the decorated mapper if the main mapper doesn't completely
+     * satisfy the request.
+     *
+     * @param request
+     *            the request to use to retreive the data
+     * @return the response as built from the mapper and the decorated mapper
+     */
+    private Response load(final Request request)
     {
         PartialMapperResponse<Request, Response> partialResponse = partialMapper.execute(request);
         if (!partialResponse.hasUnhandledRequest())
@@ -121,23 +163,32 @@ public class DecoratedPartialResponseDomainMapper<Request, Response> implements
                 log.info("Trying to complete response with decorated mapper - " + decoratedMapper.getClass());
             }
 
-            // get the response from the next mapper in the chain
-            decoratedResponse = decoratedMapper.execute(partialResponse.getUnhandledRequest());
-
-            if (log.isInfoEnabled())
+            final Request unhandledRequest = partialResponse.getUnhandledRequest();
+            if (singleFlight == null)
+            {
+                decoratedResponse = loadDecorated(unhandledRequest);
+            }
+            else
             {
-                if (decoratedResponse != null)
+                // concurrent misses for the same request share one load; callers which only waited for another's
+                // load get their own copy of it
+                final boolean[] loaded = new boolean[1];
+                decoratedResponse = singleFlight.execute(unhandledRequest, new Callable<Response>()
                 {
-                    log.info("Found response with decorated response mapper - " + decoratedMapper.getClass());
-                }
-                else
+                    public Response call()
+                    {
+                        loaded[0] = true;
+                        return loadDecorated(unhandledRequest);
+                    }
+                });
+                if (!loaded[0])
                 {
-                    log.info("Found no response with decorated response mapper - " + decoratedMapper.getClass());
+                    decoratedResponse = copyOf(decoratedResponse);
                 }
             }
 
-            // refresh this datasource
-            refreshStrategy.refresh(partialResponse.getUnhandledRequest(), decoratedResponse);
+            // the refresh strategy has just rewritten this data, so anything remembered from it is out of date
+            MapperRequestMemo.forget(refreshStrategy);
         }
         else
         {
@@ -154,4 +205,100 @@ public class DecoratedPartialResponseDomainMapper<Request, Response> implements
 
     }
 
+    /**
+     * Gets the response from the decorated mapper and refreshes this datasource with it.
+     *
+     * @param unhandledRequest
+     *            the part of the request not satisfied by the main mapper
+     * @return the response from the decorated mapper
+     */
+    private Response loadDecorated(final Request unhandledRequest)
+    {
+        // get the response from the next mapper in the chain
+        Response decoratedResponse = decoratedMapper.execute(unhandledRequest);
+
+        if (log.isInfoEnabled())
+        {
+            if (decoratedResponse != null)
+            {
+                log.info("Found response with decorated response mapper - " + decoratedMapper.getClass());
+            }
+            else
+            {
+                log.info("Found no response with decorated response mapper - " + decoratedMapper.getClass());
+            }
+        }
+
+        // refresh this datasource
+        refreshStrategy.refresh(unhandledRequest, decoratedResponse);
+        return decoratedResponse;
+    }
+
+    /**
+     * Copies a response shared with a concurrent caller so they cannot affect each other by changing it or the model
+     * views in it (which callers such as the count populators do). Serializable responses are copied deeply, as the
+     * near cache does; other lists are copied shallowly.
+     *
+     * @param response
+     *            the response
+     * @return a copy of the response, or the response itself if it cannot be copied
+     */
+    @SuppressWarnings("unchecked")
+    private Response copyOf(final Response response)
+    {
+        if (response instanceof Serializable)
+        {
+            try
+            {
+                return (Response) SerializationUtils.clone((Serializable) response);
+            }
+            catch (SerializationException ex)
+            {
+                log.warn("Unable to copy response from " + partialMapper.getClass(), ex);
+            }
+        }
+        return listCopyOf(response);
+    }
+
+    /**
+     * Copies a list response shallowly, so a caller adding to or removing from a remembered list doesn't change what
+     * later lookups in the same action get. The model views themselves are shared within the (read-only) action.
+     *
+     * @param response
+     *            the response
+     * @return a copy of the list, or the response itself if not a list
+     */
+    @SuppressWarnings("unchecked")
+    private Response listCopyOf(final Response response)
+    {
+        return response instanceof ArrayList ? (Response) new ArrayList<Object>((ArrayList<Object>) response)
+                : response;
+    }
+
+    /**
+     * Enables coalescing concurrent loads of the same request from the decorated mapper (and the refresh that
+     * follows) into one load per JVM. Suited to hot keys whose expiry would otherwise send every request to the
+     * database at once.
+     *
+     * @param inSingleFlight
+     *            whether to coalesce loads
+     */
+    public void setSingleFlight(final boolean inSingleFlight)
+    {
+        singleFlight = inSingleFlight ? new SingleFlight<Request, Response>() : null;
+    }
+
+    /**
+     * Enables remembering responses for the rest of the current read-only action (see {@link MapperRequestMemo}), so
+     * repeated lookups of the same request within an action are free. Each lookup gets its own copy of a list
+     * response, sharing the model views in it. What is remembered is forgotten whenever a mapper sharing this
+     * mapper's refresh strategy (such as its force refresh counterpart) rewrites the data.
+     *
+     * @param inMemoize
+     *            whether to remember responses
+     */
+    public void setMemoize(final boolean inMemoize)
+    {
+        memoize = inMemoize;
+    }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.chained;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers mapper responses for the duration of one read-only action on the current thread, so looking up the same
+ * data several times while executing an action costs one lookup. Nothing is remembered outside of a begin/end pair, nor
+ * within one begun for an action which may write: such actions can change cached data by many paths (executions
+ * deleting or rewriting cache keys directly), so their lookups always go to the cache. When a writing action runs
+ * within a read-only one (e.g. a follow-on task executed in-line), everything the outer action remembered is forgotten
+ * when it ends. Responses are also remembered along with the source of their data (for the chained mappers, the
+ * refresh strategy which writes it to the cache); whatever rewrites that data forgets them.
+ */
+public final class MapperRequestMemo
+{
+    /**
+     * The current thread's memo.
+     */
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<Scope>();
+
+    /**
+     * Not instantiable.
+     */
+    private MapperRequestMemo()
+    {
+    }
+
+    /**
+     * Starts remembering responses on the current thread for a read-only action. Calls may nest; the memo lasts until
+     * the matching end.
+     */
+    public static void begin()
+    {
+        begin(true);
+    }
+
+    /**
+     * Starts an action on the current thread. Calls may nest; nested read-only actions share the enclosing read-only
+     * action's memo.
+     *
+     * @param inRemember
+     *            whether to remember responses (only for actions which do not write)
+     */
+    public static void begin(final boolean inRemember)
+    {
+        Scope scope = SCOPE.get();
+        if (scope != null && scope.remember == inRemember)
+        {
+            scope.depth++;
+            return;
+        }
+        SCOPE.set(new Scope(inRemember, scope));
+    }
+
+    /**
+     * Ends the action begun last on the current thread. Once a scope which did not remember ends, the enclosing scope
+     * forgets its responses, since the data may have changed meanwhile.
+     */
+    public static void end()
+    {
+        Scope scope = SCOPE.get();
+        if (scope == null || --scope.depth > 0)
+        {
+            return;
+        }
+        if (scope.outer == null)
+        {
+            SCOPE.remove();
+            return;
+        }
+        SCOPE.set(scope.outer);
+        if (!scope.remember)
+        {
+            clear();
+        }
+    }
+
+    /**
+     * Forgets all remembered responses on the current thread.
+     */
+    public static void clear()
+    {
+        Scope scope = SCOPE.get();
+        if (scope != null)
+        {
+            scope.responses.clear();
+            scope.mappersBySource.clear();
+        }
+    }
+
+    /**
+     * Forgets the remembered responses of every mapper whose data comes from the given source on the current thread.
+     *
+     * @param inSource
+     *            the source whose data has changed
+     */
+    public static void forget(final Object inSource)
+    {
+        Scope scope = SCOPE.get();
+        if (scope == null || inSource == null)
+        {
+            return;
+        }
+        Set<Object> mappers = scope.mappersBySource.remove(inSource);
+        if (mappers != null)
+        {
+            for (Object mapper : mappers)
+            {
+                scope.responses.remove(mapper);
+            }
+        }
+    }
+
+    /**
+     * Gets a remembered response.
+     *
+     * @param inMapper
+     *            the mapper which produced the response
+     * @param inRequest
+     *            the request
+     * @return the response, or null if none is remembered
+     */
+    public static Object get(final Object inMapper, final Object inRequest)
+    {
+        Scope scope = SCOPE.get();
+        if (scope == null || !scope.remember)
+        {
+            return null;
+        }
+        Map<Object, Object> responses = scope.responses.get(inMapper);
+        return responses == null ? null : responses.get(inRequest);
+    }
+
+    /**
+     * Remembers a response if a read-only action is in progress on the current thread; the mapper is its own source.
+     *
+     * @param inMapper
+     *            the mapper which produced the response
+     * @param inRequest
+     *            the request
+     * @param inResponse
+     *            the response
+     */
+    public static void put(final Object inMapper, final Object inRequest, final Object inResponse)
+    {
+        put(inMapper, inMapper, inRequest, inResponse);
+    }
+
+    /**
+     * Remembers a response if a read-only action is in progress on the current thread.
+     *
+     * @param inMapper
+     *            the mapper which produced the response
+     * @param inSource
+     *            the source of the response's data, used to forget it when the data changes
+     * @param inRequest
+     *            the request
+     * @param inResponse
+     *            the response
+     */
+    @SuppressWarnings("unchecked")
+    public static void put(final Object inMapper, final Object inSource, final Object inRequest,
+            final Object inResponse)
+    {
+        Scope scope = SCOPE.get();
+        if (scope == null || !scope.remember || inResponse == null)
+        {
+            return;
+        }
+        Map<Object, Object> responses = scope.responses.get(inMapper);
+        if (responses == null)
+        {
+            responses = new HashMap<Object, Object>();
+            scope.responses.put(inMapper, responses);
+        }
+        Object source = inSource == null ? inMapper : inSource;
+        Set<Object> mappers = scope.mappersBySource.get(source);
+        if (mappers == null)
+        {
+            mappers = new HashSet<Object>();
+            scope.mappersBySource.put(source, mappers);
+        }
+        mappers.add(inMapper);
+        // copy list requests so later changes by the caller do not alter the key
+        responses.put(inRequest instanceof List ? new ArrayList<Object>((List<Object>) inRequest) : inRequest,
+                inResponse);
+    }
+
+    /**
+     * A thread's memo for an action (and the actions nested in it which remember the same way).
+     */
+    private static class Scope
+    {
+        /**
+         * Whether responses are remembered.
+         */
+        private final boolean remember;
+
+        /**
+         * The enclosing scope, restored when this one ends (null if none).
+         */
+        private final Scope outer;
+
+        /**
+         * Number of begins not yet ended.
+         */
+        private int depth = 1;
+
+        /**
+         * Remembered responses, by mapper, then by request.
+         */
+        private final Map<Object, Map<Object, Object>> responses = new HashMap<Object, Map<Object, Object>>();
+
+        /**
+         * Mappers with remembered responses, by the source of their data.
+         */
+        private final Map<Object, Set<Object>> mappersBySource = new HashMap<Object, Set<Object>>();
+
+        /**
+         * Constructor.
+         *
+         * @param inRemember
+         *            whether responses are remembered
+         * @param inOuter
+         *            the enclosing scope (null if none)
+         */
+        Scope(final boolean inRemember, final Scope inOuter)
+        {
+            remember = inRemember;
+            outer = inOuter;
+        }
+    }
+}
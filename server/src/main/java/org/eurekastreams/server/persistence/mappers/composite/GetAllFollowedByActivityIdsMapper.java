@@ -19,6 +19,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.Cache;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowingTimelinePolicy;
 import org.eurekastreams.server.persistence.mappers.requests.GetAllFollowedByActivityIdsRequest;
 
 /**
@@ -38,6 +41,16 @@ public class GetAllFollowedByActivityIdsMapper implements
      */
     private DomainMapper<List<Long>, List<List<Long>>> getFollowedGroupActivityIdsMapper;
 
+    /**
+     * Decides which followed groups are pushed into the user's following list (optional).
+     */
+    private FollowingTimelinePolicy timelinePolicy;
+
+    /**
+     * Cache holding the following lists and their signatures (needed with a timeline policy).
+     */
+    private Cache cache;
+
     /**
      * Constructor.
      * 
@@ -63,11 +76,71 @@ public class GetAllFollowedByActivityIdsMapper implements
     @Override
     public List<List<Long>> execute(final GetAllFollowedByActivityIdsRequest inRequest)
     {
+        long start = System.currentTimeMillis();
+        Long userId = inRequest.getUserId();
+        Long signature = null;
+        if (timelinePolicy != null)
+        {
+            signature = inRequest.getTimelineSignature();
+            if (signature != null)
+            {
+                validateTimeline(userId, signature);
+            }
+        }
+
         List<List<Long>> results = new ArrayList<List<Long>>();
 
-        results.add(getFollowedPeopleActivityIdsMapper.execute(inRequest.getUserId()));
-        results.addAll(getFollowedGroupActivityIdsMapper.execute(inRequest.getGroupStreamIds()));
+        List<Long> groupStreamIds = inRequest.getGroupStreamIds();
+        results.add(getFollowedPeopleActivityIdsMapper.execute(userId));
+        results.addAll(getFollowedGroupActivityIdsMapper.execute(groupStreamIds));
+
+        if (timelinePolicy != null)
+        {
+            timelinePolicy.getStatistics().record(
+                    signature != null ? FollowingTimelinePolicy.TIMELINE_READ_STAT
+                            : FollowingTimelinePolicy.PULL_READ_STAT, System.currentTimeMillis() - start);
+            timelinePolicy.getStatistics().record(FollowingTimelinePolicy.PULLED_STREAMS_STAT,
+                    groupStreamIds.size());
+        }
 
         return results;
     }
+
+    /**
+     * Discards the user's following list if it was built for a different set of pushed groups (the user followed or
+     * unfollowed a group, or a group crossed the push threshold), so it is reloaded with the right group activity.
+     *
+     * @param inUserId
+     *            user id.
+     * @param inSignature
+     *            signature of the groups currently pushed to the user.
+     */
+    private void validateTimeline(final Long inUserId, final Long inSignature)
+    {
+        String signatureKey = CacheKeys.ACTIVITIES_BY_FOLLOWING_SIGNATURE + inUserId;
+        if (!inSignature.equals(cache.get(signatureKey)))
+        {
+            cache.deleteList(CacheKeys.ACTIVITIES_BY_FOLLOWING + inUserId);
+            cache.set(signatureKey, inSignature);
+            timelinePolicy.getStatistics().increment(FollowingTimelinePolicy.REBUILD_STAT);
+        }
+    }
+
+    /**
+     * @param inTimelinePolicy
+     *            Decides which followed groups are pushed into the user's following list.
+     */
+    public void setTimelinePolicy(final FollowingTimelinePolicy inTimelinePolicy)
+    {
+        timelinePolicy = inTimelinePolicy;
+    }
+
+    /**
+     * @param inCache
+     *            Cache holding the following lists and their signatures.
+     */
+    public void setCache(final Cache inCache)
+    {
+        cache = inCache;
+    }
 }
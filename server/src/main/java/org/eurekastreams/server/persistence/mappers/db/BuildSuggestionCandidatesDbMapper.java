@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.BaseArgDomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.SuggestionCandidates;
+
+/**
+ * Builds a person's suggestion candidates from the follow tables. Rather than joining and grouping in the database, it
+ * reads the plain follow lists of the people the person follows and does the counting in memory.
+ */
+public class BuildSuggestionCandidatesDbMapper extends BaseArgDomainMapper<Long, SuggestionCandidates>
+{
+    /** Number of follower ids per query. */
+    private static final int BATCH_SIZE = 1000;
+
+    /** Maximum number of people and of groups to keep as candidates. */
+    private final int maxCandidates;
+
+    /**
+     * Constructor.
+     *
+     * @param inMaxCandidates
+     *            Maximum number of people and of groups to keep as candidates.
+     */
+    public BuildSuggestionCandidatesDbMapper(final int inMaxCandidates)
+    {
+        maxCandidates = inMaxCandidates;
+    }
+
+    /**
+     * Builds the candidates.
+     *
+     * @param inPersonId
+     *            Id of the person to build the candidates for.
+     * @return The candidates.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public SuggestionCandidates execute(final Long inPersonId)
+    {
+        long now = System.currentTimeMillis();
+
+        List<Long> followedPeople = getEntityManager()
+                .createQuery("select f.pk.followingId from Follower f where f.pk.followerId = :id")
+                .setParameter("id", inPersonId).getResultList();
+        List<Long> followedGroups = getEntityManager()
+                .createQuery("select gf.pk.followingId from GroupFollower gf where gf.pk.followerId = :id")
+                .setParameter("id", inPersonId).getResultList();
+
+        List<Long> followedOthers = new ArrayList<Long>(followedPeople);
+        followedOthers.remove(inPersonId);
+
+        List<Long> personOccurrences = new ArrayList<Long>();
+        List<Long> groupOccurrences = new ArrayList<Long>();
+        for (int start = 0; start < followedOthers.size(); start += BATCH_SIZE)
+        {
+            List<Long> batch = followedOthers.subList(start, Math.min(start + BATCH_SIZE, followedOthers.size()));
+            personOccurrences.addAll(getEntityManager()
+                    .createQuery("select f.pk.followingId from Follower f where f.pk.followerId in (:ids)")
+                    .setParameter("ids", batch).getResultList());
+            groupOccurrences.addAll(getEntityManager()
+                    .createQuery("select gf.pk.followingId from GroupFollower gf where gf.pk.followerId in (:ids)")
+                    .setParameter("ids", batch).getResultList());
+        }
+
+        return new SuggestionCandidates(inPersonId, now, toArray(followedPeople), toArray(followedGroups),
+                toArray(personOccurrences), toArray(groupOccurrences), maxCandidates);
+    }
+
+    /**
+     * @param inValues
+     *            Ids.
+     * @return Ids as an array.
+     */
+    private static long[] toArray(final List<Long> inValues)
+    {
+        long[] result = new long[inValues.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = inValues.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.BaseArgDomainMapper;
+
+/**
+ * Gets the stream scope ids of the streams a person has asked not to be suggested.
+ */
+public class GetBlockedSuggestionScopeIdsForPersonDbMapper extends BaseArgDomainMapper<Long, List<Long>>
+{
+    /**
+     * Gets the blocked stream scope ids.
+     *
+     * @param inPersonId
+     *            Person id.
+     * @return Stream scope ids.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> execute(final Long inPersonId)
+    {
+        return getEntityManager()
+                .createQuery("select b.pk.scopeId from PersonBlockedSuggestion b where b.pk.personId = :id")
+                .setParameter("id", inPersonId).getResultList();
+    }
+}
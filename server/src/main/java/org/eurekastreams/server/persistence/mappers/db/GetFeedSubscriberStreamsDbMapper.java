@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.server.domain.EntityType;
+import org.eurekastreams.server.domain.stream.StreamScope;
+import org.eurekastreams.server.domain.stream.plugins.FeedSubscriber;
+import org.eurekastreams.server.persistence.mappers.BaseArgDomainMapper;
+
+/**
+ * Resolves the streams a feed's activities get posted to, for all of the feed's subscribers at once: one query for
+ * the subscribing people (skipping locked accounts) and one for the subscribing groups. Subscribers whose entity was
+ * not found or whose account is locked are absent from the result.
+ */
+public class GetFeedSubscriberStreamsDbMapper extends
+        BaseArgDomainMapper<Collection<FeedSubscriber>,
+        Map<FeedSubscriber, GetFeedSubscriberStreamsDbMapper.SubscriberStream>>
+{
+    /**
+     * Resolves the subscribers' streams.
+     *
+     * @param inRequest
+     *            The feed subscribers.
+     * @return The stream to post to, keyed by feed subscriber.
+     */
+    @Override
+    public Map<FeedSubscriber, SubscriberStream> execute(final Collection<FeedSubscriber> inRequest)
+    {
+        List<Long> personIds = new ArrayList<Long>();
+        List<Long> groupIds = new ArrayList<Long>();
+        for (FeedSubscriber subscriber : inRequest)
+        {
+            if (EntityType.PERSON.equals(subscriber.getEntityType()))
+            {
+                personIds.add(subscriber.getEntityId());
+            }
+            else if (EntityType.GROUP.equals(subscriber.getEntityType()))
+            {
+                groupIds.add(subscriber.getEntityId());
+            }
+        }
+
+        Map<Long, SubscriberStream> people = new HashMap<Long, SubscriberStream>();
+        if (!personIds.isEmpty())
+        {
+            for (Object[] row : query("select p.id, p.accountId, p.streamScope from Person p "
+                    + "where p.id in (:ids) and p.accountLocked = false", personIds))
+            {
+                people.put((Long) row[0], new SubscriberStream((String) row[1], (StreamScope) row[2], true));
+            }
+        }
+
+        Map<Long, SubscriberStream> groups = new HashMap<Long, SubscriberStream>();
+        if (!groupIds.isEmpty())
+        {
+            for (Object[] row : query("select g.id, g.shortName, g.streamScope, g.publicGroup from DomainGroup g "
+                    + "where g.id in (:ids)", groupIds))
+            {
+                groups.put((Long) row[0], new SubscriberStream((String) row[1], (StreamScope) row[2],
+                        (Boolean) row[3]));
+            }
+        }
+
+        Map<FeedSubscriber, SubscriberStream> results = new HashMap<FeedSubscriber, SubscriberStream>();
+        for (FeedSubscriber subscriber : inRequest)
+        {
+            Map<Long, SubscriberStream> streams = EntityType.PERSON.equals(subscriber.getEntityType()) ? people
+                    : groups;
+            SubscriberStream stream = streams.get(subscriber.getEntityId());
+            if (stream != null)
+            {
+                results.put(subscriber, stream);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs a query for rows of entities by id.
+     *
+     * @param inQuery
+     *            JPQL.
+     * @param inIds
+     *            Entity ids.
+     * @return Rows.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> query(final String inQuery, final List<Long> inIds)
+    {
+        return getEntityManager().createQuery(inQuery).setParameter("ids", inIds).getResultList();
+    }
+
+    /**
+     * The stream a subscriber's feed activities are posted to.
+     */
+    public static class SubscriberStream implements Serializable
+    {
+        /** Serial version uid. */
+        private static final long serialVersionUID = -3121786014633549021L;
+
+        /** Actor id (account id or group short name). */
+        private final String actorId;
+
+        /** Stream scope to post to. */
+        private final StreamScope streamScope;
+
+        /** If the stream is public. */
+        private final boolean publicStream;
+
+        /**
+         * Constructor.
+         *
+         * @param inActorId
+         *            Actor id (account id or group short name).
+         * @param inStreamScope
+         *            Stream scope to post to.
+         * @param inPublicStream
+         *            If the stream is public.
+         */
+        public SubscriberStream(final String inActorId, final StreamScope inStreamScope,
+                final boolean inPublicStream)
+        {
+            actorId = inActorId;
+            streamScope = inStreamScope;
+            publicStream = inPublicStream;
+        }
+
+        /**
+         * @return Actor id (account id or group short name).
+         */
+        public String getActorId()
+        {
+            return actorId;
+        }
+
+        /**
+         * @return Stream scope to post to.
+         */
+        public StreamScope getStreamScope()
+        {
+            return streamScope;
+        }
+
+        /**
+         * @return If the stream is public.
+         */
+        public boolean isPublicStream()
+        {
+            return publicStream;
+        }
+    }
+}
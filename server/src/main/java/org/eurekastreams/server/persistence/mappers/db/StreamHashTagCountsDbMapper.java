@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import java.util.Date;
+import java.util.List;
+
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
+import org.eurekastreams.server.persistence.mappers.BaseArgDomainMapper;
+import org.eurekastreams.server.persistence.mappers.stream.StreamHashTagCounts;
+
+/**
+ * Builds the bucketed hashtag counts for a stream from its StreamHashTag records.
+ */
+public class StreamHashTagCountsDbMapper extends BaseArgDomainMapper<StreamPopularHashTagsRequest, StreamHashTagCounts>
+{
+    /** Milliseconds per minute. */
+    private static final long MILLIS_PER_MINUTE = 60000L;
+
+    /** Length of the window in milliseconds. */
+    private final long windowMillis;
+
+    /** Length of a bucket in milliseconds. */
+    private final long bucketMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param inPopularHashTagWindowInMinutes
+     *            number of minutes to count hashtags over
+     * @param inBucketInMinutes
+     *            length of a count bucket in minutes (the granularity the window slides by)
+     */
+    public StreamHashTagCountsDbMapper(final Integer inPopularHashTagWindowInMinutes,
+            final Integer inBucketInMinutes)
+    {
+        windowMillis = inPopularHashTagWindowInMinutes * MILLIS_PER_MINUTE;
+        bucketMillis = inBucketInMinutes * MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * Counts the hashtags used in the stream within the window.
+     *
+     * @param inRequest
+     *            type of stream and unique key of the entity stream to count hashtags for
+     * @return the counts
+     */
+    @SuppressWarnings("unchecked")
+    public StreamHashTagCounts execute(final StreamPopularHashTagsRequest inRequest)
+    {
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = getEntityManager().createQuery(
+                "SELECT hashTag.content, activityDate FROM StreamHashTag WHERE streamScopeType = :streamScopeType "
+                        + "AND activityDate >= :activityDate AND streamEntityUniqueKey = :streamEntityUniqueKey")
+                .setParameter("streamScopeType", inRequest.getStreamEntityScopeType()).setParameter("activityDate",
+                        new Date(now - windowMillis)).setParameter("streamEntityUniqueKey",
+                        inRequest.getStreamEntityUniqueKey()).getResultList();
+
+        StreamHashTagCounts counts = new StreamHashTagCounts(bucketMillis, windowMillis, new Date(now));
+        for (Object[] row : rows)
+        {
+            counts.add((String) row[0], ((Date) row[1]).getTime(), 1, now);
+        }
+        return counts;
+    }
+}
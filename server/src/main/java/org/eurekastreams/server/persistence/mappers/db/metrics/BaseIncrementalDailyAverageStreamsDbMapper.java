@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db.metrics;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.date.DateDayExtractor;
+import org.eurekastreams.commons.date.GetDateFromDaysAgoStrategy;
+import org.eurekastreams.commons.date.WeekdaysInDateRangeStrategy;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.server.domain.EntityType;
+import org.eurekastreams.server.domain.dto.StreamDTO;
+import org.eurekastreams.server.persistence.mappers.BaseArgDomainMapper;
+import org.eurekastreams.server.search.modelview.DomainGroupModelView;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+
+/**
+ * Base for DB mappers ranking streams by a daily average taken from DailyUsageSummary (messages, viewers...), kept
+ * incrementally. Each run reads only the summary rows added since the previous run and keeps every stream's counts by
+ * day in memory, rather than aggregating all of the summary data again. The averages are the same as those of the
+ * TempWeekdaysSinceDate queries: a stream's total over the past N days divided by the number of weekdays since its
+ * first day in that window. This mapper does not use TempWeekdaysSinceDate.
+ *
+ * @param <RS>
+ *            the result type.
+ */
+public abstract class BaseIncrementalDailyAverageStreamsDbMapper<RS> extends BaseArgDomainMapper<Serializable, RS>
+{
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** DailyUsageSummary property holding the count to average. */
+    private final String countPropertyName;
+
+    /** Number of streams to get (0 for all). */
+    private final int streamCount;
+
+    /** Number of days to average over. */
+    private final int numberOfDays;
+
+    /** Strategy to count weekdays. */
+    private final WeekdaysInDateRangeStrategy weekdaysInDateRangeStrategy;
+
+    /** Strategy to get the date N days ago. */
+    private final GetDateFromDaysAgoStrategy daysAgoDateStrategy;
+
+    /** Counts by stream scope id, then by day (start of day in ms). */
+    private final Map<Long, Map<Long, Long>> countsByStream = new HashMap<Long, Map<Long, Long>>();
+
+    /** Highest DailyUsageSummary id read so far. */
+    private long lastSummaryId;
+
+    /** Day (start of day in ms) the ranking was computed for. */
+    private long rankedDay;
+
+    /** Current ranking: rounded daily average by stream scope id, highest first. */
+    private Map<Long, Long> ranking = new LinkedHashMap<Long, Long>();
+
+    /**
+     * Constructor.
+     *
+     * @param inCountPropertyName
+     *            DailyUsageSummary property holding the count to average.
+     * @param inStreamCount
+     *            the number of streams to get (0 for all).
+     * @param inNumberOfDays
+     *            number of days to average over.
+     * @param inWeekdaysInDateRangeStrategy
+     *            strategy to count weekdays.
+     * @param inDaysAgoDateStrategy
+     *            strategy to get the date N days ago.
+     */
+    protected BaseIncrementalDailyAverageStreamsDbMapper(final String inCountPropertyName,
+            final Integer inStreamCount, final Integer inNumberOfDays,
+            final WeekdaysInDateRangeStrategy inWeekdaysInDateRangeStrategy,
+            final GetDateFromDaysAgoStrategy inDaysAgoDateStrategy)
+    {
+        countPropertyName = inCountPropertyName;
+        streamCount = inStreamCount;
+        numberOfDays = inNumberOfDays;
+        weekdaysInDateRangeStrategy = inWeekdaysInDateRangeStrategy;
+        daysAgoDateStrategy = inDaysAgoDateStrategy;
+    }
+
+    /**
+     * Get the streams with the highest daily average, with the (rounded up) average in the followers count.
+     *
+     * @param inIgnored
+     *            ignored.
+     * @return the streams.
+     */
+    @Override
+    public synchronized RS execute(final Serializable inIgnored)
+    {
+        Date today = DateDayExtractor.getStartOfDay(new Date());
+
+        // the weekdays since each day of the window - the same data as TempWeekdaysSinceDate
+        Map<Long, Integer> weekdaysByDay = new HashMap<Long, Integer>();
+        long oldestDay = today.getTime();
+        for (int i = 1; i <= numberOfDays; i++)
+        {
+            Date day = DateDayExtractor.getStartOfDay(daysAgoDateStrategy.execute(i));
+            weekdaysByDay.put(day.getTime(), weekdaysInDateRangeStrategy.getWeekdayCountBetweenDates(day, today));
+            oldestDay = Math.min(oldestDay, day.getTime());
+        }
+
+        int newRows = readNewSummaries(oldestDay);
+        if (newRows > 0 || rankedDay != today.getTime())
+        {
+            ranking = rank(weekdaysByDay);
+            rankedDay = today.getTime();
+        }
+        log.info("Read " + newRows + " new " + countPropertyName + " summaries; " + countsByStream.size()
+                + " streams tracked.");
+
+        return buildResult(getStreams(ranking));
+    }
+
+    /**
+     * Reads the summary rows added since the last run into the counts.
+     *
+     * @param inOldestDay
+     *            first day of the window (start of day in ms).
+     * @return the number of rows read.
+     */
+    @SuppressWarnings("unchecked")
+    private int readNewSummaries(final long inOldestDay)
+    {
+        List<Object[]> rows = getEntityManager().createQuery(
+                "SELECT id, streamViewStreamScopeId, usageDateTimeStampInMs, " + countPropertyName
+                        + " FROM DailyUsageSummary WHERE id > :lastId AND streamViewStreamScopeId IS NOT NULL "
+                        + "AND usageDateTimeStampInMs >= :oldestDay").setParameter("lastId", lastSummaryId)
+                .setParameter("oldestDay", inOldestDay).getResultList();
+
+        for (Object[] row : rows)
+        {
+            lastSummaryId = Math.max(lastSummaryId, (Long) row[0]);
+            Long streamScopeId = (Long) row[1];
+            Map<Long, Long> counts = countsByStream.get(streamScopeId);
+            if (counts == null)
+            {
+                counts = new HashMap<Long, Long>();
+                countsByStream.put(streamScopeId, counts);
+            }
+            // one summary per stream per day, so a regenerated day replaces the old count
+            counts.put(DateDayExtractor.getStartOfDay(new Date((Long) row[2])).getTime(), (Long) row[3]);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Drops days which have left the window and ranks the streams by their daily average.
+     *
+     * @param inWeekdaysByDay
+     *            weekdays since each day of the window.
+     * @return rounded daily average by stream scope id, highest first.
+     */
+    private Map<Long, Long> rank(final Map<Long, Integer> inWeekdaysByDay)
+    {
+        final Map<Long, Double> averages = new HashMap<Long, Double>();
+        Iterator<Entry<Long, Map<Long, Long>>> streamIter = countsByStream.entrySet().iterator();
+        while (streamIter.hasNext())
+        {
+            Entry<Long, Map<Long, Long>> stream = streamIter.next();
+            long total = 0;
+            int weekdays = 0;
+            Iterator<Entry<Long, Long>> dayIter = stream.getValue().entrySet().iterator();
+            while (dayIter.hasNext())
+            {
+                Entry<Long, Long> day = dayIter.next();
+                Integer dayWeekdays = inWeekdaysByDay.get(day.getKey());
+                if (dayWeekdays == null)
+                {
+                    dayIter.remove();
+                    continue;
+                }
+                total += day.getValue();
+                weekdays = Math.max(weekdays, dayWeekdays);
+            }
+            if (stream.getValue().isEmpty())
+            {
+                streamIter.remove();
+            }
+            else if (total > 0 && weekdays > 0)
+            {
+                averages.put(stream.getKey(), (double) total / weekdays);
+            }
+        }
+
+        List<Long> streamScopeIds = new ArrayList<Long>(averages.keySet());
+        Collections.sort(streamScopeIds, new Comparator<Long>()
+        {
+            public int compare(final Long inA, final Long inB)
+            {
+                int result = averages.get(inB).compareTo(averages.get(inA));
+                return result != 0 ? result : inA.compareTo(inB);
+            }
+        });
+        if (streamCount > 0 && streamScopeIds.size() > streamCount)
+        {
+            streamScopeIds = streamScopeIds.subList(0, streamCount);
+        }
+
+        Map<Long, Long> result = new LinkedHashMap<Long, Long>();
+        for (Long streamScopeId : streamScopeIds)
+        {
+            result.put(streamScopeId, Math.round(Math.ceil(averages.get(streamScopeId))));
+        }
+        return result;
+    }
+
+    /**
+     * Loads the ranked streams, putting the average in the followers count.
+     *
+     * @param inRanking
+     *            rounded daily average by stream scope id, highest first.
+     * @return the streams in rank order.
+     */
+    @SuppressWarnings("unchecked")
+    private List<StreamDTO> getStreams(final Map<Long, Long> inRanking)
+    {
+        List<StreamDTO> results = new ArrayList<StreamDTO>();
+        if (inRanking.isEmpty())
+        {
+            return results;
+        }
+        List<Long> streamScopeIds = new ArrayList<Long>(inRanking.keySet());
+
+        List<StreamDTO> streamDtos = new ArrayList<StreamDTO>();
+        streamDtos.addAll(getEntityManager().createQuery(
+                "SELECT new org.eurekastreams.server.search.modelview.PersonModelView(id, accountId, "
+                        + "preferredName, lastName, displayName, displayNameSuffix, followersCount, dateAdded, "
+                        + "streamScope.id) FROM Person WHERE streamScope.id IN(:streamScopeIds)").setParameter(
+                "streamScopeIds", streamScopeIds).getResultList());
+        streamDtos.addAll(getEntityManager().createQuery(
+                "SELECT new org.eurekastreams.server.search.modelview.DomainGroupModelView(id, "
+                        + "shortName, name, followersCount, dateAdded, streamScope.id, publicGroup) FROM DomainGroup "
+                        + "WHERE streamScope.id IN(:streamScopeIds)").setParameter("streamScopeIds", streamScopeIds)
+                .getResultList());
+
+        Map<Long, StreamDTO> streamsByScopeId = new HashMap<Long, StreamDTO>();
+        for (StreamDTO streamDTO : streamDtos)
+        {
+            streamsByScopeId.put(streamDTO.getStreamScopeId(), streamDTO);
+        }
+
+        for (Entry<Long, Long> entry : inRanking.entrySet())
+        {
+            StreamDTO streamDTO = streamsByScopeId.get(entry.getKey());
+            if (streamDTO == null)
+            {
+                continue;
+            }
+            // hijack the followers count to display the data
+            if (streamDTO.getEntityType() == EntityType.PERSON)
+            {
+                ((PersonModelView) streamDTO).setFollowersCount(entry.getValue().intValue());
+            }
+            else if (streamDTO.getEntityType() == EntityType.GROUP)
+            {
+                ((DomainGroupModelView) streamDTO).setFollowersCount(entry.getValue().intValue());
+            }
+            results.add(streamDTO);
+        }
+        return results;
+    }
+
+    /**
+     * Builds the result from the ranked streams.
+     *
+     * @param inStreams
+     *            the streams in rank order.
+     * @return the result.
+     */
+    protected abstract RS buildResult(List<StreamDTO> inStreams);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db.metrics;
+
+import java.util.List;
+
+import org.eurekastreams.commons.date.GetDateFromDaysAgoStrategy;
+import org.eurekastreams.commons.date.WeekdaysInDateRangeStrategy;
+import org.eurekastreams.server.domain.dto.StreamDTO;
+import org.eurekastreams.server.domain.dto.SublistWithResultCount;
+
+/**
+ * DB Mapper to get a list of streams ordered by the daily average number of messages (most active), maintained
+ * incrementally.
+ */
+public class GetStreamsByIncrementalDailyAverageMessageCountDbMapper extends
+        BaseIncrementalDailyAverageStreamsDbMapper<SublistWithResultCount<StreamDTO>>
+{
+    /**
+     * Constructor.
+     *
+     * @param inStreamCount
+     *            the number of streams to get (0 for all).
+     * @param inNumberOfDays
+     *            number of days to average over.
+     * @param inWeekdaysInDateRangeStrategy
+     *            strategy to count weekdays.
+     * @param inDaysAgoDateStrategy
+     *            strategy to get the date N days ago.
+     */
+    public GetStreamsByIncrementalDailyAverageMessageCountDbMapper(final Integer inStreamCount,
+            final Integer inNumberOfDays, final WeekdaysInDateRangeStrategy inWeekdaysInDateRangeStrategy,
+            final GetDateFromDaysAgoStrategy inDaysAgoDateStrategy)
+    {
+        super("messageCount", inStreamCount, inNumberOfDays, inWeekdaysInDateRangeStrategy, inDaysAgoDateStrategy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SublistWithResultCount<StreamDTO> buildResult(final List<StreamDTO> inStreams)
+    {
+        return new SublistWithResultCount<StreamDTO>(inStreams, new Long(inStreams.size()));
+    }
+}
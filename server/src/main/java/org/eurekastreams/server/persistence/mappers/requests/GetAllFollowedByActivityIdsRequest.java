@@ -39,6 +39,12 @@ public class GetAllFollowedByActivityIdsRequest implements Serializable
      */
     List<Long> groupStreamIds;
 
+    /**
+     * Signature of the followed groups whose activity is pushed into the user's following list (and so left out of
+     * groupStreamIds); null if no group activity is pushed.
+     */
+    Long timelineSignature;
+
     /**
      * Constructor.
      * 
@@ -87,4 +93,21 @@ public class GetAllFollowedByActivityIdsRequest implements Serializable
         groupStreamIds = inGroupStreamIds;
     }
 
+    /**
+     * @return the timelineSignature
+     */
+    public Long getTimelineSignature()
+    {
+        return timelineSignature;
+    }
+
+    /**
+     * @param inTimelineSignature
+     *            the timelineSignature to set
+     */
+    public void setTimelineSignature(final Long inTimelineSignature)
+    {
+        timelineSignature = inTimelineSignature;
+    }
+
 }
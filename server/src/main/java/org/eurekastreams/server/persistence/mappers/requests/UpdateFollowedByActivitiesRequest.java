@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.requests;
+
+import java.io.Serializable;
+
+/**
+ * Request for updating a person's list of followed activity for a person being followed or unfollowed.
+ */
+public class UpdateFollowedByActivitiesRequest implements Serializable
+{
+    /** Serialization id. */
+    private static final long serialVersionUID = -3184470253817395176L;
+
+    /** Id of the person whose list to update. */
+    private long followerId;
+
+    /** Id of the person followed or unfollowed. */
+    private long followedId;
+
+    /** True if the person was followed, false if unfollowed. */
+    private boolean following;
+
+    /**
+     * Constructor.
+     *
+     * @param inFollowerId
+     *            Id of the person whose list to update.
+     * @param inFollowedId
+     *            Id of the person followed or unfollowed.
+     * @param inFollowing
+     *            True if the person was followed, false if unfollowed.
+     */
+    public UpdateFollowedByActivitiesRequest(final long inFollowerId, final long inFollowedId,
+            final boolean inFollowing)
+    {
+        followerId = inFollowerId;
+        followedId = inFollowedId;
+        following = inFollowing;
+    }
+
+    /**
+     * @return Id of the person whose list to update.
+     */
+    public long getFollowerId()
+    {
+        return followerId;
+    }
+
+    /**
+     * @return Id of the person followed or unfollowed.
+     */
+    public long getFollowedId()
+    {
+        return followedId;
+    }
+
+    /**
+     * @return True if the person was followed, false if unfollowed.
+     */
+    public boolean isFollowing()
+    {
+        return following;
+    }
+}
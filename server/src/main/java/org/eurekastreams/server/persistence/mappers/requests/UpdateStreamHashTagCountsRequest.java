@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.requests;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
+
+/**
+ * Request for adjusting a stream's hashtag counts for an activity being posted or deleted.
+ */
+public class UpdateStreamHashTagCountsRequest
+{
+    /** The stream. */
+    private StreamPopularHashTagsRequest stream;
+
+    /** Contents of the activity's hashtags. */
+    private Collection<String> hashTags;
+
+    /** When the activity was posted. */
+    private Date postedTime;
+
+    /** Amount to adjust each hashtag's count by (1 for a post, -1 for a delete). */
+    private int amount;
+
+    /**
+     * Constructor.
+     *
+     * @param inStream
+     *            The stream.
+     * @param inHashTags
+     *            Contents of the activity's hashtags.
+     * @param inPostedTime
+     *            When the activity was posted.
+     * @param inAmount
+     *            Amount to adjust each hashtag's count by (1 for a post, -1 for a delete).
+     */
+    public UpdateStreamHashTagCountsRequest(final StreamPopularHashTagsRequest inStream,
+            final Collection<String> inHashTags, final Date inPostedTime, final int inAmount)
+    {
+        stream = inStream;
+        hashTags = inHashTags;
+        postedTime = inPostedTime;
+        amount = inAmount;
+    }
+
+    /**
+     * @return The stream.
+     */
+    public StreamPopularHashTagsRequest getStream()
+    {
+        return stream;
+    }
+
+    /**
+     * @return Contents of the activity's hashtags.
+     */
+    public Collection<String> getHashTags()
+    {
+        return hashTags;
+    }
+
+    /**
+     * @return When the activity was posted.
+     */
+    public Date getPostedTime()
+    {
+        return postedTime;
+    }
+
+    /**
+     * @return Amount to adjust each hashtag's count by.
+     */
+    public int getAmount()
+    {
+        return amount;
+    }
+}
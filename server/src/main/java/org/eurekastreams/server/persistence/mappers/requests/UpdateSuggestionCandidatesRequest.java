@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.requests;
+
+import java.io.Serializable;
+
+import org.eurekastreams.server.domain.EntityType;
+
+/**
+ * Request for updating suggestion candidates after a person follows or unfollows a person or group.
+ */
+public class UpdateSuggestionCandidatesRequest implements Serializable
+{
+    /** Serialization id. */
+    private static final long serialVersionUID = 6922385237561190914L;
+
+    /** Id of the person who followed or unfollowed. */
+    private long followerId;
+
+    /** Id of the person or group followed or unfollowed. */
+    private long followedId;
+
+    /** Type of entity followed or unfollowed (PERSON or GROUP). */
+    private EntityType followedType;
+
+    /** True if followed, false if unfollowed. */
+    private boolean following;
+
+    /**
+     * Constructor.
+     *
+     * @param inFollowerId
+     *            Id of the person who followed or unfollowed.
+     * @param inFollowedId
+     *            Id of the person or group followed or unfollowed.
+     * @param inFollowedType
+     *            Type of entity followed or unfollowed (PERSON or GROUP).
+     * @param inFollowing
+     *            True if followed, false if unfollowed.
+     */
+    public UpdateSuggestionCandidatesRequest(final long inFollowerId, final long inFollowedId,
+            final EntityType inFollowedType, final boolean inFollowing)
+    {
+        followerId = inFollowerId;
+        followedId = inFollowedId;
+        followedType = inFollowedType;
+        following = inFollowing;
+    }
+
+    /**
+     * @return Id of the person who followed or unfollowed.
+     */
+    public long getFollowerId()
+    {
+        return followerId;
+    }
+
+    /**
+     * @return Id of the person or group followed or unfollowed.
+     */
+    public long getFollowedId()
+    {
+        return followedId;
+    }
+
+    /**
+     * @return Type of entity followed or unfollowed (PERSON or GROUP).
+     */
+    public EntityType getFollowedType()
+    {
+        return followedType;
+    }
+
+    /**
+     * @return True if followed, false if unfollowed.
+     */
+    public boolean isFollowing()
+    {
+        return following;
+    }
+}
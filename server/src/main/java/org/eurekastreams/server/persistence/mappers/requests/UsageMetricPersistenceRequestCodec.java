@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.requests;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Date;
+
+import org.eurekastreams.commons.messaging.ParamCodec;
+import org.eurekastreams.commons.messaging.UserActionRequestCodec;
+import org.eurekastreams.server.domain.UsageMetric;
+
+/**
+ * Compact queue encoding for a {@link PersistenceRequest} of a new (unsaved) {@link UsageMetric}, as sent to the
+ * persist user metric action for every page and stream view.
+ */
+public class UsageMetricPersistenceRequestCodec implements ParamCodec
+{
+    /** Type id. */
+    private static final int TYPE_ID = UserActionRequestCodec.FIRST_CUSTOM_TYPE_ID + 1;
+
+    /** Flag: page view. */
+    private static final int FLAG_PAGE_VIEW = 1;
+
+    /** Flag: stream view. */
+    private static final int FLAG_STREAM_VIEW = 2;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTypeId()
+    {
+        return TYPE_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final Serializable inParams)
+    {
+        if (inParams.getClass() != PersistenceRequest.class)
+        {
+            return false;
+        }
+        Object entity = ((PersistenceRequest< ? >) inParams).getDomainEnity();
+        return entity != null && entity.getClass() == UsageMetric.class && ((UsageMetric) entity).getId() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final Serializable inParams, final DataOutput inOut) throws IOException
+    {
+        UsageMetric metric = (UsageMetric) ((PersistenceRequest< ? >) inParams).getDomainEnity();
+        UserActionRequestCodec.writeSignedVarLong(metric.getActorPersonId(), inOut);
+        inOut.writeByte((metric.isPageView() ? FLAG_PAGE_VIEW : 0) | (metric.isStreamView() ? FLAG_STREAM_VIEW : 0));
+        UserActionRequestCodec.writeNullableLong(metric.getStreamViewStreamScopeId(), inOut);
+        UserActionRequestCodec.writeNullableLong(metric.getCreated() == null ? null : metric.getCreated().getTime(),
+                inOut);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable decode(final DataInput inIn) throws IOException
+    {
+        long actorPersonId = UserActionRequestCodec.readSignedVarLong(inIn);
+        int flags = inIn.readByte();
+        Long streamScopeId = UserActionRequestCodec.readNullableLong(inIn);
+        Long created = UserActionRequestCodec.readNullableLong(inIn);
+        return new PersistenceRequest<UsageMetric>(new UsageMetric(actorPersonId, (flags & FLAG_PAGE_VIEW) != 0,
+                (flags & FLAG_STREAM_VIEW) != 0, streamScopeId, created == null ? null : new Date(created)));
+    }
+}
@@ -16,15 +16,17 @@
 package org.eurekastreams.server.persistence.mappers.stream;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.hibernate.ModelViewResultTransformer;
 import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
 import org.eurekastreams.server.domain.EntityType;
 import org.eurekastreams.server.domain.dto.StreamDTO;
 import org.eurekastreams.server.domain.stream.Activity;
@@ -47,11 +49,26 @@ import org.hibernate.criterion.Restrictions;
 public class BulkActivitiesDbMapper extends BaseArgDomainMapper<List<Long>, List<ActivityDTO>> implements
         DomainMapper<List<Long>, List<ActivityDTO>>
 {
+    /**
+     * Statistic holding the number of person/group lookups made per page.
+     */
+    public static final String LOOKUPS_STAT = "lookups";
+
+    /**
+     * Statistic holding the number of activities loaded per page.
+     */
+    public static final String ACTIVITIES_STAT = "activities";
+
     /**
      * Local logger instance.
      */
     private final Log logger = LogFactory.make();
 
+    /**
+     * Per-page lookup statistics.
+     */
+    private final KeyedStatistics lookupStatistics = new KeyedStatistics();
+
     /**
      * Mapper to get PersonModelView by account id.
      */
@@ -146,40 +163,84 @@ public class BulkActivitiesDbMapper extends BaseArgDomainMapper<List<Long>, List
                 new ActivityDTOFactory());
         criteria.setResultTransformer(resultTransformer);
         List<ActivityDTO> results = criteria.list();
+
+        // collect every person and group referenced by the page so each kind can be resolved with a single call
+        Set<String> accountIds = new HashSet<String>();
+        Set<String> groupShortNames = new HashSet<String>();
         for (ActivityDTO activity : results)
         {
-            activityMap.put(activity.getId(), activity);
+            if (activity.getDestinationStream().getUniqueIdentifier() != null)
+            {
+                collectReference(activity.getDestinationStream().getType(), activity.getDestinationStream()
+                        .getUniqueIdentifier(), accountIds, groupShortNames);
+            }
+            collectReference(activity.getActor().getType(), activity.getActor().getUniqueIdentifier(), accountIds,
+                    groupShortNames);
+            if (activity.getOriginalActor() != null)
+            {
+                collectReference(activity.getOriginalActor().getType(), activity.getOriginalActor()
+                        .getUniqueIdentifier(), accountIds, groupShortNames);
+            }
+        }
+
+        int lookups = 0;
+        final Map<String, PersonModelView> peopleByAccountId = new HashMap<String, PersonModelView>();
+        if (!accountIds.isEmpty())
+        {
+            lookups++;
+            for (PersonModelView person : getPersonModelViewsByAccountIdsMapper.execute(new ArrayList<String>(
+                    accountIds)))
+            {
+                peopleByAccountId.put(person.getAccountId(), person);
+            }
+        }
+        final Map<String, DomainGroupModelView> groupsByShortName = new HashMap<String, DomainGroupModelView>();
+        if (!groupShortNames.isEmpty())
+        {
+            lookups++;
+            for (DomainGroupModelView group : groupMapper.execute(new ArrayList<String>(groupShortNames)))
+            {
+                groupsByShortName.put(group.getShortName(), group);
+            }
+        }
 
-            // fills in data from cached view of stream
-            List<Long> streamIds = new ArrayList<Long>();
-            streamIds.add(activity.getDestinationStream().getId());
+        for (ActivityDTO activity : results)
+        {
+            activityMap.put(activity.getId(), activity);
 
             // get the display name for the destination stream
-            if (activity.getDestinationStream().getUniqueIdentifier() != null)
+            final StreamEntityDTO destination = activity.getDestinationStream();
+            if (destination.getUniqueIdentifier() != null)
             {
-                if (activity.getDestinationStream().getType() == EntityType.PERSON)
+                if (destination.getType() == EntityType.PERSON)
                 {
-                    PersonModelView person = getPersonModelViewByAccountIdMapper.execute(activity
-                            .getDestinationStream().getUniqueIdentifier());
-                    activity.getDestinationStream().setDisplayName(person.getDisplayName());
-
+                    PersonModelView person = peopleByAccountId.get(destination.getUniqueIdentifier());
+                    if (person == null)
+                    {
+                        // fall back to the single mapper so a missing person is reported as it always has been
+                        lookups++;
+                        person = getPersonModelViewByAccountIdMapper.execute(destination.getUniqueIdentifier());
+                    }
+                    destination.setDisplayName(person.getDisplayName());
                 }
-                else if (activity.getDestinationStream().getType() == EntityType.GROUP)
+                else if (destination.getType() == EntityType.GROUP)
                 {
-                    DomainGroupModelView group = groupMapper.fetchUniqueResult(activity.getDestinationStream()
-                            .getUniqueIdentifier());
-                    activity.getDestinationStream().setDisplayName(group.getName());
+                    DomainGroupModelView group = groupsByShortName.get(destination.getUniqueIdentifier());
+                    if (group == null)
+                    {
+                        lookups++;
+                        group = groupMapper.fetchUniqueResult(destination.getUniqueIdentifier());
+                    }
+                    destination.setDisplayName(group.getName());
                 }
             }
 
             final StreamEntityDTO actor = activity.getActor();
             if (actor.getType() == EntityType.PERSON)
             {
-                List<PersonModelView> people = getPersonModelViewsByAccountIdsMapper.execute(Collections
-                        .singletonList(actor.getUniqueIdentifier()));
-                if (!people.isEmpty())
+                final PersonModelView person = peopleByAccountId.get(actor.getUniqueIdentifier());
+                if (person != null)
                 {
-                    final PersonModelView person = people.get(0);
                     actor.setId(person.getEntityId());
                     actor.setDestinationEntityId(person.getEntityId());
                     actor.setDisplayName(person.getDisplayName());
@@ -188,11 +249,9 @@ public class BulkActivitiesDbMapper extends BaseArgDomainMapper<List<Long>, List
             }
             else if (actor.getType() == EntityType.GROUP)
             {
-                List<DomainGroupModelView> groups = groupMapper.execute(Collections.singletonList(actor
-                        .getUniqueIdentifier()));
-                if (!groups.isEmpty())
+                final DomainGroupModelView group = groupsByShortName.get(actor.getUniqueIdentifier());
+                if (group != null)
                 {
-                    final DomainGroupModelView group = groups.get(0);
                     actor.setId(group.getEntityId());
                     actor.setDestinationEntityId(group.getEntityId());
                     actor.setDisplayName(group.getName());
@@ -207,21 +266,11 @@ public class BulkActivitiesDbMapper extends BaseArgDomainMapper<List<Long>, List
 
                 if (originalActor.getType() == EntityType.PERSON)
                 {
-                    List<PersonModelView> people = getPersonModelViewsByAccountIdsMapper.execute(Collections
-                            .singletonList(originalActor.getUniqueIdentifier()));
-                    if (!people.isEmpty())
-                    {
-                        originalActorStreamDTO = people.get(0);
-                    }
+                    originalActorStreamDTO = peopleByAccountId.get(originalActor.getUniqueIdentifier());
                 }
                 if (originalActor.getType() == EntityType.GROUP)
                 {
-                    List<DomainGroupModelView> oagroups = groupMapper.execute(Collections.singletonList(originalActor
-                            .getUniqueIdentifier()));
-                    if (!oagroups.isEmpty())
-                    {
-                        originalActorStreamDTO = oagroups.get(0);
-                    }
+                    originalActorStreamDTO = groupsByShortName.get(originalActor.getUniqueIdentifier());
                 }
 
                 if (originalActorStreamDTO != null)
@@ -246,6 +295,9 @@ public class BulkActivitiesDbMapper extends BaseArgDomainMapper<List<Long>, List
             loadCommentInfo(activity); // set the first/last comment and comment count.
         }
 
+        lookupStatistics.record(LOOKUPS_STAT, lookups);
+        lookupStatistics.record(ACTIVITIES_STAT, results.size());
+
         final List<ActivityDTO> orderedResults = new LinkedList<ActivityDTO>();
 
         for (int i = 0; i < activityIds.size(); i++)
@@ -259,6 +311,42 @@ public class BulkActivitiesDbMapper extends BaseArgDomainMapper<List<Long>, List
         return orderedResults;
     }
 
+    /**
+     * Adds a person or group reference to the appropriate set of identifiers to resolve.
+     * 
+     * @param inType
+     *            type of the referenced entity.
+     * @param inUniqueId
+     *            account id or short name of the referenced entity.
+     * @param inAccountIds
+     *            account ids of people to resolve.
+     * @param inGroupShortNames
+     *            short names of groups to resolve.
+     */
+    private void collectReference(final EntityType inType, final String inUniqueId, final Set<String> inAccountIds,
+            final Set<String> inGroupShortNames)
+    {
+        if (inType == EntityType.PERSON)
+        {
+            inAccountIds.add(inUniqueId);
+        }
+        else if (inType == EntityType.GROUP)
+        {
+            inGroupShortNames.add(inUniqueId);
+        }
+    }
+
+    /**
+     * Gets the per-page lookup statistics: {@link #LOOKUPS_STAT} records the number of person/group mapper calls made
+     * for each page and {@link #ACTIVITIES_STAT} the number of activities in it.
+     * 
+     * @return the statistics.
+     */
+    public KeyedStatistics getLookupStatistics()
+    {
+        return lookupStatistics;
+    }
+
     /**
      * Load the first/last comments of an activity if present, also sets the comment count.
      * 
@@ -108,21 +108,9 @@ public abstract class CachedDomainMapper extends BaseDomainMapper
             followingList.add(followingId);        
         }
         
-        for (String followerKey : followers.keySet())
-        {
-            // for each followerkey, grab the ArrayList and stuff into memcached
-            getCache().setList(
-                    followerKey,
-                    followers.get(followerKey));
-        }
-        
-        for (String followingKey : following.keySet())
-        {
-            // for each followingKey, grab the ArrayList and stuff into memcached
-            getCache().setList(
-                    followingKey,
-                    following.get(followingKey));
-        }
+        // write each collection in one batch, which the cache may write off this thread
+        getCache().setLists(followers);
+        getCache().setLists(following);
     }      
 
     /**
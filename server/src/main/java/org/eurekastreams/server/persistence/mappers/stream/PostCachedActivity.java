@@ -15,7 +15,10 @@
  */
 package org.eurekastreams.server.persistence.mappers.stream;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
@@ -24,6 +27,8 @@ import org.eurekastreams.server.domain.stream.Activity;
 import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowingTimelinePolicy;
+import org.eurekastreams.server.search.modelview.DomainGroupModelView;
 import org.eurekastreams.server.search.modelview.PersonModelView;
 
 /**
@@ -46,6 +51,26 @@ public class PostCachedActivity extends CachedDomainMapper
      */
     private final DomainMapper<String, PersonModelView> getPersonModelViewByAccountIdMapper;
 
+    /**
+     * Decides which group streams are pushed into followers' timelines (optional; groups are not pushed without it).
+     */
+    private FollowingTimelinePolicy timelinePolicy;
+
+    /**
+     * Mapper to get a group id by short name (needed when group activity is pushed).
+     */
+    private DomainMapper<String, Long> groupIdByShortNameMapper;
+
+    /**
+     * Mapper to get groups by id (needed when group activity is pushed).
+     */
+    private DomainMapper<List<Long>, List<DomainGroupModelView>> groupsByIdsMapper;
+
+    /**
+     * Mapper to get followers of a group (needed when group activity is pushed).
+     */
+    private DomainMapper<Long, List<Long>> groupFollowersMapper;
+
     /**
      * Constructor.
      * 
@@ -91,8 +116,10 @@ public class PostCachedActivity extends CachedDomainMapper
         }
         else if (type == ScopeType.GROUP)
         {
-            // no-op
-            int donothing = 1;
+            if (timelinePolicy != null && timelinePolicy.isEnabled())
+            {
+                pushGroupActivity(recipientUniqueKey, activityId);
+            }
         }
         else
         {
@@ -129,10 +156,102 @@ public class PostCachedActivity extends CachedDomainMapper
     private void updateActivitiesByFollowingCacheLists(final long inPersonId, final long inActivityId)
     {
         List<Long> followers = personFollowersMapper.execute(inPersonId);
+        if (timelinePolicy != null)
+        {
+            timelinePolicy.getStatistics().record(FollowingTimelinePolicy.PERSON_FANOUT_STAT, followers.size());
+        }
+        addToFollowingLists(followers, inActivityId);
+    }
+
+    /**
+     * Pushes a group activity into the followers' "following" lists if the group is small enough.
+     *
+     * @param inGroupShortName
+     *            group short name.
+     * @param inActivityId
+     *            activity id.
+     */
+    private void pushGroupActivity(final String inGroupShortName, final long inActivityId)
+    {
+        Long groupId = groupIdByShortNameMapper.execute(inGroupShortName);
+        List<DomainGroupModelView> groups = groupId == null ? null : groupsByIdsMapper.execute(Collections
+                .singletonList(groupId));
+        if (groups == null || groups.isEmpty())
+        {
+            return;
+        }
+        DomainGroupModelView group = groups.get(0);
+
+        if (!timelinePolicy.isGroupPushed(group.getFollowersCount()))
+        {
+            log.debug("Group " + inGroupShortName + " has " + group.getFollowersCount()
+                    + " followers; its activity is pulled at read time.");
+            timelinePolicy.getStatistics().increment(FollowingTimelinePolicy.GROUP_PULL_STAT);
+            return;
+        }
+
+        List<Long> followers = groupFollowersMapper.execute(groupId);
+        timelinePolicy.getStatistics().record(FollowingTimelinePolicy.GROUP_FANOUT_STAT, followers.size());
+        addToFollowingLists(followers, inActivityId);
+    }
 
-        for (Long follower : followers)
+    /**
+     * Adds an activity to the top of the "following" lists of the given people.
+     *
+     * @param inFollowers
+     *            ids of the people.
+     * @param inActivityId
+     *            activity id.
+     */
+    private void addToFollowingLists(final List<Long> inFollowers, final long inActivityId)
+    {
+        if (inFollowers.isEmpty())
         {
-            getCache().addToTopOfList(CacheKeys.ACTIVITIES_BY_FOLLOWING + follower, inActivityId);
+            return;
         }
+
+        List<Long> activityIds = Collections.singletonList(inActivityId);
+        Map<String, List<Long>> listUpdates = new HashMap<String, List<Long>>();
+        for (Long follower : inFollowers)
+        {
+            listUpdates.put(CacheKeys.ACTIVITIES_BY_FOLLOWING + follower, activityIds);
+        }
+        getCache().addToTopOfLists(listUpdates);
+    }
+
+    /**
+     * @param inTimelinePolicy
+     *            Decides which group streams are pushed into followers' timelines.
+     */
+    public void setTimelinePolicy(final FollowingTimelinePolicy inTimelinePolicy)
+    {
+        timelinePolicy = inTimelinePolicy;
+    }
+
+    /**
+     * @param inGroupIdByShortNameMapper
+     *            Mapper to get a group id by short name.
+     */
+    public void setGroupIdByShortNameMapper(final DomainMapper<String, Long> inGroupIdByShortNameMapper)
+    {
+        groupIdByShortNameMapper = inGroupIdByShortNameMapper;
+    }
+
+    /**
+     * @param inGroupsByIdsMapper
+     *            Mapper to get groups by id.
+     */
+    public void setGroupsByIdsMapper(final DomainMapper<List<Long>, List<DomainGroupModelView>> inGroupsByIdsMapper)
+    {
+        groupsByIdsMapper = inGroupsByIdsMapper;
+    }
+
+    /**
+     * @param inGroupFollowersMapper
+     *            Mapper to get followers of a group.
+     */
+    public void setGroupFollowersMapper(final DomainMapper<Long, List<Long>> inGroupFollowersMapper)
+    {
+        groupFollowersMapper = inGroupFollowersMapper;
     }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.stream;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Hashtag use counts for one stream over a sliding window, kept in fixed-size time buckets so the window can slide by
+ * dropping whole buckets. Maintained incrementally as activities are posted and deleted, and rebuilt from the database
+ * now and then (see {@link #getRebuiltDate()}) to correct any drift.
+ */
+public class StreamHashTagCounts implements Serializable
+{
+    /** Serial version uid. */
+    private static final long serialVersionUID = 4790542418862201354L;
+
+    /** Orders the most popular first: highest count, then alphabetically (as the database report did). */
+    private static final Comparator<Entry<String, Integer>> MOST_POPULAR_FIRST = // \n
+    new Comparator<Entry<String, Integer>>()
+    {
+        public int compare(final Entry<String, Integer> inA, final Entry<String, Integer> inB)
+        {
+            int byCount = inB.getValue().compareTo(inA.getValue());
+            return byCount != 0 ? byCount : inA.getKey().compareTo(inB.getKey());
+        }
+    };
+
+    /** Length of a bucket in milliseconds. */
+    private long bucketMillis;
+
+    /** Number of buckets in the window. */
+    private int bucketCount;
+
+    /** Counts by hashtag, by bucket number (time / bucket length). */
+    private TreeMap<Long, HashMap<String, Integer>> buckets = new TreeMap<Long, HashMap<String, Integer>>();
+
+    /** Counts by hashtag over all buckets. */
+    private HashMap<String, Integer> totals = new HashMap<String, Integer>();
+
+    /** When the counts were last rebuilt from the database. */
+    private Date rebuiltDate;
+
+    /**
+     * Empty constructor for serialization.
+     */
+    @SuppressWarnings("unused")
+    private StreamHashTagCounts()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inBucketMillis
+     *            Length of a bucket in milliseconds.
+     * @param inWindowMillis
+     *            Length of the window in milliseconds (rounded up to whole buckets).
+     * @param inRebuiltDate
+     *            When the counts were built from the database.
+     */
+    public StreamHashTagCounts(final long inBucketMillis, final long inWindowMillis, final Date inRebuiltDate)
+    {
+        bucketMillis = Math.max(1, inBucketMillis);
+        bucketCount = (int) Math.max(1, (inWindowMillis + bucketMillis - 1) / bucketMillis);
+        rebuiltDate = inRebuiltDate;
+    }
+
+    /**
+     * Adds to (or with a negative amount, subtracts from) a hashtag's count. Uses older than the window are ignored.
+     *
+     * @param inHashTag
+     *            The hashtag content.
+     * @param inUsedAt
+     *            When it was used (activity post time, milliseconds).
+     * @param inAmount
+     *            Amount to add.
+     * @param inNow
+     *            Current time (milliseconds).
+     */
+    public void add(final String inHashTag, final long inUsedAt, final int inAmount, final long inNow)
+    {
+        long bucket = inUsedAt / bucketMillis;
+        if (bucket <= inNow / bucketMillis - bucketCount)
+        {
+            return;
+        }
+        HashMap<String, Integer> counts = buckets.get(bucket);
+        if (counts == null)
+        {
+            counts = new HashMap<String, Integer>();
+            buckets.put(bucket, counts);
+        }
+        adjust(counts, inHashTag, inAmount);
+        adjust(totals, inHashTag, inAmount);
+    }
+
+    /**
+     * Drops the buckets which have slid out of the window.
+     *
+     * @param inNow
+     *            Current time (milliseconds).
+     */
+    public void expire(final long inNow)
+    {
+        long oldestLive = inNow / bucketMillis - bucketCount + 1;
+        Iterator<Entry<Long, HashMap<String, Integer>>> iter = buckets.headMap(oldestLive).entrySet().iterator();
+        while (iter.hasNext())
+        {
+            for (Entry<String, Integer> entry : iter.next().getValue().entrySet())
+            {
+                adjust(totals, entry.getKey(), -entry.getValue());
+            }
+            iter.remove();
+        }
+    }
+
+    /**
+     * Gets the most used hashtags. Keeps a heap of just the best candidates, so costs O(hashtags * log(count)).
+     *
+     * @param inCount
+     *            Maximum number to return.
+     * @return The hashtags, most used first.
+     */
+    public List<String> getTop(final int inCount)
+    {
+        if (inCount <= 0)
+        {
+            return new ArrayList<String>();
+        }
+        // min-heap by popularity: the head is the least popular of the best found so far
+        PriorityQueue<Entry<String, Integer>> best = new PriorityQueue<Entry<String, Integer>>(inCount,
+                Collections.reverseOrder(MOST_POPULAR_FIRST));
+        for (Entry<String, Integer> entry : totals.entrySet())
+        {
+            if (best.size() < inCount)
+            {
+                best.add(entry);
+            }
+            else if (MOST_POPULAR_FIRST.compare(entry, best.peek()) < 0)
+            {
+                best.poll();
+                best.add(entry);
+            }
+        }
+
+        List<Entry<String, Integer>> sorted = new ArrayList<Entry<String, Integer>>(best);
+        Collections.sort(sorted, MOST_POPULAR_FIRST);
+        List<String> results = new ArrayList<String>(sorted.size());
+        for (Entry<String, Integer> entry : sorted)
+        {
+            results.add(entry.getKey());
+        }
+        return results;
+    }
+
+    /**
+     * @param inHashTag
+     *            The hashtag content.
+     * @return Its count over the window.
+     */
+    public int getCount(final String inHashTag)
+    {
+        Integer count = totals.get(inHashTag);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return When the counts were last rebuilt from the database.
+     */
+    public Date getRebuiltDate()
+    {
+        return rebuiltDate;
+    }
+
+    /**
+     * Adjusts a count, removing it when it reaches zero.
+     *
+     * @param inCounts
+     *            Counts by hashtag.
+     * @param inHashTag
+     *            The hashtag.
+     * @param inAmount
+     *            Amount to add.
+     */
+    private static void adjust(final Map<String, Integer> inCounts, final String inHashTag, final int inAmount)
+    {
+        Integer current = inCounts.get(inHashTag);
+        int updated = (current == null ? 0 : current) + inAmount;
+        if (updated > 0)
+        {
+            inCounts.put(inHashTag, updated);
+        }
+        else
+        {
+            inCounts.remove(inHashTag);
+        }
+    }
+}
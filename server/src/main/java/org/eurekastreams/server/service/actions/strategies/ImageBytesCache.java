@@ -0,0 +1,677 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
+
+/**
+ * Bounded cache of stored image bytes ready to be served, keyed by image identifier. Entries live in memory (least
+ * recently used first out, weighted by size) and, if a directory is configured, are also written to disk so they
+ * survive memory eviction and restarts. Entries older than the time to live are reloaded, which bounds how long an
+ * image rewritten by another server can be served stale: invalidation is local, so writes through this server's
+ * {@link ImageWriter} take effect here immediately but on other servers only when their copies expire.
+ */
+public class ImageBytesCache
+{
+    /** Statistic: served from memory. */
+    public static final String MEMORY_HIT_STAT = "hit.memory";
+
+    /** Statistic: served from disk. */
+    public static final String DISK_HIT_STAT = "hit.disk";
+
+    /** Statistic: not cached. */
+    public static final String MISS_STAT = "miss";
+
+    /** Statistic: bytes evicted from memory. */
+    public static final String MEMORY_EVICT_STAT = "evict.memory";
+
+    /** Statistic: bytes evicted from disk. */
+    public static final String DISK_EVICT_STAT = "evict.disk";
+
+    /** Suffix of cache files. */
+    private static final String FILE_SUFFIX = ".img";
+
+    /** Fraction of the limit the disk is trimmed to once the limit is passed. */
+    private static final double DISK_TRIM_RATIO = 0.9;
+
+    /** Initial capacity of the memory map. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Load factor of the memory map. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Milliseconds per second. */
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    /** Hex digits. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Mask for a nibble. */
+    private static final int NIBBLE = 0xf;
+
+    /** Bits in a nibble. */
+    private static final int NIBBLE_BITS = 4;
+
+    /** Logger. */
+    private final Log log = LogFactory.getLog(ImageBytesCache.class);
+
+    /** Entries in memory, least recently used first. */
+    private final LinkedHashMap<String, CachedImage> memory = new LinkedHashMap<String, CachedImage>(
+            INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    /** Total bytes of the images in memory. */
+    private long memoryBytes;
+
+    /** Largest total bytes of the images kept in memory. */
+    private final long maxMemoryBytes;
+
+    /** Largest single image kept in memory. */
+    private final long maxEntryBytes;
+
+    /** Milliseconds an entry may be served before it is reloaded. */
+    private final long timeToLiveMillis;
+
+    /** Directory for the disk copies; null if not using disk. */
+    private final File directory;
+
+    /** Largest total bytes of the disk copies. */
+    private final long maxDiskBytes;
+
+    /** Approximate total bytes of the disk copies. */
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    /** Count of invalidations; used to keep loads that raced an invalidation out of the cache. */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /** Statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inMaxMemoryBytes
+     *            Largest total bytes of the images kept in memory.
+     * @param inTimeToLiveSeconds
+     *            Seconds an entry may be served before it is reloaded.
+     * @param inDirectory
+     *            Directory for the disk copies; empty to keep images in memory only.
+     * @param inMaxDiskBytes
+     *            Largest total bytes of the disk copies.
+     */
+    public ImageBytesCache(final long inMaxMemoryBytes, final long inTimeToLiveSeconds, final String inDirectory,
+            final long inMaxDiskBytes)
+    {
+        maxMemoryBytes = inMaxMemoryBytes;
+        maxEntryBytes = inMaxMemoryBytes / 8;
+        timeToLiveMillis = inTimeToLiveSeconds * MILLIS_PER_SECOND;
+        maxDiskBytes = inMaxDiskBytes;
+        directory = openDirectory(inDirectory);
+    }
+
+    /**
+     * Prepares the disk directory.
+     *
+     * @param inDirectory
+     *            path.
+     * @return the directory, null if not usable.
+     */
+    private File openDirectory(final String inDirectory)
+    {
+        if (inDirectory == null || inDirectory.trim().length() == 0)
+        {
+            return null;
+        }
+        File dir = new File(inDirectory.trim());
+        if (!dir.isDirectory() && !dir.mkdirs())
+        {
+            log.warn("Image cache directory " + dir + " cannot be created; caching images in memory only.");
+            return null;
+        }
+        long total = 0;
+        for (File file : listCacheFiles(dir))
+        {
+            total += file.length();
+        }
+        diskBytes.set(total);
+        return dir;
+    }
+
+    /**
+     * Gets a cached image.
+     *
+     * @param inIdentifier
+     *            image identifier.
+     * @return the image, null if not cached (or expired).
+     */
+    public CachedImage get(final String inIdentifier)
+    {
+        long now = System.currentTimeMillis();
+        CachedImage image;
+        synchronized (memory)
+        {
+            image = memory.get(inIdentifier);
+            if (image != null && isExpired(image, now))
+            {
+                removeFromMemory(inIdentifier);
+                image = null;
+            }
+        }
+        if (image != null)
+        {
+            statistics.increment(MEMORY_HIT_STAT);
+            return image;
+        }
+
+        if (directory != null)
+        {
+            image = readFromDisk(inIdentifier, now);
+            if (image != null)
+            {
+                statistics.increment(DISK_HIT_STAT);
+                putInMemory(inIdentifier, image);
+                return image;
+            }
+        }
+
+        statistics.increment(MISS_STAT);
+        return null;
+    }
+
+    /**
+     * Gets the value to pass to {@link #put} for an image about to be loaded.
+     *
+     * @return Token.
+     */
+    public long getLoadToken()
+    {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches an image, unless an invalidation happened since it was loaded (in which case it may already be stale).
+     *
+     * @param inIdentifier
+     *            image identifier.
+     * @param inImage
+     *            the image.
+     * @param inLoadToken
+     *            value of {@link #getLoadToken()} from before the image was loaded.
+     */
+    public void put(final String inIdentifier, final CachedImage inImage, final long inLoadToken)
+    {
+        if (invalidations.get() != inLoadToken)
+        {
+            return;
+        }
+        putInMemory(inIdentifier, inImage);
+        if (directory != null)
+        {
+            writeToDisk(inIdentifier, inImage);
+        }
+    }
+
+    /**
+     * Removes an image from the cache (called when it is written, renamed, or deleted).
+     *
+     * @param inIdentifier
+     *            image identifier.
+     */
+    public void invalidate(final String inIdentifier)
+    {
+        invalidations.incrementAndGet();
+        synchronized (memory)
+        {
+            removeFromMemory(inIdentifier);
+        }
+        if (directory != null)
+        {
+            File file = getFile(inIdentifier);
+            long length = file.length();
+            if (file.delete())
+            {
+                diskBytes.addAndGet(-length);
+            }
+        }
+    }
+
+    /**
+     * @return Hit, miss, and eviction statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @return Total bytes of the images in memory.
+     */
+    public long getMemoryBytes()
+    {
+        synchronized (memory)
+        {
+            return memoryBytes;
+        }
+    }
+
+    /**
+     * Determines if an entry is too old to serve.
+     *
+     * @param inImage
+     *            entry.
+     * @param inNow
+     *            current time.
+     * @return If expired.
+     */
+    private boolean isExpired(final CachedImage inImage, final long inNow)
+    {
+        return inNow - inImage.getCachedTime() > timeToLiveMillis;
+    }
+
+    /**
+     * Adds an entry to memory, evicting the least recently used entries to stay under the limit.
+     *
+     * @param inIdentifier
+     *            image identifier.
+     * @param inImage
+     *            the image.
+     */
+    private void putInMemory(final String inIdentifier, final CachedImage inImage)
+    {
+        int size = inImage.getBytes().length;
+        if (size > maxEntryBytes)
+        {
+            return;
+        }
+        synchronized (memory)
+        {
+            removeFromMemory(inIdentifier);
+            memory.put(inIdentifier, inImage);
+            memoryBytes += size;
+
+            Iterator<CachedImage> iter = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && iter.hasNext())
+            {
+                int evicted = iter.next().getBytes().length;
+                iter.remove();
+                memoryBytes -= evicted;
+                statistics.record(MEMORY_EVICT_STAT, evicted);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from memory. Caller must hold the memory lock.
+     *
+     * @param inIdentifier
+     *            image identifier.
+     */
+    private void removeFromMemory(final String inIdentifier)
+    {
+        CachedImage old = memory.remove(inIdentifier);
+        if (old != null)
+        {
+            memoryBytes -= old.getBytes().length;
+        }
+    }
+
+    /**
+     * Reads an entry from disk.
+     *
+     * @param inIdentifier
+     *            image identifier.
+     * @param inNow
+     *            current time.
+     * @return the image, null if not on disk, expired, or unreadable.
+     */
+    private CachedImage readFromDisk(final String inIdentifier, final long inNow)
+    {
+        File file = getFile(inIdentifier);
+        if (!file.isFile())
+        {
+            return null;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (!inIdentifier.equals(in.readUTF()))
+            {
+                return null;
+            }
+            String contentType = in.readUTF();
+            String etag = in.readUTF();
+            long cachedTime = in.readLong();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+
+            CachedImage image = new CachedImage(bytes, contentType, etag, cachedTime);
+            return isExpired(image, inNow) ? null : image;
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to read cached image " + inIdentifier + " from " + file, ex);
+            return null;
+        }
+        finally
+        {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes an entry to disk (via a temporary file so readers never see a partial entry), then trims the directory
+     * if it is over its limit.
+     *
+     * @param inIdentifier
+     *            image identifier.
+     * @param inImage
+     *            the image.
+     */
+    private void writeToDisk(final String inIdentifier, final CachedImage inImage)
+    {
+        File file = getFile(inIdentifier);
+        File temp = new File(directory, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeUTF(inIdentifier);
+            out.writeUTF(inImage.getContentType());
+            out.writeUTF(inImage.getETag());
+            out.writeLong(inImage.getCachedTime());
+            out.writeInt(inImage.getBytes().length);
+            out.write(inImage.getBytes());
+            out.close();
+            out = null;
+
+            long oldLength = file.length();
+            if (file.exists() && !file.delete() || !temp.renameTo(file))
+            {
+                temp.delete();
+                return;
+            }
+            if (diskBytes.addAndGet(file.length() - oldLength) > maxDiskBytes)
+            {
+                trimDisk();
+            }
+        }
+        catch (IOException ex)
+        {
+            log.warn("Unable to write cached image " + inIdentifier + " to " + file, ex);
+            temp.delete();
+        }
+        finally
+        {
+            close(out);
+        }
+    }
+
+    /**
+     * Deletes the oldest disk copies until the directory is comfortably under its limit.
+     */
+    private synchronized void trimDisk()
+    {
+        File[] files = listCacheFiles(directory);
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(final File inA, final File inB)
+            {
+                long a = inA.lastModified();
+                long b = inB.lastModified();
+                return a < b ? -1 : (a == b ? 0 : 1);
+            }
+        });
+
+        long total = 0;
+        for (File file : files)
+        {
+            total += file.length();
+        }
+        long target = (long) (maxDiskBytes * DISK_TRIM_RATIO);
+        for (int i = 0; i < files.length && total > target; i++)
+        {
+            long length = files[i].length();
+            if (files[i].delete())
+            {
+                total -= length;
+                statistics.record(DISK_EVICT_STAT, length);
+            }
+        }
+        diskBytes.set(total);
+    }
+
+    /**
+     * Lists the cache files in a directory.
+     *
+     * @param inDirectory
+     *            directory.
+     * @return files.
+     */
+    private static File[] listCacheFiles(final File inDirectory)
+    {
+        File[] files = inDirectory.listFiles();
+        if (files == null)
+        {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files)
+        {
+            if (file.getName().endsWith(FILE_SUFFIX))
+            {
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files, count);
+    }
+
+    /**
+     * Gets the disk file for an identifier (identifiers are hashed since they may not be valid file names).
+     *
+     * @param inIdentifier
+     *            image identifier.
+     * @return file.
+     */
+    private File getFile(final String inIdentifier)
+    {
+        return new File(directory, toHex(digest(inIdentifier)) + FILE_SUFFIX);
+    }
+
+    /**
+     * Computes the MD5 digest of a string.
+     *
+     * @param inValue
+     *            string.
+     * @return digest.
+     */
+    private static byte[] digest(final String inValue)
+    {
+        try
+        {
+            return digest(inValue.getBytes("UTF-8"));
+        }
+        catch (UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Computes the MD5 digest of bytes.
+     *
+     * @param inBytes
+     *            bytes.
+     * @return digest.
+     */
+    private static byte[] digest(final byte[] inBytes)
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5").digest(inBytes);
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Formats bytes as hex.
+     *
+     * @param inBytes
+     *            bytes.
+     * @return hex string.
+     */
+    private static String toHex(final byte[] inBytes)
+    {
+        char[] chars = new char[inBytes.length * 2];
+        for (int i = 0; i < inBytes.length; i++)
+        {
+            chars[2 * i] = HEX[(inBytes[i] >> NIBBLE_BITS) & NIBBLE];
+            chars[2 * i + 1] = HEX[inBytes[i] & NIBBLE];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Closes a stream, ignoring errors.
+     *
+     * @param inStream
+     *            stream (may be null).
+     */
+    private static void close(final Closeable inStream)
+    {
+        if (inStream != null)
+        {
+            try
+            {
+                inStream.close();
+            }
+            catch (IOException ex)
+            {
+                // nothing more to do
+                return;
+            }
+        }
+    }
+
+    /**
+     * An image ready to be served: its stored bytes, content type, and HTTP validators.
+     */
+    public static class CachedImage
+    {
+        /** Bytes. */
+        private final byte[] bytes;
+
+        /** MIME type. */
+        private final String contentType;
+
+        /** Entity tag (quoted). */
+        private final String etag;
+
+        /** When the bytes were loaded. */
+        private final long cachedTime;
+
+        /**
+         * Constructor.
+         *
+         * @param inBytes
+         *            Bytes.
+         * @param inContentType
+         *            MIME type.
+         * @param inETag
+         *            Entity tag (quoted).
+         * @param inCachedTime
+         *            When the bytes were loaded.
+         */
+        CachedImage(final byte[] inBytes, final String inContentType, final String inETag, final long inCachedTime)
+        {
+            bytes = inBytes;
+            contentType = inContentType;
+            etag = inETag;
+            cachedTime = inCachedTime;
+        }
+
+        /**
+         * Creates an entry for freshly loaded bytes; the entity tag is derived from the content so it is the same on
+         * every server and across reloads. (There is no Last-Modified: stored images carry no modification time, and
+         * the load time differs between servers.)
+         *
+         * @param inBytes
+         *            Bytes.
+         * @param inContentType
+         *            MIME type.
+         * @return entry.
+         */
+        public static CachedImage create(final byte[] inBytes, final String inContentType)
+        {
+            return new CachedImage(inBytes, inContentType, "\"" + toHex(digest(inBytes)) + "\"",
+                    System.currentTimeMillis());
+        }
+
+        /**
+         * @return Bytes (not copied; do not modify).
+         */
+        public byte[] getBytes()
+        {
+            return bytes;
+        }
+
+        /**
+         * @return MIME type.
+         */
+        public String getContentType()
+        {
+            return contentType;
+        }
+
+        /**
+         * @return Entity tag (quoted).
+         */
+        public String getETag()
+        {
+            return etag;
+        }
+
+        /**
+         * @return When the bytes were loaded.
+         */
+        public long getCachedTime()
+        {
+            return cachedTime;
+        }
+    }
+}
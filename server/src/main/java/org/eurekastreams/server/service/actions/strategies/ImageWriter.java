@@ -32,6 +32,7 @@ import org.eurekastreams.server.persistence.mappers.UpdateMapper;
 import org.eurekastreams.server.persistence.mappers.db.DeleteImage;
 import org.eurekastreams.server.persistence.mappers.db.GetImageByIdentifier;
 import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
+import org.eurekastreams.server.service.actions.strategies.ImageBytesCache.CachedImage;
 
 /**
  * Writes and reads (misnomer?) to the disk for images. Could be interfaced and replaced with something that reads and
@@ -62,6 +63,11 @@ public class ImageWriter
      */
     private GetImageByIdentifier getMapper;
 
+    /**
+     * Cache of images ready to serve (optional).
+     */
+    private ImageBytesCache imageCache;
+
     /**
      * Constructor.
      * @param inInsertMapper insert mapper.
@@ -93,18 +99,18 @@ public class ImageWriter
         try
         {
             Image imageInDb = getMapper.execute(identifier);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos);
+            byte[] bytes = toPng(image);
 
             if (imageInDb == null)
             {
-                insertMapper.execute(new PersistenceRequest<Image>(new Image(identifier, baos.toByteArray())));
+                insertMapper.execute(new PersistenceRequest<Image>(new Image(identifier, bytes)));
             }
             else
             {
-                imageInDb.setImageBlob(baos.toByteArray());
+                imageInDb.setImageBlob(bytes);
                 updateMapper.execute(new PersistenceRequest<Image>(imageInDb));
             }
+            invalidate(identifier);
         }
         catch (Exception ex)
         {
@@ -113,29 +119,36 @@ public class ImageWriter
     }
 
     /**
-     * Writes an uploaded file to the disk.
+     * Writes an uploaded file to the disk. The file is decoded and stored re-encoded as PNG, so only image data that
+     * was actually read is ever stored (and later served).
      *
      * @param fileItem
      *            The file to write.
      * @param identifier
      *            The path to write it too.
      * @throws Exception
-     *             again, the evil.
+     *             again, the evil; also if the file is not a readable image.
      */
     public void write(final FileItem fileItem, final String identifier) throws Exception
     {
+        BufferedImage uploaded = getImageFromFile(fileItem);
+        if (uploaded == null)
+        {
+            throw new IOException("Uploaded file is not in a readable image format: " + identifier);
+        }
+        byte[] bytes = toPng(uploaded);
         Image imageInDb = getMapper.execute(identifier);
 
         if (imageInDb == null)
         {
-            insertMapper.execute(new PersistenceRequest<Image>(new Image(identifier, fileItem.get())));
+            insertMapper.execute(new PersistenceRequest<Image>(new Image(identifier, bytes)));
         }
         else
         {
-            imageInDb.setImageBlob(fileItem.get());
+            imageInDb.setImageBlob(bytes);
             updateMapper.execute(new PersistenceRequest<Image>(imageInDb));
         }
-
+        invalidate(identifier);
     }
 
     /**
@@ -147,6 +160,7 @@ public class ImageWriter
     public void delete(final String identifier)
     {
         deleteMapper.execute(identifier);
+        invalidate(identifier);
     }
 
     /**
@@ -162,6 +176,8 @@ public class ImageWriter
         Image image = getMapper.execute(orig);
         image.setImageIdentifier(newIdentifier);
         updateMapper.execute(new PersistenceRequest<Image>(image));
+        invalidate(orig);
+        invalidate(newIdentifier);
     }
 
     /**
@@ -188,6 +204,97 @@ public class ImageWriter
         }
     }
 
+    /**
+     * Reads an image ready to send to a browser. Stored blobs are decoded and re-encoded as PNG, as they always have
+     * been, so what is served is only ever image data written by ImageIO (never the bytes of an upload as is). The
+     * conversion is done once per load; results are cached if a cache is configured.
+     *
+     * @param identifier
+     *            the path to read from.
+     * @return the image, null if there is none or it can't be read.
+     */
+    public CachedImage readForServing(final String identifier)
+    {
+        if (imageCache != null)
+        {
+            CachedImage cached = imageCache.get(identifier);
+            if (cached != null)
+            {
+                return cached;
+            }
+        }
+
+        long loadToken = imageCache == null ? 0 : imageCache.getLoadToken();
+        Image image = getMapper.execute(identifier);
+        if (image == null || image.getImageBlob() == null)
+        {
+            return null;
+        }
+
+        byte[] bytes;
+        try
+        {
+            RenderedImage rendered = ImageIO.read(new ByteArrayInputStream(image.getImageBlob()));
+            if (rendered == null)
+            {
+                log.error("Stored image is not in a readable format: " + identifier);
+                return null;
+            }
+            bytes = toPng(rendered);
+        }
+        catch (IOException ex)
+        {
+            log.error("Error converting stored image: " + identifier, ex);
+            return null;
+        }
+
+        CachedImage result = CachedImage.create(bytes, "image/png");
+        if (imageCache != null)
+        {
+            imageCache.put(identifier, result, loadToken);
+        }
+        return result;
+    }
+
+    /**
+     * Encodes an image as PNG.
+     *
+     * @param image
+     *            the image.
+     * @return the PNG bytes.
+     * @throws IOException
+     *             if it cannot be encoded.
+     */
+    private static byte[] toPng(final RenderedImage image) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Removes an image from the cache after it changes.
+     *
+     * @param identifier
+     *            the image identifier.
+     */
+    private void invalidate(final String identifier)
+    {
+        if (imageCache != null)
+        {
+            imageCache.invalidate(identifier);
+        }
+    }
+
+    /**
+     * @param inImageCache
+     *            Cache of images ready to serve.
+     */
+    public void setImageCache(final ImageBytesCache inImageCache)
+    {
+        imageCache = inImageCache;
+    }
+
     /**
      * Get an Image from a File.
      * @param file the file.
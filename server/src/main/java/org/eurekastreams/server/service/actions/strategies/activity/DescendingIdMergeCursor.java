@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eurekastreams.server.persistence.mappers.cache.LongArrayList;
+
+/**
+ * Lazily merges (ORs) any number of lists that are each sorted by ID descending, returning the distinct IDs in
+ * descending order. The lists are merged with a binary heap of list positions keyed on each list's current head value,
+ * so producing n IDs from k lists costs O(n log k) with no intermediate lists; IDs are only pulled as the caller
+ * consumes them.
+ *
+ * Behavior is undefined if a list is not sorted descending. Not thread safe.
+ */
+public class DescendingIdMergeCursor
+{
+    /** The source lists (only non-empty ones). */
+    private final List<Long>[] sources;
+
+    /** Source lists which can be read without unboxing (null entries for other list types). */
+    private final LongArrayList[] primitiveSources;
+
+    /** Position of the current head of each source list. */
+    private final int[] positions;
+
+    /** Current head value of each source list. */
+    private final long[] heads;
+
+    /** Heap of source list indexes, largest head value first. */
+    private final int[] heap;
+
+    /** Number of source lists still in the heap. */
+    private int heapSize;
+
+    /** Number of IDs which may still be returned. */
+    private int remaining;
+
+    /** Total number of values in the source lists (an upper bound on the IDs that can be returned). */
+    private int available;
+
+    /** If any ID has been returned yet. */
+    private boolean started = false;
+
+    /** The last ID returned (for removing duplicates). */
+    private long last;
+
+    /**
+     * Constructor.
+     *
+     * @param inLists
+     *            Lists to merge, each sorted descending. Null and empty lists are ignored.
+     * @param inMaxResults
+     *            Maximum number of IDs to return.
+     */
+    @SuppressWarnings("unchecked")
+    public DescendingIdMergeCursor(final List<? extends List<Long>> inLists, final int inMaxResults)
+    {
+        int count = 0;
+        for (List<Long> list : inLists)
+        {
+            if (list != null && !list.isEmpty())
+            {
+                count++;
+            }
+        }
+
+        sources = new List[count];
+        primitiveSources = new LongArrayList[count];
+        positions = new int[count];
+        heads = new long[count];
+        heap = new int[count];
+        remaining = inMaxResults;
+
+        for (List<Long> list : inLists)
+        {
+            if (list != null && !list.isEmpty())
+            {
+                sources[heapSize] = list;
+                available += list.size();
+                if (list instanceof LongArrayList)
+                {
+                    primitiveSources[heapSize] = (LongArrayList) list;
+                }
+                heads[heapSize] = valueAt(heapSize, 0);
+                heap[heapSize] = heapSize;
+                heapSize++;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--)
+        {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * @return If there is another ID to return.
+     */
+    public boolean hasNext()
+    {
+        if (remaining <= 0)
+        {
+            return false;
+        }
+        // skip over values equal to the one last returned
+        while (started && heapSize > 0 && heads[heap[0]] == last)
+        {
+            advance();
+        }
+        return heapSize > 0;
+    }
+
+    /**
+     * Returns the next (largest remaining) ID.
+     *
+     * @return The ID.
+     */
+    public long nextLong()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        last = heads[heap[0]];
+        started = true;
+        remaining--;
+        advance();
+        return last;
+    }
+
+    /**
+     * Returns up to the given number of the next IDs.
+     *
+     * @param inCount
+     *            Maximum number of IDs to return.
+     * @return The IDs (empty when the cursor is exhausted).
+     */
+    public LongArrayList next(final int inCount)
+    {
+        LongArrayList page = new LongArrayList(Math.max(0, Math.min(inCount, Math.min(remaining, available))));
+        while (page.size() < inCount && hasNext())
+        {
+            page.addLong(nextLong());
+        }
+        return page;
+    }
+
+    /**
+     * Skips ahead past all IDs greater than or equal to the given bound, using a binary search in each list rather
+     * than reading through them. Used to resume reading after the last ID returned to a client.
+     *
+     * @param inBound
+     *            The exclusive upper bound for the IDs to return next.
+     */
+    public void skipToBelow(final long inBound)
+    {
+        heapSize = 0;
+        for (int source = 0; source < sources.length; source++)
+        {
+            int position = Math.max(positions[source], findFirstBelow(source, inBound));
+            positions[source] = position;
+            if (position < sources[source].size())
+            {
+                heads[source] = valueAt(source, position);
+                heap[heapSize++] = source;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--)
+        {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Finds the position of the first value less than the bound in a source list.
+     *
+     * @param inSource
+     *            Source list index.
+     * @param inBound
+     *            Exclusive upper bound.
+     * @return The position (the list size if there is none).
+     */
+    private int findFirstBelow(final int inSource, final long inBound)
+    {
+        int low = 0;
+        int high = sources[inSource].size();
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (valueAt(inSource, middle) >= inBound)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves the list at the top of the heap to its next value, dropping it from the heap if it is used up.
+     */
+    private void advance()
+    {
+        int source = heap[0];
+        int position = ++positions[source];
+        if (position < sources[source].size())
+        {
+            heads[source] = valueAt(source, position);
+        }
+        else
+        {
+            heap[0] = heap[--heapSize];
+        }
+        siftDown(0);
+    }
+
+    /**
+     * Reads a value from a source list.
+     *
+     * @param inSource
+     *            Source list index.
+     * @param inPosition
+     *            Position in the list.
+     * @return The value.
+     */
+    private long valueAt(final int inSource, final int inPosition)
+    {
+        LongArrayList primitive = primitiveSources[inSource];
+        return primitive != null ? primitive.getLong(inPosition) : sources[inSource].get(inPosition);
+    }
+
+    /**
+     * Restores the heap property below a heap slot.
+     *
+     * @param inSlot
+     *            Heap slot.
+     */
+    private void siftDown(final int inSlot)
+    {
+        int slot = inSlot;
+        int source = heap[slot];
+        long value = heads[source];
+        while (true)
+        {
+            int child = 2 * slot + 1;
+            if (child >= heapSize)
+            {
+                break;
+            }
+            if (child + 1 < heapSize && heads[heap[child + 1]] > heads[heap[child]])
+            {
+                child++;
+            }
+            if (heads[heap[child]] <= value)
+            {
+                break;
+            }
+            heap[slot] = heap[child];
+            slot = child;
+        }
+        heap[slot] = source;
+    }
+}
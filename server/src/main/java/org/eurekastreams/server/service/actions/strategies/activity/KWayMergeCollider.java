@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.cache.LongArrayList;
+
+/**
+ * Collides (OR) any number of lists that are all sorted descending in a single pass, dropping duplicates. Replaces
+ * repeatedly colliding pairs of lists with {@link OrSortedListCollider}, which costs a full copy of the accumulated
+ * results for every input list.
+ */
+public class KWayMergeCollider implements ListCollider
+{
+    /**
+     * Collides (OR) two lists that are both sorted descending.
+     *
+     * @param listA
+     *            sorted list.
+     * @param listB
+     *            sorted list.
+     * @param maxResults
+     *            the max results to find.
+     * @return OR of items.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> collide(final List<Long> listA, final List<Long> listB, final int maxResults)
+    {
+        return collide(Arrays.asList(listA, listB), maxResults);
+    }
+
+    /**
+     * Collides (OR) lists that are all sorted descending.
+     *
+     * @param inLists
+     *            sorted lists.
+     * @param inMaxResults
+     *            the max results to find.
+     * @return distinct items from all lists, sorted descending.
+     */
+    public LongArrayList collide(final List<? extends List<Long>> inLists, final int inMaxResults)
+    {
+        return cursor(inLists, inMaxResults).next(inMaxResults);
+    }
+
+    /**
+     * Creates a cursor to lazily collide (OR) lists that are all sorted descending.
+     *
+     * @param inLists
+     *            sorted lists.
+     * @param inMaxResults
+     *            the max results the cursor will return.
+     * @return cursor returning distinct items from all lists, sorted descending.
+     */
+    public DescendingIdMergeCursor cursor(final List<? extends List<Long>> inLists, final int inMaxResults)
+    {
+        return new DescendingIdMergeCursor(inLists, inMaxResults);
+    }
+}
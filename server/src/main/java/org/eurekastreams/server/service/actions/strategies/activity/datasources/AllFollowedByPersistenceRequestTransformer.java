@@ -24,6 +24,7 @@ import net.sf.json.JSONObject;
 import org.apache.commons.logging.Log;
 import org.eurekastreams.commons.logging.LogFactory;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.FollowingTimelinePolicy;
 import org.eurekastreams.server.persistence.mappers.requests.GetAllFollowedByActivityIdsRequest;
 import org.eurekastreams.server.search.modelview.DomainGroupModelView;
 
@@ -53,6 +54,11 @@ public class AllFollowedByPersistenceRequestTransformer implements PersistenceDa
      */
     private DomainMapper<List<Long>, List<DomainGroupModelView>> groupMapper;
 
+    /**
+     * Decides which followed groups are pushed into the user's following list rather than read (optional).
+     */
+    private FollowingTimelinePolicy timelinePolicy;
+
     /**
      * Constructor.
      * 
@@ -81,6 +87,7 @@ public class AllFollowedByPersistenceRequestTransformer implements PersistenceDa
         Long requestUserId = getPersonIdByAccountId.execute(accountId);
 
         ArrayList<Long> followedGroupStreamIds = new ArrayList<Long>();
+        Long timelineSignature = null;
 
         // If it doesn't require the current user, or the request is for the current user.
         if (inUserEntityId.equals(requestUserId))
@@ -91,13 +98,45 @@ public class AllFollowedByPersistenceRequestTransformer implements PersistenceDa
             // List of Group Model Views.
             List<DomainGroupModelView> groupList = groupMapper.execute(groupIds);
 
+            // groups pushed into the user's following list don't need their own lists read
+            boolean pushing = timelinePolicy != null && timelinePolicy.isEnabled();
+            List<Long> pushedGroupIds = new ArrayList<Long>();
             for (DomainGroupModelView group : groupList)
             {
-                followedGroupStreamIds.add(group.getStreamId());
+                if (pushing && timelinePolicy.isGroupPushed(group.getFollowersCount()))
+                {
+                    pushedGroupIds.add(group.getId());
+                }
+                else
+                {
+                    followedGroupStreamIds.add(group.getStreamId());
+                }
+            }
+
+            if (pushing)
+            {
+                timelineSignature = FollowingTimelinePolicy.getSignature(pushedGroupIds);
+                if (log.isDebugEnabled())
+                {
+                    log.debug("Following stream for " + accountId + ": " + pushedGroupIds.size()
+                            + " groups pushed, " + followedGroupStreamIds.size() + " pulled.");
+                }
             }
         }
 
-        return new GetAllFollowedByActivityIdsRequest(requestUserId, followedGroupStreamIds);
+        GetAllFollowedByActivityIdsRequest request = new GetAllFollowedByActivityIdsRequest(requestUserId,
+                followedGroupStreamIds);
+        request.setTimelineSignature(timelineSignature);
+        return request;
+    }
+
+    /**
+     * @param inTimelinePolicy
+     *            Decides which followed groups are pushed into the user's following list rather than read.
+     */
+    public void setTimelinePolicy(final FollowingTimelinePolicy inTimelinePolicy)
+    {
+        timelinePolicy = inTimelinePolicy;
     }
 
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity.datasources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.DaemonThreadFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
+
+/**
+ * Runs independent data source fetches for a stream query (cache lists, the search index) concurrently on a bounded
+ * pool of threads, waiting for them only until a deadline. A fetch which misses the deadline is abandoned and its
+ * fallback value used instead, so a slow source yields partial results rather than a slow page. When the pool is
+ * saturated, fetches run on the calling thread. With no threads configured, everything runs on the calling thread.
+ */
+public class ParallelDataSourceFetcher
+{
+    /** Statistic counting fetches abandoned at the deadline (prefixed by the fetch name). */
+    public static final String TIMEOUT_STAT = ".timeout";
+
+    /** Statistic holding the milliseconds spent waiting for fetches (prefixed by the fetch name). */
+    public static final String WAIT_STAT = ".waitMillis";
+
+    /** Seconds an idle thread is kept. */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /** Queued fetches allowed per thread before fetches run on the caller. */
+    private static final int QUEUE_PER_THREAD = 4;
+
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Pool running the fetches (null to run them on the calling thread). */
+    private final ExecutorService executor;
+
+    /** Milliseconds to wait for fetches. */
+    private final long timeoutMillis;
+
+    /** Statistics by fetch name. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inThreads
+     *            Maximum number of fetch threads (0 to run fetches on the calling thread).
+     * @param inTimeoutMillis
+     *            Milliseconds to wait for a set of fetches before using partial results.
+     */
+    public ParallelDataSourceFetcher(final int inThreads, final long inTimeoutMillis)
+    {
+        this(inThreads, inTimeoutMillis, "stream-query-fetch");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param inThreads
+     *            Maximum number of fetch threads (0 to run fetches on the calling thread).
+     * @param inTimeoutMillis
+     *            Milliseconds to wait for a set of fetches before using partial results.
+     * @param inThreadName
+     *            Name for the fetch threads (numbered).
+     */
+    public ParallelDataSourceFetcher(final int inThreads, final long inTimeoutMillis, final String inThreadName)
+    {
+        timeoutMillis = inTimeoutMillis;
+        if (inThreads > 0)
+        {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(inThreads, inThreads, KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(inThreads * QUEUE_PER_THREAD),
+                    new DaemonThreadFactory(inThreadName), new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        else
+        {
+            executor = null;
+        }
+    }
+
+    /**
+     * @return The deadline (in system milliseconds) for fetches starting now.
+     */
+    public long getDeadline()
+    {
+        return System.currentTimeMillis() + timeoutMillis;
+    }
+
+    /**
+     * Starts a fetch.
+     *
+     * @param <T>
+     *            Type of the fetched data.
+     * @param inFetch
+     *            The fetch.
+     * @return Future for the fetch's result.
+     */
+    public <T> Future<T> submit(final Callable<T> inFetch)
+    {
+        if (executor != null)
+        {
+            return executor.submit(inFetch);
+        }
+        return submitLocally(inFetch);
+    }
+
+    /**
+     * Runs fetches concurrently and waits for them until the deadline.
+     *
+     * @param <T>
+     *            Type of the fetched data.
+     * @param inFetches
+     *            The fetches.
+     * @param inName
+     *            Name of the fetches (for logging and statistics).
+     * @param inFallback
+     *            Result to use for fetches which miss the deadline.
+     * @return Results of the fetches, in the same order.
+     */
+    public <T> List<T> fetchAll(final List<? extends Callable<T>> inFetches, final String inName, final T inFallback)
+    {
+        long deadline = getDeadline();
+        List<T> results = new ArrayList<T>(inFetches.size());
+        if (inFetches.size() == 1)
+        {
+            // nothing to overlap with
+            results.add(await(submitLocally(inFetches.get(0)), deadline, inName, inFallback));
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<Future<T>>(inFetches.size());
+        for (Callable<T> fetch : inFetches)
+        {
+            futures.add(submit(fetch));
+        }
+        for (Future<T> future : futures)
+        {
+            results.add(await(future, deadline, inName, inFallback));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for a fetch until the deadline. Failures of the fetch itself are rethrown.
+     *
+     * @param <T>
+     *            Type of the fetched data.
+     * @param inFuture
+     *            Future for the fetch.
+     * @param inDeadline
+     *            Deadline (in system milliseconds).
+     * @param inName
+     *            Name of the fetch (for logging and statistics).
+     * @param inFallback
+     *            Result to use if the fetch misses the deadline.
+     * @return The fetch's result, or the fallback.
+     */
+    public <T> T await(final Future<T> inFuture, final long inDeadline, final String inName, final T inFallback)
+    {
+        long start = System.currentTimeMillis();
+        try
+        {
+            return inFuture.get(Math.max(0, inDeadline - start), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException ex)
+        {
+            inFuture.cancel(true);
+            statistics.increment(inName + TIMEOUT_STAT);
+            log.warn("Fetch of " + inName + " did not complete within " + timeoutMillis
+                    + "ms; continuing with partial results.");
+            return inFallback;
+        }
+        catch (InterruptedException ex)
+        {
+            inFuture.cancel(true);
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted waiting for fetch of " + inName + "; continuing with partial results.");
+            return inFallback;
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        finally
+        {
+            statistics.record(inName + WAIT_STAT, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * @return Statistics (timeouts and waiting time) by fetch name.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Stops the fetch threads.
+     */
+    public void shutdown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a fetch on the calling thread.
+     *
+     * @param <T>
+     *            Type of the fetched data.
+     * @param inFetch
+     *            The fetch.
+     * @return Completed future for the fetch's result.
+     */
+    private <T> Future<T> submitLocally(final Callable<T> inFetch)
+    {
+        FutureTask<T> task = new FutureTask<T>(inFetch);
+        task.run();
+        return task;
+    }
+}
@@ -18,17 +18,20 @@ package org.eurekastreams.server.service.actions.strategies.activity.datasources
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import net.sf.json.JSONObject;
 
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.service.actions.strategies.activity.DescendingIdMergeCursor;
+import org.eurekastreams.server.service.actions.strategies.activity.KWayMergeCollider;
 import org.eurekastreams.server.service.actions.strategies.activity.ListCollider;
 
 /**
  * Gets activity IDs from memcache based on the query.
  * 
  */
-public class PersistenceDataSource implements DescendingOrderDataSource
+public class PersistenceDataSource implements StreamingDescendingOrderDataSource
 {
     /**
      * A map of search params and key generators.
@@ -49,6 +52,16 @@ public class PersistenceDataSource implements DescendingOrderDataSource
      */
     private ListCollider orCollider;
 
+    /**
+     * Collider to merge all data sets at once (optional).
+     */
+    private KWayMergeCollider mergeCollider;
+
+    /**
+     * Fetcher to read the lists for a query concurrently (optional).
+     */
+    private ParallelDataSourceFetcher fetcher;
+
     /**
      * The max we want this data source to return.
      */
@@ -77,6 +90,31 @@ public class PersistenceDataSource implements DescendingOrderDataSource
         orCollider = inOrCollider;
     }
 
+    /**
+     * Sets the fetcher used to read the lists for the parts of a query concurrently. When not set, they are read one
+     * after the other. With a fetcher the mappers run outside the caller's session and transaction, so any which may
+     * fall back to the database must start their own (e.g. wrapped in a MapperTransactionDecorator).
+     *
+     * @param inFetcher
+     *            the fetcher.
+     */
+    public void setFetcher(final ParallelDataSourceFetcher inFetcher)
+    {
+        fetcher = inFetcher;
+    }
+
+    /**
+     * Sets the collider used to merge all the data sets in one pass. When not set, the data sets are collided pairwise
+     * with the OR collider and the data source does not stream.
+     *
+     * @param inMergeCollider
+     *            the merge collider.
+     */
+    public void setMergeCollider(final KWayMergeCollider inMergeCollider)
+    {
+        mergeCollider = inMergeCollider;
+    }
+
     /**
      * Given the request, give me back all the results relevant from memcache.
      * 
@@ -87,11 +125,84 @@ public class PersistenceDataSource implements DescendingOrderDataSource
      * @return the list of activity longs.
      */
     public List<Long> fetch(final JSONObject request, final Long userEntityId)
+    {
+        DataSets dataSets = getDataSets(request, userEntityId);
+        if (dataSets == null)
+        {
+            return null;
+        }
+
+        if (mergeCollider != null)
+        {
+            return mergeCollider.collide(dataSets.getLists(), getMaxCount(request, dataSets));
+        }
+
+        List<Long> returned = new ArrayList<Long>();
+
+        for (List<Long> dataSet : dataSets.getLists())
+        {
+            returned = orCollider.collide(dataSet, returned, getMaxCount(request, dataSets));
+        }
+
+        return returned;
+    }
+
+    /**
+     * Given the request, give me back a cursor over all the results relevant from memcache. The cursor is not limited
+     * by the request's count, so the caller can read as far as it needs.
+     * 
+     * @param request
+     *            the JSON request from the user.
+     * @param userEntityId
+     *            the user entity ID.
+     * @return the cursor, or null if the request isn't handled or no merge collider is configured.
+     */
+    public DescendingIdMergeCursor fetchCursor(final JSONObject request, final Long userEntityId)
+    {
+        if (mergeCollider == null)
+        {
+            return null;
+        }
+
+        DataSets dataSets = getDataSets(request, userEntityId);
+        if (dataSets == null)
+        {
+            return null;
+        }
+
+        return mergeCollider.cursor(dataSets.getLists(), dataSets.isUnHandled() ? MAXITEMS : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determines the maximum number of results to collide.
+     *
+     * @param request
+     *            the JSON request from the user.
+     * @param dataSets
+     *            the data sets for the request.
+     * @return the maximum.
+     */
+    private int getMaxCount(final JSONObject request, final DataSets dataSets)
+    {
+        return dataSets.isUnHandled() ? MAXITEMS : request.getInt("count");
+    }
+
+    /**
+     * Fetches the lists of activity IDs relevant to the request.
+     * 
+     * @param request
+     *            the JSON request from the user.
+     * @param userEntityId
+     *            the user entity ID.
+     * @return the data sets, or null if the query isn't empty but none of it is handled.
+     */
+    @SuppressWarnings("unchecked")
+    private DataSets getDataSets(final JSONObject request, final Long userEntityId)
     {
         boolean unHandled = false;
         List<List<Long>> returnedDataSets = new ArrayList<List<Long>>();
 
-        JSONObject jsonQuery = request.getJSONObject("query");
+        final JSONObject jsonQuery = request.getJSONObject("query");
 
         if (jsonQuery.size() == 0
                 || (jsonQuery.size() == 1 && jsonQuery.containsKey("sortBy") && jsonQuery.getString("sortBy").equals(
@@ -102,68 +213,141 @@ public class PersistenceDataSource implements DescendingOrderDataSource
         }
         else
         {
+            List<Callable<List<?>>> fetches = new ArrayList<Callable<List<?>>>();
             for (Object objParam : jsonQuery.keySet())
             {
-
-                DomainMapper<Object, List<?>> mapper = mappers.get(objParam);
+                final DomainMapper<Object, List<?>> mapper = mappers.get(objParam);
 
                 if (mapper != null)
                 {
-                    List<?> data = null;
-                    if (transformers.containsKey(objParam) && transformers.get(objParam) != null)
-                    {
-                        data = mapper.execute(transformers.get(objParam).transform(jsonQuery, userEntityId));
-                    }
-                    else
-                    {
-                        data = mapper.execute(jsonQuery);
-                    }
-
-                    if (data.size() > 0)
+                    // transform here rather than on a fetch thread: the transformers' lookups may use the caller's
+                    // session and per-action state (the mappers themselves must be safe to run on a fetch thread)
+                    final PersistenceDataSourceRequestTransformer transformer = transformers.get(objParam);
+                    final Object mapperRequest = transformer != null ? transformer.transform(jsonQuery, userEntityId)
+                            : jsonQuery;
+                    fetches.add(new Callable<List<?>>()
                     {
-                        // List of lists
-                        if (data.get(0) instanceof List)
-                        {
-                            List<List<Long>> dataList = (List<List<Long>>) data;
-
-                            for (List<Long> subList : dataList)
-                            {
-                                returnedDataSets.add(subList);
-                            }
-                        }
-                        else
+                        public List<?> call()
                         {
-                            returnedDataSets.add((List<Long>) data);
+                            return mapper.execute(mapperRequest);
                         }
-                    }
+                    });
                 }
                 else
                 {
                     unHandled = true;
                 }
             }
-            if (returnedDataSets.size() == 0)
+
+            boolean partial = false;
+            for (List<?> data : fetch(fetches))
+            {
+                if (data == null)
+                {
+                    // the fetch missed the deadline
+                    partial = true;
+                }
+                else if (data.size() > 0)
+                {
+                    // List of lists
+                    if (data.get(0) instanceof List)
+                    {
+                        List<List<Long>> dataList = (List<List<Long>>) data;
+
+                        for (List<Long> subList : dataList)
+                        {
+                            returnedDataSets.add(subList);
+                        }
+                    }
+                    else
+                    {
+                        returnedDataSets.add((List<Long>) data);
+                    }
+                }
+            }
+            if (returnedDataSets.size() == 0 && !partial)
             {
                 // if the query isn't empty, but we don't handle any of it, return null, stating such
                 return null;
             }
         }
 
-        List<Long> returned = new ArrayList<Long>();
+        return new DataSets(returnedDataSets, unHandled);
+    }
 
-        for (List<Long> dataSet : returnedDataSets)
+    /**
+     * Runs the fetches for the parts of a query, concurrently if a fetcher is configured.
+     *
+     * @param fetches
+     *            the fetches.
+     * @return the results of the fetches, in order; null for any which missed the deadline.
+     */
+    private List<List<?>> fetch(final List<Callable<List<?>>> fetches)
+    {
+        if (fetcher != null)
         {
+            return fetcher.fetchAll(fetches, "persistence", null);
+        }
 
-            Integer maxCount = request.getInt("count");
-
-            if (unHandled)
+        List<List<?>> results = new ArrayList<List<?>>(fetches.size());
+        for (Callable<List<?>> fetch : fetches)
+        {
+            try
+            {
+                results.add(fetch.call());
+            }
+            catch (RuntimeException ex)
+            {
+                throw ex;
+            }
+            catch (Exception ex)
             {
-                maxCount = MAXITEMS;
+                // the fetches don't throw checked exceptions
+                throw new RuntimeException(ex);
             }
+        }
+        return results;
+    }
+
+    /**
+     * The lists of activity IDs found for a request.
+     */
+    private static class DataSets
+    {
+        /** The lists. */
+        private final List<List<Long>> lists;
+
+        /** If part of the query was not handled by this data source. */
+        private final boolean unHandled;
 
-            returned = orCollider.collide(dataSet, returned, maxCount);
+        /**
+         * Constructor.
+         *
+         * @param inLists
+         *            the lists.
+         * @param inUnHandled
+         *            if part of the query was not handled by this data source.
+         */
+        public DataSets(final List<List<Long>> inLists, final boolean inUnHandled)
+        {
+            lists = inLists;
+            unHandled = inUnHandled;
         }
 
-        return returned;
+        /**
+         * @return the lists.
+         */
+        public List<List<Long>> getLists()
+        {
+            return lists;
+        }
+
+        /**
+         * @return if part of the query was not handled by this data source.
+         */
+        public boolean isUnHandled()
+        {
+            return unHandled;
+        }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity.datasources;
+
+import net.sf.json.JSONObject;
+
+import org.eurekastreams.server.service.actions.strategies.activity.DescendingIdMergeCursor;
+
+/**
+ * A data source to find activity which can also return its results lazily, so a caller can consume as many as it
+ * needs without asking for increasingly larger batches.
+ */
+public interface StreamingDescendingOrderDataSource extends DescendingOrderDataSource
+{
+    /**
+     * Fetch activities lazily.
+     *
+     * @param request
+     *            the JSON request.
+     * @param userEntityId
+     *            the user entity ID.
+     * @return a cursor over the activity IDs in descending order, or null if the data source cannot stream this
+     *         request (callers should use fetch instead).
+     */
+    DescendingIdMergeCursor fetchCursor(final JSONObject request, final Long userEntityId);
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity.plugins;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.eurekastreams.commons.logging.LogFactory;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.TaskHandler;
+import org.eurekastreams.commons.util.DaemonThreadFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
+import org.eurekastreams.server.action.request.feed.RefreshFeedRequest;
+
+/**
+ * Task handler which refreshes feeds in-process on a fixed number of threads, with at most a few feeds from any one
+ * host being refreshed at a time. Feed refresh requests for a host already at its limit wait (without holding a
+ * thread) until one of that host's refreshes finishes.
+ *
+ * A refresh of a feed which is already waiting or running is skipped, and once the limit of waiting refreshes is
+ * reached further ones are dropped. Either way the feed is still marked pending, so the next scheduled refresh of
+ * refreshable feeds asks for it again.
+ *
+ * Refreshes are executed by the given task handler (normally the in-line executing one, which runs each in its own
+ * transaction). With no threads configured, requests are passed to the fallback task handler (the queue) instead.
+ */
+public class FeedRefreshEngine implements TaskHandler
+{
+    /** Statistic (per host): milliseconds a refresh waited for a thread and for its host. */
+    public static final String WAIT_MILLIS_STAT = "wait.millis";
+
+    /** Statistic (per host): milliseconds a refresh took. */
+    public static final String RUN_MILLIS_STAT = "run.millis";
+
+    /** Statistic (per host): refreshes skipped because the feed was already waiting or running. */
+    public static final String DUPLICATE_STAT = "duplicate";
+
+    /** Statistic (per host): refreshes dropped because too many were waiting. */
+    public static final String DROPPED_STAT = "dropped";
+
+    /** Separates the host and statistic name. */
+    public static final String STAT_SEPARATOR = "/";
+
+    /** Logger. */
+    private final Log log = LogFactory.make();
+
+    /** Executes the refreshes. */
+    private final TaskHandler executor;
+
+    /** Handles requests when the engine has no threads. */
+    private final TaskHandler fallback;
+
+    /** Refresh threads (null if none). */
+    private final ExecutorService pool;
+
+    /** Maximum refreshes from one host at a time. */
+    private final int maxPerHost;
+
+    /** Statistics by host. */
+    private final KeyedStatistics statistics;
+
+    /** Maximum refreshes waiting (for their host or for a thread) at once. */
+    private final int maxWaiting;
+
+    /** Running and waiting refreshes by host. Guarded by itself. */
+    private final Map<String, HostQueue> hosts = new HashMap<String, HostQueue>();
+
+    /** Ids of the feeds with a refresh waiting or running. Guarded by hosts. */
+    private final Set<Long> activeFeedIds = new HashSet<Long>();
+
+    /** Number of refreshes waiting (for their host or for a thread). Guarded by hosts. */
+    private int waiting;
+
+    /**
+     * Constructor.
+     *
+     * @param inExecutor
+     *            Executes the refreshes.
+     * @param inFallback
+     *            Handles requests when the engine has no threads.
+     * @param inThreads
+     *            Number of refresh threads (0 to pass all requests to the fallback).
+     * @param inMaxPerHost
+     *            Maximum refreshes from one host at a time.
+     * @param inMaxWaiting
+     *            Maximum refreshes waiting (for their host or for a thread) at once; more are dropped.
+     * @param inStatistics
+     *            Statistics by host (shared with the refresh action).
+     */
+    public FeedRefreshEngine(final TaskHandler inExecutor, final TaskHandler inFallback, final int inThreads,
+            final int inMaxPerHost, final int inMaxWaiting, final KeyedStatistics inStatistics)
+    {
+        executor = inExecutor;
+        fallback = inFallback;
+        maxPerHost = Math.max(1, inMaxPerHost);
+        maxWaiting = inMaxWaiting;
+        statistics = inStatistics;
+        // the pool's own queue needs no limit: everything in it is counted against maxWaiting
+        pool = inThreads <= 0 ? null : Executors.newFixedThreadPool(inThreads, new DaemonThreadFactory(
+                "feed-refresh"));
+    }
+
+    /**
+     * Gets the host of a URL, used to group feeds.
+     *
+     * @param inUrl
+     *            URL.
+     * @return Host (lower case), empty if the URL can't be parsed.
+     */
+    public static String getHost(final String inUrl)
+    {
+        if (inUrl == null)
+        {
+            return "";
+        }
+        try
+        {
+            return new URL(inUrl).getHost().toLowerCase();
+        }
+        catch (MalformedURLException ex)
+        {
+            return "";
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handleTask(final UserActionRequest inUserActionRequest) throws Exception
+    {
+        if (pool == null)
+        {
+            fallback.handleTask(inUserActionRequest);
+            return;
+        }
+
+        String host = "";
+        Long feedId = null;
+        if (inUserActionRequest.getParams() instanceof RefreshFeedRequest)
+        {
+            RefreshFeedRequest request = (RefreshFeedRequest) inUserActionRequest.getParams();
+            host = request.getHost() == null ? "" : request.getHost();
+            feedId = request.getFeedId();
+        }
+
+        Pending pending = new Pending(host, feedId, inUserActionRequest);
+        synchronized (hosts)
+        {
+            if (feedId != null && activeFeedIds.contains(feedId))
+            {
+                statistics.increment(host + STAT_SEPARATOR + DUPLICATE_STAT);
+                return;
+            }
+            if (waiting >= maxWaiting)
+            {
+                statistics.increment(host + STAT_SEPARATOR + DROPPED_STAT);
+                log.warn("Too many feed refreshes waiting; dropping refresh of feed " + feedId + " from " + host);
+                return;
+            }
+            if (feedId != null)
+            {
+                activeFeedIds.add(feedId);
+            }
+            waiting++;
+
+            HostQueue queue = hosts.get(host);
+            if (queue == null)
+            {
+                queue = new HostQueue();
+                hosts.put(host, queue);
+            }
+            if (queue.running < maxPerHost)
+            {
+                queue.running++;
+                pool.execute(pending);
+            }
+            else
+            {
+                queue.waiting.add(pending);
+            }
+        }
+    }
+
+    /**
+     * @return Number of refreshes waiting for their host or for a thread.
+     */
+    public int getWaitingCount()
+    {
+        synchronized (hosts)
+        {
+            return waiting;
+        }
+    }
+
+    /**
+     * @return Statistics by host.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Stops the refresh threads.
+     */
+    public void shutdown()
+    {
+        if (pool != null)
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Notes a refresh has left the queue and is running.
+     */
+    private void started()
+    {
+        synchronized (hosts)
+        {
+            waiting--;
+        }
+    }
+
+    /**
+     * Starts the host's next waiting refresh, if any, after one finishes.
+     *
+     * @param inHost
+     *            Host.
+     * @param inFeedId
+     *            Id of the feed refreshed (null if not a feed refresh).
+     */
+    private void finished(final String inHost, final Long inFeedId)
+    {
+        synchronized (hosts)
+        {
+            if (inFeedId != null)
+            {
+                activeFeedIds.remove(inFeedId);
+            }
+            HostQueue queue = hosts.get(inHost);
+            Pending next = queue.waiting.poll();
+            if (next != null)
+            {
+                pool.execute(next);
+            }
+            else
+            {
+                queue.running--;
+                if (queue.running == 0)
+                {
+                    hosts.remove(inHost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Refreshes running and waiting for one host.
+     */
+    private static class HostQueue
+    {
+        /** Number running. */
+        private int running;
+
+        /** Waiting, in arrival order. */
+        private final LinkedList<Pending> waiting = new LinkedList<Pending>();
+    }
+
+    /**
+     * A refresh request.
+     */
+    private class Pending implements Runnable
+    {
+        /** Host. */
+        private final String host;
+
+        /** Feed id (null if not a feed refresh). */
+        private final Long feedId;
+
+        /** Request. */
+        private final UserActionRequest request;
+
+        /** When the request arrived. */
+        private final long arrived = System.currentTimeMillis();
+
+        /**
+         * Constructor.
+         *
+         * @param inHost
+         *            Host.
+         * @param inFeedId
+         *            Feed id (null if not a feed refresh).
+         * @param inRequest
+         *            Request.
+         */
+        Pending(final String inHost, final Long inFeedId, final UserActionRequest inRequest)
+        {
+            host = inHost;
+            feedId = inFeedId;
+            request = inRequest;
+        }
+
+        /**
+         * Executes the request.
+         */
+        public void run()
+        {
+            started();
+            long start = System.currentTimeMillis();
+            statistics.record(host + STAT_SEPARATOR + WAIT_MILLIS_STAT, start - arrived);
+            try
+            {
+                executor.handleTask(request);
+            }
+            catch (Exception ex)
+            {
+                log.error("Error refreshing feed from " + host, ex);
+            }
+            finally
+            {
+                statistics.record(host + STAT_SEPARATOR + RUN_MILLIS_STAT, System.currentTimeMillis() - start);
+                finished(host, feedId);
+            }
+        }
+    }
+}
@@ -18,6 +18,9 @@ package org.eurekastreams.server.service.actions.strategies.links;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -51,6 +54,11 @@ public class BasicLinkImageParser implements HtmlLinkInformationParserStrategy
      */
     private long timeOut;
 
+    /**
+     * Reads image dimensions concurrently; null to read them one at a time.
+     */
+    private ImageDimensionProber dimensionProber;
+
     /**
      * Constructor.
      * 
@@ -73,6 +81,15 @@ public class BasicLinkImageParser implements HtmlLinkInformationParserStrategy
      */
     private Log log = LogFactory.getLog(BasicLinkImageParser.class);
 
+    /**
+     * @param inDimensionProber
+     *            Reads image dimensions concurrently; null to read them one at a time.
+     */
+    public void setDimensionProber(final ImageDimensionProber inDimensionProber)
+    {
+        dimensionProber = inDimensionProber;
+    }
+
     /**
      * Parse the HTML.
      * 
@@ -106,6 +123,12 @@ public class BasicLinkImageParser implements HtmlLinkInformationParserStrategy
         Pattern imagePattern = Pattern.compile("<img[^>]*>", Pattern.CASE_INSENSITIVE);
         Matcher imgMatcher = imagePattern.matcher(htmlString);
 
+        if (dimensionProber != null)
+        {
+            parseImagesConcurrently(imgMatcher, link, imageUrls, inAccountId);
+            return;
+        }
+
         long start = System.currentTimeMillis();
 
         int largestImgScore = 0;
@@ -115,10 +138,7 @@ public class BasicLinkImageParser implements HtmlLinkInformationParserStrategy
             String img = imgMatcher.group();
 
             // Look for size tags to not download images that are clearly too small.
-            Matcher widthHeightMatch = Pattern.compile("(width|height)\\s?=\\s?[\"\']?([0-5]?[0-9])[\"\'\\s]").matcher(
-                    img);
-
-            if (!widthHeightMatch.find())
+            if (!isMarkedSmall(img))
             {
 
                 Pattern imgSrcPattern = Pattern.compile("src\\s?=\\s?[\"\']?([^\"\'\\s]*)", Pattern.CASE_INSENSITIVE);
@@ -130,29 +150,7 @@ public class BasicLinkImageParser implements HtmlLinkInformationParserStrategy
 
                     try
                     {
-                        String linkUrl = link.getUrl();
-
-                        if (imgUrl.startsWith("/"))
-                        {
-                            log.trace("Image URL started with '/'");
-                            imgUrl = urlUtilities.getProtocol(linkUrl) + "://" + urlUtilities.getHost(linkUrl) + imgUrl;
-                        }
-                        else if (!(imgUrl.startsWith("http://") || imgUrl.startsWith("https://")))
-                        {
-                            log.trace("No protocol found");
-                            log.trace("Link URL: " + linkUrl);
-
-                            if (linkUrl.indexOf("/", "https://".length() + 1) != -1)
-                            {
-                                imgUrl = linkUrl.substring(0, linkUrl.lastIndexOf("/") + 1) + imgUrl;
-                            }
-                            else
-                            {
-                                imgUrl = linkUrl + "/" + imgUrl;                                
-                            }
-                            
-                            log.trace("New Image Url: " + imgUrl);
-                        }
+                        imgUrl = resolveImageUrl(imgUrl, link.getUrl());
 
                         int height = urlUtilities.getImgHeight(imgUrl, inAccountId);
                         int width = urlUtilities.getImgWidth(imgUrl, inAccountId);
@@ -195,4 +193,124 @@ public class BasicLinkImageParser implements HtmlLinkInformationParserStrategy
         link.setImageUrls(imageUrls);
 
     }
+
+    /**
+     * Finds the images by reading all of their dimensions at once, in parallel, up to the time out. Picks the same
+     * images the sequential search would have had it been able to read them all in time.
+     *
+     * @param imgMatcher
+     *            matcher over the img tags of the page.
+     * @param link
+     *            the link.
+     * @param imageUrls
+     *            set to receive the image urls.
+     * @param inAccountId
+     *            account id of the user making the request for the link image.
+     */
+    private void parseImagesConcurrently(final Matcher imgMatcher, final LinkInformation link,
+            final Set<String> imageUrls, final String inAccountId)
+    {
+        Set<String> candidates = new LinkedHashSet<String>();
+        while (imgMatcher.find())
+        {
+            String img = imgMatcher.group();
+            if (!isMarkedSmall(img))
+            {
+                Pattern imgSrcPattern = Pattern.compile("src\\s?=\\s?[\"\']?([^\"\'\\s]*)", Pattern.CASE_INSENSITIVE);
+                Matcher srcMatcher = imgSrcPattern.matcher(img);
+                if (srcMatcher.find())
+                {
+                    try
+                    {
+                        candidates.add(resolveImageUrl(srcMatcher.group(1), link.getUrl()));
+                    }
+                    catch (MalformedURLException e)
+                    {
+                        log.error("Error parsing URL: " + e);
+                    }
+                }
+            }
+        }
+
+        int largestImgScore = 0;
+        Map<String, ConnectionFacade.ImageDimensions> dimensions = dimensionProber.probe(candidates, inAccountId,
+                timeOut);
+        for (Entry<String, ConnectionFacade.ImageDimensions> entry : dimensions.entrySet())
+        {
+            int height = entry.getValue().getHeight();
+            int width = entry.getValue().getWidth();
+
+            if (height > MIN_IMG_SIZE && width > MIN_IMG_SIZE)
+            {
+                if ((height * width) > largestImgScore)
+                {
+                    largestImgScore = height * width;
+                    link.setLargestImageUrl(entry.getKey());
+                }
+
+                imageUrls.add(entry.getKey());
+
+                if (imageUrls.size() == maxResults)
+                {
+                    break;
+                }
+            }
+        }
+
+        link.setImageUrls(imageUrls);
+    }
+
+    /**
+     * Determines if an img tag declares a width or height too small to be worth downloading.
+     *
+     * @param img
+     *            the img tag.
+     * @return true if the image is marked as small.
+     */
+    private boolean isMarkedSmall(final String img)
+    {
+        Matcher widthHeightMatch = Pattern.compile("(width|height)\\s?=\\s?[\"\']?([0-5]?[0-9])[\"\'\\s]").matcher(
+                img);
+        return widthHeightMatch.find();
+    }
+
+    /**
+     * Makes an image URL absolute relative to the page it was found on.
+     *
+     * @param inImgUrl
+     *            the image url as found in the page.
+     * @param linkUrl
+     *            the url of the page.
+     * @return the absolute image url.
+     * @throws MalformedURLException
+     *             on bad url.
+     */
+    private String resolveImageUrl(final String inImgUrl, final String linkUrl) throws MalformedURLException
+    {
+        String imgUrl = inImgUrl;
+
+        if (imgUrl.startsWith("/"))
+        {
+            log.trace("Image URL started with '/'");
+            imgUrl = urlUtilities.getProtocol(linkUrl) + "://" + urlUtilities.getHost(linkUrl) + imgUrl;
+        }
+        else if (!(imgUrl.startsWith("http://") || imgUrl.startsWith("https://")))
+        {
+            log.trace("No protocol found");
+            log.trace("Link URL: " + linkUrl);
+
+            if (linkUrl.indexOf("/", "https://".length() + 1) != -1)
+            {
+                imgUrl = linkUrl.substring(0, linkUrl.lastIndexOf("/") + 1) + imgUrl;
+            }
+            else
+            {
+                imgUrl = linkUrl + "/" + imgUrl;
+            }
+
+            log.trace("New Image Url: " + imgUrl);
+        }
+
+        return imgUrl;
+    }
 }
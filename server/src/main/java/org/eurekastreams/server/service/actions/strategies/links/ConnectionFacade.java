@@ -15,7 +15,6 @@
  */
 package org.eurekastreams.server.service.actions.strategies.links;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -27,10 +26,7 @@ import java.net.URLConnection;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
-import javax.imageio.ImageIO;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -40,6 +36,7 @@ import javax.net.ssl.X509TrustManager;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.ExpiringCache;
 
 /**
  * Used to cache HTTP requests from the server and for testability.
@@ -56,6 +53,26 @@ public class ConnectionFacade
      */
     private static final Integer MAX_TIMEOUT = 30000;
 
+    /**
+     * Most image dimensions remembered.
+     */
+    private static final int MAX_CACHED_DIMENSIONS = 5000;
+
+    /**
+     * How long image dimensions are remembered.
+     */
+    private static final long DIMENSIONS_TIME_TO_LIVE = 60 * 60 * 1000L;
+
+    /**
+     * How long a failure to get image dimensions is remembered.
+     */
+    private static final long FAILED_DIMENSIONS_TIME_TO_LIVE = 5 * 60 * 1000L;
+
+    /**
+     * Most bytes of an image read looking for its dimensions.
+     */
+    private static final int MAX_IMAGE_HEADER_BYTES = 65536;
+
     /**
      * Logger.
      */
@@ -84,14 +101,10 @@ public class ConnectionFacade
     } };
 
     /**
-     * Cache of URLs. Uses WeakHashMap to prevent memory leak.
-     */
-    private final Map<String, URL> urlMap = new WeakHashMap<String, URL>();
-
-    /**
-     * Cache of Image Dimensions. Uses WeakHashMap to prevent memory leak.
+     * Cache of image dimensions by URL (thread-safe, bounded, expiring).
      */
-    private final Map<String, ImageDimensions> imgMap = new WeakHashMap<String, ImageDimensions>();
+    private final ExpiringCache<String, ImageDimensions> imgMap = new ExpiringCache<String, ImageDimensions>(
+            MAX_CACHED_DIMENSIONS, DIMENSIONS_TIME_TO_LIVE);
 
     /**
      * Max time for connections.
@@ -316,7 +329,7 @@ public class ConnectionFacade
     {
         ImageDimensions dimensions = getImgDimensions(url, inAccountId);
 
-        return dimensions.getHeight();
+        return dimensions.getWidth();
     }
 
     /**
@@ -410,36 +423,54 @@ public class ConnectionFacade
     }
 
     /**
-     * Get the dimensions of an image by URL.
+     * Get the dimensions of an image by URL. Only the start of the image is downloaded (see ImageHeaderReader).
+     * Results are cached by URL; images whose size can't be determined are remembered as 0x0 for a shorter time.
      *
      * @param url
      *            the url.
      * @param inAccountId
      *            account id of the user making the request.
-     * @return the image height.
+     * @return the image dimensions.
      * @throws IOException
      *             on bad url.
      */
-    private ImageDimensions getImgDimensions(final String url, final String inAccountId) throws IOException
+    protected ImageDimensions getImgDimensions(final String url, final String inAccountId) throws IOException
     {
-        if (!imgMap.containsKey(url))
+        ImageDimensions dimensions = imgMap.get(url);
+        if (dimensions == null)
         {
-            log.info("Downloading image: " + url);
+            log.info("Reading image header: " + url);
+
+            int[] size = null;
+            HttpURLConnection connection = getConnection(url, inAccountId);
+            if (connection != null)
+            {
+                connection.setReadTimeout(connectionTimeOut);
+                InputStream connectionStream = connection.getInputStream();
+                try
+                {
+                    size = ImageHeaderReader.readDimensions(connectionStream, MAX_IMAGE_HEADER_BYTES);
+                }
+                finally
+                {
+                    // closing before the end abandons the rest of the download
+                    connectionStream.close();
+                }
+            }
 
-            InputStream connectionStream = getConnection(url, inAccountId).getInputStream();
-            if (null != connectionStream)
+            if (size != null)
             {
-                BufferedImage img = ImageIO.read(connectionStream);
-                imgMap.put(url, new ImageDimensions(img.getHeight(), img.getWidth()));
+                dimensions = new ImageDimensions(size[1], size[0]);
+                imgMap.put(url, dimensions);
             }
             else
             {
-                imgMap.put(url, new ImageDimensions(0, 0));
+                dimensions = new ImageDimensions(0, 0);
+                imgMap.put(url, dimensions, FAILED_DIMENSIONS_TIME_TO_LIVE);
             }
-
         }
 
-        return imgMap.get(url);
+        return dimensions;
     }
 
     /**
@@ -550,12 +581,8 @@ public class ConnectionFacade
      */
     protected URL getUrl(final String url) throws MalformedURLException
     {
-        if (!urlMap.containsKey(url))
-        {
-            urlMap.put(url, new URL(url));
-        }
-
-        return urlMap.get(url);
+        // not cached: parsing is cheap, and the facade is used by several threads at once
+        return new URL(url);
     }
 
     /**
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.links;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.DaemonThreadFactory;
+import org.eurekastreams.commons.util.KeyedStatistics;
+
+/**
+ * Gets the dimensions of several images at once on a small shared pool of threads, giving up on whatever hasn't
+ * finished by a deadline. Probes still running at the deadline are left to finish so their results land in the
+ * ConnectionFacade's dimension cache for the next request for the same page.
+ */
+public class ImageDimensionProber
+{
+    /** Statistic: images probed. */
+    public static final String PROBE_STAT = "probe";
+
+    /** Statistic: images whose dimensions weren't known by the deadline. */
+    public static final String TIMEOUT_STAT = "timeout";
+
+    /** Statistic: images skipped because the pool was saturated. */
+    public static final String REJECTED_STAT = "rejected";
+
+    /** Statistic: milliseconds spent waiting per batch. */
+    public static final String BATCH_MILLIS_STAT = "batch.millis";
+
+    /** Logger. */
+    private final Log log = LogFactory.getLog(ImageDimensionProber.class);
+
+    /** For reading image dimensions. */
+    private final ConnectionFacade urlUtilities;
+
+    /** Probing threads. */
+    private final ThreadPoolExecutor executor;
+
+    /** Statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inUrlUtilities
+     *            For reading image dimensions.
+     * @param inThreads
+     *            Maximum number of images probed at once.
+     * @param inQueueSize
+     *            Maximum number of images waiting to be probed; more are skipped.
+     */
+    public ImageDimensionProber(final ConnectionFacade inUrlUtilities, final int inThreads, final int inQueueSize)
+    {
+        urlUtilities = inUrlUtilities;
+        executor = new ThreadPoolExecutor(inThreads, inThreads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<Runnable>(inQueueSize), new DaemonThreadFactory("image-probe"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Gets the dimensions of images.
+     *
+     * @param inUrls
+     *            Image URLs.
+     * @param inAccountId
+     *            Account id of the user making the request.
+     * @param inTimeOut
+     *            Milliseconds to wait for all the images.
+     * @return Dimensions of the images known by the deadline, by URL, in the order given. Images which failed or timed
+     *         out are omitted.
+     */
+    public Map<String, ConnectionFacade.ImageDimensions> probe(final Collection<String> inUrls,
+            final String inAccountId, final long inTimeOut)
+    {
+        long start = System.currentTimeMillis();
+        long deadline = start + inTimeOut;
+
+        Map<String, Future<ConnectionFacade.ImageDimensions>> futures =
+                new LinkedHashMap<String, Future<ConnectionFacade.ImageDimensions>>();
+        for (final String url : inUrls)
+        {
+            try
+            {
+                futures.put(url, executor.submit(new Callable<ConnectionFacade.ImageDimensions>()
+                {
+                    public ConnectionFacade.ImageDimensions call() throws Exception
+                    {
+                        return urlUtilities.getImgDimensions(url, inAccountId);
+                    }
+                }));
+                statistics.increment(PROBE_STAT);
+            }
+            catch (RejectedExecutionException ex)
+            {
+                statistics.increment(REJECTED_STAT);
+            }
+        }
+
+        Map<String, ConnectionFacade.ImageDimensions> results =
+                new LinkedHashMap<String, ConnectionFacade.ImageDimensions>();
+        for (Entry<String, Future<ConnectionFacade.ImageDimensions>> entry : futures.entrySet())
+        {
+            try
+            {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                results.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.MILLISECONDS));
+            }
+            catch (TimeoutException ex)
+            {
+                statistics.increment(TIMEOUT_STAT);
+            }
+            catch (ExecutionException ex)
+            {
+                log.error("Error reading image " + entry.getKey() + ": " + ex.getCause());
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        statistics.record(BATCH_MILLIS_STAT, System.currentTimeMillis() - start);
+        return results;
+    }
+
+    /**
+     * @return Statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Stops the probing threads.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.links;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the dimensions of an image from the start of its data without decoding it. PNG, GIF, JPEG and WebP headers
+ * are parsed directly; other formats are handed to an ImageIO reader, which also reads only the header. Stops reading
+ * as soon as the dimensions are known, so normally only the first few hundred bytes (a few KB for JPEGs with large
+ * metadata) are transferred.
+ */
+public final class ImageHeaderReader
+{
+    /** Bytes read at a time. */
+    private static final int CHUNK_SIZE = 2048;
+
+    /** Mask for an unsigned byte. */
+    private static final int BYTE_MASK = 0xff;
+
+    /** Bits per byte. */
+    private static final int BYTE_BITS = 8;
+
+    /** PNG: offset of the width in the IHDR chunk. */
+    private static final int PNG_WIDTH_OFFSET = 16;
+
+    /** PNG: offset of the height in the IHDR chunk. */
+    private static final int PNG_HEIGHT_OFFSET = 20;
+
+    /** GIF: offset of the logical screen width. */
+    private static final int GIF_WIDTH_OFFSET = 6;
+
+    /** GIF: offset of the logical screen height. */
+    private static final int GIF_HEIGHT_OFFSET = 8;
+
+    /** JPEG: first start-of-frame marker. */
+    private static final int JPEG_SOF0 = 0xc0;
+
+    /** JPEG: last start-of-frame marker. */
+    private static final int JPEG_SOF15 = 0xcf;
+
+    /** JPEG: define Huffman table marker (in the SOF range but not a frame). */
+    private static final int JPEG_DHT = 0xc4;
+
+    /** JPEG: JPG extension marker (in the SOF range but not a frame). */
+    private static final int JPEG_JPG = 0xc8;
+
+    /** JPEG: define arithmetic coding marker (in the SOF range but not a frame). */
+    private static final int JPEG_DAC = 0xcc;
+
+    /** JPEG: first restart marker (no length). */
+    private static final int JPEG_RST0 = 0xd0;
+
+    /** JPEG: end of image marker. */
+    private static final int JPEG_EOI = 0xd9;
+
+    /** JPEG: temporary marker (no length). */
+    private static final int JPEG_TEM = 0x01;
+
+    /** JPEG: offset of the height within a start-of-frame segment (after the length and sample precision). */
+    private static final int JPEG_SOF_HEIGHT_OFFSET = 3;
+
+    /** JPEG: offset of the width within a start-of-frame segment. */
+    private static final int JPEG_SOF_WIDTH_OFFSET = 5;
+
+    /** WebP: offset of the first chunk type. */
+    private static final int WEBP_CHUNK_OFFSET = 12;
+
+    /** WebP: offset of the lossy frame width. */
+    private static final int WEBP_VP8_WIDTH_OFFSET = 26;
+
+    /** WebP: offset of the lossy frame height. */
+    private static final int WEBP_VP8_HEIGHT_OFFSET = 28;
+
+    /** WebP: mask for the 14-bit lossy dimensions. */
+    private static final int WEBP_VP8_MASK = 0x3fff;
+
+    /** WebP: offset of the lossless dimensions bitfield. */
+    private static final int WEBP_VP8L_OFFSET = 21;
+
+    /** WebP: position of the lossless height (less one) in the dimensions bitfield. */
+    private static final int WEBP_VP8L_HEIGHT_SHIFT = 14;
+
+    /** WebP: offset of the extended canvas width. */
+    private static final int WEBP_VP8X_WIDTH_OFFSET = 24;
+
+    /** WebP: offset of the extended canvas height. */
+    private static final int WEBP_VP8X_HEIGHT_OFFSET = 27;
+
+    /** Signature of PNG (the IHDR chunk always follows). */
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+    /** Signature of GIF. */
+    private static final byte[] GIF = { 'G', 'I', 'F', '8' };
+
+    /** Signature of JPEG. */
+    private static final byte[] JPEG = { (byte) 0xff, (byte) 0xd8 };
+
+    /** Signature of RIFF (WebP container). */
+    private static final byte[] RIFF = { 'R', 'I', 'F', 'F' };
+
+    /** Signature of WebP within the RIFF header. */
+    private static final byte[] WEBP = { 'W', 'E', 'B', 'P' };
+
+    /** Marker for "need more data". */
+    private static final int[] INCOMPLETE = new int[0];
+
+    /** Marker for "not a format parsed here". */
+    private static final int[] UNKNOWN = new int[0];
+
+    /** Hide constructor. */
+    private ImageHeaderReader()
+    {
+    }
+
+    /**
+     * Reads the dimensions of an image.
+     *
+     * @param inStream
+     *            Image data (not closed).
+     * @param inMaxBytes
+     *            Most bytes to read looking for the dimensions.
+     * @return { width, height }, or null if they can't be determined.
+     * @throws IOException
+     *             On read errors.
+     */
+    public static int[] readDimensions(final InputStream inStream, final int inMaxBytes) throws IOException
+    {
+        byte[] data = new byte[Math.min(CHUNK_SIZE, inMaxBytes)];
+        int length = 0;
+        boolean eof = false;
+        while (true)
+        {
+            if (length == data.length)
+            {
+                if (length >= inMaxBytes)
+                {
+                    break;
+                }
+                data = Arrays.copyOf(data, Math.min(data.length * 2, inMaxBytes));
+            }
+            int read = inStream.read(data, length, data.length - length);
+            if (read < 0)
+            {
+                eof = true;
+                break;
+            }
+            length += read;
+
+            int[] result = parse(data, length);
+            if (result == UNKNOWN)
+            {
+                return readWithImageIO(data, length);
+            }
+            if (result != INCOMPLETE)
+            {
+                return result;
+            }
+        }
+
+        int[] result = parse(data, length);
+        if (result == UNKNOWN || (result == INCOMPLETE && eof))
+        {
+            return readWithImageIO(data, length);
+        }
+        return result == INCOMPLETE ? null : result;
+    }
+
+    /**
+     * Parses dimensions from the data read so far.
+     *
+     * @param inData
+     *            Data.
+     * @param inLength
+     *            Bytes of data read.
+     * @return { width, height }; null if invalid; INCOMPLETE if more data is needed; UNKNOWN if not a format parsed
+     *         here.
+     */
+    static int[] parse(final byte[] inData, final int inLength)
+    {
+        if (inLength < WEBP_CHUNK_OFFSET)
+        {
+            return INCOMPLETE;
+        }
+        if (startsWith(inData, 0, PNG))
+        {
+            if (inLength < PNG_HEIGHT_OFFSET + 4)
+            {
+                return INCOMPLETE;
+            }
+            return dimensions(readInt(inData, PNG_WIDTH_OFFSET, 4, false), readInt(inData, PNG_HEIGHT_OFFSET, 4,
+                    false));
+        }
+        if (startsWith(inData, 0, GIF))
+        {
+            if (inLength < GIF_HEIGHT_OFFSET + 2)
+            {
+                return INCOMPLETE;
+            }
+            return dimensions(readInt(inData, GIF_WIDTH_OFFSET, 2, true), readInt(inData, GIF_HEIGHT_OFFSET, 2, true));
+        }
+        if (startsWith(inData, 0, JPEG))
+        {
+            return parseJpeg(inData, inLength);
+        }
+        if (startsWith(inData, 0, RIFF) && startsWith(inData, RIFF.length + 4, WEBP))
+        {
+            return parseWebP(inData, inLength);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Parses JPEG dimensions by walking the segments to the start-of-frame.
+     *
+     * @param inData
+     *            Data.
+     * @param inLength
+     *            Bytes of data read.
+     * @return { width, height }, null, or INCOMPLETE.
+     */
+    private static int[] parseJpeg(final byte[] inData, final int inLength)
+    {
+        int pos = JPEG.length;
+        while (true)
+        {
+            // skip to the marker, past any fill bytes
+            if (pos >= inLength)
+            {
+                return INCOMPLETE;
+            }
+            if ((inData[pos] & BYTE_MASK) != BYTE_MASK)
+            {
+                return null;
+            }
+            while (pos < inLength && (inData[pos] & BYTE_MASK) == BYTE_MASK)
+            {
+                pos++;
+            }
+            if (pos >= inLength)
+            {
+                return INCOMPLETE;
+            }
+            int marker = inData[pos] & BYTE_MASK;
+            pos++;
+
+            if (marker == JPEG_EOI)
+            {
+                return null;
+            }
+            if (marker == JPEG_TEM || (marker >= JPEG_RST0 && marker < JPEG_EOI))
+            {
+                continue;
+            }
+            if (pos + 2 > inLength)
+            {
+                return INCOMPLETE;
+            }
+            int segmentLength = readInt(inData, pos, 2, false);
+            if (marker >= JPEG_SOF0 && marker <= JPEG_SOF15 && marker != JPEG_DHT && marker != JPEG_JPG
+                    && marker != JPEG_DAC)
+            {
+                if (pos + JPEG_SOF_WIDTH_OFFSET + 2 > inLength)
+                {
+                    return INCOMPLETE;
+                }
+                return dimensions(readInt(inData, pos + JPEG_SOF_WIDTH_OFFSET, 2, false), readInt(inData, pos
+                        + JPEG_SOF_HEIGHT_OFFSET, 2, false));
+            }
+            if (segmentLength < 2)
+            {
+                return null;
+            }
+            pos += segmentLength;
+        }
+    }
+
+    /**
+     * Parses WebP dimensions from the first chunk.
+     *
+     * @param inData
+     *            Data.
+     * @param inLength
+     *            Bytes of data read.
+     * @return { width, height }, null, or INCOMPLETE.
+     */
+    private static int[] parseWebP(final byte[] inData, final int inLength)
+    {
+        if (inLength < WEBP_VP8X_HEIGHT_OFFSET + 3)
+        {
+            return INCOMPLETE;
+        }
+        String chunk = new String(new char[] { (char) inData[WEBP_CHUNK_OFFSET], (char) inData[WEBP_CHUNK_OFFSET + 1],
+                (char) inData[WEBP_CHUNK_OFFSET + 2], (char) inData[WEBP_CHUNK_OFFSET + 3] });
+        if ("VP8 ".equals(chunk))
+        {
+            return dimensions(readInt(inData, WEBP_VP8_WIDTH_OFFSET, 2, true) & WEBP_VP8_MASK, readInt(inData,
+                    WEBP_VP8_HEIGHT_OFFSET, 2, true)
+                    & WEBP_VP8_MASK);
+        }
+        if ("VP8L".equals(chunk))
+        {
+            int bits = readInt(inData, WEBP_VP8L_OFFSET, 4, true);
+            return dimensions(1 + (bits & WEBP_VP8_MASK), 1 + ((bits >>> WEBP_VP8L_HEIGHT_SHIFT) & WEBP_VP8_MASK));
+        }
+        if ("VP8X".equals(chunk))
+        {
+            return dimensions(1 + readInt(inData, WEBP_VP8X_WIDTH_OFFSET, 3, true), 1 + readInt(inData,
+                    WEBP_VP8X_HEIGHT_OFFSET, 3, true));
+        }
+        return null;
+    }
+
+    /**
+     * Uses an ImageIO reader (header only) for formats not parsed here.
+     *
+     * @param inData
+     *            Data.
+     * @param inLength
+     *            Bytes of data read.
+     * @return { width, height }, or null.
+     * @throws IOException
+     *             On read errors.
+     */
+    private static int[] readWithImageIO(final byte[] inData, final int inLength) throws IOException
+    {
+        if (inLength == 0)
+        {
+            return null;
+        }
+        ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(inData, 0, inLength));
+        if (stream == null)
+        {
+            return null;
+        }
+        try
+        {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext())
+            {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(stream, true, true);
+                return dimensions(reader.getWidth(0), reader.getHeight(0));
+            }
+            catch (IOException ex)
+            {
+                // header not within the bytes read
+                return null;
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Checks for a signature.
+     *
+     * @param inData
+     *            Data.
+     * @param inOffset
+     *            Where the signature should be.
+     * @param inSignature
+     *            Signature.
+     * @return If present.
+     */
+    private static boolean startsWith(final byte[] inData, final int inOffset, final byte[] inSignature)
+    {
+        if (inData.length < inOffset + inSignature.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < inSignature.length; i++)
+        {
+            if (inData[inOffset + i] != inSignature[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an unsigned integer.
+     *
+     * @param inData
+     *            Data.
+     * @param inOffset
+     *            Offset.
+     * @param inBytes
+     *            Number of bytes.
+     * @param inLittleEndian
+     *            Byte order.
+     * @return Value.
+     */
+    private static int readInt(final byte[] inData, final int inOffset, final int inBytes,
+            final boolean inLittleEndian)
+    {
+        int value = 0;
+        for (int i = 0; i < inBytes; i++)
+        {
+            int b = inData[inOffset + (inLittleEndian ? inBytes - 1 - i : i)] & BYTE_MASK;
+            value = (value << BYTE_BITS) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Builds the result.
+     *
+     * @param inWidth
+     *            Width.
+     * @param inHeight
+     *            Height.
+     * @return { width, height }, or null if not positive.
+     */
+    private static int[] dimensions(final int inWidth, final int inHeight)
+    {
+        return inWidth > 0 && inHeight > 0 ? new int[] { inWidth, inHeight } : null;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.links;
+
+import java.util.concurrent.Callable;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eurekastreams.commons.util.ExpiringCache;
+import org.eurekastreams.commons.util.KeyedStatistics;
+import org.eurekastreams.commons.util.SingleFlight;
+import org.eurekastreams.server.domain.stream.LinkInformation;
+
+/**
+ * Cache of parsed link information (title, description, images, final URL) by the URL the user entered. Concurrent
+ * requests for the same URL share a single fetch. Links which couldn't be fetched, or which yielded no information, are
+ * remembered for a shorter time so they are retried later without every paste hitting the remote site.
+ *
+ * Entries are shared by all users, the same as the persisted link information is. Each caller gets its own copy, so
+ * changes made to a returned link (e.g. by the thumbnail selection) don't reach the cache or other callers.
+ */
+public class LinkInformationCache
+{
+    /** Statistic: requests answered from the cache. */
+    public static final String HIT_STAT = "hit";
+
+    /** Statistic: requests which waited on another request's fetch. */
+    public static final String COALESCED_STAT = "coalesced";
+
+    /** Statistic: milliseconds per fetch. */
+    public static final String FETCH_MILLIS_STAT = "fetch.millis";
+
+    /** Statistic: fetches which failed or yielded no information. */
+    public static final String FAILURE_STAT = "failure";
+
+    /** Stands for a failed fetch in the cache. */
+    private static final LinkInformation FAILED = new LinkInformation();
+
+    /** Logger. */
+    private final Log log = LogFactory.getLog(LinkInformationCache.class);
+
+    /** Fetched links. */
+    private final ExpiringCache<String, LinkInformation> cache;
+
+    /** Fetches in progress by URL. */
+    private final SingleFlight<String, LinkInformation> inFlight = new SingleFlight<String, LinkInformation>();
+
+    /** How long a failed fetch is remembered, in milliseconds. */
+    private final long failureTimeToLive;
+
+    /** Statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /**
+     * Constructor.
+     *
+     * @param inMaxEntries
+     *            Maximum number of links remembered.
+     * @param inTimeToLiveSeconds
+     *            How long a link is remembered.
+     * @param inFailureTimeToLiveSeconds
+     *            How long a failed link is remembered.
+     */
+    public LinkInformationCache(final int inMaxEntries, final long inTimeToLiveSeconds,
+            final long inFailureTimeToLiveSeconds)
+    {
+        cache = new ExpiringCache<String, LinkInformation>(inMaxEntries, inTimeToLiveSeconds * 1000L);
+        failureTimeToLive = inFailureTimeToLiveSeconds * 1000L;
+    }
+
+    /**
+     * Gets the information for a link, fetching it if not cached and not already being fetched.
+     *
+     * @param inUrl
+     *            URL as entered.
+     * @param inFetcher
+     *            Fetches the information; returns null on failure.
+     * @return A copy of the link information, null if it couldn't be fetched.
+     */
+    public LinkInformation get(final String inUrl, final Callable<LinkInformation> inFetcher)
+    {
+        LinkInformation cached = cache.get(inUrl);
+        if (cached != null)
+        {
+            statistics.increment(HIT_STAT);
+            return cached == FAILED ? null : copyOf(cached);
+        }
+
+        // counted before waiting (so it is approximate if the other fetch finishes meanwhile)
+        if (inFlight.isInFlight(inUrl))
+        {
+            statistics.increment(COALESCED_STAT);
+        }
+        try
+        {
+            LinkInformation link = inFlight.execute(inUrl, new Callable<LinkInformation>()
+            {
+                public LinkInformation call()
+                {
+                    return fetch(inUrl, inFetcher);
+                }
+            });
+            return link == null ? null : copyOf(link);
+        }
+        catch (RuntimeException ex)
+        {
+            log.info("Failed waiting for link information for " + inUrl, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Removes a link from the cache.
+     *
+     * @param inUrl
+     *            URL as entered.
+     */
+    public void remove(final String inUrl)
+    {
+        cache.remove(inUrl);
+    }
+
+    /**
+     * @return Fetch statistics.
+     */
+    public KeyedStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @return Cache hit/miss/eviction statistics.
+     */
+    public KeyedStatistics getCacheStatistics()
+    {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Fetches a link and caches the result.
+     *
+     * @param inUrl
+     *            URL as entered.
+     * @param inFetcher
+     *            Fetches the information; returns null on failure.
+     * @return The link information (not the cached instance), null on failure.
+     */
+    private LinkInformation fetch(final String inUrl, final Callable<LinkInformation> inFetcher)
+    {
+        long start = System.currentTimeMillis();
+        LinkInformation link = null;
+        try
+        {
+            link = inFetcher.call();
+        }
+        catch (Exception ex)
+        {
+            log.info("Failed to get link information for " + inUrl, ex);
+        }
+        finally
+        {
+            statistics.record(FETCH_MILLIS_STAT, System.currentTimeMillis() - start);
+        }
+
+        if (isEmpty(link))
+        {
+            statistics.increment(FAILURE_STAT);
+            cache.put(inUrl, link == null ? FAILED : copyOf(link), failureTimeToLive);
+        }
+        else
+        {
+            cache.put(inUrl, copyOf(link));
+        }
+        return link;
+    }
+
+    /**
+     * Copies a cached link for a caller.
+     *
+     * @param inLink
+     *            Cached link.
+     * @return Deep copy of the link.
+     */
+    private LinkInformation copyOf(final LinkInformation inLink)
+    {
+        return (LinkInformation) SerializationUtils.clone(inLink);
+    }
+
+    /**
+     * Determines if a fetch produced nothing worth keeping for long.
+     *
+     * @param inLink
+     *            Fetched link.
+     * @return True if the link is missing or has no title, description, or images.
+     */
+    private boolean isEmpty(final LinkInformation inLink)
+    {
+        return inLink == null
+                || (StringUtils.isEmpty(inLink.getTitle()) && StringUtils.isEmpty(inLink.getDescription()) && (inLink
+                        .getImageUrls() == null || inLink.getImageUrls().isEmpty()));
+    }
+}
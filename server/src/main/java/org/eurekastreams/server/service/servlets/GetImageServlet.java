@@ -15,13 +15,10 @@
  */
 package org.eurekastreams.server.service.servlets;
 
-import java.awt.image.RenderedImage;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 
-import javax.imageio.ImageIO;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -29,12 +26,15 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eurekastreams.server.service.actions.strategies.ImageBytesCache.CachedImage;
 import org.eurekastreams.server.service.actions.strategies.ImageWriter;
 import org.springframework.context.ApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
 /**
- * Get an Image via a Servlet.
+ * Get an Image via a Servlet. Images are sent re-encoded as PNG, with a content-derived ETag so browsers can revalidate
+ * cheaply (304 Not Modified) instead of downloading the image again, and with content type sniffing disabled so
+ * browsers never treat an image as anything else.
  * 
  */
 public class GetImageServlet extends HttpServlet
@@ -44,9 +44,9 @@ public class GetImageServlet extends HttpServlet
      */
     private Log log = LogFactory.getLog(GetImageServlet.class);
     /**
-     * The spring factory.
+     * The image writer (looked up once).
      */
-    private ApplicationContext springContext;
+    private ImageWriter imageWriter;
 
     /**
      * Serial.
@@ -63,6 +63,16 @@ public class GetImageServlet extends HttpServlet
      */
     private static final int ERROR = 500;
 
+    /**
+     * Tells browsers they may keep the image but must check it is current before using it.
+     */
+    private static final String CACHE_CONTROL = "no-cache";
+
+    /**
+     * Tells browsers to use the declared content type rather than guessing one from the content.
+     */
+    private static final String CONTENT_TYPE_OPTIONS = "nosniff";
+
     /**
      * @see HttpServlet#HttpServlet()
      */
@@ -71,6 +81,17 @@ public class GetImageServlet extends HttpServlet
         super();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void init() throws ServletException
+    {
+        super.init();
+        ApplicationContext springContext = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+        imageWriter = (ImageWriter) springContext.getBean("imageWriter");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -78,68 +99,92 @@ public class GetImageServlet extends HttpServlet
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException,
             IOException
     {
-        springContext = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
-        ImageWriter imageWriter = (ImageWriter) springContext.getBean("imageWriter");
-        RenderedImage image = imageWriter.read(request.getParameter("img"));
+        response.setHeader("X-Content-Type-Options", CONTENT_TYPE_OPTIONS);
+
+        CachedImage image;
+        try
+        {
+            image = imageWriter.readForServing(request.getParameter("img"));
+        }
+        catch (Exception e)
+        {
+            log.error("Error reading image " + request.getParameter("img"), e);
+            httpError(ERROR, response);
+            return;
+        }
 
         // show a 404 page
         if (image == null)
         {
             httpError(NOTFOUND, response);
+            return;
         }
-        else
-        {
-            BufferedOutputStream bos = null;
-            ByteArrayOutputStream baos = null;
-
-            try
-            {
-                baos = new ByteArrayOutputStream();
-                ImageIO.write(image, "png", baos);
 
-                bos = new BufferedOutputStream(response.getOutputStream());
+        response.setHeader("ETag", image.getETag());
+        response.setHeader("Cache-Control", CACHE_CONTROL);
 
-                response.setContentType("image/png");
-                response.setContentLength(baos.toByteArray().length);
+        if (isNotModified(request, image))
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
 
-                bos.write(baos.toByteArray());
+        response.setContentType(image.getContentType());
+        response.setContentLength(image.getBytes().length);
 
-            }
-            catch (Exception e)
-            {
-                // Tell the user there was some internal server error.\
-                // 500 - Internal server error.
-                httpError(ERROR, response);
-            }
-            finally
+        OutputStream out = null;
+        try
+        {
+            out = response.getOutputStream();
+            out.write(image.getBytes());
+        }
+        finally
+        {
+            if (out != null)
             {
-                if (baos != null)
+                try
                 {
-                    try
-                    {
-                        baos.close();
-                    }
-                    catch (IOException e)
-                    {
-                        log.error(e);
-                        // To late to do anything about it now, we may have already sent some data to user.
-                    }
+                    out.close();
                 }
-                if (bos != null)
+                catch (IOException e)
                 {
-                    try
-                    {
-                        bos.close();
-                    }
-                    catch (IOException e)
-                    {
-                        log.error(e);
-                        // To late to do anything about it now, we may have already sent some data to user.
-                    }
+                    log.error(e);
+                    // To late to do anything about it now, we may have already sent some data to user.
                 }
             }
         }
+    }
 
+    /**
+     * Determines if the browser's copy of the image is current. Only entity tags are compared: no Last-Modified is
+     * sent, so If-Modified-Since alone never matches.
+     * 
+     * @param request
+     *            the request.
+     * @param image
+     *            the image.
+     * @return If a 304 should be sent.
+     */
+    static boolean isNotModified(final HttpServletRequest request, final CachedImage image)
+    {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null)
+        {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(","))
+        {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/"))
+            {
+                trimmed = trimmed.substring(2);
+            }
+            if ("*".equals(trimmed) || image.getETag().equals(trimmed))
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
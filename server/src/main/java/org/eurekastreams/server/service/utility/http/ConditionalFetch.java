@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.utility.http;
+
+/**
+ * HTTP cache validators for a fetch, and what the server answered. A caller binds one to the current thread around a
+ * call that fetches through {@link HttpDocumentFetcherImpl} several layers down (e.g. a feed fetch through the plugin
+ * fetcher strategies), so the validators don't need to be threaded through every layer's signature.
+ *
+ * Validators are only sent on the first request made while bound: if a call makes several requests (e.g. one per
+ * requestor) the responses differ and a single set of validators can't describe them.
+ */
+public class ConditionalFetch
+{
+    /** Fetch bound to each thread. */
+    private static final ThreadLocal<ConditionalFetch> CURRENT = new ThreadLocal<ConditionalFetch>();
+
+    /** ETag to send as If-None-Match. */
+    private final String requestETag;
+
+    /** Date to send as If-Modified-Since. */
+    private final String requestLastModified;
+
+    /** ETag returned. */
+    private String responseETag;
+
+    /** Last-Modified returned. */
+    private String responseLastModified;
+
+    /** If the server answered 304 Not Modified. */
+    private boolean notModified;
+
+    /** Bytes read from response bodies. */
+    private long bytes;
+
+    /** Number of requests made. */
+    private int requestCount;
+
+    /**
+     * Constructor.
+     *
+     * @param inRequestETag
+     *            ETag to send as If-None-Match (null for none).
+     * @param inRequestLastModified
+     *            Date to send as If-Modified-Since (null for none).
+     */
+    public ConditionalFetch(final String inRequestETag, final String inRequestLastModified)
+    {
+        requestETag = inRequestETag;
+        requestLastModified = inRequestLastModified;
+    }
+
+    /**
+     * Binds a fetch to the current thread.
+     *
+     * @param inFetch
+     *            Fetch.
+     */
+    public static void bind(final ConditionalFetch inFetch)
+    {
+        CURRENT.set(inFetch);
+    }
+
+    /**
+     * Unbinds the current thread's fetch.
+     */
+    public static void unbind()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return The fetch bound to the current thread, null if none.
+     */
+    public static ConditionalFetch current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Notes a request is being made.
+     *
+     * @return If validators should be sent with it.
+     */
+    public boolean startRequest()
+    {
+        requestCount++;
+        return requestCount == 1;
+    }
+
+    /**
+     * @return ETag to send as If-None-Match.
+     */
+    public String getRequestETag()
+    {
+        return requestETag;
+    }
+
+    /**
+     * @return Date to send as If-Modified-Since.
+     */
+    public String getRequestLastModified()
+    {
+        return requestLastModified;
+    }
+
+    /**
+     * @return ETag returned.
+     */
+    public String getResponseETag()
+    {
+        return responseETag;
+    }
+
+    /**
+     * @param inResponseETag
+     *            ETag returned.
+     */
+    public void setResponseETag(final String inResponseETag)
+    {
+        responseETag = inResponseETag;
+    }
+
+    /**
+     * @return Last-Modified returned.
+     */
+    public String getResponseLastModified()
+    {
+        return responseLastModified;
+    }
+
+    /**
+     * @param inResponseLastModified
+     *            Last-Modified returned.
+     */
+    public void setResponseLastModified(final String inResponseLastModified)
+    {
+        responseLastModified = inResponseLastModified;
+    }
+
+    /**
+     * @return If the server answered 304 Not Modified.
+     */
+    public boolean isNotModified()
+    {
+        return notModified;
+    }
+
+    /**
+     * Marks the response as 304 Not Modified.
+     */
+    public void setNotModified()
+    {
+        notModified = true;
+    }
+
+    /**
+     * @return Bytes read from response bodies.
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * @param inBytes
+     *            Bytes read from a response body.
+     */
+    public void addBytes(final long inBytes)
+    {
+        bytes += inBytes;
+    }
+
+    /**
+     * @return Number of requests made.
+     */
+    public int getRequestCount()
+    {
+        return requestCount;
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.eurekastreams.server.service.utility.http;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -24,7 +26,9 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.HttpMethodRetryHandler;
 import org.apache.commons.httpclient.SimpleHttpConnectionManager;
 import org.apache.commons.httpclient.methods.GetMethod;
@@ -35,7 +39,8 @@ import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 /**
- * Gets a URL resource and returns it as an XML document.
+ * Gets a URL resource and returns it as an XML document. If a {@link ConditionalFetch} is bound to the thread, sends
+ * its validators, records the response's validators and size, and throws {@link NotModifiedException} on a 304.
  */
 public class HttpDocumentFetcherImpl implements HttpDocumentFetcher
 {
@@ -96,17 +101,132 @@ public class HttpDocumentFetcherImpl implements HttpDocumentFetcher
             }
         }
 
+        ConditionalFetch conditional = ConditionalFetch.current();
+        boolean sendValidators = conditional != null && conditional.startRequest();
+        if (sendValidators)
+        {
+            if (conditional.getRequestETag() != null)
+            {
+                get.setRequestHeader("If-None-Match", conditional.getRequestETag());
+            }
+            if (conditional.getRequestLastModified() != null)
+            {
+                get.setRequestHeader("If-Modified-Since", conditional.getRequestLastModified());
+            }
+        }
+
         try
         {
-            client.executeMethod(get);
+            int status = client.executeMethod(get);
 
             DocumentBuilder builder = domFactory.newDocumentBuilder();
 
-            return builder.parse(get.getResponseBodyAsStream());
+            if (conditional == null)
+            {
+                return builder.parse(get.getResponseBodyAsStream());
+            }
+
+            if (sendValidators && status == HttpStatus.SC_NOT_MODIFIED)
+            {
+                conditional.setNotModified();
+                throw new NotModifiedException(url);
+            }
+            CountingInputStream body = new CountingInputStream(get.getResponseBodyAsStream());
+            Document document;
+            try
+            {
+                document = builder.parse(body);
+            }
+            finally
+            {
+                conditional.addBytes(body.count);
+            }
+
+            // only a successful response's validators describe the content just read
+            if (status >= HttpStatus.SC_OK && status < HttpStatus.SC_MULTIPLE_CHOICES)
+            {
+                conditional.setResponseETag(getHeader(get, "ETag"));
+                conditional.setResponseLastModified(getHeader(get, "Last-Modified"));
+            }
+            return document;
         }
         finally
         {
             get.releaseConnection();
         }
     }
+
+    /**
+     * Gets a response header.
+     *
+     * @param inMethod
+     *            Executed request.
+     * @param inName
+     *            Header name.
+     * @return Header value, null if absent.
+     */
+    private static String getHeader(final GetMethod inMethod, final String inName)
+    {
+        Header header = inMethod.getResponseHeader(inName);
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * Counts the bytes read through a stream.
+     */
+    private static class CountingInputStream extends FilterInputStream
+    {
+        /** Bytes read. */
+        private long count;
+
+        /**
+         * Constructor.
+         *
+         * @param inStream
+         *            Stream to read.
+         */
+        CountingInputStream(final InputStream inStream)
+        {
+            super(inStream);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0)
+            {
+                count++;
+            }
+            return b;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(final byte[] inBuffer, final int inOffset, final int inLength) throws IOException
+        {
+            int n = super.read(inBuffer, inOffset, inLength);
+            if (n > 0)
+            {
+                count += n;
+            }
+            return n;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long skip(final long inCount) throws IOException
+        {
+            long n = super.skip(inCount);
+            count += n;
+            return n;
+        }
+    }
 }
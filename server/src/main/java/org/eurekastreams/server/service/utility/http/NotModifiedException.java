@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.utility.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a conditional fetch (see {@link ConditionalFetch}) finds the resource unchanged, so there is no document
+ * to return.
+ */
+public class NotModifiedException extends IOException
+{
+    /** Serial version id. */
+    private static final long serialVersionUID = 2867005530917164380L;
+
+    /**
+     * Constructor.
+     *
+     * @param inUrl
+     *            URL fetched.
+     */
+    public NotModifiedException(final String inUrl)
+    {
+        super("Not modified: " + inUrl);
+    }
+}
@@ -15,8 +15,13 @@
  */
 package org.eurekastreams.commons.messaging;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 
+import javax.jms.BytesMessage;
 import javax.jms.Message;
 import javax.jms.ObjectMessage;
 
@@ -24,7 +29,9 @@ import org.eurekastreams.commons.server.UserActionRequest;
 import org.eurekastreams.commons.task.TaskHandler;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.Before;
 import org.junit.Test;
@@ -102,4 +109,52 @@ public class AsyncActionProcessorMDBTest
         sut.onMessage(messageMock);
         context.assertIsSatisfied();
     }
+
+    /**
+     * Test onMessage(message) with a request in the compact format.
+     *
+     * @throws Exception
+     *             not expected
+     */
+    @Test
+    public void testOnMessageCompact() throws Exception
+    {
+        final BytesMessage bytesMessage = context.mock(BytesMessage.class);
+        final ArrayList<Long> ids = new ArrayList<Long>(Arrays.asList(5L, 3L));
+        final byte[] bytes = new UserActionRequestCodec().encode(new UserActionRequest("TestAction", null, ids));
+        final UserActionRequest[] received = new UserActionRequest[1];
+
+        context.checking(new Expectations()
+        {
+            {
+                allowing(bytesMessage).getBodyLength();
+                will(returnValue((long) bytes.length));
+
+                oneOf(bytesMessage).readBytes(with(any(byte[].class)));
+                will(new CustomAction("read body")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        System.arraycopy(bytes, 0, inInvocation.getParameter(0), 0, bytes.length);
+                        return bytes.length;
+                    }
+                });
+
+                oneOf(taskHandler).handleTask(with(any(UserActionRequest.class)));
+                will(new CustomAction("capture")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        received[0] = (UserActionRequest) inInvocation.getParameter(0);
+                        return null;
+                    }
+                });
+            }
+        });
+
+        sut.onMessage(bytesMessage);
+        context.assertIsSatisfied();
+        assertEquals("TestAction", received[0].getActionKey());
+        assertEquals(ids, received[0].getParams());
+    }
 }
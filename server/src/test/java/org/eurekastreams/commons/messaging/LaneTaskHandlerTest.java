@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.DeferredTaskRequests;
+import org.eurekastreams.commons.task.LaneTaskHandler;
+import org.eurekastreams.commons.task.TaskHandler;
+import org.eurekastreams.commons.task.TaskLane;
+import org.eurekastreams.commons.util.KeyedStatistics;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+/**
+ * Tests LaneTaskHandler.
+ */
+public class LaneTaskHandlerTest
+{
+    /** Seconds to wait for background work. */
+    private static final int WAIT_SECONDS = 5;
+
+    /** Action which blocks until released. */
+    private static final String BLOCKING_ACTION = "blockingAction";
+
+    /** Action which may be batched. */
+    private static final String METRIC_ACTION = "persistUserMetricAsyncAction";
+
+    /** Released to let blocking actions finish. */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /** Keys of the executed actions, in order. */
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    /** Follow-on requests submitted by the executed actions. */
+    private final List<UserActionRequest> followOns = Collections.synchronizedList(new ArrayList<UserActionRequest>());
+
+    /** Receives follow-on requests. */
+    private final TaskHandler followOnHandler = new TaskHandler()
+    {
+        public void handleTask(final UserActionRequest inUserActionRequest)
+        {
+            followOns.add(inUserActionRequest);
+        }
+    };
+
+    /** Names of the threads the actions were executed on. */
+    private final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+
+    /** Transactions begun. */
+    private final AtomicInteger begun = new AtomicInteger();
+
+    /** Transactions committed. */
+    private final AtomicInteger committed = new AtomicInteger();
+
+    /** Transactions rolled back. */
+    private final AtomicInteger rolledBack = new AtomicInteger();
+
+    /** If commits fail. */
+    private volatile boolean failCommits = false;
+
+    /** Statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /** System under test. */
+    private LaneTaskHandler sut;
+
+    /**
+     * Executor recording what it runs; blocking actions wait to be released, and metric actions submit a follow-on
+     * request the way the async action controller does.
+     */
+    private final TaskHandler executor = new TaskHandler()
+    {
+        public void handleTask(final UserActionRequest inUserActionRequest) throws Exception
+        {
+            if (BLOCKING_ACTION.equals(inUserActionRequest.getActionKey()))
+            {
+                release.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            }
+            else if (METRIC_ACTION.equals(inUserActionRequest.getActionKey()))
+            {
+                UserActionRequest followOn = new UserActionRequest("followOnAction", null, null);
+                if (!DeferredTaskRequests.defer(followOnHandler, followOn))
+                {
+                    followOnHandler.handleTask(followOn);
+                }
+            }
+            threads.add(Thread.currentThread().getName());
+            executed.add(inUserActionRequest.getActionKey());
+        }
+    };
+
+    /** Transaction manager counting transactions. */
+    private final PlatformTransactionManager transactionManager = new PlatformTransactionManager()
+    {
+        public TransactionStatus getTransaction(final TransactionDefinition inDefinition)
+        {
+            begun.incrementAndGet();
+            return new SimpleTransactionStatus();
+        }
+
+        public void commit(final TransactionStatus inStatus)
+        {
+            if (failCommits)
+            {
+                throw new IllegalStateException("rollback only");
+            }
+            ((SimpleTransactionStatus) inStatus).setCompleted();
+            committed.incrementAndGet();
+        }
+
+        public void rollback(final TransactionStatus inStatus)
+        {
+            ((SimpleTransactionStatus) inStatus).setCompleted();
+            rolledBack.incrementAndGet();
+        }
+    };
+
+    /**
+     * Creates the SUT with a single-threaded bulk lane (blocking and metric actions) and an interactive default lane.
+     *
+     * @param inBulkQueueSize
+     *            Queue size of the bulk lane.
+     */
+    private void createSut(final int inBulkQueueSize)
+    {
+        TaskLane bulk = new TaskLane("bulk", 1, inBulkQueueSize);
+        bulk.setActionKeys(Arrays.asList(BLOCKING_ACTION, METRIC_ACTION));
+        bulk.setBatchedActionKeys(Arrays.asList(METRIC_ACTION));
+        TaskLane interactive = new TaskLane("interactive", 2, 10);
+        sut = new LaneTaskHandler(executor, transactionManager, Arrays.asList(bulk, interactive), "interactive",
+                statistics);
+    }
+
+    /**
+     * Waits for a number of actions to have executed.
+     *
+     * @param inCount
+     *            Number of actions.
+     * @throws InterruptedException
+     *             Shouldn't.
+     */
+    private void waitForExecuted(final int inCount) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_SECONDS);
+        while (executed.size() < inCount && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(inCount, executed.size());
+    }
+
+    /**
+     * @param inActionKey
+     *            Action key.
+     * @return A request.
+     */
+    private UserActionRequest request(final String inActionKey)
+    {
+        return new UserActionRequest(inActionKey, null, null);
+    }
+
+    /**
+     * Releases anything left blocked and stops the threads.
+     */
+    @After
+    public void tearDown()
+    {
+        release.countDown();
+        sut.shutdown();
+    }
+
+    /**
+     * Tests interactive work is executed while the bulk lane is busy.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testLanesAreIndependent() throws Exception
+    {
+        createSut(10);
+
+        sut.handleTask(request(BLOCKING_ACTION));
+        sut.handleTask(request("deleteCacheKeysAction"));
+        waitForExecuted(1);
+        assertEquals("deleteCacheKeysAction", executed.get(0));
+        assertTrue(threads.get(0).startsWith("task-lane-interactive-"));
+
+        release.countDown();
+        waitForExecuted(2);
+        assertEquals(2, statistics.getCount("bulk" + LaneTaskHandler.STAT_SEPARATOR + LaneTaskHandler.RUN_MILLIS_STAT)
+                + statistics.getCount("interactive" + LaneTaskHandler.STAT_SEPARATOR
+                        + LaneTaskHandler.RUN_MILLIS_STAT));
+    }
+
+    /**
+     * Tests consecutive batchable requests are executed in one transaction.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testBatching() throws Exception
+    {
+        createSut(10);
+
+        sut.handleTask(request(BLOCKING_ACTION));
+        Thread.sleep(100); // let the worker take the blocking request
+        sut.handleTask(request(METRIC_ACTION));
+        sut.handleTask(request(METRIC_ACTION));
+        sut.handleTask(request(METRIC_ACTION));
+        assertEquals(3, sut.getQueueDepth("bulk"));
+
+        release.countDown();
+        waitForExecuted(4);
+        assertEquals(1, begun.get());
+        assertEquals(1, committed.get());
+        assertEquals(3, statistics.getTotal("bulk" + LaneTaskHandler.STAT_SEPARATOR
+                + LaneTaskHandler.BATCH_SIZE_STAT));
+        assertEquals(3, followOns.size());
+    }
+
+    /**
+     * Tests a failed batch is executed again one request at a time, with the follow-on requests submitted only by the
+     * one-at-a-time executions.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testBatchFallback() throws Exception
+    {
+        createSut(10);
+        failCommits = true;
+
+        sut.handleTask(request(BLOCKING_ACTION));
+        Thread.sleep(100); // let the worker take the blocking request
+        sut.handleTask(request(METRIC_ACTION));
+        sut.handleTask(request(METRIC_ACTION));
+
+        release.countDown();
+        waitForExecuted(5);
+        assertEquals(1, rolledBack.get());
+        assertEquals(1, statistics.getCount("bulk" + LaneTaskHandler.STAT_SEPARATOR
+                + LaneTaskHandler.BATCH_FALLBACK_STAT));
+        assertEquals(2, followOns.size());
+    }
+
+    /**
+     * Tests requests are executed on the submitting thread when the lane is full.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testFullLaneRunsInline() throws Exception
+    {
+        createSut(1);
+
+        sut.handleTask(request(BLOCKING_ACTION));
+        Thread.sleep(100); // let the worker take the blocking request
+        sut.handleTask(request(METRIC_ACTION));
+        sut.handleTask(request(METRIC_ACTION));
+
+        assertEquals(1, executed.size());
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+        assertEquals(1, statistics.getCount("bulk" + LaneTaskHandler.STAT_SEPARATOR + LaneTaskHandler.REJECTED_STAT));
+
+        release.countDown();
+        waitForExecuted(3);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.LocalTaskHandler;
+import org.eurekastreams.commons.task.TaskHandler;
+import org.eurekastreams.commons.task.TaskJournal;
+import org.eurekastreams.commons.util.KeyedStatistics;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests LocalTaskHandler.
+ */
+public class LocalTaskHandlerTest
+{
+    /** Seconds to wait for background work. */
+    private static final int WAIT_SECONDS = 5;
+
+    /** Action which blocks until released. */
+    private static final String BLOCKING_ACTION = "blockingAction";
+
+    /** Action which submits another action to the SUT. */
+    private static final String SUBMITTING_ACTION = "submittingAction";
+
+    /** Released to let blocking actions finish. */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /** Counted down when a blocking action starts. */
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    /** Keys of the executed actions, in order. */
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    /** Names of the threads the actions were executed on. */
+    private final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+
+    /** Statistics. */
+    private final KeyedStatistics statistics = new KeyedStatistics();
+
+    /** Journal file. */
+    private File journalFile;
+
+    /** System under test. */
+    private LocalTaskHandler sut;
+
+    /** Executor recording what it runs; blocking actions wait to be released. */
+    private final TaskHandler executor = new TaskHandler()
+    {
+        public void handleTask(final UserActionRequest inUserActionRequest) throws Exception
+        {
+            if (BLOCKING_ACTION.equals(inUserActionRequest.getActionKey()))
+            {
+                blocked.countDown();
+                release.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            }
+            else if (SUBMITTING_ACTION.equals(inUserActionRequest.getActionKey()))
+            {
+                sut.handleTask(request("followOnAction"));
+            }
+            threads.add(Thread.currentThread().getName());
+            executed.add(inUserActionRequest.getActionKey());
+        }
+    };
+
+    /**
+     * Waits for actions to have executed.
+     *
+     * @param inActionKeys
+     *            Keys of the actions.
+     * @throws InterruptedException
+     *             Shouldn't.
+     */
+    private void waitForExecuted(final String... inActionKeys) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(WAIT_SECONDS);
+        while (!executed.containsAll(Arrays.asList(inActionKeys)) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertTrue(executed.toString(), executed.containsAll(Arrays.asList(inActionKeys)));
+    }
+
+    /**
+     * @param inActionKey
+     *            Action key.
+     * @return A request.
+     */
+    private UserActionRequest request(final String inActionKey)
+    {
+        return new UserActionRequest(inActionKey, null, null);
+    }
+
+    /**
+     * Creates a journal on the test's file.
+     *
+     * @return The journal.
+     * @throws Exception
+     *             Shouldn't.
+     */
+    private TaskJournal journal() throws Exception
+    {
+        if (journalFile == null)
+        {
+            journalFile = File.createTempFile("tasks", ".journal");
+        }
+        return new TaskJournal(journalFile, new UserActionRequestCodec());
+    }
+
+    /**
+     * Releases anything left blocked, stops the threads and removes the journal.
+     */
+    @After
+    public void tearDown()
+    {
+        release.countDown();
+        sut.shutdown();
+        if (journalFile != null)
+        {
+            journalFile.delete();
+        }
+    }
+
+    /**
+     * Tests requests are executed on the workers, including ones submitted by running actions.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testExecutesOnWorkers() throws Exception
+    {
+        sut = new LocalTaskHandler(executor, 2, 10, null, statistics);
+        sut.start();
+
+        sut.handleTask(request(SUBMITTING_ACTION));
+        waitForExecuted(SUBMITTING_ACTION, "followOnAction");
+
+        for (String thread : threads)
+        {
+            assertTrue(thread.startsWith("task-local-"));
+        }
+        assertEquals(2, statistics.getCount(LocalTaskHandler.RUN_MILLIS_STAT));
+        assertEquals(0, statistics.getCount(LocalTaskHandler.REJECTED_STAT));
+    }
+
+    /**
+     * Tests an idle worker takes requests given to a busy one.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testIdleWorkerSteals() throws Exception
+    {
+        sut = new LocalTaskHandler(executor, 2, 10, null, statistics);
+        sut.start();
+
+        // requests are dealt to the workers in turn, so "b" waits behind the blocking action unless stolen
+        sut.handleTask(request(BLOCKING_ACTION));
+        assertTrue(blocked.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        sut.handleTask(request("a"));
+        sut.handleTask(request("b"));
+        sut.handleTask(request("c"));
+        waitForExecuted("a", "b", "c");
+        assertFalse(executed.contains(BLOCKING_ACTION));
+        assertEquals(0, sut.getQueueDepth());
+    }
+
+    /**
+     * Tests requests are executed on the submitting thread when the pool is full.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testFullPoolExecutesInline() throws Exception
+    {
+        sut = new LocalTaskHandler(executor, 1, 1, null, statistics);
+        sut.start();
+
+        sut.handleTask(request(BLOCKING_ACTION));
+        assertTrue(blocked.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        sut.handleTask(request("queued"));
+        sut.handleTask(request("inline"));
+
+        assertEquals(Arrays.asList("inline"), executed);
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+        assertEquals(1, statistics.getCount(LocalTaskHandler.REJECTED_STAT));
+        assertEquals(1, sut.getQueueDepth());
+
+        release.countDown();
+        waitForExecuted(BLOCKING_ACTION, "queued");
+    }
+
+    /**
+     * Tests requests not executed when shut down are executed by the next handler using the journal.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testJournalSurvivesRestart() throws Exception
+    {
+        sut = new LocalTaskHandler(executor, 1, 10, journal(), statistics);
+        sut.start();
+
+        sut.handleTask(request(BLOCKING_ACTION));
+        assertTrue(blocked.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        sut.handleTask(request("a"));
+        sut.handleTask(request("b"));
+        sut.shutdown();
+        assertFalse(executed.contains("a"));
+
+        release.countDown();
+        sut = new LocalTaskHandler(executor, 1, 10, journal(), statistics);
+        Thread.sleep(100);
+        assertFalse(executed.contains("a"));
+        sut.start();
+        waitForExecuted("a", "b");
+    }
+
+    /**
+     * Tests requests are executed on the submitting thread (and not journaled) until the handler is started.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testNotStartedExecutesInline() throws Exception
+    {
+        sut = new LocalTaskHandler(executor, 1, 10, journal(), statistics);
+
+        sut.handleTask(request("a"));
+        assertEquals(Arrays.asList("a"), executed);
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+
+        sut.start();
+        sut.handleTask(request("b"));
+        waitForExecuted("b");
+        assertEquals(Arrays.asList("a", "b"), executed);
+    }
+}
@@ -15,13 +15,17 @@
  */
 package org.eurekastreams.commons.messaging;
 
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
+import javax.jms.Session;
 
 import org.eurekastreams.commons.server.UserActionRequest;
 import org.eurekastreams.commons.task.QueueTaskHandler;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.Test;
 import org.springframework.jms.core.JmsTemplate;
@@ -113,4 +117,44 @@ public class QueueTaskHandlerTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test sending in the compact format.
+     */
+    @Test
+    public void testHandleTaskCompact()
+    {
+        final Session session = context.mock(Session.class);
+        final BytesMessage message = context.mock(BytesMessage.class);
+        final UserActionRequest request = new UserActionRequest("TestAction", null, 5L);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(jmsTemplateMock).getDefaultDestination();
+                will(returnValue(queueMock));
+
+                oneOf(jmsTemplateMock).send(with(any(MessageCreator.class)));
+                will(new CustomAction("create message")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        ((MessageCreator) inInvocation.getParameter(0)).createMessage(session);
+                        return null;
+                    }
+                });
+
+                oneOf(session).createBytesMessage();
+                will(returnValue(message));
+
+                oneOf(message).writeBytes(with(any(byte[].class)));
+            }
+        });
+
+        sut = new QueueTaskHandler(jmsTemplateMock);
+        sut.setCodec(new UserActionRequestCodec());
+        sut.setSendCompact(true);
+        sut.handleTask(request);
+
+        context.assertIsSatisfied();
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.TaskJournal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests TaskJournal.
+ */
+public class TaskJournalTest
+{
+    /** Journal file. */
+    private File file;
+
+    /** System under test. */
+    private TaskJournal sut;
+
+    /**
+     * Creates the file.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        file = File.createTempFile("tasks", ".journal");
+        sut = new TaskJournal(file, new UserActionRequestCodec());
+    }
+
+    /**
+     * Removes the file.
+     */
+    @After
+    public void tearDown()
+    {
+        sut.close();
+        file.delete();
+    }
+
+    /**
+     * Reopens the file with a new journal.
+     *
+     * @return The unfinished requests' action keys.
+     * @throws Exception
+     *             Shouldn't.
+     */
+    private List<String> reopen() throws Exception
+    {
+        sut.close();
+        sut = new TaskJournal(file, new UserActionRequestCodec());
+        List<String> keys = new ArrayList<String>();
+        for (UserActionRequest request : sut.recover().values())
+        {
+            keys.add(request.getActionKey());
+        }
+        return keys;
+    }
+
+    /**
+     * Tests unfinished requests are recovered in order, and recovered ones keep their sequence numbers.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testRecover() throws Exception
+    {
+        assertEquals(0, sut.recover().size());
+        sut.add(new UserActionRequest("a", null, 1L));
+        long b = sut.add(new UserActionRequest("b", null, 2L));
+        sut.add(new UserActionRequest("c", null, null));
+        sut.done(b);
+        assertEquals(2, sut.getOutstandingCount());
+
+        assertEquals(Arrays.asList("a", "c"), reopen());
+
+        sut.close();
+        sut = new TaskJournal(file, new UserActionRequestCodec());
+        Map<Long, UserActionRequest> recovered = sut.recover();
+        long next = sut.add(new UserActionRequest("d", null, null));
+        for (Long sequence : recovered.keySet())
+        {
+            assertTrue(next > sequence);
+            sut.done(sequence);
+        }
+        assertEquals(Arrays.asList("d"), reopen());
+    }
+
+    /**
+     * Tests a partial record left by a crash is ignored.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testPartialRecord() throws Exception
+    {
+        sut.recover();
+        sut.add(new UserActionRequest("a", null, null));
+        sut.close();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] { 1, 5, 0, 0 });
+        out.close();
+
+        assertEquals(Arrays.asList("a"), reopen());
+    }
+
+    /**
+     * Tests the file is compacted once it has grown past the compaction size and is mostly finished requests.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testCompaction() throws Exception
+    {
+        final int compactBytes = 100;
+        sut.setCompactBytes(compactBytes);
+        sut.recover();
+        List<Long> sequences = new ArrayList<Long>();
+        for (int i = 0; i < 10; i++)
+        {
+            sequences.add(sut.add(new UserActionRequest("someAction", null, (long) i)));
+        }
+        assertTrue(file.length() > compactBytes);
+        for (Long sequence : sequences)
+        {
+            sut.done(sequence);
+        }
+        assertTrue(file.length() < compactBytes);
+        assertEquals(0, reopen().size());
+    }
+
+    /**
+     * Tests the file stays bounded while some request is always outstanding: once mostly finished requests, it is
+     * rewritten with just the unfinished ones.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testCompactionWithOutstanding() throws Exception
+    {
+        final int compactBytes = 200;
+        final int count = 1000;
+        sut.setCompactBytes(compactBytes);
+        sut.recover();
+        sut.add(new UserActionRequest("stuck", null, null));
+        for (int i = 0; i < count; i++)
+        {
+            sut.done(sut.add(new UserActionRequest("someAction", null, (long) i)));
+            assertTrue(file.length() < compactBytes * 2);
+        }
+        long last = sut.add(new UserActionRequest("last", null, null));
+        assertEquals(2, sut.getOutstandingCount());
+
+        assertEquals(Arrays.asList("stuck", "last"), reopen());
+        assertTrue(sut.add(new UserActionRequest("next", null, null)) > last);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eurekastreams.commons.actions.context.DefaultPrincipal;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.server.action.request.notification.CommentNotificationsRequest;
+import org.eurekastreams.server.action.request.notification.CreateNotificationsRequest;
+import org.eurekastreams.server.action.request.notification.CreateNotificationsRequest.RequestType;
+import org.eurekastreams.server.action.request.notification.NotificationsRequestCodec;
+import org.eurekastreams.server.domain.UsageMetric;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
+import org.eurekastreams.server.persistence.mappers.requests.UsageMetricPersistenceRequestCodec;
+
+/**
+ * Manual benchmark comparing Java serialization of a UserActionRequest with the compact codec: bytes per message and
+ * encode/decode time. Not run by the build (not named *Test); run its main() from the IDE or with the test classpath.
+ */
+public final class UserActionRequestCodecBenchmark
+{
+    /** Iterations per measurement. */
+    private static final int ITERATIONS = 20000;
+
+    /** Warmup iterations. */
+    private static final int WARMUP = 5000;
+
+    /** Size of the id chunk (matches the activity delete chunking). */
+    private static final int ID_CHUNK = 500;
+
+    /** Hide constructor. */
+    private UserActionRequestCodecBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            ignored.
+     * @throws Exception
+     *             Shouldn't.
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        UserActionRequestCodec codec = new UserActionRequestCodec(Arrays.<ParamCodec> asList(
+                new NotificationsRequestCodec(), new UsageMetricPersistenceRequestCodec()));
+        DefaultPrincipal user = new DefaultPrincipal("jdoe", "opensocial-jdoe", 42L);
+
+        ArrayList<Long> ids = new ArrayList<Long>(ID_CHUNK);
+        for (long id = 8000000L; ids.size() < ID_CHUNK; id -= 3)
+        {
+            ids.add(id);
+        }
+
+        Map<String, UserActionRequest> samples = new LinkedHashMap<String, UserActionRequest>();
+        samples.put("deleteActivities", new UserActionRequest("deleteActivitiesByIds", null, ids));
+        samples.put("commentNotification", new UserActionRequest(CreateNotificationsRequest.ACTION_NAME, user,
+                new CommentNotificationsRequest(RequestType.COMMENT, 42L, 1234L, 5678901L, 2345678L)));
+        samples.put("usageMetric", new UserActionRequest("persistUserMetricAsyncAction", null,
+                new PersistenceRequest<UsageMetric>(new UsageMetric(42L, true, true, 99L, new Date()))));
+
+        System.out.println("message\tjava bytes\tcompact bytes\tjava encode+decode us\tcompact encode+decode us");
+        for (Entry<String, UserActionRequest> entry : samples.entrySet())
+        {
+            UserActionRequest request = entry.getValue();
+            System.out.println(entry.getKey() + "\t" + serialize(request).length + "\t"
+                    + codec.encode(request).length + "\t" + timeJava(request) + "\t" + timeCodec(codec, request));
+        }
+    }
+
+    /**
+     * Serializes with Java serialization (as ObjectMessage does).
+     *
+     * @param inRequest
+     *            request.
+     * @return bytes.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private static byte[] serialize(final Serializable inRequest) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(inRequest);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Times a Java serialization round trip.
+     *
+     * @param inRequest
+     *            request.
+     * @return average microseconds per round trip.
+     * @throws Exception
+     *             Shouldn't.
+     */
+    private static double timeJava(final UserActionRequest inRequest) throws Exception
+    {
+        long sink = 0;
+        long start = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++)
+        {
+            if (i == WARMUP)
+            {
+                start = System.nanoTime();
+            }
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(inRequest)));
+            sink += ((UserActionRequest) in.readObject()).getActionKey().length();
+        }
+        return report(start, sink);
+    }
+
+    /**
+     * Times a codec round trip.
+     *
+     * @param inCodec
+     *            codec.
+     * @param inRequest
+     *            request.
+     * @return average microseconds per round trip.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private static double timeCodec(final UserActionRequestCodec inCodec, final UserActionRequest inRequest)
+            throws IOException
+    {
+        long sink = 0;
+        long start = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++)
+        {
+            if (i == WARMUP)
+            {
+                start = System.nanoTime();
+            }
+            sink += inCodec.decode(inCodec.encode(inRequest)).getActionKey().length();
+        }
+        return report(start, sink);
+    }
+
+    /**
+     * Computes the average time since the start of measurement.
+     *
+     * @param inStart
+     *            nanoTime when measurement started.
+     * @param inSink
+     *            accumulated result (keeps the work from being optimized away).
+     * @return average microseconds per iteration.
+     */
+    private static double report(final long inStart, final long inSink)
+    {
+        long elapsed = System.nanoTime() - inStart;
+        if (inSink == 0)
+        {
+            System.out.println();
+        }
+        return elapsed / 1000.0 / ITERATIONS;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.eurekastreams.commons.actions.context.DefaultPrincipal;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.junit.Test;
+
+/**
+ * Tests UserActionRequestCodec.
+ */
+public class UserActionRequestCodecTest
+{
+    /** Parameters handled by the test codec. */
+    private static class Point implements Serializable
+    {
+        /** Serial version id. */
+        private static final long serialVersionUID = 1L;
+
+        /** X. */
+        private final int x;
+
+        /** Y. */
+        private final int y;
+
+        /**
+         * Constructor.
+         *
+         * @param inX
+         *            X.
+         * @param inY
+         *            Y.
+         */
+        public Point(final int inX, final int inY)
+        {
+            x = inX;
+            y = inY;
+        }
+    }
+
+    /** Codec for Point. */
+    private final ParamCodec pointCodec = new ParamCodec()
+    {
+        public int getTypeId()
+        {
+            return UserActionRequestCodec.FIRST_CUSTOM_TYPE_ID;
+        }
+
+        public boolean canEncode(final Serializable inParams)
+        {
+            return inParams instanceof Point;
+        }
+
+        public void encode(final Serializable inParams, final DataOutput inOut) throws IOException
+        {
+            inOut.writeInt(((Point) inParams).x);
+            inOut.writeInt(((Point) inParams).y);
+        }
+
+        public Serializable decode(final DataInput inIn) throws IOException
+        {
+            return new Point(inIn.readInt(), inIn.readInt());
+        }
+    };
+
+    /** System under test. */
+    private final UserActionRequestCodec sut = new UserActionRequestCodec(Collections.singletonList(pointCodec));
+
+    /**
+     * Encodes and decodes a request.
+     *
+     * @param inParams
+     *            Parameters.
+     * @return Decoded parameters.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private Serializable roundTrip(final Serializable inParams) throws IOException
+    {
+        UserActionRequest result = sut.decode(sut.encode(new UserActionRequest("action", null, inParams)));
+        assertEquals("action", result.getActionKey());
+        assertNull(result.getUser());
+        return result.getParams();
+    }
+
+    /**
+     * Tests the built-in parameter types.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testBuiltInTypes() throws IOException
+    {
+        assertNull(roundTrip(null));
+        assertEquals("text", roundTrip("text"));
+        assertEquals(Long.MIN_VALUE, roundTrip(Long.MIN_VALUE));
+        assertEquals(-7, roundTrip(-7));
+        assertEquals(Boolean.TRUE, roundTrip(true));
+
+        ArrayList<Long> ids = new ArrayList<Long>(Arrays.asList(9000000000L, 8999999990L, 5L, Long.MAX_VALUE, 0L));
+        Serializable list = roundTrip(ids);
+        assertEquals(ArrayList.class, list.getClass());
+        assertEquals(ids, list);
+
+        assertTrue(Arrays.equals(new long[] { 3L, -3L, Long.MAX_VALUE }, (long[]) roundTrip(new long[] { 3L, -3L,
+                Long.MAX_VALUE })));
+        assertTrue(Arrays.equals(new int[] { 1, Integer.MIN_VALUE }, (int[]) roundTrip(new int[] { 1,
+                Integer.MIN_VALUE })));
+    }
+
+    /**
+     * Tests registered codecs and the serialization fallback.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testCodecsAndFallback() throws IOException
+    {
+        Point point = (Point) roundTrip(new Point(3, 4));
+        assertEquals(3, point.x);
+        assertEquals(4, point.y);
+
+        HashMap<String, Long> map = new HashMap<String, Long>();
+        map.put("a", 1L);
+        assertEquals(map, roundTrip(map));
+
+        // lists other than ArrayLists of Longs keep their class via serialization
+        LinkedList<Long> linked = new LinkedList<Long>(Arrays.asList(1L, 2L));
+        assertEquals(LinkedList.class, roundTrip(linked).getClass());
+        ArrayList<Long> withNull = new ArrayList<Long>(Arrays.asList(1L, null));
+        assertEquals(withNull, roundTrip(withNull));
+    }
+
+    /**
+     * Tests the principal is carried.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testPrincipal() throws IOException
+    {
+        UserActionRequest result = sut.decode(sut.encode(new UserActionRequest("action", new DefaultPrincipal(
+                "jdoe", null, 42L), 1L)));
+        assertEquals("jdoe", result.getUser().getAccountId());
+        assertNull(result.getUser().getOpenSocialId());
+        assertEquals(Long.valueOf(42L), result.getUser().getId());
+    }
+
+    /**
+     * Tests an id list encodes much smaller than with Java serialization.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testLongListIsCompact() throws IOException
+    {
+        final int count = 1000;
+        ArrayList<Long> ids = new ArrayList<Long>();
+        for (long id = 5000000L; ids.size() < count; id -= 3)
+        {
+            ids.add(id);
+        }
+        assertTrue(sut.encode(new UserActionRequest("deleteActivitiesByIds", null, ids)).length < count + 50);
+    }
+
+    /**
+     * Tests bytes from another source are rejected.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = IOException.class)
+    public void testDecodeGarbage() throws IOException
+    {
+        sut.decode(new byte[] { 1, 2, 3 });
+    }
+
+    /**
+     * Tests a parameter type with no registered codec is rejected.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = IOException.class)
+    public void testDecodeUnknownType() throws IOException
+    {
+        byte[] bytes = sut.encode(new UserActionRequest("action", null, new Point(1, 2)));
+        new UserActionRequestCodec().decode(bytes);
+    }
+
+    /**
+     * Tests a type id can't be registered twice.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateTypeId()
+    {
+        List<ParamCodec> codecs = new ArrayList<ParamCodec>();
+        codecs.add(pointCodec);
+        codecs.add(pointCodec);
+        new UserActionRequestCodec(codecs);
+    }
+}
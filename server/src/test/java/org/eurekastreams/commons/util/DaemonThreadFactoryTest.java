@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests DaemonThreadFactory.
+ */
+public class DaemonThreadFactoryTest
+{
+    /**
+     * Tests threads are daemons, numbered in order.
+     */
+    @Test
+    public void testNewThread()
+    {
+        Runnable runnable = new Runnable()
+        {
+            public void run()
+            {
+            }
+        };
+        DaemonThreadFactory sut = new DaemonThreadFactory("pool");
+
+        Thread first = sut.newThread(runnable);
+        Thread second = sut.newThread(runnable);
+
+        assertTrue(first.isDaemon());
+        assertTrue(second.isDaemon());
+        assertEquals("pool-1", first.getName());
+        assertEquals("pool-2", second.getName());
+    }
+}
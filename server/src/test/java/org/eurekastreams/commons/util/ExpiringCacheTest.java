@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests ExpiringCache.
+ */
+public class ExpiringCacheTest
+{
+    /** Long time to live. */
+    private static final long LONG_TTL = 60000L;
+
+    /**
+     * Tests storing, reading, and removing.
+     */
+    @Test
+    public void testPutGetRemove()
+    {
+        ExpiringCache<String, Integer> sut = new ExpiringCache<String, Integer>(5, LONG_TTL);
+        sut.put("a", 1);
+
+        assertEquals(Integer.valueOf(1), sut.get("a"));
+        assertNull(sut.get("b"));
+        sut.remove("a");
+        assertNull(sut.get("a"));
+
+        assertEquals(1, sut.getStatistics().getCount(ExpiringCache.HIT_STAT));
+        assertEquals(2, sut.getStatistics().getCount(ExpiringCache.MISS_STAT));
+    }
+
+    /**
+     * Tests the least recently used entry is evicted.
+     */
+    @Test
+    public void testEviction()
+    {
+        ExpiringCache<String, Integer> sut = new ExpiringCache<String, Integer>(2, LONG_TTL);
+        sut.put("a", 1);
+        sut.put("b", 2);
+        sut.get("a");
+        sut.put("c", 3);
+
+        assertEquals(2, sut.size());
+        assertNull(sut.get("b"));
+        assertEquals(Integer.valueOf(1), sut.get("a"));
+        assertEquals(Integer.valueOf(3), sut.get("c"));
+        assertEquals(1, sut.getStatistics().getCount(ExpiringCache.EVICT_STAT));
+    }
+
+    /**
+     * Tests entries expire.
+     */
+    @Test
+    public void testExpiration()
+    {
+        ExpiringCache<String, Integer> sut = new ExpiringCache<String, Integer>(5, LONG_TTL);
+        sut.put("a", 1, -1);
+        sut.put("b", 2);
+
+        assertNull(sut.get("a"));
+        assertEquals(Integer.valueOf(2), sut.get("b"));
+        assertEquals(1, sut.size());
+    }
+}
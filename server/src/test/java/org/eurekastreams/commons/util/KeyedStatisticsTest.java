@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests KeyedStatistics.
+ */
+public class KeyedStatisticsTest
+{
+    /**
+     * Tests recording samples.
+     */
+    @Test
+    public void testRecord()
+    {
+        KeyedStatistics sut = new KeyedStatistics();
+        sut.record("a", 5);
+        sut.record("a", 9);
+        sut.increment("b");
+
+        assertEquals(2, sut.getCount("a"));
+        assertEquals(14, sut.getTotal("a"));
+        assertEquals(9, sut.get("a").getMax());
+        assertEquals(7.0, sut.get("a").getMean(), 0.0);
+        assertEquals(1, sut.getCount("b"));
+        assertEquals(0, sut.getCount("c"));
+        assertEquals(2, sut.getAll().size());
+
+        sut.reset();
+        assertNull(sut.get("a"));
+    }
+
+    /**
+     * Tests names past the limit are folded together.
+     */
+    @Test
+    public void testOverflow()
+    {
+        KeyedStatistics sut = new KeyedStatistics(2);
+        sut.increment("a");
+        sut.increment("b");
+        sut.increment("c");
+        sut.increment("d");
+        sut.increment("a");
+
+        assertEquals(2, sut.getCount("a"));
+        assertEquals(0, sut.getCount("c"));
+        assertEquals(2, sut.getCount(KeyedStatistics.OVERFLOW_KEY));
+    }
+}
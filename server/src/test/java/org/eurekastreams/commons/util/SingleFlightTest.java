@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests SingleFlight.
+ */
+public class SingleFlightTest
+{
+    /** Milliseconds to wait for threads. */
+    private static final long TIMEOUT = 10000L;
+
+    /** System under test. */
+    private final SingleFlight<String, Object> sut = new SingleFlight<String, Object>();
+
+    /**
+     * Starts a thread loading the key, recording the value it gets.
+     *
+     * @param inLoader
+     *            the loader
+     * @param inResult
+     *            receives the value
+     * @return the thread
+     */
+    private Thread startCaller(final Callable<Object> inLoader, final AtomicReference<Object> inResult)
+    {
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                inResult.set(sut.execute("key", inLoader));
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Tests that concurrent loads of a key share one load.
+     *
+     * @throws Exception
+     *             on error.
+     */
+    @Test
+    public void testExecuteConcurrent() throws Exception
+    {
+        final Object value = new Object();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<Object> loader = new Callable<Object>()
+        {
+            public Object call() throws Exception
+            {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                return value;
+            }
+        };
+
+        AtomicReference<Object> firstResult = new AtomicReference<Object>();
+        AtomicReference<Object> secondResult = new AtomicReference<Object>();
+        Thread first = startCaller(loader, firstResult);
+        loading.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        Thread second = startCaller(loader, secondResult);
+
+        // wait for the second caller to block on the load in progress
+        long giveUp = System.currentTimeMillis() + TIMEOUT;
+        while (second.getState() != Thread.State.WAITING && System.currentTimeMillis() < giveUp)
+        {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.join(TIMEOUT);
+        second.join(TIMEOUT);
+
+        assertEquals(1, loads.get());
+        assertSame(value, firstResult.get());
+        assertSame(value, secondResult.get());
+        assertEquals(0, sut.getInFlightCount());
+    }
+
+    /**
+     * Tests that loads one after another are not shared.
+     */
+    @Test
+    public void testExecuteSequential()
+    {
+        final AtomicInteger loads = new AtomicInteger();
+        Callable<Object> loader = new Callable<Object>()
+        {
+            public Object call()
+            {
+                return loads.incrementAndGet();
+            }
+        };
+
+        assertEquals(1, sut.execute("key", loader));
+        assertEquals(2, sut.execute("key", loader));
+        assertEquals(3, sut.execute(null, loader));
+    }
+
+    /**
+     * Tests that a load's exception is rethrown.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testExecuteException()
+    {
+        sut.execute("key", new Callable<Object>()
+        {
+            public Object call()
+            {
+                throw new IllegalStateException();
+            }
+        });
+    }
+}
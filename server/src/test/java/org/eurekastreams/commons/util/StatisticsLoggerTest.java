@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.commons.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests StatisticsLogger.
+ */
+public class StatisticsLoggerTest
+{
+    /**
+     * Tests formatting statistics.
+     */
+    @Test
+    public void testFormat()
+    {
+        KeyedStatistics statistics = new KeyedStatistics();
+        assertEquals("", StatisticsLogger.format(statistics));
+
+        statistics.record("b", 3);
+        statistics.record("a", 5);
+        statistics.record("a", 9);
+        assertEquals("\n    a: count=2 mean=7 max=9\n    b: count=1 mean=3 max=3", StatisticsLogger.format(statistics));
+    }
+
+    /**
+     * Tests logging with no schedule.
+     */
+    @Test
+    public void testLogAll()
+    {
+        KeyedStatistics statistics = new KeyedStatistics();
+        statistics.increment("a");
+        StatisticsLogger sut = new StatisticsLogger(Collections.singletonMap("lanes", statistics), 0);
+        sut.logAll();
+        sut.shutdown();
+    }
+}
@@ -15,7 +15,12 @@
  */
 package org.eurekastreams.server.action.execution.feed;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -25,6 +30,7 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import org.eurekastreams.commons.actions.context.ActionContext;
+import org.eurekastreams.commons.util.KeyedStatistics;
 import org.eurekastreams.server.action.request.feed.RefreshFeedRequest;
 import org.eurekastreams.server.domain.DomainGroup;
 import org.eurekastreams.server.domain.EntityType;
@@ -32,15 +38,20 @@ import org.eurekastreams.server.domain.Person;
 import org.eurekastreams.server.domain.gadgetspec.GadgetMetaDataDTO;
 import org.eurekastreams.server.domain.stream.Activity;
 import org.eurekastreams.server.domain.stream.BaseObjectType;
+import org.eurekastreams.server.domain.stream.StreamScope;
+import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
 import org.eurekastreams.server.domain.stream.plugins.Feed;
 import org.eurekastreams.server.domain.stream.plugins.FeedSubscriber;
 import org.eurekastreams.server.domain.stream.plugins.PluginDefinition;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.FindByIdMapper;
 import org.eurekastreams.server.persistence.mappers.InsertMapper;
 import org.eurekastreams.server.persistence.mappers.UpdateMapper;
 import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
 import org.eurekastreams.server.persistence.mappers.cache.MemcachedCache;
+import org.eurekastreams.server.persistence.mappers.db.GetFeedSubscriberStreamsDbMapper.SubscriberStream;
 import org.eurekastreams.server.persistence.mappers.requests.FindByIdRequest;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceListRequest;
 import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.FeedObjectActivityBuilder;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.ObjectBuilderForSpecificUrl;
@@ -48,9 +59,13 @@ import org.eurekastreams.server.service.actions.strategies.activity.plugins.rome
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.rome.ActivityStreamsModuleImpl;
 import org.eurekastreams.server.service.actions.strategies.activity.plugins.rome.FeedFactory;
 import org.eurekastreams.server.service.opensocial.gadgets.spec.GadgetMetaDataFetcher;
+import org.eurekastreams.server.service.utility.http.ConditionalFetch;
+import org.eurekastreams.server.service.utility.http.NotModifiedException;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.Before;
 import org.junit.Test;
@@ -658,4 +673,249 @@ public class RefreshFeedExecutionTest
 
         context.assertIsSatisfied();
     }
+
+    /**
+     * Tests an unchanged feed (304) is not parsed and keeps its state.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testConditionalGetNotModified() throws Exception
+    {
+        KeyedStatistics statistics = new KeyedStatistics();
+        sut.setConditionalGet(true);
+        sut.setStatistics(statistics);
+
+        context.checking(new Expectations()
+        {
+            {
+                allowing(feed).getHttpETag();
+                will(returnValue("\"v1\""));
+
+                allowing(feed).getHttpLastModified();
+                will(returnValue("Mon, 07 Mar 2011 10:00:00 GMT"));
+
+                oneOf(feedFetcherFactory).getSyndicatedFeed(with(equal(FEED_URL)), with(any(List.class)));
+                will(new CustomAction("answer 304")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        ConditionalFetch conditional = ConditionalFetch.current();
+                        assertEquals("\"v1\"", conditional.getRequestETag());
+                        assertEquals("Mon, 07 Mar 2011 10:00:00 GMT", conditional.getRequestLastModified());
+                        conditional.startRequest();
+                        conditional.setNotModified();
+                        throw new NotModifiedException(FEED_URL);
+                    }
+                });
+
+                never(atomFeed1);
+            }
+        });
+
+        // no feed state other than pending/last updated may be changed (mock would reject it)
+        sut.execute(ac);
+
+        assertNull(ConditionalFetch.current());
+        assertEquals(1, statistics.getCount("www.flickr.com/" + RefreshFeedExecution.NOT_MODIFIED_STAT));
+        assertEquals(1, statistics.getCount("www.flickr.com/" + RefreshFeedExecution.FETCH_STAT));
+        assertEquals(0, statistics.getTotal("www.flickr.com/" + RefreshFeedExecution.ACTIVITIES_STAT));
+    }
+
+    /**
+     * Tests the validators returned with a changed feed are stored.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testConditionalGetStoresValidators() throws Exception
+    {
+        final int bytes = 1234;
+        KeyedStatistics statistics = new KeyedStatistics();
+        sut.setConditionalGet(true);
+        sut.setStatistics(statistics);
+
+        setupNoSyMod();
+        context.checking(new Expectations()
+        {
+            {
+                allowing(feed).getHttpETag();
+                will(returnValue(null));
+
+                allowing(feed).getHttpLastModified();
+                will(returnValue(null));
+
+                allowing(flickrMapper).match(FEED_URL);
+                will(returnValue(false));
+
+                oneOf(feedFetcherFactory).getSyndicatedFeed(with(equal(FEED_URL)), with(any(List.class)));
+                will(new CustomAction("answer 200")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        ConditionalFetch conditional = ConditionalFetch.current();
+                        conditional.startRequest();
+                        conditional.setResponseETag("\"v2\"");
+                        conditional.addBytes(bytes);
+                        return Collections.singletonMap(null, atomFeed1);
+                    }
+                });
+
+                allowing(atomFeed1).getEntries();
+                will(returnValue(Collections.EMPTY_LIST));
+
+                oneOf(feed).setHttpETag("\"v2\"");
+                oneOf(feed).setHttpLastModified(null);
+            }
+        });
+
+        sut.execute(ac);
+
+        context.assertIsSatisfied();
+        assertEquals(bytes, statistics.getTotal("www.flickr.com/" + RefreshFeedExecution.BYTES_STAT));
+        assertEquals(0, statistics.getCount("www.flickr.com/" + RefreshFeedExecution.NOT_MODIFIED_STAT));
+    }
+
+    /**
+     * Tests the validators returned with a changed feed are not stored if the feed could not be processed, so the
+     * next refresh fetches it again rather than getting a 304.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testConditionalGetKeepsValidatorsOnFailure() throws Exception
+    {
+        KeyedStatistics statistics = new KeyedStatistics();
+        sut.setConditionalGet(true);
+        sut.setStatistics(statistics);
+
+        setupNoSyMod();
+        context.checking(new Expectations()
+        {
+            {
+                allowing(feed).getHttpETag();
+                will(returnValue("\"v1\""));
+
+                allowing(feed).getHttpLastModified();
+                will(returnValue(null));
+
+                allowing(flickrMapper).match(FEED_URL);
+                will(returnValue(false));
+
+                oneOf(feedFetcherFactory).getSyndicatedFeed(with(equal(FEED_URL)), with(any(List.class)));
+                will(new CustomAction("answer 200")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        ConditionalFetch conditional = ConditionalFetch.current();
+                        conditional.startRequest();
+                        conditional.setResponseETag("\"v2\"");
+                        return Collections.singletonMap(null, atomFeed1);
+                    }
+                });
+
+                allowing(atomFeed1).getEntries();
+                will(throwException(new RuntimeException("processing failed")));
+
+                never(feed).setHttpETag(with(any(String.class)));
+                never(feed).setHttpLastModified(with(any(String.class)));
+            }
+        });
+
+        sut.execute(ac);
+
+        context.assertIsSatisfied();
+        assertEquals(1, statistics.getCount("www.flickr.com/" + RefreshFeedExecution.ERROR_STAT));
+    }
+
+    /**
+     * Tests subscribers are resolved in bulk (missing/locked ones skipped) and the activities inserted as a batch.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testBatchSubscriberResolutionAndInsert() throws Exception
+    {
+        final FeedObjectActivityBuilder flickrObjectMapper = context.mock(FeedObjectActivityBuilder.class);
+        final SyndEntryImpl entry1 = context.mock(SyndEntryImpl.class, "e1");
+        final DomainMapper<Collection<FeedSubscriber>, Map<FeedSubscriber, SubscriberStream>> streamsMapper = context
+                .mock(DomainMapper.class, "streamsMapper");
+        final DomainMapper<PersistenceListRequest<Activity>, List<Long>> batchInserter = context.mock(
+                DomainMapper.class, "batchInserter");
+        final StreamScope scope = new StreamScope(ScopeType.PERSON, "user1");
+        final List<Long> ids = Collections.singletonList(9L);
+        sut.setSubscriberStreamsMapper(streamsMapper);
+        sut.setActivityBatchInserter(batchInserter);
+
+        setupNoSyMod();
+        setupFetchAnonymous();
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(flickrMapper).match(FEED_URL);
+                will(returnValue(true));
+
+                oneOf(flickrMapper).getBuilder();
+                will(returnValue(flickrObjectMapper));
+
+                allowing(entry1).getPublishedDate();
+                will(returnValue(new Date(3)));
+
+                allowing(entry1).getUpdatedDate();
+                will(returnValue(new Date(3)));
+
+                allowing(entry1).getUri();
+                will(returnValue("uri"));
+
+                oneOf(flickrObjectMapper).build(with(equal(feed)), with(equal(entry1)), with(any(Activity.class)));
+
+                allowing(atomFeed1).getEntries();
+                will(returnValue(Collections.singletonList(entry1)));
+
+                // only the person subscriber resolves (the group is treated as missing)
+                oneOf(streamsMapper).execute(with(any(Collection.class)));
+                will(new CustomAction("resolve person")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        Map<FeedSubscriber, SubscriberStream> streams = new HashMap<FeedSubscriber, SubscriberStream>();
+                        for (FeedSubscriber subscriber : (Collection<FeedSubscriber>) inInvocation.getParameter(0))
+                        {
+                            if (subscriber.getEntityType() == EntityType.PERSON)
+                            {
+                                streams.put(subscriber, new SubscriberStream("user1", scope, true));
+                            }
+                        }
+                        return streams;
+                    }
+                });
+
+                oneOf(batchInserter).execute(with(any(PersistenceListRequest.class)));
+                will(new CustomAction("insert")
+                {
+                    public Object invoke(final Invocation inInvocation) throws Throwable
+                    {
+                        List<Activity> activities = ((PersistenceListRequest<Activity>) inInvocation
+                                .getParameter(0)).getDomainEnities();
+                        assertEquals(1, activities.size());
+                        assertEquals("user1", activities.get(0).getActorId());
+                        assertEquals(EntityType.PERSON, activities.get(0).getActorType());
+                        assertSame(scope, activities.get(0).getRecipientStreamScope());
+                        return ids;
+                    }
+                });
+
+                oneOf(cache).addToTopOfList(CacheKeys.BUFFERED_ACTIVITIES, ids);
+            }
+        });
+
+        sut.execute(ac);
+
+        context.assertIsSatisfied();
+    }
 }
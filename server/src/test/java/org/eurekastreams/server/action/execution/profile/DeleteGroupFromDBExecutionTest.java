@@ -16,6 +16,7 @@
 package org.eurekastreams.server.action.execution.profile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -122,6 +123,7 @@ public class DeleteGroupFromDBExecutionTest
                 allowing(deleteGroupActivityDAO).execute(groupId);
 
                 allowing(removeGroupFollowersDAO).execute(groupId);
+                will(returnValue(Arrays.asList(5L, 6L)));
 
                 allowing(deleteGroupSubscriptionsDAO).execute(
                         with(any(DeleteAllFeedSubscriberByEntityTypeAndIdRequest.class)));
@@ -138,9 +140,12 @@ public class DeleteGroupFromDBExecutionTest
 
         // check to make sure the right cache keys will be cleared
         Set<String> keysToDelete = (Set<String>) (requests.get(0)).getParams();
-        Assert.assertEquals(7, keysToDelete.size());
+        Assert.assertEquals(10, keysToDelete.size());
         Assert.assertTrue(keysToDelete.contains(CacheKeys.GROUP_BY_SHORT_NAME + shortName));
         Assert.assertTrue(keysToDelete.contains(CacheKeys.FOLLOWERS_BY_GROUP + groupId));
+        Assert.assertTrue(keysToDelete.contains(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID + groupId));
+        Assert.assertTrue(keysToDelete.contains(CacheKeys.GROUP_COUNT_BY_PERSON_ID + 5L));
+        Assert.assertTrue(keysToDelete.contains(CacheKeys.GROUP_COUNT_BY_PERSON_ID + 6L));
         Assert.assertTrue(keysToDelete.contains(CacheKeys.COORDINATOR_PERSON_IDS_BY_GROUP_ID + groupId));
         Assert.assertTrue(keysToDelete.contains(CacheKeys.GROUP_BY_ID + groupId));
         Assert.assertTrue(keysToDelete.contains(CacheKeys.ENTITY_STREAM_BY_SCOPE_ID + 3));
@@ -19,7 +19,6 @@ import static org.eurekastreams.commons.test.IsEqualInternally.equalInternally;
 import static org.junit.Assert.assertEquals;
 
 import java.io.Serializable;
-import java.util.List;
 import java.util.Set;
 
 import org.eurekastreams.commons.actions.context.Principal;
@@ -37,6 +36,8 @@ import org.eurekastreams.server.domain.Follower.FollowerStatus;
 import org.eurekastreams.server.persistence.DomainGroupMapper;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.cache.AddCachedGroupFollower;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
 import org.eurekastreams.server.persistence.mappers.db.DeleteRequestForGroupMembership;
 import org.eurekastreams.server.persistence.mappers.stream.GetDomainGroupsByShortNames;
 import org.eurekastreams.server.search.modelview.DomainGroupModelView;
@@ -121,10 +122,9 @@ public class SetFollowingGroupStatusExecutionTest
     private final AddCachedGroupFollower addCachedGroupFollowerMapperMock = context.mock(AddCachedGroupFollower.class);
 
     /**
-     * Mock instance of GetGroupFollowerIds.
+     * Mock instance of FollowCounters.
      */
-    private final DomainMapper<Long, List<Long>> groupFollowerIdsMapperMock = context.mock(DomainMapper.class,
-            "groupFollowerIdsMapperMock");
+    private final FollowCounters followCounters = context.mock(FollowCounters.class);
 
     /**
      * Mocked principal object.
@@ -149,9 +149,6 @@ public class SetFollowingGroupStatusExecutionTest
     /** Fixture: group. */
     private final DomainGroupModelView group = context.mock(DomainGroupModelView.class, "group");
 
-    /** Fixture: follower ids (a mock to insure SUT doesn't alter it). */
-    private final List<Long> followerIds = context.mock(List.class, "followerIds");
-
     /** Fixture: principal for user requesting the action. */
     private Principal principal;
 
@@ -165,7 +162,7 @@ public class SetFollowingGroupStatusExecutionTest
 
         sut = new SetFollowingGroupStatusExecution(groupByShortNameMapperMock, getPersonByIdMapper,
                 getPersonIdFromAccountIdMapper, groupMapperMock, addCachedGroupFollowerMapperMock,
-                groupFollowerIdsMapperMock, deleteRequestForGroupMembershipMapper, postActivity, deleteCacheKeyMapper);
+                followCounters, deleteRequestForGroupMembershipMapper, postActivity, deleteCacheKeyMapper);
 
         context.checking(new Expectations()
         {
@@ -174,8 +171,6 @@ public class SetFollowingGroupStatusExecutionTest
                 will(returnValue(GROUP_NAME));
                 allowing(group).getEntityId();
                 will(returnValue(GROUP_ID));
-                allowing(followerIds).size();
-                will(returnValue(5));
             }
         });
     }
@@ -201,6 +196,7 @@ public class SetFollowingGroupStatusExecutionTest
                 will(returnValue(group));
 
                 oneOf(groupMapperMock).addFollower(FOLLOWER_ID, GROUP_ID);
+                will(returnValue(true));
 
                 oneOf(addCachedGroupFollowerMapperMock).execute(1L, GROUP_ID);
 
@@ -210,8 +206,11 @@ public class SetFollowingGroupStatusExecutionTest
 
                 oneOf(postActivity).execute(with(any(TaskHandlerActionContext.class)));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, FOLLOWER_ID, 1L);
+                will(returnValue(3L));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, 1L);
+                will(returnValue(5L));
             }
         });
 
@@ -251,6 +250,7 @@ public class SetFollowingGroupStatusExecutionTest
                 allowing(person).getAccountId();
 
                 oneOf(groupMapperMock).addFollower(FOLLOWER_ID, GROUP_ID);
+                will(returnValue(true));
 
                 oneOf(addCachedGroupFollowerMapperMock).execute(1L, GROUP_ID);
 
@@ -260,8 +260,11 @@ public class SetFollowingGroupStatusExecutionTest
 
                 oneOf(postActivity).execute(with(any(TaskHandlerActionContext.class)));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, FOLLOWER_ID, 1L);
+                will(returnValue(3L));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, 1L);
+                will(returnValue(5L));
             }
         });
 
@@ -298,6 +301,7 @@ public class SetFollowingGroupStatusExecutionTest
                 will(returnValue(group));
 
                 oneOf(groupMapperMock).addFollower(FOLLOWER_ID, GROUP_ID);
+                will(returnValue(true));
 
                 oneOf(addCachedGroupFollowerMapperMock).execute(FOLLOWER_ID, GROUP_ID);
 
@@ -308,8 +312,11 @@ public class SetFollowingGroupStatusExecutionTest
 
                 oneOf(postActivity).execute(with(any(TaskHandlerActionContext.class)));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, FOLLOWER_ID, 1L);
+                will(returnValue(3L));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, 1L);
+                will(returnValue(5L));
             }
         });
 
@@ -320,8 +327,8 @@ public class SetFollowingGroupStatusExecutionTest
         context.assertIsSatisfied();
         assertEquals(5, result);
 
-        ActionTestHelper.assertAsyncActionRequests(actionContext, "deleteCacheKeysAction",
-                CreateNotificationsRequest.ACTION_NAME, CreateNotificationsRequest.ACTION_NAME);
+        ActionTestHelper.assertAsyncActionRequests(actionContext, CreateNotificationsRequest.ACTION_NAME,
+                CreateNotificationsRequest.ACTION_NAME);
     }
 
     /**
@@ -355,9 +362,13 @@ public class SetFollowingGroupStatusExecutionTest
                 will(returnValue(2));
 
                 oneOf(groupMapperMock).removeFollower(FOLLOWER_ID, GROUP_ID);
+                will(returnValue(true));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, FOLLOWER_ID, -1L);
+                will(returnValue(3L));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, -1L);
+                will(returnValue(5L));
             }
         });
 
@@ -403,9 +414,13 @@ public class SetFollowingGroupStatusExecutionTest
                 will(returnValue(1));
 
                 oneOf(groupMapperMock).removeFollower(FOLLOWER_ID, GROUP_ID);
+                will(returnValue(true));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, FOLLOWER_ID, -1L);
+                will(returnValue(3L));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, -1L);
+                will(returnValue(5L));
             }
         });
 
@@ -446,9 +461,13 @@ public class SetFollowingGroupStatusExecutionTest
                 will(returnValue(1));
 
                 oneOf(groupMapperMock).removeFollower(FOLLOWER_ID, GROUP_ID);
+                will(returnValue(true));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.GROUP_COUNT_BY_PERSON_ID, FOLLOWER_ID, -1L);
+                will(returnValue(3L));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, -1L);
+                will(returnValue(5L));
             }
         });
 
@@ -501,8 +520,8 @@ public class SetFollowingGroupStatusExecutionTest
                 oneOf(groupByShortNameMapperMock).fetchUniqueResult(with(any(String.class)));
                 will(returnValue(group));
 
-                oneOf(groupFollowerIdsMapperMock).execute(GROUP_ID);
-                will(returnValue(followerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, 0L);
+                will(returnValue(5L));
             }
         });
 
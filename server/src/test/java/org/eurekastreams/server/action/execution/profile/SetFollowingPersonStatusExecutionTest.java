@@ -15,16 +15,24 @@
  */
 package org.eurekastreams.server.action.execution.profile;
 
-import java.util.ArrayList;
-import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
 
 import org.eurekastreams.commons.actions.context.Principal;
+import org.eurekastreams.commons.actions.context.PrincipalActionContext;
+import org.eurekastreams.commons.actions.context.TaskHandlerActionContext;
+import org.eurekastreams.commons.server.UserActionRequest;
 import org.eurekastreams.server.action.request.profile.SetFollowingStatusRequest;
 import org.eurekastreams.server.domain.EntityType;
 import org.eurekastreams.server.domain.Follower;
 import org.eurekastreams.server.persistence.PersonMapper;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.cache.AddCachedPersonFollower;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateSuggestionCandidatesRequest;
 import org.eurekastreams.server.testing.TestContextCreator;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -72,10 +80,9 @@ public class SetFollowingPersonStatusExecutionTest
             "addCachedMapperMock");
 
     /**
-     * Mock instance of GetFollowerIds.
+     * Mock instance of FollowCounters.
      */
-    private final DomainMapper<Long, List<Long>> followerIdsMapperMock = context.mock(DomainMapper.class,
-            "followerIdsMapperMock");
+    private final FollowCounters followCounters = context.mock(FollowCounters.class);
 
     /**
      * Mock instance of the principal object.
@@ -89,7 +96,7 @@ public class SetFollowingPersonStatusExecutionTest
     public void setUp()
     {
         sut = new SetFollowingPersonStatusExecution(personMapperMock, getPersonIdByAccountIdMapper,
-                addCachedMapperMock, followerIdsMapperMock);
+                addCachedMapperMock, followCounters);
     }
 
     /**
@@ -106,7 +113,59 @@ public class SetFollowingPersonStatusExecutionTest
         final Long followerId = 1L;
         final Long followedId = 2L;
 
-        final List<Long> targetFollowerIds = new ArrayList<Long>(5);
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(getPersonIdByAccountIdMapper).execute(followerAccountId);
+                will(returnValue(followerId));
+
+                oneOf(getPersonIdByAccountIdMapper).execute(followedAccountId);
+                will(returnValue(followedId));
+
+                oneOf(personMapperMock).addFollower(1L, 2L);
+                will(returnValue(true));
+
+                oneOf(addCachedMapperMock).execute(1L, 2L);
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID, 1L, 1L);
+                will(returnValue(3L));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, 2L, 1L);
+                will(returnValue(6L));
+            }
+        });
+
+        SetFollowingStatusRequest currentRequest = new SetFollowingStatusRequest(followerAccountId, followedAccountId,
+                EntityType.PERSON, false, Follower.FollowerStatus.FOLLOWING);
+        TaskHandlerActionContext<PrincipalActionContext> actionContext = TestContextCreator
+                .createTaskHandlerContextWithPrincipal(currentRequest, principalMock);
+        Serializable result = sut.execute(actionContext);
+
+        context.assertIsSatisfied();
+        assertEquals(6, result);
+        assertEquals(3, actionContext.getUserActionRequests().size());
+        UserActionRequest suggestionRequest = actionContext.getUserActionRequests().get(2);
+        assertEquals("updateSuggestionCandidates", suggestionRequest.getActionKey());
+        UpdateSuggestionCandidatesRequest params = (UpdateSuggestionCandidatesRequest) suggestionRequest.getParams();
+        assertEquals(1L, params.getFollowerId());
+        assertEquals(2L, params.getFollowedId());
+        assertEquals(EntityType.PERSON, params.getFollowedType());
+        assertTrue(params.isFollowing());
+    }
+
+    /**
+     * Test following a person who is already followed: the counts do not change.
+     *
+     * @throws Exception
+     *             - on error.
+     */
+    @Test
+    public void testSetFollowingAlreadyFollowing() throws Exception
+    {
+        final String followerAccountId = "ntAccount";
+        final String followedAccountId = "followingntaccount";
+        final Long followerId = 1L;
+        final Long followedId = 2L;
 
         context.checking(new Expectations()
         {
@@ -118,19 +177,24 @@ public class SetFollowingPersonStatusExecutionTest
                 will(returnValue(followedId));
 
                 oneOf(personMapperMock).addFollower(1L, 2L);
+                will(returnValue(false));
 
                 oneOf(addCachedMapperMock).execute(1L, 2L);
 
-                oneOf(followerIdsMapperMock).execute(2L);
-                will(returnValue(targetFollowerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, 2L, 0L);
+                will(returnValue(5L));
             }
         });
 
         SetFollowingStatusRequest currentRequest = new SetFollowingStatusRequest(followerAccountId, followedAccountId,
                 EntityType.PERSON, false, Follower.FollowerStatus.FOLLOWING);
-        sut.execute(TestContextCreator.createTaskHandlerContextWithPrincipal(currentRequest, principalMock));
+        TaskHandlerActionContext<PrincipalActionContext> actionContext = TestContextCreator
+                .createTaskHandlerContextWithPrincipal(currentRequest, principalMock);
+        Serializable result = sut.execute(actionContext);
 
         context.assertIsSatisfied();
+        assertEquals(5, result);
+        assertEquals(2, actionContext.getUserActionRequests().size());
     }
 
     /**
@@ -147,8 +211,6 @@ public class SetFollowingPersonStatusExecutionTest
         final Long followerId = 1L;
         final Long followedId = 2L;
 
-        final List<Long> targetFollowerIds = new ArrayList<Long>(5);
-
         context.checking(new Expectations()
         {
             {
@@ -159,17 +221,23 @@ public class SetFollowingPersonStatusExecutionTest
                 will(returnValue(followedId));
 
                 oneOf(personMapperMock).removeFollower(1L, 2L);
+                will(returnValue(true));
+
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID, 1L, -1L);
+                will(returnValue(2L));
 
-                oneOf(followerIdsMapperMock).execute(2L);
-                will(returnValue(targetFollowerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, 2L, -1L);
+                will(returnValue(4L));
             }
         });
 
         SetFollowingStatusRequest currentRequest = new SetFollowingStatusRequest(followerAccountId, followedAccountId,
                 EntityType.PERSON, false, Follower.FollowerStatus.NOTFOLLOWING);
-        sut.execute(TestContextCreator.createTaskHandlerContextWithPrincipal(currentRequest, principalMock));
+        Serializable result = sut.execute(TestContextCreator.createTaskHandlerContextWithPrincipal(currentRequest,
+                principalMock));
 
         context.assertIsSatisfied();
+        assertEquals(4, result);
     }
 
     /**
@@ -213,8 +281,6 @@ public class SetFollowingPersonStatusExecutionTest
         final Long followerId = 1L;
         final Long followedId = 2L;
 
-        final List<Long> targetFollowerIds = new ArrayList<Long>(5);
-
         context.checking(new Expectations()
         {
             {
@@ -224,8 +290,8 @@ public class SetFollowingPersonStatusExecutionTest
                 oneOf(getPersonIdByAccountIdMapper).execute(followedAccountId);
                 will(returnValue(followedId));
 
-                oneOf(followerIdsMapperMock).execute(2L);
-                will(returnValue(targetFollowerIds));
+                oneOf(followCounters).adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, 2L, 0L);
+                will(returnValue(5L));
             }
         });
 
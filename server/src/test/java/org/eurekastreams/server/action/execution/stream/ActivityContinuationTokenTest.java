@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.action.execution.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests ActivityContinuationToken.
+ */
+public class ActivityContinuationTokenTest
+{
+    /**
+     * Tests a token round trips.
+     */
+    @Test
+    public void testRoundTrip()
+    {
+        final long id = 123456789L;
+        assertEquals(id, ActivityContinuationToken.decode(ActivityContinuationToken.encode(id)));
+        assertEquals(0L, ActivityContinuationToken.decode(ActivityContinuationToken.encode(0L)));
+    }
+
+    /**
+     * Tests a null token is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeNull()
+    {
+        ActivityContinuationToken.decode(null);
+    }
+
+    /**
+     * Tests a token of an unknown format is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeUnknownVersion()
+    {
+        ActivityContinuationToken.decode("9.abc");
+    }
+
+    /**
+     * Tests a damaged token is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeGarbage()
+    {
+        ActivityContinuationToken.decode("1.#");
+    }
+}
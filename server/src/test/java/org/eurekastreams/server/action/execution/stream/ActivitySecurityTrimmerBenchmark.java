@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.action.execution.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eurekastreams.server.domain.stream.ActivitySecurityDTO;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.GetPrivateCoordinatedAndFollowedGroupIdsForUser;
+
+/**
+ * Manual microbenchmark comparing ActivitySecurityTrimmer against the former linked list ordering pass. Mappers are
+ * in-memory stand-ins, so only the trimmer's own work is measured. Not run by the build (not named *Test); run its
+ * main() from the IDE or with the test classpath.
+ */
+public final class ActivitySecurityTrimmerBenchmark
+{
+    /** Page sizes to measure. */
+    private static final int[] SIZES = { 10, 100, 1000 };
+
+    /** Minimum timed milliseconds per measurement. */
+    private static final long MIN_MILLIS = 1000;
+
+    /** Warmup iterations. */
+    private static final int WARMUP = 200;
+
+    /** Number of groups destinations are spread across. */
+    private static final int GROUP_COUNT = 50;
+
+    /** Hide constructor. */
+    private ActivitySecurityTrimmerBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            ignored.
+     */
+    public static void main(final String[] args)
+    {
+        final Random random = new Random(1);
+        final Set<Long> visibleGroups = new HashSet<Long>();
+        for (long i = 0; i < GROUP_COUNT; i += 2)
+        {
+            visibleGroups.add(i);
+        }
+
+        System.out.println("ids\tlinked list us\tcurrent us");
+        for (int size : SIZES)
+        {
+            final List<Long> ids = new ArrayList<Long>(size);
+            final List<ActivitySecurityDTO> dtos = new ArrayList<ActivitySecurityDTO>(size);
+            long id = 50000000L;
+            for (int i = 0; i < size; i++)
+            {
+                id -= 1 + random.nextInt(100);
+                ids.add(id);
+                dtos.add(new ActivitySecurityDTO(id, (long) random.nextInt(GROUP_COUNT), random.nextBoolean()));
+            }
+            // the security mapper doesn't return DTOs in request order
+            Collections.shuffle(dtos, random);
+
+            final DomainMapper<List<Long>, Collection<ActivitySecurityDTO>> securityMapper =
+                new DomainMapper<List<Long>, Collection<ActivitySecurityDTO>>()
+            {
+                public Collection<ActivitySecurityDTO> execute(final List<Long> inRequest)
+                {
+                    return dtos;
+                }
+            };
+            final GetPrivateCoordinatedAndFollowedGroupIdsForUser groupsMapper =
+                new GetPrivateCoordinatedAndFollowedGroupIdsForUser(null, null)
+            {
+                @Override
+                public Set<Long> execute(final Long inUserPersonId)
+                {
+                    return visibleGroups;
+                }
+            };
+            final ActivitySecurityTrimmer sut = new ActivitySecurityTrimmer(securityMapper, groupsMapper);
+
+            double legacyMicros = time(new Runnable()
+            {
+                public void run()
+                {
+                    legacyTrim(ids, securityMapper.execute(ids), visibleGroups);
+                }
+            });
+            double currentMicros = time(new Runnable()
+            {
+                public void run()
+                {
+                    sut.trim(ids, 1L);
+                }
+            });
+
+            System.out.println(size + "\t" + legacyMicros + "\t" + currentMicros);
+        }
+    }
+
+    /**
+     * The trimming logic ActivitySecurityTrimmer used before.
+     *
+     * @param activityIds
+     *            ids.
+     * @param securityDTOs
+     *            security DTOs.
+     * @param accessibleGroupIds
+     *            visible group ids.
+     * @return visible ids.
+     */
+    private static List<Long> legacyTrim(final List<Long> activityIds,
+            final Collection<ActivitySecurityDTO> securityDTOs, final Set<Long> accessibleGroupIds)
+    {
+        final List<Long> visibleActivities = new LinkedList<Long>();
+        for (ActivitySecurityDTO actSec : securityDTOs)
+        {
+            if (actSec.getExists()
+                    && (actSec.isDestinationStreamPublic() || accessibleGroupIds.contains(actSec
+                            .getDestinationEntityId())))
+            {
+                visibleActivities.add(actSec.getId());
+            }
+        }
+        final List<Long> orderedActivities = new LinkedList<Long>();
+        for (int i = 0; i < activityIds.size(); i++)
+        {
+            if (visibleActivities.contains(activityIds.get(i)))
+            {
+                orderedActivities.add(activityIds.get(i));
+            }
+        }
+        return orderedActivities;
+    }
+
+    /**
+     * Times a task.
+     *
+     * @param inTask
+     *            task.
+     * @return average microseconds per run.
+     */
+    private static double time(final Runnable inTask)
+    {
+        for (int i = 0; i < WARMUP; i++)
+        {
+            inTask.run();
+        }
+        int iterations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            inTask.run();
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < MIN_MILLIS * 1000000L);
+        return elapsed / 1000.0 / iterations;
+    }
+}
@@ -223,4 +223,103 @@ public class ActivitySecurityTrimmerTest
         Assert.assertEquals(0, sut.trim(Arrays.asList(activityId), userId).size());
         context.assertIsSatisfied();
     }
+
+    /**
+     * Test that results keep the input order, whatever order the security DTOs come back in.
+     */
+    @Test
+    public void testPreservesOrder()
+    {
+        final Collection<ActivitySecurityDTO> asdCollection = new ArrayList<ActivitySecurityDTO>();
+        asdCollection.add(new ActivitySecurityDTO(1L, destinationEntityId, true));
+        asdCollection.add(new ActivitySecurityDTO(9L, destinationEntityId, false));
+        asdCollection.add(new ActivitySecurityDTO(4L, destinationEntityId, true, false));
+        asdCollection.add(new ActivitySecurityDTO(3L, destinationEntityId + 1, false));
+        asdCollection.add(new ActivitySecurityDTO(7L, destinationEntityId, true));
+
+        final Set<Long> visibleDestinationEntityIds = new HashSet<Long>();
+        visibleDestinationEntityIds.add(destinationEntityId);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(securityMapper).execute(with(any(List.class)));
+                will(returnValue(asdCollection));
+
+                oneOf(getVisibleGroupsForUserMapper).execute(userId);
+                will(returnValue(visibleDestinationEntityIds));
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(9L, 7L, 1L), sut.trim(Arrays.asList(9L, 7L, 4L, 3L, 1L), userId));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test that the user's visible groups aren't fetched when every activity is public.
+     */
+    @Test
+    public void testAllPublicSkipsGroupLookup()
+    {
+        final Collection<ActivitySecurityDTO> asdCollection = new ArrayList<ActivitySecurityDTO>();
+        asdCollection.add(new ActivitySecurityDTO(2L, destinationEntityId, true));
+        asdCollection.add(new ActivitySecurityDTO(1L, destinationEntityId, true));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(securityMapper).execute(with(any(List.class)));
+                will(returnValue(asdCollection));
+
+                never(getVisibleGroupsForUserMapper).execute(with(any(Long.class)));
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(2L, 1L), sut.trim(Arrays.asList(2L, 1L), userId));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test that a request's trimmer fetches the user's visible groups only once across pages.
+     */
+    @Test
+    public void testRequestTrimmerCachesVisibleGroups()
+    {
+        final Collection<ActivitySecurityDTO> firstPage = new ArrayList<ActivitySecurityDTO>();
+        firstPage.add(new ActivitySecurityDTO(9L, destinationEntityId, false));
+        final Collection<ActivitySecurityDTO> secondPage = new ArrayList<ActivitySecurityDTO>();
+        secondPage.add(new ActivitySecurityDTO(5L, destinationEntityId + 1, false));
+
+        final Set<Long> visibleDestinationEntityIds = new HashSet<Long>();
+        visibleDestinationEntityIds.add(destinationEntityId);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(securityMapper).execute(Arrays.asList(9L));
+                will(returnValue(firstPage));
+
+                oneOf(securityMapper).execute(Arrays.asList(5L));
+                will(returnValue(secondPage));
+
+                oneOf(getVisibleGroupsForUserMapper).execute(userId);
+                will(returnValue(visibleDestinationEntityIds));
+            }
+        });
+
+        ListTrimmer trimmer = sut.getTrimmer(null, userId);
+        Assert.assertEquals(Arrays.asList(9L), trimmer.trim(Arrays.asList(9L), userId));
+        Assert.assertEquals(0, trimmer.trim(Arrays.asList(5L), userId).size());
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test that an empty list is returned without any lookups.
+     */
+    @Test
+    public void testEmpty()
+    {
+        Assert.assertEquals(0, sut.trim(new ArrayList<Long>(), userId).size());
+        context.assertIsSatisfied();
+    }
 }
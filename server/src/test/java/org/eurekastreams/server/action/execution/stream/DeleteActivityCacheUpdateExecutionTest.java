@@ -17,6 +17,7 @@ package org.eurekastreams.server.action.execution.stream;
 
 import org.eurekastreams.commons.actions.context.ActionContext;
 import org.eurekastreams.server.action.request.stream.DeleteActivityCacheUpdateRequest;
+import org.eurekastreams.server.domain.stream.ActivityDTO;
 import org.eurekastreams.server.persistence.mappers.stream.DeleteActivityCacheUpdate;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -94,4 +95,33 @@ public class DeleteActivityCacheUpdateExecutionTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test the deleted activity's hashtags are removed from the stream's counts.
+     */
+    @Test
+    public void testPerformActionUpdatesHashTagCounts()
+    {
+        final DeletedActivityHashTagCountsStrategy hashTagCountsStrategy = context
+                .mock(DeletedActivityHashTagCountsStrategy.class);
+        final ActivityDTO activity = new ActivityDTO();
+        sut.setHashTagCountsStrategy(hashTagCountsStrategy);
+
+        context.checking(new Expectations()
+        {
+            {
+                allowing(actionContext).getParams();
+                will(returnValue(request));
+
+                allowing(request).getActivity();
+                will(returnValue(activity));
+
+                oneOf(deleteActivityCacheUpdateDAO).execute(request);
+
+                oneOf(hashTagCountsStrategy).execute(activity);
+            }
+        });
+
+        sut.execute(actionContext);
+        context.assertIsSatisfied();
+    }
 }
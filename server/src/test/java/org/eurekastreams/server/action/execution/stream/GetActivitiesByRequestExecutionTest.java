@@ -16,8 +16,10 @@
 package org.eurekastreams.server.action.execution.stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -284,5 +286,61 @@ public class GetActivitiesByRequestExecutionTest
 
         context.assertIsSatisfied();
         assertEquals(1, results.getPagedSet().size());
+        assertNull(results.getContinuation());
+    }
+
+    /**
+     * Perform action test where there are more results than asked for: a continuation token for the next page is
+     * returned.
+     *
+     * @throws Exception
+     *             on failure.
+     */
+    @Test
+    public final void performActionWithMoreResults() throws Exception
+    {
+        final String request = "{ count:1 }";
+        final PersonModelView personModel = new PersonModelView();
+
+        context.checking(new Expectations()
+        {
+            {
+                ArrayList<Long> combinedIds = new ArrayList<Long>();
+                combinedIds.add(5L);
+                combinedIds.add(2L);
+
+                ArrayList<ActivityDTO> activities = new ArrayList<ActivityDTO>();
+                activities.add(new ActivityDTO());
+
+                allowing(actionContext).getPrincipal();
+                will(returnValue(principal));
+
+                allowing(principal).getAccountId();
+                will(returnValue(personAccountId));
+
+                allowing(principal).getId();
+                will(returnValue(personId));
+
+                allowing(actionContext).getParams();
+                will(returnValue(request));
+
+                oneOf(getActivityIdsByJsonRequest).execute(with("{\"count\":2}"), with(personId));
+                will(returnValue(combinedIds));
+
+                oneOf(bulkMapper).execute(Arrays.asList(5L));
+                will(returnValue(activities));
+
+                allowing(filterMock).filter(with(activities), with(any(PersonModelView.class)));
+
+                oneOf(getPersonModelViewByAccountIdMapper).execute(personAccountId);
+                will(returnValue(personModel));
+            }
+        });
+
+        PagedSet<ActivityDTO> results = (PagedSet<ActivityDTO>) sut.execute(actionContext);
+
+        context.assertIsSatisfied();
+        assertEquals(1, results.getPagedSet().size());
+        assertEquals(5L, ActivityContinuationToken.decode(results.getContinuation()));
     }
 }
@@ -31,9 +31,11 @@ import org.eurekastreams.server.domain.stream.ActivityDTO;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.search.modelview.PersonModelView;
 import org.eurekastreams.server.service.actions.strategies.activity.ActivityFilter;
+import org.eurekastreams.server.service.actions.strategies.activity.DescendingIdMergeCursor;
 import org.eurekastreams.server.service.actions.strategies.activity.ListCollider;
 import org.eurekastreams.server.service.actions.strategies.activity.datasources.DescendingOrderDataSource;
 import org.eurekastreams.server.service.actions.strategies.activity.datasources.SortedDataSource;
+import org.eurekastreams.server.service.actions.strategies.activity.datasources.StreamingDescendingOrderDataSource;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -392,4 +394,131 @@ public class GetActivityIdsByJsonTest
         context.assertIsSatisfied();
     }
 
+
+    /**
+     * Test that a streaming data source is read lazily, a page at a time, when there is no sorted data set.
+     */
+    @Test
+    public final void performActionWithStreamingDataSource()
+    {
+        final StreamingDescendingOrderDataSource streamingDS = context.mock(StreamingDescendingOrderDataSource.class,
+                "streaming");
+        sut = new GetActivityIdsByJson(streamingDS, luceneDS, andCollider, Arrays.asList(nonApplicableTrimmerFactory,
+                securityTrimmer), peopleMapper, replaceString);
+
+        final String request = "{count:2, maxId:9}";
+
+        final List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(9L, 7L, 5L, 3L, 1L));
+        lists.add(Arrays.asList(8L, 7L, 6L, 4L, 2L));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(luceneDS).fetch(with(any(JSONObject.class)), with(any(Long.class)));
+                will(returnValue(null));
+
+                oneOf(streamingDS).fetchCursor(with(any(JSONObject.class)), with(equal(personId)));
+                will(returnValue(new DescendingIdMergeCursor(lists, Integer.MAX_VALUE)));
+
+                // first page is twice the count; the user can't see any of it
+                oneOf(securityTrimmer).trim(Arrays.asList(8L, 7L, 6L, 5L), personId);
+                will(returnValue(new ArrayList<Long>()));
+
+                // next page is twice as large, but the cursor runs out first
+                oneOf(securityTrimmer).trim(Arrays.asList(4L, 3L, 2L, 1L), personId);
+                will(returnValue(Arrays.asList(4L, 2L, 1L)));
+            }
+        });
+
+        List<Long> results = sut.execute(request, personId);
+
+        context.assertIsSatisfied();
+        assertEquals(Arrays.asList(4L, 2L), results);
+    }
+
+    /**
+     * Test that a continuation token resumes reading a streaming data source after the last activity returned, and
+     * that the request's work is counted.
+     */
+    @Test
+    public final void performActionWithContinuation()
+    {
+        final StreamingDescendingOrderDataSource streamingDS = context.mock(StreamingDescendingOrderDataSource.class,
+                "streaming");
+        sut = new GetActivityIdsByJson(streamingDS, luceneDS, andCollider, Arrays.asList(nonApplicableTrimmerFactory,
+                securityTrimmer), peopleMapper, replaceString);
+
+        final String request = "{count:2, continuation:\"" + ActivityContinuationToken.encode(7L) + "\"}";
+
+        final List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(9L, 7L, 5L, 3L, 1L));
+        lists.add(Arrays.asList(8L, 6L, 4L, 2L));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(luceneDS).fetch(with(any(JSONObject.class)), with(any(Long.class)));
+                will(returnValue(null));
+
+                oneOf(streamingDS).fetchCursor(with(any(JSONObject.class)), with(equal(personId)));
+                will(returnValue(new DescendingIdMergeCursor(lists, Integer.MAX_VALUE)));
+
+                oneOf(securityTrimmer).trim(Arrays.asList(6L, 5L, 4L, 3L), personId);
+                will(returnValue(Arrays.asList(6L, 4L, 3L)));
+            }
+        });
+
+        List<Long> results = sut.execute(request, personId);
+
+        context.assertIsSatisfied();
+        assertEquals(Arrays.asList(6L, 4L), results);
+        assertEquals(1, sut.getStatistics().getTotal(GetActivityIdsByJson.PASSES_STAT));
+        assertEquals(2, sut.getStatistics().getTotal(GetActivityIdsByJson.FETCHES_STAT));
+    }
+
+    /**
+     * Test that with a search, the search runs and the lists read for the cursor are reused for the batches rather than
+     * read again.
+     */
+    @Test
+    public final void performActionWithSearchReusesCursor()
+    {
+        final StreamingDescendingOrderDataSource streamingDS = context.mock(StreamingDescendingOrderDataSource.class,
+                "streaming");
+        sut = new GetActivityIdsByJson(streamingDS, luceneDS, andCollider, Arrays.asList(nonApplicableTrimmerFactory,
+                securityTrimmer), peopleMapper, replaceString);
+
+        final String request = "{count:2, query : { keywords: \"foo\"}}";
+
+        final List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(9L, 7L, 5L, 3L, 1L));
+        lists.add(Arrays.asList(8L, 6L, 4L, 2L));
+        final List<Long> luceneIds = Arrays.asList(7L, 6L, 3L);
+        final List<Long> combinedIds = Arrays.asList(7L, 6L);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(luceneDS).fetch(with(any(JSONObject.class)), with(any(Long.class)));
+                will(returnValue(luceneIds));
+
+                oneOf(streamingDS).fetchCursor(with(any(JSONObject.class)), with(equal(personId)));
+                will(returnValue(new DescendingIdMergeCursor(lists, Integer.MAX_VALUE)));
+
+                // no call to streamingDS.fetch: the first batch comes from the cursor
+                oneOf(andCollider).collide(Arrays.asList(9L, 8L, 7L, 6L), luceneIds, 4);
+                will(returnValue(combinedIds));
+
+                oneOf(securityTrimmer).trim(combinedIds, personId);
+                will(returnValue(combinedIds));
+            }
+        });
+
+        List<Long> results = sut.execute(request, personId);
+
+        context.assertIsSatisfied();
+        assertEquals(combinedIds, results);
+        assertEquals(2, sut.getStatistics().getTotal(GetActivityIdsByJson.FETCHES_STAT));
+    }
 }
@@ -32,6 +32,7 @@ import org.eurekastreams.server.persistence.mappers.requests.UniqueStringRequest
 import org.eurekastreams.server.service.actions.strategies.links.ConnectionFacade;
 import org.eurekastreams.server.service.actions.strategies.links.HtmlLinkInformationParserStrategy;
 import org.eurekastreams.server.service.actions.strategies.links.HtmlLinkParser;
+import org.eurekastreams.server.service.actions.strategies.links.LinkInformationCache;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -256,4 +257,37 @@ public class GetParsedLinkInformationExecutionTest
 
         context.assertIsSatisfied();
     }
+
+    /**
+     * Perform action test with the link cache: the second request for the url is answered from the cache.
+     *
+     * @throws Exception
+     *             shouldn't happen.
+     */
+    @Test
+    public final void performActionWithLinkCacheTest() throws Exception
+    {
+        final String theUrl = "http://www.youtube.com/someFile.html";
+        final LinkInformation link = new LinkInformation();
+        link.setTitle("Some Title");
+
+        sut.setLinkCache(new LinkInformationCache(10, 60, 60));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(fileDownloader).getFinalUrl(theUrl, TEST_ACCOUNT);
+                will(returnValue(theUrl));
+
+                oneOf(mapperMock).execute(with(any(UniqueStringRequest.class)));
+                will(returnValue(link));
+            }
+        });
+
+        Assert.assertEquals(link, sut.execute(new ServiceActionContext(theUrl, principalMock)));
+        Assert.assertEquals(link, sut.execute(new ServiceActionContext("www.youtube.com/someFile.html",
+                principalMock)));
+
+        context.assertIsSatisfied();
+    }
 }
@@ -27,14 +27,21 @@ import org.eurekastreams.server.domain.stream.HashTag;
 import org.eurekastreams.server.domain.stream.StreamHashTag;
 import org.eurekastreams.server.domain.stream.StreamScope;
 import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.InsertBatchMapper;
 import org.eurekastreams.server.persistence.mappers.InsertMapper;
 import org.eurekastreams.server.persistence.mappers.chained.DecoratedPartialResponseDomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceListRequest;
 import org.eurekastreams.server.persistence.mappers.requests.PersistenceRequest;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateStreamHashTagCountsRequest;
 import org.eurekastreams.server.persistence.mappers.stream.ActivityContentExtractor;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -277,6 +284,96 @@ public class StoreStreamHashTagsForActivityStrategyImplTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test execute inserting the stream hashtags as a batch and updating the stream's hashtag counts.
+     */
+    @Test
+    public void testExecuteBatchedWithCounts()
+    {
+        final String groupShortName = "sdlkjfsd";
+        final String content = "hi #there #potato";
+        final Date postedTime = new Date();
+        final List<String> hashTagContents = new ArrayList<String>();
+        hashTagContents.add("#there");
+        hashTagContents.add("#potato");
+
+        final List<HashTag> hashTags = new ArrayList<HashTag>();
+        hashTags.add(new HashTag("#there"));
+        hashTags.add(new HashTag("#potato"));
+
+        final InsertBatchMapper<StreamHashTag> batchInsertMapper = context.mock(InsertBatchMapper.class);
+        final DomainMapper<UpdateStreamHashTagCountsRequest, Boolean> countsUpdater = context
+                .mock(DomainMapper.class);
+
+        context.checking(new Expectations()
+        {
+            {
+                allowing(activity).getId();
+                will(returnValue(3L));
+
+                allowing(activity).getRecipientStreamScope();
+                will(returnValue(streamScope));
+
+                oneOf(streamScope).getScopeType();
+                will(returnValue(ScopeType.GROUP));
+
+                oneOf(streamScope).getUniqueKey();
+                will(returnValue(groupShortName));
+
+                oneOf(activity).getBaseObjectType();
+                will(returnValue(BaseObjectType.NOTE));
+
+                oneOf(activity).getBaseObject();
+                will(returnValue(baseObject));
+
+                allowing(activity).getPostedTime();
+                will(returnValue(postedTime));
+
+                oneOf(contentExtractor).extractContent(BaseObjectType.NOTE, baseObject);
+                will(returnValue(content));
+
+                oneOf(hashTagExtractor).extractAll(content);
+                will(returnValue(hashTagContents));
+
+                oneOf(hashTagMapper).execute(hashTagContents);
+                will(returnValue(hashTags));
+
+                oneOf(batchInsertMapper).execute(with(any(PersistenceListRequest.class)));
+                will(new CustomAction("check batch")
+                {
+                    public Object invoke(final Invocation inInvocation)
+                    {
+                        Assert.assertEquals(2, ((PersistenceListRequest<StreamHashTag>) inInvocation
+                                .getParameter(0)).getDomainEnities().size());
+                        return new ArrayList<Long>();
+                    }
+                });
+
+                oneOf(countsUpdater).execute(with(any(UpdateStreamHashTagCountsRequest.class)));
+                will(new CustomAction("check counts")
+                {
+                    public Object invoke(final Invocation inInvocation)
+                    {
+                        UpdateStreamHashTagCountsRequest request = (UpdateStreamHashTagCountsRequest) inInvocation
+                                .getParameter(0);
+                        Assert.assertEquals(ScopeType.GROUP, request.getStream().getStreamEntityScopeType());
+                        Assert.assertEquals(groupShortName, request.getStream().getStreamEntityUniqueKey());
+                        Assert.assertEquals(hashTagContents, new ArrayList<String>(request.getHashTags()));
+                        Assert.assertEquals(postedTime, request.getPostedTime());
+                        Assert.assertEquals(1, request.getAmount());
+                        return true;
+                    }
+                });
+            }
+        });
+
+        StoreStreamHashTagsForActivityStrategyImpl sut = (StoreStreamHashTagsForActivityStrategyImpl) buildSut();
+        sut.setStreamHashTagBatchInsertMapper(batchInsertMapper);
+        sut.setHashTagCountsUpdater(countsUpdater);
+        sut.execute(activity);
+        context.assertIsSatisfied();
+    }
+
     /**
      * Build the system under test.
      * 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.action.request.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+
+import org.eurekastreams.commons.messaging.ParamCodec;
+import org.eurekastreams.commons.messaging.UserActionRequestCodec;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.server.action.request.notification.CreateNotificationsRequest.RequestType;
+import org.junit.Test;
+
+/**
+ * Tests NotificationsRequestCodec.
+ */
+public class NotificationsRequestCodecTest
+{
+    /** Codec with the SUT registered. */
+    private final UserActionRequestCodec codec = new UserActionRequestCodec(Collections
+            .<ParamCodec> singletonList(new NotificationsRequestCodec()));
+
+    /**
+     * Encodes and decodes a request.
+     *
+     * @param inParams
+     *            Parameters.
+     * @return Decoded parameters.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private Serializable roundTrip(final Serializable inParams) throws IOException
+    {
+        return codec.decode(codec.encode(new UserActionRequest(CreateNotificationsRequest.ACTION_NAME, null,
+                inParams))).getParams();
+    }
+
+    /**
+     * Tests each request class round trips with its fields.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        CreateNotificationsRequest base = (CreateNotificationsRequest) roundTrip(new CreateNotificationsRequest(
+                RequestType.FOLLOW_PERSON, 4L));
+        assertEquals(CreateNotificationsRequest.class, base.getClass());
+        assertEquals(RequestType.FOLLOW_PERSON, base.getType());
+        assertEquals(4L, base.getActorId());
+
+        TargetEntityNotificationsRequest target = (TargetEntityNotificationsRequest) roundTrip(
+                new TargetEntityNotificationsRequest(RequestType.FOLLOW_GROUP, 4L, 8L));
+        assertEquals(TargetEntityNotificationsRequest.class, target.getClass());
+        assertEquals(8L, target.getTargetEntityId());
+
+        ActivityNotificationsRequest activity = (ActivityNotificationsRequest) roundTrip(
+                new ActivityNotificationsRequest(RequestType.LIKE, 4L, 8L, 15L));
+        assertEquals(ActivityNotificationsRequest.class, activity.getClass());
+        assertEquals(8L, activity.getTargetEntityId());
+        assertEquals(15L, activity.getActivityId());
+
+        CommentNotificationsRequest comment = (CommentNotificationsRequest) roundTrip(
+                new CommentNotificationsRequest(RequestType.COMMENT, 4L, 8L, 15L, 16L));
+        assertEquals(RequestType.COMMENT, comment.getType());
+        assertEquals(4L, comment.getActorId());
+        assertEquals(8L, comment.getTargetEntityId());
+        assertEquals(15L, comment.getActivityId());
+        assertEquals(16L, comment.getCommentId());
+    }
+
+    /**
+     * Tests other request classes are left to serialization.
+     */
+    @Test
+    public void testCanEncodeOnlyKnownClasses()
+    {
+        assertFalse(new NotificationsRequestCodec().canEncode(new GroupRemovedNotificationsRequest(
+                RequestType.REQUEST_NEW_GROUP_DENIED, 4L, "name", Collections.singletonList(2L))));
+    }
+}
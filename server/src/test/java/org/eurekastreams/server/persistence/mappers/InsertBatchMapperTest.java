@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.eurekastreams.server.domain.stream.Activity;
+import org.eurekastreams.server.persistence.mappers.requests.PersistenceListRequest;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.Sequence;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Test;
+
+/**
+ * Tests InsertBatchMapper.
+ */
+public class InsertBatchMapperTest
+{
+    /**
+     * mock context.
+     */
+    private final Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /**
+     * Tests all entities are persisted, then flushed once, and their ids returned in order (without committing).
+     */
+    @Test
+    public void testExecute()
+    {
+        final EntityManager entityManager = context.mock(EntityManager.class);
+        final Activity a1 = context.mock(Activity.class, "a1");
+        final Activity a2 = context.mock(Activity.class, "a2");
+        final Sequence seq = context.sequence("seq");
+
+        InsertBatchMapper<Activity> sut = new InsertBatchMapper<Activity>();
+        sut.setEntityManager(entityManager);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(entityManager).persist(a1);
+                inSequence(seq);
+                oneOf(entityManager).persist(a2);
+                inSequence(seq);
+                oneOf(entityManager).flush();
+                inSequence(seq);
+
+                allowing(a1).getId();
+                will(returnValue(5L));
+                allowing(a2).getId();
+                will(returnValue(6L));
+            }
+        });
+
+        assertEquals(Arrays.asList(5L, 6L), sut.execute(new PersistenceListRequest<Activity>(Arrays.asList(a1, a2))));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests an empty list does nothing.
+     */
+    @Test
+    public void testExecuteEmpty()
+    {
+        final EntityManager entityManager = context.mock(EntityManager.class);
+
+        InsertBatchMapper<Activity> sut = new InsertBatchMapper<Activity>();
+        sut.setEntityManager(entityManager);
+
+        List<Long> result = sut.execute(new PersistenceListRequest<Activity>(new ArrayList<Activity>()));
+        assertEquals(0, result.size());
+        context.assertIsSatisfied();
+    }
+}
@@ -18,6 +18,8 @@ package org.eurekastreams.server.persistence.mappers;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
 
@@ -28,6 +30,7 @@ import org.eurekastreams.server.domain.dto.SublistWithResultCount;
 import org.eurekastreams.server.persistence.mappers.requests.MapperRequest;
 import org.eurekastreams.server.search.modelview.PersonModelView;
 import org.eurekastreams.server.service.actions.strategies.RepopulateTempWeekdaysSinceDateStrategy;
+import org.eurekastreams.server.service.actions.strategies.activity.datasources.ParallelDataSourceFetcher;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.jmock.lib.legacy.ClassImposteriser;
@@ -38,6 +41,9 @@ import org.junit.Test;
  */
 public class StreamDiscoverListsMapperTest
 {
+    /** Milliseconds to wait for the lists in the concurrent test. */
+    private static final long TIMEOUT_MILLIS = 5000;
+
     /**
      * Context for mocking.
      */
@@ -160,4 +166,97 @@ public class StreamDiscoverListsMapperTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test the lists are generated concurrently when given threads.
+     */
+    @Test
+    public void testExecuteConcurrently()
+    {
+        final int listCount = 5;
+        CountDownLatch allStarted = new CountDownLatch(listCount);
+        List<FeaturedStreamDTO> featuredDTOs = new ArrayList<FeaturedStreamDTO>();
+        SublistWithResultCount<StreamDTO> mostActiveDTOs = new SublistWithResultCount<StreamDTO>();
+        List<StreamDTO> mostViewedDTOs = new ArrayList<StreamDTO>();
+        List<StreamDTO> mostFollowedDTOs = new ArrayList<StreamDTO>();
+        List<StreamDTO> mostRecentDTOs = new ArrayList<StreamDTO>();
+
+        sut = new StreamDiscoverListsMapper(
+                new RendezvousMapper<MapperRequest< ? >, List<FeaturedStreamDTO>>(allStarted, featuredDTOs),
+                new RendezvousMapper<Serializable, SublistWithResultCount<StreamDTO>>(allStarted, mostActiveDTOs),
+                new RendezvousMapper<Serializable, List<StreamDTO>>(allStarted, mostViewedDTOs),
+                new RendezvousMapper<Serializable, List<StreamDTO>>(allStarted, mostFollowedDTOs),
+                new RendezvousMapper<Serializable, List<StreamDTO>>(allStarted, mostRecentDTOs), null,
+                numberOfDaysOfWeekdayCountDataToGenerate);
+        ParallelDataSourceFetcher fetcher = new ParallelDataSourceFetcher(listCount, TIMEOUT_MILLIS);
+        sut.setFetcher(fetcher);
+
+        try
+        {
+            StreamDiscoverListsDTO result = sut.execute(null);
+
+            Assert.assertSame(featuredDTOs, result.getFeaturedStreams());
+            Assert.assertSame(mostActiveDTOs, result.getMostActiveStreams());
+            Assert.assertSame(mostViewedDTOs, result.getMostViewedStreams());
+            Assert.assertSame(mostFollowedDTOs, result.getMostFollowedStreams());
+            Assert.assertSame(mostRecentDTOs, result.getMostRecentStreams());
+            Assert.assertEquals(1, sut.getStatistics().getCount("mostActive" + StreamDiscoverListsMapper.MILLIS_STAT));
+            Assert.assertEquals(listCount, sut.getStatistics().getAll().size());
+        }
+        finally
+        {
+            fetcher.shutdown();
+        }
+    }
+
+    /**
+     * Mapper which only returns once all of the mappers sharing its latch have been called, so the lists must be
+     * generated concurrently.
+     *
+     * @param <RQ>
+     *            request type.
+     * @param <RS>
+     *            result type.
+     */
+    private static class RendezvousMapper<RQ, RS> implements DomainMapper<RQ, RS>
+    {
+        /** Counts the mappers which have been called. */
+        private final CountDownLatch allStarted;
+
+        /** Result to return. */
+        private final RS result;
+
+        /**
+         * Constructor.
+         *
+         * @param inAllStarted
+         *            counts the mappers which have been called.
+         * @param inResult
+         *            result to return.
+         */
+        public RendezvousMapper(final CountDownLatch inAllStarted, final RS inResult)
+        {
+            allStarted = inAllStarted;
+            result = inResult;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public RS execute(final RQ inRequest)
+        {
+            allStarted.countDown();
+            try
+            {
+                if (!allStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    throw new IllegalStateException("Lists were not generated concurrently.");
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+            return result;
+        }
+    }
 }
@@ -17,12 +17,15 @@ package org.eurekastreams.server.persistence.mappers;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.TaskHandler;
 import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
 import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
 import org.eurekastreams.server.persistence.mappers.stream.StreamPopularHashTagsReportDTO;
@@ -134,4 +137,37 @@ public class StreamPopularHashTagsMapperTest
         assertNull(sut.execute(request));
         context.assertIsSatisfied();
     }
+
+    /**
+     * Test an expired report is returned while being regenerated in the background, queued only once.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testExecuteExpiredRefreshedInBackground() throws Exception
+    {
+        final TaskHandler taskHandler = context.mock(TaskHandler.class);
+        final StreamPopularHashTagsRequest request = new StreamPopularHashTagsRequest(ScopeType.PERSON, "foobar");
+        Calendar cal = Calendar.getInstance();
+        final int twentyDaysAgo = -480;
+        cal.add(Calendar.HOUR, twentyDaysAgo);
+        final StreamPopularHashTagsReportDTO response = new StreamPopularHashTagsReportDTO(new ArrayList<String>(),
+                cal.getTime());
+        sut.setRefreshTaskHandler(taskHandler);
+        sut.setRefreshActionKey("refreshStreamPopularHashTagsAction");
+
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(popularHashTagsMapper).execute(request);
+                will(returnValue(response));
+
+                oneOf(taskHandler).handleTask(with(any(UserActionRequest.class)));
+            }
+        });
+        assertSame(response, sut.execute(request));
+        assertSame(response, sut.execute(request));
+        context.assertIsSatisfied();
+    }
 }
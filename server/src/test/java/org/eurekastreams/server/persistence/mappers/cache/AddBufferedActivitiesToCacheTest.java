@@ -15,10 +15,12 @@
  */
 package org.eurekastreams.server.persistence.mappers.cache;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.eurekastreams.commons.test.EasyMatcher;
 import org.eurekastreams.server.domain.stream.ActivityDTO;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.jmock.Expectations;
@@ -116,7 +118,21 @@ public class AddBufferedActivitiesToCacheTest
                 oneOf(getIdsOfPeopleFollowingActivityDestinationStreamMapper).execute(activity2);
                 will(returnValue(followerIdsForAct2));
 
-                exactly(5).of(cache).addToTopOfList(with(any(String.class)), with(any(ArrayList.class)));
+                oneOf(cache).addToTopOfLists(with(new EasyMatcher<Map<String, List<Long>>>()
+                {
+                    @Override
+                    protected boolean isMatch(final Map<String, List<Long>> inTestObject)
+                    {
+                        return inTestObject.size() == 5
+                                && inTestObject.get(CacheKeys.EVERYONE_ACTIVITY_IDS).equals(Arrays.asList(7L, 8L))
+                                && inTestObject.get(CacheKeys.ACTIVITIES_BY_FOLLOWING + 1).equals(
+                                        Arrays.asList(7L, 8L))
+                                && inTestObject.get(CacheKeys.ACTIVITIES_BY_FOLLOWING + 3).equals(
+                                        Arrays.asList(7L))
+                                && inTestObject.get(CacheKeys.ACTIVITIES_BY_FOLLOWING + 4).equals(
+                                        Arrays.asList(8L));
+                    }
+                }));
             }
         });
 
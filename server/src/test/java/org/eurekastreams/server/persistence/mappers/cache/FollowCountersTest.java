@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.server.persistence.mappers.MapperTest;
+import org.eurekastreams.server.persistence.mappers.cache.testhelpers.SimpleMemoryCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests FollowCounters.
+ */
+public class FollowCountersTest extends MapperTest
+{
+    /** Person from the data set who follows one person and one group. */
+    private static final long PERSON_ID_1 = 98L;
+
+    /** Person from the data set with one follower and one group. */
+    private static final long PERSON_ID_2 = 99L;
+
+    /** Group from the data set with three followers. */
+    private static final long GROUP_ID = 1L;
+
+    /** Id not in the data set. */
+    private static final long UNKNOWN_ID = 987654L;
+
+    /** Cache. */
+    private final SimpleMemoryCache cache = new SimpleMemoryCache();
+
+    /** System under test. */
+    private FollowCounters sut;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setUp()
+    {
+        sut = new FollowCounters();
+        sut.setCache(cache);
+        sut.setEntityManager(getEntityManager());
+    }
+
+    /**
+     * Tests adjusting a counter held in cache: the database is not consulted.
+     */
+    @Test
+    public void testAdjustCached()
+    {
+        final long count = 7L;
+        cache.addCounter(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + PERSON_ID_2, count);
+
+        assertEquals(count + 1, sut.adjust(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, 1));
+        assertEquals(count, sut.adjust(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, -1));
+    }
+
+    /**
+     * Tests adjusting a counter not in cache: it is rebuilt from the database (which already includes the change).
+     */
+    @Test
+    public void testAdjustRebuilds()
+    {
+        assertEquals(1L, sut.adjust(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, 1));
+        assertEquals(1L, sut.adjust(CacheKeys.GROUP_COUNT_BY_PERSON_ID, PERSON_ID_2, 0));
+        assertEquals(3L, sut.adjust(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID, GROUP_ID, 0));
+
+        Map<String, Long> cached = cache.multiGetCounters(Arrays.asList(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID
+                + PERSON_ID_2, CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID + GROUP_ID));
+        assertEquals((Long) 1L, cached.get(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + PERSON_ID_2));
+        assertEquals((Long) 3L, cached.get(CacheKeys.FOLLOWER_COUNT_BY_GROUP_ID + GROUP_ID));
+    }
+
+    /**
+     * Tests adjusting a cached counter after commit: nothing changes until the transaction commits.
+     */
+    @Test
+    public void testAdjustAfterCommitCached()
+    {
+        final long count = 7L;
+        final String key = CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + PERSON_ID_2;
+        cache.addCounter(key, count);
+        List<TransactionSynchronization> others = getSynchronizations();
+
+        assertEquals(count + 1, sut.adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, 1));
+        assertEquals((Long) count, cache.multiGetCounters(Collections.singletonList(key)).get(key));
+
+        commit(others);
+        assertEquals((Long) (count + 1), cache.multiGetCounters(Collections.singletonList(key)).get(key));
+    }
+
+    /**
+     * Tests adjusting an uncached counter after commit: the count is read from the (uncommitted) database but not
+     * stored in cache.
+     */
+    @Test
+    public void testAdjustAfterCommitUncached()
+    {
+        final String key = CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + PERSON_ID_2;
+        List<TransactionSynchronization> others = getSynchronizations();
+
+        assertEquals(1L, sut.adjustAfterCommit(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, 1));
+        commit(others);
+        assertTrue(cache.multiGetCounters(Collections.singletonList(key)).isEmpty());
+    }
+
+    /**
+     * Tests a counter rebuilt by another request while this one read the database is kept rather than overwritten.
+     */
+    @Test
+    public void testRebuildKeepsCounterAddedMeanwhile()
+    {
+        final long otherCount = 10L;
+        SimpleMemoryCache racingCache = new SimpleMemoryCache()
+        {
+            @Override
+            public boolean addCounter(final String inKey, final long inValue)
+            {
+                super.addCounter(inKey, otherCount);
+                return super.addCounter(inKey, inValue);
+            }
+        };
+        sut.setCache(racingCache);
+
+        assertEquals(otherCount, sut.adjust(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, 0));
+        assertEquals(otherCount + 1, sut.adjust(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, PERSON_ID_2, 1));
+    }
+
+    /**
+     * Tests getting a mix of cached and uncached counters.
+     */
+    @Test
+    public void testGet()
+    {
+        final long cachedCount = 4L;
+        cache.addCounter(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + PERSON_ID_1, cachedCount);
+
+        Map<String, Long> counts = sut.get(Arrays.asList(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID,
+                CacheKeys.GROUP_COUNT_BY_PERSON_ID), Arrays.asList(PERSON_ID_1, PERSON_ID_2, UNKNOWN_ID));
+
+        assertEquals(4, counts.size());
+        assertEquals((Long) cachedCount, counts.get(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + PERSON_ID_1));
+        assertEquals((Long) 0L, counts.get(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + PERSON_ID_2));
+        assertEquals((Long) 1L, counts.get(CacheKeys.GROUP_COUNT_BY_PERSON_ID + PERSON_ID_1));
+        assertEquals((Long) 1L, counts.get(CacheKeys.GROUP_COUNT_BY_PERSON_ID + PERSON_ID_2));
+        assertFalse(counts.containsKey(CacheKeys.GROUP_COUNT_BY_PERSON_ID + UNKNOWN_ID));
+
+        // rebuilt counters are now in cache
+        assertEquals((Long) 0L, cache.multiGetCounters(
+                Collections.singletonList(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + PERSON_ID_2)).get(
+                CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + PERSON_ID_2));
+    }
+
+    /**
+     * Tests an unknown counter.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCounter()
+    {
+        sut.adjust(CacheKeys.PERSON_BY_ID, PERSON_ID_1, 1);
+    }
+
+    /**
+     * Runs the after-commit work registered by the system under test (the test's own transaction rolls back).
+     *
+     * @param inOthers
+     *            Synchronizations registered before the system under test ran.
+     */
+    private void commit(final List<TransactionSynchronization> inOthers)
+    {
+        for (TransactionSynchronization sync : getSynchronizations())
+        {
+            if (!inOthers.contains(sync))
+            {
+                sync.afterCommit();
+            }
+        }
+    }
+
+    /**
+     * @return The current transaction's synchronizations (in a list of their own).
+     */
+    @SuppressWarnings("unchecked")
+    private List<TransactionSynchronization> getSynchronizations()
+    {
+        return new ArrayList<TransactionSynchronization>(TransactionSynchronizationManager.getSynchronizations());
+    }
+}
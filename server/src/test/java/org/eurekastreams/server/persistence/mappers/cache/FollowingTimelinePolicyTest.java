@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests FollowingTimelinePolicy.
+ */
+public class FollowingTimelinePolicyTest
+{
+    /**
+     * Tests the threshold.
+     */
+    @Test
+    public void testIsGroupPushed()
+    {
+        FollowingTimelinePolicy sut = new FollowingTimelinePolicy(5);
+        assertTrue(sut.isEnabled());
+        assertTrue(sut.isGroupPushed(0));
+        assertTrue(sut.isGroupPushed(5));
+        assertFalse(sut.isGroupPushed(6));
+    }
+
+    /**
+     * Tests a zero threshold pushes nothing.
+     */
+    @Test
+    public void testDisabled()
+    {
+        FollowingTimelinePolicy sut = new FollowingTimelinePolicy(0);
+        assertFalse(sut.isEnabled());
+        assertFalse(sut.isGroupPushed(0));
+    }
+
+    /**
+     * Tests the signature ignores order and changes with the set.
+     */
+    @Test
+    public void testGetSignature()
+    {
+        long signature = FollowingTimelinePolicy.getSignature(Arrays.asList(3L, 1L, 2L));
+        assertEquals(signature, FollowingTimelinePolicy.getSignature(Arrays.asList(1L, 2L, 3L)));
+        assertTrue(signature != FollowingTimelinePolicy.getSignature(Arrays.asList(1L, 2L)));
+        assertTrue(signature != FollowingTimelinePolicy.getSignature(Arrays.asList(1L, 2L, 4L)));
+        assertTrue(FollowingTimelinePolicy.getSignature(new ArrayList<Long>()) != FollowingTimelinePolicy
+                .getSignature(Arrays.asList(0L)));
+    }
+}
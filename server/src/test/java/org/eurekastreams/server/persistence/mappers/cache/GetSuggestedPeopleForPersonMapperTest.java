@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.requests.SuggestedStreamsRequest;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Test;
+
+/**
+ * Tests GetSuggestedPeopleForPersonMapper (and BaseGetSuggestedStreamsMapper).
+ */
+@SuppressWarnings("unchecked")
+public class GetSuggestedPeopleForPersonMapperTest
+{
+    /** Person the suggestions are for. */
+    private static final long PERSON_ID = 1L;
+
+    /** Stream scope id blocked by the person. */
+    private static final long BLOCKED_SCOPE_ID = 505L;
+
+    /** Maximum candidates. */
+    private static final int MAX_CANDIDATES = 10;
+
+    /** Context for building mock objects. */
+    private final Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Gets the person's suggestion candidates. */
+    private final DomainMapper<Long, SuggestionCandidates> candidatesMapper = context.mock(DomainMapper.class,
+            "candidatesMapper");
+
+    /** Gets the blocked stream scope ids. */
+    private final DomainMapper<Long, List<Long>> blockedScopeIdsMapper = context.mock(DomainMapper.class,
+            "blockedScopeIdsMapper");
+
+    /** Gets the person model views. */
+    private final DomainMapper<List<Long>, List<PersonModelView>> peopleMapper = context.mock(DomainMapper.class,
+            "peopleMapper");
+
+    /** System under test. */
+    private final GetSuggestedPeopleForPersonMapper sut = new GetSuggestedPeopleForPersonMapper(candidatesMapper,
+            blockedScopeIdsMapper, peopleMapper);
+
+    /**
+     * Builds a person model view.
+     *
+     * @param inId
+     *            Id (also used to derive the stream scope id).
+     * @param inLocked
+     *            If the account is locked.
+     * @return Model view.
+     */
+    private PersonModelView buildPerson(final long inId, final boolean inLocked)
+    {
+        PersonModelView person = new PersonModelView();
+        person.setEntityId(inId);
+        person.setAccountId("person" + inId);
+        person.setStreamScopeId(inId + 500L);
+        person.setAccountLocked(inLocked);
+        return person;
+    }
+
+    /**
+     * Tests getting suggestions: best scores first, skipping locked and blocked people, stopping at the count.
+     */
+    @Test
+    public void testExecute()
+    {
+        // people 4, 5, 6, 7, 8 are followed by 3, 2, 1, 1, 1 of the people person 1 follows
+        final SuggestionCandidates candidates = new SuggestionCandidates(PERSON_ID, 0L, new long[0], new long[0],
+                new long[] { 4L, 4L, 4L, 5L, 5L, 6L, 7L, 8L }, new long[0], MAX_CANDIDATES);
+        final PersonModelView person6 = buildPerson(6L, false);
+        final List<PersonModelView> views = new ArrayList<PersonModelView>(Arrays.asList(buildPerson(4L, true),
+                buildPerson(5L, false), person6, buildPerson(7L, false)));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(candidatesMapper).execute(PERSON_ID);
+                will(returnValue(candidates));
+
+                oneOf(blockedScopeIdsMapper).execute(PERSON_ID);
+                will(returnValue(Collections.singletonList(BLOCKED_SCOPE_ID)));
+
+                oneOf(peopleMapper).execute(Arrays.asList(4L, 5L, 6L, 7L));
+                will(returnValue(views));
+            }
+        });
+
+        List<PersonModelView> results = sut.execute(new SuggestedStreamsRequest(PERSON_ID, 2));
+
+        context.assertIsSatisfied();
+        assertEquals(2, results.size());
+        assertEquals(6L, results.get(0).getId());
+        assertEquals("person6", results.get(0).getAccountId());
+        assertEquals(1, results.get(0).getFollowersCount());
+        assertNotSame(person6, results.get(0));
+        assertEquals(7L, results.get(1).getId());
+    }
+
+    /**
+     * Tests suggestions come back in score order even when the views mapper returns the views in another order.
+     */
+    @Test
+    public void testExecuteViewsOutOfOrder()
+    {
+        // people 4, 6, 7 are followed by 3, 2, 1 of the people person 1 follows
+        final SuggestionCandidates candidates = new SuggestionCandidates(PERSON_ID, 0L, new long[0], new long[0],
+                new long[] { 4L, 4L, 4L, 6L, 6L, 7L }, new long[0], MAX_CANDIDATES);
+        final List<PersonModelView> views = new ArrayList<PersonModelView>(Arrays.asList(buildPerson(7L, false),
+                buildPerson(6L, false), buildPerson(4L, false)));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(candidatesMapper).execute(PERSON_ID);
+                will(returnValue(candidates));
+
+                oneOf(blockedScopeIdsMapper).execute(PERSON_ID);
+                will(returnValue(Collections.EMPTY_LIST));
+
+                oneOf(peopleMapper).execute(Arrays.asList(4L, 6L, 7L));
+                will(returnValue(views));
+            }
+        });
+
+        List<PersonModelView> results = sut.execute(new SuggestedStreamsRequest(PERSON_ID, 2));
+
+        context.assertIsSatisfied();
+        assertEquals(2, results.size());
+        assertEquals(4L, results.get(0).getId());
+        assertEquals(3, results.get(0).getFollowersCount());
+        assertEquals(6L, results.get(1).getId());
+    }
+
+    /**
+     * Tests getting suggestions when there are no candidates.
+     */
+    @Test
+    public void testExecuteNoCandidates()
+    {
+        final SuggestionCandidates candidates = new SuggestionCandidates(PERSON_ID, 0L, new long[0], new long[0],
+                new long[0], new long[0], MAX_CANDIDATES);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(candidatesMapper).execute(PERSON_ID);
+                will(returnValue(candidates));
+            }
+        });
+
+        assertEquals(0, sut.execute(new SuggestedStreamsRequest(PERSON_ID, 2)).size());
+        context.assertIsSatisfied();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertSame;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.testhelpers.SimpleMemoryCache;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests GetSuggestionCandidatesCacheMapper.
+ */
+@SuppressWarnings("unchecked")
+public class GetSuggestionCandidatesCacheMapperTest
+{
+    /** Person id. */
+    private static final long PERSON_ID = 1L;
+
+    /** Max age. */
+    private static final long MAX_AGE = 60000L;
+
+    /** Context for building mock objects. */
+    private final Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Builds the candidates. */
+    private final DomainMapper<Long, SuggestionCandidates> buildMapper = context.mock(DomainMapper.class);
+
+    /** Cache. */
+    private final SimpleMemoryCache cache = new SimpleMemoryCache();
+
+    /** System under test. */
+    private GetSuggestionCandidatesCacheMapper sut;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setUp()
+    {
+        sut = new GetSuggestionCandidatesCacheMapper(buildMapper, MAX_AGE);
+        sut.setCache(cache);
+    }
+
+    /**
+     * @param inBuildTime
+     *            Build time.
+     * @return Empty candidates built at the given time.
+     */
+    private SuggestionCandidates build(final long inBuildTime)
+    {
+        return new SuggestionCandidates(PERSON_ID, inBuildTime, new long[0], new long[0], new long[0], new long[0],
+                1);
+    }
+
+    /**
+     * Tests getting current candidates from cache.
+     */
+    @Test
+    public void testExecuteCached()
+    {
+        SuggestionCandidates candidates = build(System.currentTimeMillis());
+        cache.set(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + PERSON_ID, candidates);
+
+        assertSame(candidates, sut.execute(PERSON_ID));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests rebuilding candidates that are too old.
+     */
+    @Test
+    public void testExecuteExpired()
+    {
+        cache.set(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + PERSON_ID, build(0L));
+        final SuggestionCandidates candidates = build(System.currentTimeMillis());
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(buildMapper).execute(PERSON_ID);
+                will(returnValue(candidates));
+            }
+        });
+
+        assertSame(candidates, sut.execute(PERSON_ID));
+        context.assertIsSatisfied();
+        assertSame(candidates, cache.get(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + PERSON_ID));
+    }
+
+    /**
+     * Tests building missing candidates.
+     */
+    @Test
+    public void testExecuteMissing()
+    {
+        final SuggestionCandidates candidates = build(System.currentTimeMillis());
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(buildMapper).execute(PERSON_ID);
+                will(returnValue(candidates));
+            }
+        });
+
+        assertSame(candidates, sut.execute(PERSON_ID));
+        context.assertIsSatisfied();
+    }
+}
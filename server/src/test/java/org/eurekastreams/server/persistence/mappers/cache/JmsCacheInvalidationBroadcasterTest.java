@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.jms.TextMessage;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Test;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+
+/**
+ * Tests JmsCacheInvalidationBroadcaster.
+ */
+public class JmsCacheInvalidationBroadcasterTest
+{
+    /** Used for mocking objects. */
+    private final JUnit4Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Fixture: template. */
+    private final JmsTemplate jmsTemplate = context.mock(JmsTemplate.class);
+
+    /** Fixture: near cache. */
+    private final NearCache nearCache = context.mock(NearCache.class);
+
+    /** Fixture: message. */
+    private final TextMessage message = context.mock(TextMessage.class);
+
+    /**
+     * Builds the SUT.
+     *
+     * @return SUT.
+     */
+    private JmsCacheInvalidationBroadcaster build()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(nearCache).setInvalidationBroadcaster(with(any(CacheInvalidationBroadcaster.class)));
+            }
+        });
+        return new JmsCacheInvalidationBroadcaster(jmsTemplate, nearCache);
+    }
+
+    /**
+     * Tests broadcasting.
+     */
+    @Test
+    public void testBroadcast()
+    {
+        JmsCacheInvalidationBroadcaster sut = build();
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(jmsTemplate).send(with(any(MessageCreator.class)));
+            }
+        });
+
+        sut.broadcastInvalidation("Per:5");
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests a batch of keys goes out as one message.
+     */
+    @Test
+    public void testBroadcastBatch()
+    {
+        JmsCacheInvalidationBroadcaster sut = build();
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(jmsTemplate).send(with(any(MessageCreator.class)));
+            }
+        });
+
+        sut.broadcastInvalidations(Arrays.asList("Per:5", "Per:6", "Per:7"));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests an empty batch sends nothing.
+     */
+    @Test
+    public void testBroadcastEmptyBatch()
+    {
+        JmsCacheInvalidationBroadcaster sut = build();
+
+        sut.broadcastInvalidations(Collections.<String> emptyList());
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests receiving a batch from another node.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testOnMessageBatch() throws Exception
+    {
+        JmsCacheInvalidationBroadcaster sut = build();
+        context.checking(new Expectations()
+        {
+            {
+                allowing(message).getStringProperty(JmsCacheInvalidationBroadcaster.NODE_PROPERTY);
+                will(returnValue("another node"));
+
+                allowing(message).getText();
+                will(returnValue("Per:5" + JmsCacheInvalidationBroadcaster.KEY_SEPARATOR + "Per:6"));
+
+                oneOf(nearCache).invalidateLocal("Per:5");
+                oneOf(nearCache).invalidateLocal("Per:6");
+            }
+        });
+
+        sut.onMessage(message);
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests receiving from another node.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testOnMessage() throws Exception
+    {
+        JmsCacheInvalidationBroadcaster sut = build();
+        context.checking(new Expectations()
+        {
+            {
+                allowing(message).getStringProperty(JmsCacheInvalidationBroadcaster.NODE_PROPERTY);
+                will(returnValue("another node"));
+
+                allowing(message).getText();
+                will(returnValue("Per:5"));
+
+                oneOf(nearCache).invalidateLocal("Per:5");
+            }
+        });
+
+        sut.onMessage(message);
+        context.assertIsSatisfied();
+    }
+}
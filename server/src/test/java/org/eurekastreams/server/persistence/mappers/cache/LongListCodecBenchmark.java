@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manual benchmark comparing the legacy and compact cached list encodings: bytes per list and decode time. Not run by
+ * the build (not named *Test); run its main() from the IDE or with the test classpath.
+ */
+public final class LongListCodecBenchmark
+{
+    /** List sizes to measure. */
+    private static final int[] SIZES = { 10, 100, 1000, 10000 };
+
+    /** Decode iterations per measurement. */
+    private static final int ITERATIONS = 2000;
+
+    /** Warmup iterations. */
+    private static final int WARMUP = 500;
+
+    /** Hide constructor. */
+    private LongListCodecBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            ignored.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        LongListCodec legacy = new LongListCodec(false);
+        LongListCodec compact = new LongListCodec(true);
+        Random random = new Random(1);
+
+        System.out.println("size\tlegacy bytes\tcompact bytes\tlegacy decode us\tcompact decode us");
+        for (int size : SIZES)
+        {
+            // descending ids with gaps similar to a busy stream list
+            List<Long> ids = new ArrayList<Long>(size);
+            long id = 50000000L;
+            for (int i = 0; i < size; i++)
+            {
+                id -= 1 + random.nextInt(200);
+                ids.add(id);
+            }
+
+            byte[] legacyBytes = legacy.encode(ids);
+            byte[] compactBytes = compact.encode(ids);
+
+            System.out.println(size + "\t" + legacyBytes.length + "\t" + compactBytes.length + "\t"
+                    + timeDecode(legacy, legacyBytes) + "\t" + timeDecode(compact, compactBytes));
+        }
+    }
+
+    /**
+     * Times decoding (including the boxing copy the Cache API makes).
+     *
+     * @param inCodec
+     *            codec.
+     * @param inBytes
+     *            bytes.
+     * @return average microseconds per decode.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private static double timeDecode(final LongListCodec inCodec, final byte[] inBytes) throws IOException
+    {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++)
+        {
+            sink += new ArrayList<Long>(inCodec.decode(inBytes)).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            sink += new ArrayList<Long>(inCodec.decode(inBytes)).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 0)
+        {
+            System.out.println();
+        }
+        return elapsed / 1000.0 / ITERATIONS;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests LongListCodec.
+ */
+public class LongListCodecTest
+{
+    /** Codec writing the compact format. */
+    private final LongListCodec compactSut = new LongListCodec(true);
+
+    /** Codec writing the legacy format. */
+    private final LongListCodec legacySut = new LongListCodec(false);
+
+    /** Sample descending id list with a few out-of-order and extreme values. */
+    private final List<Long> sample = Arrays.asList(987654321L, 987654300L, 987654299L, 5L, 987654400L, 0L,
+            Long.MAX_VALUE, 1L);
+
+    /**
+     * Builds the bytes the way the original MemcachedCache did.
+     *
+     * @param inValues
+     *            values.
+     * @return bytes.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private byte[] legacyBytes(final List<Long> inValues) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Long value : inValues)
+        {
+            out.writeLong(value);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Tests nulls pass through.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testNulls() throws IOException
+    {
+        assertNull(compactSut.encode(null));
+        assertNull(compactSut.decode(null));
+    }
+
+    /**
+     * Tests round trip through the compact format.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testCompactRoundTrip() throws IOException
+    {
+        assertEquals(sample, compactSut.decode(compactSut.encode(sample)));
+        assertEquals(0, compactSut.decode(compactSut.encode(new ArrayList<Long>())).size());
+    }
+
+    /**
+     * Tests the legacy writer produces the original bytes.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testLegacyEncodeMatchesOriginal() throws IOException
+    {
+        assertTrue(Arrays.equals(legacyBytes(sample), legacySut.encode(sample)));
+    }
+
+    /**
+     * Tests data written in the original format is still readable.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testDecodeLegacy() throws IOException
+    {
+        assertEquals(sample, compactSut.decode(legacyBytes(sample)));
+    }
+
+    /**
+     * Tests a compact block prepended onto legacy data (as memcached prepend would do) decodes in order.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testDecodeMixed() throws IOException
+    {
+        List<Long> newer = Arrays.asList(30L, 29L);
+        List<Long> older = Arrays.asList(20L, 10L);
+        List<Long> oldest = Arrays.asList(5L, 4L);
+
+        byte[] a = compactSut.encode(newer);
+        byte[] b = legacyBytes(older);
+        byte[] c = compactSut.encode(oldest);
+        byte[] all = new byte[a.length + b.length + c.length];
+        System.arraycopy(a, 0, all, 0, a.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        System.arraycopy(c, 0, all, a.length + b.length, c.length);
+
+        assertEquals(Arrays.asList(30L, 29L, 20L, 10L, 5L, 4L), compactSut.decode(all));
+    }
+
+    /**
+     * Tests the compact encoding is much smaller for a typical descending id list.
+     */
+    @Test
+    public void testCompactIsSmaller()
+    {
+        final int count = 1000;
+        List<Long> ids = new ArrayList<Long>();
+        for (long id = 5000000L; ids.size() < count; id -= 7)
+        {
+            ids.add(id);
+        }
+
+        int compactSize = compactSut.encode(ids).length;
+        int legacySize = legacySut.encode(ids).length;
+        assertEquals(count * 8, legacySize);
+        assertTrue(compactSize < count + 10);
+    }
+
+    /**
+     * Tests truncated data is rejected.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = IOException.class)
+    public void testDecodeTruncatedLegacy() throws IOException
+    {
+        compactSut.decode(new byte[] { 0, 0, 0 });
+    }
+
+    /**
+     * Tests truncated data is rejected.
+     *
+     * @throws IOException
+     *             Expected.
+     */
+    @Test(expected = IOException.class)
+    public void testDecodeTruncatedCompact() throws IOException
+    {
+        byte[] bytes = compactSut.encode(sample);
+        compactSut.decode(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+}
@@ -18,7 +18,9 @@ package org.eurekastreams.server.persistence.mappers.cache;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -79,6 +81,10 @@ public class MultiValueCacheRefreshStrategyTest
     @Test
     public void test()
     {
+        final Map<String, String> expectedValues = new LinkedHashMap<String, String>();
+        expectedValues.put("prefix:fooSuffixTransformed", "fooValueTransformed");
+        expectedValues.put("prefix:barSuffixTransformed", "barValueTransformed");
+
         context.checking(new Expectations()
         {
             {
@@ -94,9 +100,7 @@ public class MultiValueCacheRefreshStrategyTest
                 oneOf(valueTransformer).transform("bar");
                 will(returnValue("barValueTransformed"));
 
-                oneOf(cache).set("prefix:fooSuffixTransformed", "fooValueTransformed");
-
-                oneOf(cache).set("prefix:barSuffixTransformed", "barValueTransformed");
+                oneOf(cache).setMulti(expectedValues);
             }
         });
 
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests NearCache.
+ */
+public class NearCacheTest
+{
+    /** Used for mocking objects. */
+    private final JUnit4Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Fixture: shared cache. */
+    private final Cache remote = context.mock(Cache.class);
+
+    /** Fixture: broadcaster. */
+    private final CacheInvalidationBroadcaster broadcaster = context.mock(CacheInvalidationBroadcaster.class);
+
+    /** Local TTLs. */
+    private final Map<String, Integer> ttls = new HashMap<String, Integer>();
+
+    /** SUT. */
+    private NearCache sut;
+
+    /**
+     * Setup before each test.
+     */
+    @Before
+    public void setUp()
+    {
+        ttls.put(CacheKeys.PERSON_BY_ID, 60);
+        sut = new NearCache(remote, 1000000L, ttls);
+        sut.setInvalidationBroadcaster(broadcaster);
+    }
+
+    /**
+     * Tests a held key is only fetched once and each caller gets a copy.
+     */
+    @Test
+    public void testGetHeld()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(remote).get("Per:5");
+                will(returnValue("value"));
+            }
+        });
+
+        Object first = sut.get("Per:5");
+        Object second = sut.get("Per:5");
+        context.assertIsSatisfied();
+
+        assertEquals("value", first);
+        assertEquals("value", second);
+        assertNotSame(first, second);
+        assertEquals(1, sut.getStatistics().getCount("Per:hit"));
+        assertEquals(1, sut.getStatistics().getCount("Per:miss"));
+    }
+
+    /**
+     * Tests keys without a configured prefix always go to the shared cache.
+     */
+    @Test
+    public void testGetNotHeld()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(remote).get("Grp:5");
+                will(returnValue("value"));
+            }
+        });
+
+        sut.get("Grp:5");
+        sut.get("Grp:5");
+        context.assertIsSatisfied();
+        assertEquals(0, sut.getLocalEntryCount());
+    }
+
+    /**
+     * Tests multiGet only asks the shared cache for what isn't held.
+     */
+    @Test
+    public void testMultiGet()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(remote).get("Per:1");
+                will(returnValue("one"));
+
+                oneOf(remote).multiGet(Arrays.asList("Per:2", "Grp:3"));
+                will(returnValue(Collections.singletonMap("Per:2", (Object) "two")));
+            }
+        });
+
+        sut.get("Per:1");
+        Map<String, Object> results = sut.multiGet(Arrays.asList("Per:1", "Per:2", "Grp:3"));
+        context.assertIsSatisfied();
+
+        assertEquals(2, results.size());
+        assertEquals("one", results.get("Per:1"));
+        assertEquals("two", results.get("Per:2"));
+        assertEquals(2, sut.getLocalEntryCount());
+    }
+
+    /**
+     * Tests writes drop the local copy and are broadcast.
+     */
+    @Test
+    public void testSetInvalidates()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(remote).get("Per:5");
+                will(returnValue("value"));
+
+                oneOf(remote).set("Per:5", "new");
+                oneOf(broadcaster).broadcastInvalidation("Per:5");
+
+                oneOf(remote).delete("Grp:5");
+            }
+        });
+
+        sut.get("Per:5");
+        sut.set("Per:5", "new");
+        sut.get("Per:5");
+        sut.delete("Grp:5");
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests batched writes drop the local copies and are broadcast in one notification.
+     */
+    @Test
+    public void testSetMultiInvalidates()
+    {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        values.put("Per:5", "new");
+        values.put("Grp:5", "not held");
+        values.put("Per:6", "newer");
+
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(remote).get("Per:5");
+                will(returnValue("value"));
+
+                oneOf(remote).setMulti(values);
+                oneOf(broadcaster).broadcastInvalidations(Arrays.asList("Per:5", "Per:6"));
+            }
+        });
+
+        sut.get("Per:5");
+        sut.setMulti(values);
+        sut.get("Per:5");
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests updates drop the local copy and are broadcast even when no value is returned.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdateInvalidates()
+    {
+        final Transformer<Object, Object> updater = context.mock(Transformer.class);
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(remote).get("Per:5");
+                will(returnValue("value"));
+
+                oneOf(remote).update("Per:5", updater);
+                will(returnValue(null));
+                oneOf(broadcaster).broadcastInvalidation("Per:5");
+            }
+        });
+
+        sut.get("Per:5");
+        sut.update("Per:5", updater);
+        sut.get("Per:5");
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests invalidations from other nodes drop the local copy.
+     */
+    @Test
+    public void testInvalidateLocal()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(remote).get("Per:5");
+                will(returnValue("value"));
+            }
+        });
+
+        sut.get("Per:5");
+        sut.invalidateLocal("Per:5");
+        sut.get("Per:5");
+        context.assertIsSatisfied();
+        assertEquals(1, sut.getStatistics().getCount("Per:invalidate"));
+    }
+
+    /**
+     * Tests values read right after a key is dropped are not held (the write may not have reached the shared cache),
+     * but are once the hold time passes.
+     *
+     * @throws InterruptedException
+     *             Shouldn't.
+     */
+    @Test
+    public void testNotHeldRightAfterInvalidation() throws InterruptedException
+    {
+        context.checking(new Expectations()
+        {
+            {
+                exactly(3).of(remote).get("Per:5");
+                will(returnValue("value"));
+            }
+        });
+
+        sut.invalidateLocal("Per:5");
+        sut.get("Per:5");
+        sut.get("Per:5");
+        assertEquals(0, sut.getLocalEntryCount());
+
+        sut.setInvalidationHoldMillis(1L);
+        sut.invalidateLocal("Per:5");
+        Thread.sleep(10);
+        sut.get("Per:5");
+        sut.get("Per:5");
+        context.assertIsSatisfied();
+        assertEquals(1, sut.getLocalEntryCount());
+    }
+
+    /**
+     * Tests the local tier is bounded by bytes, evicting the least recently used.
+     */
+    @Test
+    public void testEviction()
+    {
+        final char[] big = new char[400];
+        Arrays.fill(big, 'x');
+        final String bigValue = new String(big);
+
+        sut = new NearCache(remote, 1000L, ttls);
+        context.checking(new Expectations()
+        {
+            {
+                allowing(remote).get(with(any(String.class)));
+                will(returnValue(bigValue));
+            }
+        });
+
+        sut.get("Per:1");
+        sut.get("Per:2");
+        sut.get("Per:3");
+
+        assertEquals(2, sut.getLocalEntryCount());
+        assertTrue(sut.getLocalByteCount() <= 1000L);
+        assertEquals(1, sut.getStatistics().getCount("Per:evict"));
+    }
+
+    /**
+     * Tests with no space nothing is held locally but changes are still broadcast.
+     */
+    @Test
+    public void testDisabled()
+    {
+        sut = new NearCache(remote, 0L, ttls);
+        sut.setInvalidationBroadcaster(broadcaster);
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(remote).get("Per:5");
+                will(returnValue("value"));
+
+                oneOf(remote).delete("Per:5");
+                oneOf(broadcaster).broadcastInvalidation("Per:5");
+            }
+        });
+
+        sut.get("Per:5");
+        sut.get("Per:5");
+        sut.delete("Per:5");
+        context.assertIsSatisfied();
+    }
+}
@@ -121,6 +121,26 @@ public class RotatingCacheClientTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test.
+     */
+    @Test
+    public void testaddToTopOfLists()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(writeRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).addToTopOfLists(null);
+            }
+        });
+
+        sut.addToTopOfLists(null);
+        context.assertIsSatisfied();
+    }
+
     /**
      * Test.
      */
@@ -381,6 +401,46 @@ public class RotatingCacheClientTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test.
+     */
+    @Test
+    public void testsetMulti()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(writeRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).setMulti(null);
+            }
+        });
+
+        sut.setMulti(null);
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test.
+     */
+    @Test
+    public void testsetLists()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(writeRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).setLists(null);
+            }
+        });
+
+        sut.setLists(null);
+        context.assertIsSatisfied();
+    }
+
     /**
      * Test.
      */
@@ -401,4 +461,85 @@ public class RotatingCacheClientTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test.
+     */
+    @Test
+    public void testincrement()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(writeRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).increment("key", 1L);
+            }
+        });
+
+        sut.increment("key", 1L);
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test.
+     */
+    @Test
+    public void testupdate()
+    {
+        final Transformer<Object, Object> updater = context.mock(Transformer.class);
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(writeRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).update("key", updater);
+            }
+        });
+
+        sut.update("key", updater);
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test.
+     */
+    @Test
+    public void testaddCounter()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(writeRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).addCounter("key", 2L);
+            }
+        });
+
+        sut.addCounter("key", 2L);
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test.
+     */
+    @Test
+    public void testmultiGetCounters()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(readRotator).getNext();
+                will(returnValue(cache));
+
+                oneOf(cache).multiGetCounters(null);
+            }
+        });
+
+        sut.multiGetCounters(null);
+        context.assertIsSatisfied();
+    }
+
 }
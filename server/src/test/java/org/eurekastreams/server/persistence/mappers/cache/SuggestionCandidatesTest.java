@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests SuggestionCandidates.
+ */
+public class SuggestionCandidatesTest
+{
+    /** Person the suggestions are for. */
+    private static final long PERSON_ID = 1L;
+
+    /** Maximum candidates. */
+    private static final int MAX_CANDIDATES = 10;
+
+    /** System under test. */
+    private SuggestionCandidates sut;
+
+    /**
+     * Setup: person 1 follows people 2 and 3 and group 50; they follow people 4 (twice), 5, 1 and 2, and groups 50, 51
+     * (twice) and 52.
+     */
+    @Before
+    public void setUp()
+    {
+        sut = new SuggestionCandidates(PERSON_ID, 0L, new long[] { 3L, 1L, 2L }, new long[] { 50L }, new long[] { 4L,
+                5L, 4L, 1L, 2L }, new long[] { 51L, 50L, 52L, 51L }, MAX_CANDIDATES);
+    }
+
+    /**
+     * Tests the initial scores: followed streams and the person themselves are never candidates.
+     */
+    @Test
+    public void testBuild()
+    {
+        assertEquals(2, sut.getPeople().size());
+        assertEquals(2, sut.getPeople().getScore(4L));
+        assertEquals(1, sut.getPeople().getScore(5L));
+        assertEquals(0, sut.getPeople().getScore(1L));
+        assertEquals(0, sut.getPeople().getScore(2L));
+        assertArrayEquals(new long[] { 4L, 5L }, sut.getPeople().getIdsByScore());
+
+        assertEquals(2, sut.getGroups().size());
+        assertArrayEquals(new long[] { 51L, 52L }, sut.getGroups().getIdsByScore());
+
+        assertTrue(sut.isFollowingPerson(PERSON_ID));
+        assertTrue(sut.isFollowingPerson(2L));
+        assertFalse(sut.isFollowingPerson(4L));
+        assertTrue(sut.isFollowingGroup(50L));
+        assertFalse(sut.isFollowingGroup(51L));
+    }
+
+    /**
+     * Tests adjusting scores, including adding and removing ids.
+     */
+    @Test
+    public void testAdjust()
+    {
+        sut.getPeople().adjust(5L, 2);
+        sut.getPeople().adjust(6L, 1);
+        sut.getPeople().adjust(4L, -2);
+
+        assertEquals(0, sut.getPeople().getScore(4L));
+        assertArrayEquals(new long[] { 5L, 6L }, sut.getPeople().getIdsByScore());
+        assertEquals(3, sut.getPeople().getScore(5L));
+
+        sut.getPeople().remove(5L);
+        assertArrayEquals(new long[] { 6L }, sut.getPeople().getIdsByScore());
+    }
+
+    /**
+     * Tests recording follows and unfollows.
+     */
+    @Test
+    public void testSetFollowing()
+    {
+        sut.setFollowingPerson(4L, true);
+        sut.setFollowingPerson(2L, false);
+        sut.setFollowingGroup(51L, true);
+
+        assertTrue(sut.isFollowingPerson(4L));
+        assertFalse(sut.isFollowingPerson(2L));
+        assertTrue(sut.isFollowingGroup(51L));
+        assertEquals(2, sut.countFollowedPeople(Arrays.asList(1L, 2L, 3L, 4L)));
+    }
+
+    /**
+     * Tests trimming to the best scores.
+     */
+    @Test
+    public void testTrim()
+    {
+        sut.trim(1);
+
+        assertArrayEquals(new long[] { 4L }, sut.getPeople().getIdsByScore());
+        assertArrayEquals(new long[] { 51L }, sut.getGroups().getIdsByScore());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.testhelpers.SimpleMemoryCache;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateFollowedByActivitiesRequest;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests UpdateFollowedByActivitiesCacheMapper.
+ */
+public class UpdateFollowedByActivitiesCacheMapperTest
+{
+    /** Test data. */
+    private static final long FOLLOWER_ID = 5L;
+
+    /** Test data. */
+    private static final long FOLLOWED_ID = 8L;
+
+    /** Test data. */
+    private static final long FOLLOWED_STREAM_ID = 88L;
+
+    /** Context for building mock objects. */
+    private final JUnit4Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Mapper to get people. */
+    private final DomainMapper<List<Long>, List<PersonModelView>> getPeopleByIdsMapper = context.mock(
+            DomainMapper.class, "getPeopleByIdsMapper");
+
+    /** Rebuild mapper. */
+    private final DomainMapper<Long, List<Long>> rebuildMapper = context.mock(DomainMapper.class, "rebuildMapper");
+
+    /** Cache. */
+    private final SimpleMemoryCache cache = new SimpleMemoryCache();
+
+    /** Policy holding the statistics. */
+    private final FollowingTimelinePolicy timelinePolicy = new FollowingTimelinePolicy(0);
+
+    /** Followed person. */
+    private final PersonModelView followed = new PersonModelView();
+
+    /** System under test. */
+    private UpdateFollowedByActivitiesCacheMapper sut;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setUp()
+    {
+        followed.setStreamId(FOLLOWED_STREAM_ID);
+        sut = new UpdateFollowedByActivitiesCacheMapper(getPeopleByIdsMapper, rebuildMapper, 5);
+        sut.setCache(cache);
+        sut.setTimelinePolicy(timelinePolicy);
+    }
+
+    /**
+     * Expects the followed person to be looked up.
+     */
+    private void expectFollowedLookup()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(getPeopleByIdsMapper).execute(Collections.singletonList(FOLLOWED_ID));
+                will(returnValue(Collections.singletonList(followed)));
+            }
+        });
+    }
+
+    /**
+     * Tests nothing is done when the follower's list isn't cached.
+     */
+    @Test
+    public void testNotCached()
+    {
+        assertFalse(sut.execute(new UpdateFollowedByActivitiesRequest(FOLLOWER_ID, FOLLOWED_ID, true)));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests following merges in the followed stream, newest first, without duplicates and within the size limit.
+     */
+    @Test
+    public void testFollow()
+    {
+        cache.setList(CacheKeys.ACTIVITIES_BY_FOLLOWING + FOLLOWER_ID, Arrays.asList(9L, 5L, 1L));
+        cache.setList(CacheKeys.ENTITY_STREAM_BY_SCOPE_ID + FOLLOWED_STREAM_ID, Arrays.asList(7L, 5L, 3L, 2L));
+        expectFollowedLookup();
+
+        assertTrue(sut.execute(new UpdateFollowedByActivitiesRequest(FOLLOWER_ID, FOLLOWED_ID, true)));
+
+        context.assertIsSatisfied();
+        assertEquals(Arrays.asList(9L, 7L, 5L, 3L, 2L), cache.getList(CacheKeys.ACTIVITIES_BY_FOLLOWING
+                + FOLLOWER_ID));
+        assertEquals(1, timelinePolicy.getStatistics().getCount(FollowingTimelinePolicy.FOLLOW_MERGE_STAT));
+    }
+
+    /**
+     * Tests unfollowing takes out the unfollowed stream.
+     */
+    @Test
+    public void testUnfollow()
+    {
+        cache.setList(CacheKeys.ACTIVITIES_BY_FOLLOWING + FOLLOWER_ID, Arrays.asList(9L, 7L, 5L, 2L, 1L));
+        cache.setList(CacheKeys.ENTITY_STREAM_BY_SCOPE_ID + FOLLOWED_STREAM_ID, Arrays.asList(7L, 5L, 3L, 2L));
+        expectFollowedLookup();
+
+        assertTrue(sut.execute(new UpdateFollowedByActivitiesRequest(FOLLOWER_ID, FOLLOWED_ID, false)));
+
+        context.assertIsSatisfied();
+        assertEquals(Arrays.asList(9L, 1L), cache.getList(CacheKeys.ACTIVITIES_BY_FOLLOWING + FOLLOWER_ID));
+        assertEquals(1, timelinePolicy.getStatistics().getCount(FollowingTimelinePolicy.UNFOLLOW_SUBTRACT_STAT));
+    }
+
+    /**
+     * Tests the list is rebuilt when the followed stream isn't cached.
+     */
+    @Test
+    public void testStreamNotCached()
+    {
+        cache.setList(CacheKeys.ACTIVITIES_BY_FOLLOWING + FOLLOWER_ID, Arrays.asList(9L, 5L, 1L));
+        expectFollowedLookup();
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(rebuildMapper).execute(FOLLOWER_ID);
+            }
+        });
+
+        assertFalse(sut.execute(new UpdateFollowedByActivitiesRequest(FOLLOWER_ID, FOLLOWED_ID, true)));
+        context.assertIsSatisfied();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
+import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
+import org.eurekastreams.server.persistence.mappers.cache.testhelpers.SimpleMemoryCache;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateStreamHashTagCountsRequest;
+import org.eurekastreams.server.persistence.mappers.stream.StreamHashTagCounts;
+import org.eurekastreams.server.persistence.mappers.stream.StreamPopularHashTagsReportDTO;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests UpdateStreamHashTagCounts.
+ */
+public class UpdateStreamHashTagCountsTest
+{
+    /** Milliseconds per hour. */
+    private static final long HOUR = 3600000L;
+
+    /** Cache key suffix of the test stream. */
+    private static final String SUFFIX = "GROUP-somegroup";
+
+    /** The stream. */
+    private final StreamPopularHashTagsRequest stream = new StreamPopularHashTagsRequest(ScopeType.GROUP,
+            "somegroup");
+
+    /** Cache. */
+    private final SimpleMemoryCache cache = new SimpleMemoryCache();
+
+    /** When the counts were rebuilt. */
+    private final Date rebuiltDate = new Date();
+
+    /** System under test. */
+    private final UpdateStreamHashTagCounts sut = new UpdateStreamHashTagCounts(
+            new StreamPopularHashTagsRequestCacheKeySuffixTransformer(), 2);
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setUp()
+    {
+        sut.setCache(cache);
+    }
+
+    /**
+     * Tests streams without cached counts are left alone.
+     */
+    @Test
+    public void testNoCounts()
+    {
+        assertFalse(sut.execute(new UpdateStreamHashTagCountsRequest(stream, Arrays.asList("#a"), new Date(), 1)));
+        assertNull(cache.get(CacheKeys.POPULAR_HASH_TAGS_BY_STREAM_TYPE_AND_SHORT_NAME + SUFFIX));
+    }
+
+    /**
+     * Tests posts and deletes update the counts and the report, keeping the rebuild date.
+     */
+    @Test
+    public void testUpdate()
+    {
+        StreamHashTagCounts counts = new StreamHashTagCounts(HOUR, 2 * HOUR, rebuiltDate);
+        counts.add("#a", System.currentTimeMillis(), 1, System.currentTimeMillis());
+        cache.set(CacheKeys.POPULAR_HASH_TAG_COUNTS_BY_STREAM_TYPE_AND_SHORT_NAME + SUFFIX, counts);
+
+        assertTrue(sut.execute(new UpdateStreamHashTagCountsRequest(stream, Arrays.asList("#b", "#c"), new Date(),
+                1)));
+        assertTrue(sut.execute(new UpdateStreamHashTagCountsRequest(stream, Arrays.asList("#c"), new Date(), 1)));
+        assertTrue(sut.execute(new UpdateStreamHashTagCountsRequest(stream, Arrays.asList("#a"), new Date(), -1)));
+
+        StreamPopularHashTagsReportDTO report = (StreamPopularHashTagsReportDTO) cache
+                .get(CacheKeys.POPULAR_HASH_TAGS_BY_STREAM_TYPE_AND_SHORT_NAME + SUFFIX);
+        assertEquals(Arrays.asList("#c", "#b"), report.getPopularHashTags());
+        assertEquals(rebuiltDate, report.getReportGenerationDate());
+        assertEquals(2, ((StreamHashTagCounts) cache
+                .get(CacheKeys.POPULAR_HASH_TAG_COUNTS_BY_STREAM_TYPE_AND_SHORT_NAME + SUFFIX)).getCount("#c"));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eurekastreams.server.domain.EntityType;
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.testhelpers.SimpleMemoryCache;
+import org.eurekastreams.server.persistence.mappers.requests.UpdateSuggestionCandidatesRequest;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests UpdateSuggestionCandidatesCacheMapper.
+ */
+@SuppressWarnings("unchecked")
+public class UpdateSuggestionCandidatesCacheMapperTest
+{
+    /** Person who follows. Follows person 2 (who follows person 3). */
+    private static final long PERSON_ID = 1L;
+
+    /** Person already followed by PERSON_ID. */
+    private static final long FOLLOWED_ID = 2L;
+
+    /** Person followed by FOLLOWED_ID. */
+    private static final long FRIEND_OF_FRIEND_ID = 3L;
+
+    /** Person newly followed. Follows people 3 and 6 and group 70. */
+    private static final long TARGET_ID = 5L;
+
+    /** Another person followed by TARGET_ID. */
+    private static final long TARGET_FRIEND_ID = 6L;
+
+    /** Group. */
+    private static final long GROUP_ID = 70L;
+
+    /** Follower of PERSON_ID whose candidates are cached. */
+    private static final long CACHED_FOLLOWER_ID = 9L;
+
+    /** Follower of PERSON_ID whose candidates are not cached. */
+    private static final long UNCACHED_FOLLOWER_ID = 10L;
+
+    /** Maximum candidates. */
+    private static final int MAX_CANDIDATES = 10;
+
+    /** Context for building mock objects. */
+    private final Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Gets the ids of the people following a person. */
+    private final DomainMapper<Long, List<Long>> personFollowersMapper = context.mock(DomainMapper.class,
+            "personFollowersMapper");
+
+    /** Gets the ids of the people a person follows. */
+    private final DomainMapper<Long, List<Long>> followedPeopleMapper = context.mock(DomainMapper.class,
+            "followedPeopleMapper");
+
+    /** Gets the ids of the groups a person follows. */
+    private final DomainMapper<Long, List<Long>> followedGroupsMapper = context.mock(DomainMapper.class,
+            "followedGroupsMapper");
+
+    /** Gets the ids of the people following a group. */
+    private final DomainMapper<Long, List<Long>> groupFollowersMapper = context.mock(DomainMapper.class,
+            "groupFollowersMapper");
+
+    /** Cache. */
+    private final SimpleMemoryCache cache = new SimpleMemoryCache();
+
+    /** System under test. */
+    private UpdateSuggestionCandidatesCacheMapper sut;
+
+    /**
+     * Setup: the candidates of PERSON_ID and CACHED_FOLLOWER_ID are in cache.
+     */
+    @Before
+    public void setUp()
+    {
+        sut = new UpdateSuggestionCandidatesCacheMapper(personFollowersMapper, followedPeopleMapper,
+                followedGroupsMapper, groupFollowersMapper, MAX_CANDIDATES);
+        sut.setCache(cache);
+
+        cache.set(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + PERSON_ID, new SuggestionCandidates(PERSON_ID, 0L,
+                new long[] { FOLLOWED_ID }, new long[0], new long[] { FRIEND_OF_FRIEND_ID }, new long[0],
+                MAX_CANDIDATES));
+        cache.set(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + CACHED_FOLLOWER_ID, new SuggestionCandidates(
+                CACHED_FOLLOWER_ID, 0L, new long[] { PERSON_ID }, new long[0], new long[] { FOLLOWED_ID },
+                new long[0], MAX_CANDIDATES));
+
+        context.checking(new Expectations()
+        {
+            {
+                allowing(personFollowersMapper).execute(PERSON_ID);
+                will(returnValue(Arrays.asList(PERSON_ID, CACHED_FOLLOWER_ID, UNCACHED_FOLLOWER_ID)));
+            }
+        });
+    }
+
+    /**
+     * @param inPersonId
+     *            Person id.
+     * @return The person's cached candidates.
+     */
+    private SuggestionCandidates getCached(final long inPersonId)
+    {
+        return (SuggestionCandidates) cache.get(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + inPersonId);
+    }
+
+    /**
+     * Tests following a person.
+     */
+    @Test
+    public void testFollowPerson()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(followedPeopleMapper).execute(TARGET_ID);
+                will(returnValue(Arrays.asList(FRIEND_OF_FRIEND_ID, TARGET_FRIEND_ID)));
+
+                oneOf(followedGroupsMapper).execute(TARGET_ID);
+                will(returnValue(Collections.singletonList(GROUP_ID)));
+            }
+        });
+
+        assertTrue(sut.execute(new UpdateSuggestionCandidatesRequest(PERSON_ID, TARGET_ID, EntityType.PERSON, true)));
+
+        context.assertIsSatisfied();
+        SuggestionCandidates own = getCached(PERSON_ID);
+        assertTrue(own.isFollowingPerson(TARGET_ID));
+        assertArrayEquals(new long[] { FRIEND_OF_FRIEND_ID, TARGET_FRIEND_ID }, own.getPeople().getIdsByScore());
+        assertEquals(2, own.getPeople().getScore(FRIEND_OF_FRIEND_ID));
+        assertEquals(1, own.getGroups().getScore(GROUP_ID));
+
+        SuggestionCandidates follower = getCached(CACHED_FOLLOWER_ID);
+        assertEquals(1, follower.getPeople().getScore(TARGET_ID));
+        assertEquals(1, follower.getPeople().getScore(FOLLOWED_ID));
+        assertNull(cache.get(CacheKeys.SUGGESTION_CANDIDATES_BY_PERSON_ID + UNCACHED_FOLLOWER_ID));
+    }
+
+    /**
+     * Tests unfollowing a person: their connections are no longer suggested, and they are suggested only if someone
+     * still followed also follows them.
+     */
+    @Test
+    public void testUnfollowPerson()
+    {
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(followedPeopleMapper).execute(FOLLOWED_ID);
+                will(returnValue(Collections.singletonList(FRIEND_OF_FRIEND_ID)));
+
+                oneOf(followedGroupsMapper).execute(FOLLOWED_ID);
+                will(returnValue(Collections.EMPTY_LIST));
+
+                oneOf(personFollowersMapper).execute(FOLLOWED_ID);
+                will(returnValue(Arrays.asList(PERSON_ID, CACHED_FOLLOWER_ID)));
+            }
+        });
+
+        sut.execute(new UpdateSuggestionCandidatesRequest(PERSON_ID, FOLLOWED_ID, EntityType.PERSON, false));
+
+        context.assertIsSatisfied();
+        SuggestionCandidates own = getCached(PERSON_ID);
+        assertEquals(0, own.getPeople().size());
+        assertEquals(0, getCached(CACHED_FOLLOWER_ID).getPeople().size());
+    }
+
+    /**
+     * Tests joining a group: it is suggested to the person's followers.
+     */
+    @Test
+    public void testFollowGroup()
+    {
+        sut.execute(new UpdateSuggestionCandidatesRequest(PERSON_ID, GROUP_ID, EntityType.GROUP, true));
+
+        context.assertIsSatisfied();
+        assertTrue(getCached(PERSON_ID).isFollowingGroup(GROUP_ID));
+        assertEquals(0, getCached(PERSON_ID).getGroups().size());
+        assertEquals(1, getCached(CACHED_FOLLOWER_ID).getGroups().getScore(GROUP_ID));
+    }
+
+    /**
+     * Tests leaving a group: it is scored by how many of the people followed are members.
+     */
+    @Test
+    public void testUnfollowGroup()
+    {
+        getCached(PERSON_ID).setFollowingGroup(GROUP_ID, true);
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(groupFollowersMapper).execute(GROUP_ID);
+                will(returnValue(Arrays.asList(PERSON_ID, FOLLOWED_ID, TARGET_ID)));
+            }
+        });
+
+        sut.execute(new UpdateSuggestionCandidatesRequest(PERSON_ID, GROUP_ID, EntityType.GROUP, false));
+
+        context.assertIsSatisfied();
+        assertEquals(1, getCached(PERSON_ID).getGroups().getScore(GROUP_ID));
+        assertEquals(0, getCached(CACHED_FOLLOWER_ID).getGroups().getScore(GROUP_ID));
+    }
+}
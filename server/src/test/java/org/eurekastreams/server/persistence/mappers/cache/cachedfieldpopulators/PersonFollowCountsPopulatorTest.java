@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.cache.cachedfieldpopulators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowCounters;
+import org.eurekastreams.server.search.modelview.PersonModelView;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Test;
+
+/**
+ * Tests PersonFollowCountsPopulator.
+ */
+public class PersonFollowCountsPopulatorTest
+{
+    /** Test data. */
+    private static final long PERSON_ID_1 = 5L;
+
+    /** Test data. */
+    private static final long PERSON_ID_2 = 6L;
+
+    /** Context for building mock objects. */
+    private final JUnit4Mockery context = new JUnit4Mockery()
+    {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    /** Decorated mapper. */
+    private final DomainMapper<List<Long>, List<PersonModelView>> decorated = context.mock(DomainMapper.class);
+
+    /** Follow counters. */
+    private final FollowCounters followCounters = context.mock(FollowCounters.class);
+
+    /** System under test. */
+    private final PersonFollowCountsPopulator sut = new PersonFollowCountsPopulator(decorated, followCounters);
+
+    /**
+     * Tests filling in the counts; counts that are not found leave the model view's value alone.
+     */
+    @Test
+    public void testExecute()
+    {
+        final List<Long> ids = Arrays.asList(PERSON_ID_1, PERSON_ID_2);
+        final PersonModelView person1 = new PersonModelView();
+        person1.setEntityId(PERSON_ID_1);
+        person1.setFollowersCount(1);
+        final PersonModelView person2 = new PersonModelView();
+        person2.setEntityId(PERSON_ID_2);
+        person2.setGroupsCount(2);
+
+        final Map<String, Long> counts = new HashMap<String, Long>();
+        counts.put(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + PERSON_ID_1, 10L);
+        counts.put(CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID + PERSON_ID_1, 11L);
+        counts.put(CacheKeys.GROUP_COUNT_BY_PERSON_ID + PERSON_ID_1, 12L);
+        counts.put(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID + PERSON_ID_2, 20L);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(decorated).execute(ids);
+                will(returnValue(Arrays.asList(person1, person2)));
+
+                oneOf(followCounters).get(
+                        Arrays.asList(CacheKeys.FOLLOWER_COUNT_BY_PERSON_ID, CacheKeys.FOLLOWING_COUNT_BY_PERSON_ID,
+                                CacheKeys.GROUP_COUNT_BY_PERSON_ID), ids);
+                will(returnValue(counts));
+            }
+        });
+
+        List<PersonModelView> results = sut.execute(ids);
+
+        context.assertIsSatisfied();
+        assertEquals(2, results.size());
+        assertEquals(10, person1.getFollowersCount());
+        assertEquals(11, person1.getFollowingCount());
+        assertEquals(12, person1.getGroupsCount());
+        assertEquals(20, person2.getFollowersCount());
+        assertEquals(2, person2.getGroupsCount());
+    }
+
+    /**
+     * Tests that nothing is looked up when no people are found.
+     */
+    @Test
+    public void testExecuteNone()
+    {
+        final List<Long> ids = Collections.singletonList(PERSON_ID_1);
+        final List<PersonModelView> none = Collections.emptyList();
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(decorated).execute(ids);
+                will(returnValue(none));
+            }
+        });
+
+        assertSame(none, sut.execute(ids));
+        context.assertIsSatisfied();
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eurekastreams.server.persistence.mappers.cache.Cache;
+import org.eurekastreams.server.persistence.mappers.cache.Transformer;
 
 /**
  * Simple Cache implementation for integration tests, storing the cached information in memory, rather than engaging an
@@ -116,7 +117,7 @@ public class SimpleMemoryCache implements Cache
         // check list size and trim if necessary
         if (toReturn != null && toReturn.size() > inMaximumEntries)
         {
-            ArrayList<Long> trimmed = (ArrayList<Long>) toReturn.subList(0, inMaximumEntries - 1);
+            ArrayList<Long> trimmed = new ArrayList<Long>(toReturn.subList(0, inMaximumEntries));
 
             toReturn = trimmed;
 
@@ -229,6 +230,24 @@ public class SimpleMemoryCache implements Cache
         return toReturn;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Object update(final String inKey, final Transformer<Object, Object> inUpdater)
+    {
+        Object current = cache.get(inKey);
+        if (current == null)
+        {
+            return null;
+        }
+        Object updated = inUpdater.transform(current);
+        if (updated != null)
+        {
+            cache.put(inKey, updated);
+        }
+        return updated;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -250,6 +269,28 @@ public class SimpleMemoryCache implements Cache
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void setMulti(final Map<String, ?> inValuesByKey)
+    {
+        for (Map.Entry<String, ?> entry : inValuesByKey.entrySet())
+        {
+            set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        for (Map.Entry<String, ? extends List<Long>> entry : inValuesByKey.entrySet())
+        {
+            setList(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Get the byte[] from a ArrayList&lt;Long&gt;.
      *
@@ -386,6 +427,17 @@ public class SimpleMemoryCache implements Cache
         this.addToTopOfList(inKey, longs);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void addToTopOfLists(final Map<String, ? extends List<Long>> inValuesByKey)
+    {
+        for (Map.Entry<String, ? extends List<Long>> entry : inValuesByKey.entrySet())
+        {
+            this.addToTopOfList(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -479,4 +531,49 @@ public class SimpleMemoryCache implements Cache
         Set<Long> set = (Set<Long>) cache.get(inKey);
         set.remove(inValue);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long increment(final String inKey, final long inDelta)
+    {
+        Object current = cache.get(inKey);
+        if (!(current instanceof Long))
+        {
+            return null;
+        }
+        Long result = Math.max((Long) current + inDelta, 0L);
+        cache.put(inKey, result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean addCounter(final String inKey, final long inValue)
+    {
+        if (cache.containsKey(inKey))
+        {
+            return false;
+        }
+        cache.put(inKey, Math.max(inValue, 0L));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Long> multiGetCounters(final Collection<String> inKeys)
+    {
+        Map<String, Long> results = new HashMap<String, Long>();
+        for (String key : inKeys)
+        {
+            Object value = cache.get(key);
+            if (value instanceof Long)
+            {
+                results.put(key, (Long) value);
+            }
+        }
+        return results;
+    }
 }
@@ -15,8 +15,12 @@
  */
 package org.eurekastreams.server.persistence.mappers.chained;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -162,4 +166,190 @@ public class DecoratedPartialResponseDomainMapperTest
 
         context.assertIsSatisfied();
     }
+
+    /**
+     * Test execute when memoizing: the second lookup within an action is answered from memory, the response list is
+     * copied (its elements are shared), and nothing is remembered once the action ends.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExecuteMemoized()
+    {
+        DecoratedPartialResponseDomainMapper<Object, Object> sut =
+        // line break
+        new DecoratedPartialResponseDomainMapper<Object, Object>(partialMapper, decoratedMapper, resultsCombiner,
+                refreshStrategy);
+        sut.setMemoize(true);
+
+        final Object request = "request";
+        final ArrayList<StringBuilder> response = new ArrayList<StringBuilder>(Arrays.asList(new StringBuilder("a"),
+                new StringBuilder("b")));
+        final PartialMapperResponse<Object, Object> partialResponse = new PartialMapperResponse<Object, Object>(
+                response);
+
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(partialMapper).execute(request);
+                will(returnValue(partialResponse));
+            }
+        });
+
+        MapperRequestMemo.begin();
+        try
+        {
+            assertSame(response, sut.execute(request));
+            response.add(new StringBuilder("c"));
+            ArrayList<StringBuilder> remembered = (ArrayList<StringBuilder>) sut.execute(request);
+            assertEquals(2, remembered.size());
+            assertSame(response.get(0), remembered.get(0));
+            remembered.remove(1);
+            assertEquals(2, ((ArrayList<StringBuilder>) sut.execute(request)).size());
+        }
+        finally
+        {
+            MapperRequestMemo.end();
+        }
+        assertSame(response, sut.execute(request));
+
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test execute when memoizing within an action which may write: nothing is remembered.
+     */
+    @Test
+    public void testExecuteMemoizedWritingAction()
+    {
+        DecoratedPartialResponseDomainMapper<Object, Object> sut =
+        // line break
+        new DecoratedPartialResponseDomainMapper<Object, Object>(partialMapper, decoratedMapper, resultsCombiner,
+                refreshStrategy);
+        sut.setMemoize(true);
+
+        final Object request = "request";
+        final PartialMapperResponse<Object, Object> partialResponse = new PartialMapperResponse<Object, Object>(
+                "cached");
+
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(partialMapper).execute(request);
+                will(returnValue(partialResponse));
+            }
+        });
+
+        MapperRequestMemo.begin(false);
+        try
+        {
+            assertEquals("cached", sut.execute(request));
+            assertEquals("cached", sut.execute(request));
+        }
+        finally
+        {
+            MapperRequestMemo.end();
+        }
+
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test a mapper sharing the refresh strategy (as the force refresh mappers do) makes a memoizing mapper forget what
+     * it remembered during the action.
+     */
+    @Test
+    public void testExecuteMemoizedForgottenOnRefresh()
+    {
+        DecoratedPartialResponseDomainMapper<Object, Object> sut =
+        // line break
+        new DecoratedPartialResponseDomainMapper<Object, Object>(partialMapper, decoratedMapper, resultsCombiner,
+                refreshStrategy);
+        sut.setMemoize(true);
+        final DomainMapper<Object, PartialMapperResponse<Object, Object>> nullMapper = context.mock(
+                DomainMapper.class, "nullMapper");
+        DecoratedPartialResponseDomainMapper<Object, Object> forceRefresh =
+        // line break
+        new DecoratedPartialResponseDomainMapper<Object, Object>(nullMapper, decoratedMapper, resultsCombiner,
+                refreshStrategy);
+
+        final Object request = "request";
+        final PartialMapperResponse<Object, Object> partialResponse = new PartialMapperResponse<Object, Object>(
+                "cached");
+        final PartialMapperResponse<Object, Object> nullResponse = new PartialMapperResponse<Object, Object>(null,
+                request);
+
+        context.checking(new Expectations()
+        {
+            {
+                exactly(2).of(partialMapper).execute(request);
+                will(returnValue(partialResponse));
+
+                oneOf(nullMapper).execute(request);
+                will(returnValue(nullResponse));
+
+                oneOf(decoratedMapper).execute(request);
+                will(returnValue("loaded"));
+
+                oneOf(refreshStrategy).refresh(request, "loaded");
+
+                oneOf(resultsCombiner).combine(nullResponse, "loaded", request);
+                will(returnValue("loaded"));
+            }
+        });
+
+        MapperRequestMemo.begin();
+        try
+        {
+            assertEquals("cached", sut.execute(request));
+            assertEquals("cached", sut.execute(request));
+            assertEquals("loaded", forceRefresh.execute(request));
+            assertEquals("cached", sut.execute(request));
+        }
+        finally
+        {
+            MapperRequestMemo.end();
+        }
+
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Test execute with single flight enabled: the decorated mapper's response is refreshed and combined as usual.
+     */
+    @Test
+    public void testExecuteSingleFlight()
+    {
+        DecoratedPartialResponseDomainMapper<Object, Object> sut =
+        // line break
+        new DecoratedPartialResponseDomainMapper<Object, Object>(partialMapper, decoratedMapper, resultsCombiner,
+                refreshStrategy);
+        sut.setSingleFlight(true);
+
+        final Object request = new Object();
+        final Object newRequest = new Object();
+        final Object newResponse = new Object();
+        final PartialMapperResponse<Object, Object> partialResponse = new PartialMapperResponse<Object, Object>(
+                null, newRequest);
+        final Object combinedResponse = new Object();
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(partialMapper).execute(request);
+                will(returnValue(partialResponse));
+
+                oneOf(decoratedMapper).execute(newRequest);
+                will(returnValue(newResponse));
+
+                oneOf(refreshStrategy).refresh(newRequest, newResponse);
+
+                oneOf(resultsCombiner).combine(partialResponse, newResponse, request);
+                will(returnValue(combinedResponse));
+            }
+        });
+
+        assertSame(combinedResponse, sut.execute(request));
+
+        context.assertIsSatisfied();
+    }
 }
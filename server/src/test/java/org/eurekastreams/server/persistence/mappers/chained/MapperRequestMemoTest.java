@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.chained;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests MapperRequestMemo.
+ */
+public class MapperRequestMemoTest
+{
+    /** A mapper. */
+    private final Object mapper = new Object();
+
+    /** Another mapper. */
+    private final Object otherMapper = new Object();
+
+    /**
+     * Makes sure no memo is left on the thread.
+     */
+    @After
+    public void tearDown()
+    {
+        MapperRequestMemo.end();
+        MapperRequestMemo.end();
+    }
+
+    /**
+     * Tests that nothing is remembered outside of an action.
+     */
+    @Test
+    public void testNotActive()
+    {
+        MapperRequestMemo.put(mapper, 1L, "one");
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+    }
+
+    /**
+     * Tests remembering responses by mapper and request.
+     */
+    @Test
+    public void testPutGet()
+    {
+        MapperRequestMemo.begin();
+        MapperRequestMemo.put(mapper, 1L, "one");
+
+        assertEquals("one", MapperRequestMemo.get(mapper, 1L));
+        assertNull(MapperRequestMemo.get(mapper, 2L));
+        assertNull(MapperRequestMemo.get(otherMapper, 1L));
+    }
+
+    /**
+     * Tests that a list request is copied, so a caller changing it does not change the key.
+     */
+    @Test
+    public void testListRequestCopied()
+    {
+        List<Long> request = new ArrayList<Long>(Arrays.asList(1L, 2L));
+        MapperRequestMemo.begin();
+        MapperRequestMemo.put(mapper, request, "response");
+        request.add(3L);
+
+        assertEquals("response", MapperRequestMemo.get(mapper, Arrays.asList(1L, 2L)));
+        assertNull(MapperRequestMemo.get(mapper, request));
+    }
+
+    /**
+     * Tests forgetting the responses from one source leaves those from other sources.
+     */
+    @Test
+    public void testForget()
+    {
+        Object source = new Object();
+        MapperRequestMemo.begin();
+        MapperRequestMemo.put(mapper, source, 1L, "one");
+        MapperRequestMemo.put(otherMapper, 1L, "other");
+
+        MapperRequestMemo.forget(otherMapper);
+        assertEquals("one", MapperRequestMemo.get(mapper, 1L));
+        assertNull(MapperRequestMemo.get(otherMapper, 1L));
+
+        MapperRequestMemo.forget(source);
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+        MapperRequestMemo.end();
+    }
+
+    /**
+     * Tests clearing and ending: nested begins keep the memo until the outermost end.
+     */
+    @Test
+    public void testClearAndEnd()
+    {
+        MapperRequestMemo.begin();
+        MapperRequestMemo.put(mapper, 1L, "one");
+        MapperRequestMemo.clear();
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+
+        MapperRequestMemo.put(mapper, 1L, "one");
+        MapperRequestMemo.begin();
+        MapperRequestMemo.end();
+        assertEquals("one", MapperRequestMemo.get(mapper, 1L));
+
+        MapperRequestMemo.end();
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+    }
+
+    /**
+     * Tests that nothing is remembered within an action which may write.
+     */
+    @Test
+    public void testWritingActionNotRemembered()
+    {
+        MapperRequestMemo.begin(false);
+        MapperRequestMemo.put(mapper, 1L, "one");
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+        MapperRequestMemo.end();
+    }
+
+    /**
+     * Tests that a writing action run within a read-only one remembers nothing and makes the read-only one forget
+     * everything when it ends.
+     */
+    @Test
+    public void testWritingActionWithinReadOnly()
+    {
+        MapperRequestMemo.begin();
+        MapperRequestMemo.put(mapper, 1L, "one");
+
+        MapperRequestMemo.begin(false);
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+        MapperRequestMemo.begin(true);
+        MapperRequestMemo.put(mapper, 2L, "two");
+        assertEquals("two", MapperRequestMemo.get(mapper, 2L));
+        MapperRequestMemo.end();
+        assertNull(MapperRequestMemo.get(mapper, 2L));
+        MapperRequestMemo.end();
+
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+        MapperRequestMemo.put(mapper, 1L, "one again");
+        assertEquals("one again", MapperRequestMemo.get(mapper, 1L));
+        MapperRequestMemo.end();
+        assertNull(MapperRequestMemo.get(mapper, 1L));
+    }
+}
@@ -15,11 +15,16 @@
  */
 package org.eurekastreams.server.persistence.mappers.composite;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.Cache;
+import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowingTimelinePolicy;
 import org.eurekastreams.server.persistence.mappers.requests.GetAllFollowedByActivityIdsRequest;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -102,4 +107,87 @@ public class GetAllFollowedByActivityIdsMapperTest
         sut.execute(request);
         context.assertIsSatisfied();
     }
+
+    /**
+     * Test the following list is discarded when it was built for a different set of pushed groups.
+     */
+    @Test
+    public void testTimelineSignatureChanged()
+    {
+        final Cache cache = context.mock(Cache.class);
+        final FollowingTimelinePolicy policy = new FollowingTimelinePolicy(10);
+        sut.setCache(cache);
+        sut.setTimelinePolicy(policy);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(request).getUserId();
+                will(returnValue(userId));
+
+                oneOf(request).getTimelineSignature();
+                will(returnValue(2L));
+
+                oneOf(request).getGroupStreamIds();
+                will(returnValue(groupStreamIds));
+
+                oneOf(cache).get(CacheKeys.ACTIVITIES_BY_FOLLOWING_SIGNATURE + userId);
+                will(returnValue(1L));
+
+                oneOf(cache).deleteList(CacheKeys.ACTIVITIES_BY_FOLLOWING + userId);
+                oneOf(cache).set(CacheKeys.ACTIVITIES_BY_FOLLOWING_SIGNATURE + userId, 2L);
+
+                oneOf(getFollowedPeopleActivityIdsMapper).execute(userId);
+                will(returnValue(new ArrayList<Long>()));
+
+                oneOf(getFollowedGroupActivityIdsMapper).execute(groupStreamIds);
+                will(returnValue(new ArrayList<List<Long>>()));
+            }
+        });
+
+        sut.execute(request);
+        context.assertIsSatisfied();
+        assertEquals(1, policy.getStatistics().getCount(FollowingTimelinePolicy.REBUILD_STAT));
+        assertEquals(1, policy.getStatistics().getCount(FollowingTimelinePolicy.TIMELINE_READ_STAT));
+        assertEquals(2, policy.getStatistics().getTotal(FollowingTimelinePolicy.PULLED_STREAMS_STAT));
+    }
+
+    /**
+     * Test the following list is used as is when its signature matches.
+     */
+    @Test
+    public void testTimelineSignatureUnchanged()
+    {
+        final Cache cache = context.mock(Cache.class);
+        final FollowingTimelinePolicy policy = new FollowingTimelinePolicy(10);
+        sut.setCache(cache);
+        sut.setTimelinePolicy(policy);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(request).getUserId();
+                will(returnValue(userId));
+
+                oneOf(request).getTimelineSignature();
+                will(returnValue(2L));
+
+                oneOf(request).getGroupStreamIds();
+                will(returnValue(groupStreamIds));
+
+                oneOf(cache).get(CacheKeys.ACTIVITIES_BY_FOLLOWING_SIGNATURE + userId);
+                will(returnValue(2L));
+
+                oneOf(getFollowedPeopleActivityIdsMapper).execute(userId);
+                will(returnValue(new ArrayList<Long>()));
+
+                oneOf(getFollowedGroupActivityIdsMapper).execute(groupStreamIds);
+                will(returnValue(new ArrayList<List<Long>>()));
+            }
+        });
+
+        sut.execute(request);
+        context.assertIsSatisfied();
+        assertEquals(0, policy.getStatistics().getCount(FollowingTimelinePolicy.REBUILD_STAT));
+    }
 }
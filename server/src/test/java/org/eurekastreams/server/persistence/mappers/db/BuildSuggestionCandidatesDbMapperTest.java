@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eurekastreams.server.domain.Follower;
+import org.eurekastreams.server.persistence.mappers.MapperTest;
+import org.eurekastreams.server.persistence.mappers.cache.SuggestionCandidates;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests BuildSuggestionCandidatesDbMapper.
+ */
+public class BuildSuggestionCandidatesDbMapperTest extends MapperTest
+{
+    /** Maximum candidates. */
+    private static final int MAX_CANDIDATES = 10;
+
+    /** System under test. */
+    private BuildSuggestionCandidatesDbMapper sut;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setUp()
+    {
+        sut = new BuildSuggestionCandidatesDbMapper(MAX_CANDIDATES);
+        sut.setEntityManager(getEntityManager());
+    }
+
+    /**
+     * Tests building the candidates: people and groups followed by the people followed, less those already followed.
+     */
+    @Test
+    public void testExecute()
+    {
+        getEntityManager().createQuery("DELETE FROM Follower").executeUpdate();
+
+        // person 42 is following 98, 4507 (and group 1, 2, 3 from the data set)
+        getEntityManager().persist(new Follower(42L, 98));
+        getEntityManager().persist(new Follower(42L, 4507));
+
+        // 98 and 4507 are following 142; 98 is following 99 and 42
+        getEntityManager().persist(new Follower(98, 142));
+        getEntityManager().persist(new Follower(4507, 142));
+        getEntityManager().persist(new Follower(98, 99));
+        getEntityManager().persist(new Follower(98, 42));
+        getEntityManager().flush();
+
+        SuggestionCandidates result = sut.execute(42L);
+
+        assertEquals(42L, result.getPersonId());
+        assertTrue(result.isFollowingPerson(98L));
+        assertTrue(result.isFollowingPerson(4507L));
+        assertFalse(result.isFollowingPerson(99L));
+        assertTrue(result.isFollowingGroup(1L));
+
+        assertEquals(2, result.getPeople().size());
+        assertEquals(2, result.getPeople().getScore(142L));
+        assertEquals(1, result.getPeople().getScore(99L));
+        assertEquals(0, result.getPeople().getScore(42L));
+        assertEquals(142L, result.getPeople().getIdsByScore()[0]);
+
+        // 98 and 4507 are in groups 1 and 2, but 42 already follows both
+        assertEquals(0, result.getGroups().size());
+    }
+
+    /**
+     * Tests building the candidates for a person who follows a member of a group they are not in.
+     */
+    @Test
+    public void testExecuteGroups()
+    {
+        // 142 follows 98, who is a member of group 1
+        SuggestionCandidates result = sut.execute(142L);
+
+        assertEquals(1, result.getGroups().size());
+        assertEquals(1, result.getGroups().getScore(1L));
+        assertEquals(1, result.getPeople().getScore(99L));
+    }
+}
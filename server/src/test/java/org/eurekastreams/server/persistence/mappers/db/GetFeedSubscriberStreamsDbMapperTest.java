@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2011-2010 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eurekastreams.server.domain.EntityType;
+import org.eurekastreams.server.domain.Person;
+import org.eurekastreams.server.domain.stream.plugins.Feed;
+import org.eurekastreams.server.domain.stream.plugins.FeedSubscriber;
+import org.eurekastreams.server.persistence.mappers.MapperTest;
+import org.eurekastreams.server.persistence.mappers.db.GetFeedSubscriberStreamsDbMapper.SubscriberStream;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests GetFeedSubscriberStreamsDbMapper.
+ */
+public class GetFeedSubscriberStreamsDbMapperTest extends MapperTest
+{
+    /** Subscriber 1 (person 42, fordp). */
+    private static final long PERSON_SUBSCRIBER_ID = 1L;
+
+    /** Subscriber 5 (person 142, fordp2, locked by the test). */
+    private static final long LOCKED_SUBSCRIBER_ID = 5L;
+
+    /** Stream scope of person 42. */
+    private static final long PERSON_SCOPE_ID = 1L;
+
+    /** Stream scope of group 1. */
+    private static final long GROUP_SCOPE_ID = 874L;
+
+    /**
+     * System under test.
+     */
+    @Autowired
+    private GetFeedSubscriberStreamsDbMapper sut;
+
+    /**
+     * Tests people and groups are resolved and locked accounts skipped.
+     */
+    @Test
+    public void testExecute()
+    {
+        getEntityManager().createQuery("update Person set accountLocked = true where id = 142").executeUpdate();
+
+        FeedSubscriber groupSubscriber = new FeedSubscriber();
+        groupSubscriber.setFeed(getEntityManager().find(Feed.class, 1L));
+        groupSubscriber.setRequestor(getEntityManager().find(Person.class, 42L));
+        groupSubscriber.setEntityType(EntityType.GROUP);
+        groupSubscriber.setEntityId(1L);
+        getEntityManager().persist(groupSubscriber);
+
+        List<FeedSubscriber> subscribers = new ArrayList<FeedSubscriber>();
+        FeedSubscriber personSubscriber = getEntityManager().find(FeedSubscriber.class, PERSON_SUBSCRIBER_ID);
+        FeedSubscriber lockedSubscriber = getEntityManager().find(FeedSubscriber.class, LOCKED_SUBSCRIBER_ID);
+        subscribers.add(personSubscriber);
+        subscribers.add(lockedSubscriber);
+        subscribers.add(groupSubscriber);
+
+        Map<FeedSubscriber, SubscriberStream> results = sut.execute(subscribers);
+
+        assertEquals(2, results.size());
+        assertFalse(results.containsKey(lockedSubscriber));
+
+        SubscriberStream person = results.get(personSubscriber);
+        assertEquals("fordp", person.getActorId());
+        assertEquals(PERSON_SCOPE_ID, person.getStreamScope().getId());
+        assertTrue(person.isPublicStream());
+
+        SubscriberStream group = results.get(groupSubscriber);
+        assertEquals("group1", group.getActorId());
+        assertEquals(GROUP_SCOPE_ID, group.getStreamScope().getId());
+        assertTrue(group.isPublicStream());
+    }
+
+    /**
+     * Tests no subscribers.
+     */
+    @Test
+    public void testExecuteEmpty()
+    {
+        assertEquals(0, sut.execute(new ArrayList<FeedSubscriber>()).size());
+    }
+}
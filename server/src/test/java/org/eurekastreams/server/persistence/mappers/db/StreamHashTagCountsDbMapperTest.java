@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Calendar;
+
+import org.eurekastreams.server.action.request.stream.StreamPopularHashTagsRequest;
+import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
+import org.eurekastreams.server.persistence.mappers.MapperTest;
+import org.eurekastreams.server.persistence.mappers.stream.StreamHashTagCounts;
+import org.junit.Test;
+
+/**
+ * Test fixture for StreamHashTagCountsDbMapper.
+ */
+public class StreamHashTagCountsDbMapperTest extends MapperTest
+{
+    /**
+     * Test execute for a person.
+     */
+    @Test
+    public void testExecuteForPerson()
+    {
+        getEntityManager().createQuery("UPDATE StreamHashTag SET activityDate=:activityDate").setParameter(
+                "activityDate", Calendar.getInstance().getTime()).executeUpdate();
+
+        final int windowMinutes = 600;
+        final int bucketMinutes = 60;
+        StreamHashTagCountsDbMapper sut = new StreamHashTagCountsDbMapper(windowMinutes, bucketMinutes);
+        sut.setEntityManager(getEntityManager());
+
+        StreamHashTagCounts counts = sut.execute(new StreamPopularHashTagsRequest(ScopeType.PERSON, "smithers"));
+
+        // Smithers has tags #soda(5), one of #foo(1)
+        assertEquals(5, counts.getCount("#soda"));
+        assertEquals(1, counts.getCount("#foo"));
+        assertEquals(2, counts.getTop(10).size());
+        assertEquals("#soda", counts.getTop(1).get(0));
+    }
+}
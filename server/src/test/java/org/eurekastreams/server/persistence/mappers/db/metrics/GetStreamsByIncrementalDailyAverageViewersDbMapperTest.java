@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.db.metrics;
+
+import java.util.Date;
+import java.util.List;
+
+import org.eurekastreams.commons.date.DateDayExtractor;
+import org.eurekastreams.commons.date.GetDateFromDaysAgoStrategy;
+import org.eurekastreams.commons.date.WeekdaysInDateRangeStrategy;
+import org.eurekastreams.server.domain.DailyUsageSummary;
+import org.eurekastreams.server.domain.dto.StreamDTO;
+import org.eurekastreams.server.persistence.mappers.MapperTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test fixture for GetStreamsByIncrementalDailyAverageViewersDbMapper.
+ */
+public class GetStreamsByIncrementalDailyAverageViewersDbMapperTest extends MapperTest
+{
+    /** Time stamp of the newest day of summary data in the dataset. */
+    static final long LAST_DAY = 1302321600000L;
+
+    /** Number of days of summary data in the dataset. */
+    static final int DAYS = 3;
+
+    /**
+     * Strategy placing "yesterday" at the newest day of summary data in the dataset.
+     */
+    static final GetDateFromDaysAgoStrategy DAYS_AGO_STRATEGY = new GetDateFromDaysAgoStrategy()
+    {
+        @Override
+        public Date execute(final int inDaysAgo)
+        {
+            return new Date(LAST_DAY - (inDaysAgo - 1) * WeekdaysInDateRangeStrategy.MS_IN_DAY);
+        }
+    };
+
+    /**
+     * Strategy counting every day as a weekday, up to and including the newest day of summary data in the dataset.
+     */
+    static final WeekdaysInDateRangeStrategy WEEKDAYS_STRATEGY = new WeekdaysInDateRangeStrategy()
+    {
+        @Override
+        public int getWeekdayCountBetweenDates(final Date inStartDate, final Date inEndDate)
+        {
+            long lastDay = DateDayExtractor.getStartOfDay(new Date(LAST_DAY)).getTime();
+            return (int) ((lastDay - inStartDate.getTime()) / WeekdaysInDateRangeStrategy.MS_IN_DAY) + 1;
+        }
+    };
+
+    /**
+     * System under test.
+     */
+    private GetStreamsByIncrementalDailyAverageViewersDbMapper sut;
+
+    /**
+     * Setup method.
+     */
+    @Before
+    public void setup()
+    {
+        sut = new GetStreamsByIncrementalDailyAverageViewersDbMapper(10, DAYS, WEEKDAYS_STRATEGY,
+                DAYS_AGO_STRATEGY);
+        sut.setEntityManager(getEntityManager());
+    }
+
+    /**
+     * Test execute gives the same results as the TempWeekdaysSinceDate query.
+     */
+    @Test
+    public void test()
+    {
+        List<StreamDTO> results = sut.execute(null);
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals("fordp2", results.get(0).getUniqueId());
+        Assert.assertEquals("fordp", results.get(1).getUniqueId());
+
+        // two data points - 100000 and 99999, 3 days. we round up, so get 66667
+        Assert.assertEquals(66667, results.get(0).getFollowersCount());
+
+        // one data point - 100000, 3 days. we round up, so get 33334
+        Assert.assertEquals(33334, results.get(1).getFollowersCount());
+    }
+
+    /**
+     * Test a later execute picks up summaries added since the previous one.
+     */
+    @Test
+    public void testNewSummaries()
+    {
+        Assert.assertEquals("fordp2", sut.execute(null).get(0).getUniqueId());
+
+        getEntityManager().persist(
+                new DailyUsageSummary(1, 2, 200000, 4, 5, 6, 7, new Date(LAST_DAY), LAST_DAY, 1L, 1L, 1L, 1L));
+        getEntityManager().flush();
+
+        List<StreamDTO> results = sut.execute(null);
+        Assert.assertEquals(2, results.size());
+
+        // 300000 over 3 days
+        Assert.assertEquals("fordp", results.get(0).getUniqueId());
+        Assert.assertEquals(100000, results.get(0).getFollowersCount());
+        Assert.assertEquals("fordp2", results.get(1).getUniqueId());
+    }
+
+    /**
+     * Test with no metrics data in the database.
+     */
+    @Test
+    public void testWithNoMetricsData()
+    {
+        getEntityManager().createQuery("DELETE FROM DailyUsageSummary").executeUpdate();
+        getEntityManager().clear();
+        Assert.assertEquals(0, sut.execute(null).size());
+    }
+}
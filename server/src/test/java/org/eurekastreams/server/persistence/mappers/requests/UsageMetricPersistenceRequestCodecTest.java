@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+
+import org.eurekastreams.commons.messaging.ParamCodec;
+import org.eurekastreams.commons.messaging.UserActionRequestCodec;
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.server.domain.UsageMetric;
+import org.junit.Test;
+
+/**
+ * Tests UsageMetricPersistenceRequestCodec.
+ */
+public class UsageMetricPersistenceRequestCodecTest
+{
+    /** System under test. */
+    private final UsageMetricPersistenceRequestCodec sut = new UsageMetricPersistenceRequestCodec();
+
+    /** Codec with the SUT registered. */
+    private final UserActionRequestCodec codec = new UserActionRequestCodec(
+            Collections.<ParamCodec> singletonList(sut));
+
+    /**
+     * Encodes and decodes a metric.
+     *
+     * @param inMetric
+     *            Metric.
+     * @return Decoded metric.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @SuppressWarnings("unchecked")
+    private UsageMetric roundTrip(final UsageMetric inMetric) throws IOException
+    {
+        UserActionRequest request = codec.decode(codec.encode(new UserActionRequest("persistUserMetricAsyncAction",
+                null, new PersistenceRequest<UsageMetric>(inMetric))));
+        return ((PersistenceRequest<UsageMetric>) request.getParams()).getDomainEnity();
+    }
+
+    /**
+     * Tests a stream view round trips.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testStreamView() throws IOException
+    {
+        final long created = 1300000000000L;
+        UsageMetric metric = roundTrip(new UsageMetric(7L, true, true, 12L, new Date(created)));
+
+        assertEquals(7L, metric.getActorPersonId());
+        assertTrue(metric.isPageView());
+        assertTrue(metric.isStreamView());
+        assertEquals(Long.valueOf(12L), metric.getStreamViewStreamScopeId());
+        assertEquals(created, metric.getCreated().getTime());
+    }
+
+    /**
+     * Tests a page view with no stream or date round trips.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testPageView() throws IOException
+    {
+        UsageMetric metric = roundTrip(new UsageMetric(7L, true, false, null, null));
+
+        assertTrue(metric.isPageView());
+        assertFalse(metric.isStreamView());
+        assertNull(metric.getStreamViewStreamScopeId());
+        assertNull(metric.getCreated());
+    }
+
+    /**
+     * Tests other persistence requests are left to serialization.
+     */
+    @Test
+    public void testCanEncode()
+    {
+        assertFalse(sut.canEncode(new PersistenceRequest<String>("x")));
+        assertFalse(sut.canEncode(new PersistenceRequest<UsageMetric>(null)));
+        assertTrue(sut.canEncode(new PersistenceRequest<UsageMetric>(new UsageMetric())));
+    }
+}
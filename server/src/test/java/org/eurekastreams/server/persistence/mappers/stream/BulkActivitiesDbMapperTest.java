@@ -106,9 +106,14 @@ public class BulkActivitiesDbMapperTest extends MapperTest
         List<Long> list = new ArrayList<Long>();
         list.add(new Long(ACTIVITY_ID));
         list.add(new Long(ACTIVITY_ID_2));
+        mapper.getLookupStatistics().reset();
         List<ActivityDTO> results = mapper.execute(list);
         assertEquals(2, results.size());
 
+        // people and groups for the whole page are resolved with at most one call each
+        assertTrue(mapper.getLookupStatistics().getTotal(BulkActivitiesDbMapper.LOOKUPS_STAT) <= 2);
+        assertEquals(2, mapper.getLookupStatistics().getTotal(BulkActivitiesDbMapper.ACTIVITIES_STAT));
+
         results = mapper.execute(list);
         assertEquals(2, results.size());
         assertEquals(ACTIVITY_ID, results.get(0).getEntityId());
@@ -15,11 +15,15 @@
  */
 package org.eurekastreams.server.persistence.mappers.stream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.eurekastreams.commons.test.EasyMatcher;
 import org.eurekastreams.server.domain.stream.Activity;
 import org.eurekastreams.server.domain.stream.SharedResource;
 import org.eurekastreams.server.domain.stream.StreamScope;
@@ -27,6 +31,7 @@ import org.eurekastreams.server.domain.stream.StreamScope.ScopeType;
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
 import org.eurekastreams.server.persistence.mappers.cache.Cache;
 import org.eurekastreams.server.persistence.mappers.cache.CacheKeys;
+import org.eurekastreams.server.persistence.mappers.cache.FollowingTimelinePolicy;
 import org.eurekastreams.server.search.modelview.DomainGroupModelView;
 import org.eurekastreams.server.search.modelview.PersonModelView;
 import org.jmock.Expectations;
@@ -114,8 +119,18 @@ public class PostCachedActivityTest
                 will(returnValue(followerIds));
 
                 // followers get the activity id
-                oneOf(cache).addToTopOfList(CacheKeys.ACTIVITIES_BY_FOLLOWING + follower1Id, activityId);
-                oneOf(cache).addToTopOfList(CacheKeys.ACTIVITIES_BY_FOLLOWING + follower2Id, activityId);
+                oneOf(cache).addToTopOfLists(with(new EasyMatcher<Map<String, List<Long>>>()
+                {
+                    @Override
+                    protected boolean isMatch(final Map<String, List<Long>> inTestObject)
+                    {
+                        return inTestObject.size() == 2
+                                && inTestObject.get(CacheKeys.ACTIVITIES_BY_FOLLOWING + follower1Id).equals(
+                                        Collections.singletonList(activityId))
+                                && inTestObject.get(CacheKeys.ACTIVITIES_BY_FOLLOWING + follower2Id).equals(
+                                        Collections.singletonList(activityId));
+                    }
+                }));
 
                 // everyone list gets the activity id
                 oneOf(cache).addToTopOfList(CacheKeys.EVERYONE_ACTIVITY_IDS, activityId);
@@ -354,6 +369,141 @@ public class PostCachedActivityTest
         context.assertIsSatisfied();
     }
 
+    /**
+     * Test execute with a group activity pushed into followers' lists by the timeline policy.
+     */
+    @Test
+    public void testExecuteGroupActivityPushed()
+    {
+        final long activityId = 884872L;
+        final long groupId = 55L;
+        final long followerId = 23821L;
+        final int threshold = 10;
+        final DomainMapper<String, Long> groupIdMapper = context.mock(DomainMapper.class, "groupIdMapper");
+        final DomainMapper<List<Long>, List<DomainGroupModelView>> groupsMapper = context.mock(DomainMapper.class,
+                "groupsMapper");
+        final DomainMapper<Long, List<Long>> groupFollowersMapper = context.mock(DomainMapper.class,
+                "groupFollowersMapper");
+        FollowingTimelinePolicy policy = new FollowingTimelinePolicy(threshold);
+
+        PostCachedActivity sut = new PostCachedActivity(personFollowersMapper, getPersonModelViewByAccountIdMapper);
+        sut.setCache(cache);
+        sut.setTimelinePolicy(policy);
+        sut.setGroupIdByShortNameMapper(groupIdMapper);
+        sut.setGroupsByIdsMapper(groupsMapper);
+        sut.setGroupFollowersMapper(groupFollowersMapper);
+
+        final DomainGroupModelView group = new DomainGroupModelView();
+        group.setFollowersCount(threshold);
+
+        final Activity act = context.mock(Activity.class);
+        final StreamScope recipStreamScope = context.mock(StreamScope.class);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(groupIdMapper).execute("blah");
+                will(returnValue(groupId));
+
+                oneOf(groupsMapper).execute(Collections.singletonList(groupId));
+                will(returnValue(Collections.singletonList(group)));
+
+                oneOf(groupFollowersMapper).execute(groupId);
+                will(returnValue(Collections.singletonList(followerId)));
+
+                oneOf(cache).addToTopOfLists(
+                        Collections.singletonMap(CacheKeys.ACTIVITIES_BY_FOLLOWING + followerId, Collections
+                                .singletonList(activityId)));
+
+                oneOf(cache).addToTopOfList(CacheKeys.EVERYONE_ACTIVITY_IDS, activityId);
+
+                allowing(act).getId();
+                will(returnValue(activityId));
+
+                allowing(act).getRecipientStreamScope();
+                will(returnValue(recipStreamScope));
+
+                allowing(recipStreamScope).getScopeType();
+                will(returnValue(ScopeType.GROUP));
+
+                allowing(recipStreamScope).getUniqueKey();
+                will(returnValue("blah"));
+
+                allowing(act).getSharedLink();
+                will(returnValue(null));
+
+                allowing(act).getShowInStream();
+                will(returnValue(true));
+            }
+        });
+        sut.execute(act);
+
+        context.assertIsSatisfied();
+        assertEquals(1, policy.getStatistics().getTotal(FollowingTimelinePolicy.GROUP_FANOUT_STAT));
+    }
+
+    /**
+     * Test execute with a group activity for a group too large to push.
+     */
+    @Test
+    public void testExecuteGroupActivityOverThreshold()
+    {
+        final long activityId = 884872L;
+        final long groupId = 55L;
+        final int threshold = 10;
+        final DomainMapper<String, Long> groupIdMapper = context.mock(DomainMapper.class, "groupIdMapper");
+        final DomainMapper<List<Long>, List<DomainGroupModelView>> groupsMapper = context.mock(DomainMapper.class,
+                "groupsMapper");
+        FollowingTimelinePolicy policy = new FollowingTimelinePolicy(threshold);
+
+        PostCachedActivity sut = new PostCachedActivity(personFollowersMapper, getPersonModelViewByAccountIdMapper);
+        sut.setCache(cache);
+        sut.setTimelinePolicy(policy);
+        sut.setGroupIdByShortNameMapper(groupIdMapper);
+        sut.setGroupsByIdsMapper(groupsMapper);
+
+        final DomainGroupModelView group = new DomainGroupModelView();
+        group.setFollowersCount(threshold + 1);
+
+        final Activity act = context.mock(Activity.class);
+        final StreamScope recipStreamScope = context.mock(StreamScope.class);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(groupIdMapper).execute("blah");
+                will(returnValue(groupId));
+
+                oneOf(groupsMapper).execute(Collections.singletonList(groupId));
+                will(returnValue(Collections.singletonList(group)));
+
+                oneOf(cache).addToTopOfList(CacheKeys.EVERYONE_ACTIVITY_IDS, activityId);
+
+                allowing(act).getId();
+                will(returnValue(activityId));
+
+                allowing(act).getRecipientStreamScope();
+                will(returnValue(recipStreamScope));
+
+                allowing(recipStreamScope).getScopeType();
+                will(returnValue(ScopeType.GROUP));
+
+                allowing(recipStreamScope).getUniqueKey();
+                will(returnValue("blah"));
+
+                allowing(act).getSharedLink();
+                will(returnValue(null));
+
+                allowing(act).getShowInStream();
+                will(returnValue(true));
+            }
+        });
+        sut.execute(act);
+
+        context.assertIsSatisfied();
+        assertEquals(1, policy.getStatistics().getCount(FollowingTimelinePolicy.GROUP_PULL_STAT));
+    }
+
     /**
      * Test execute with an invalid recipient type.
      */
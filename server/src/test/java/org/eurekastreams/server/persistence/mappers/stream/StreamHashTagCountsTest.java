@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.persistence.mappers.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Tests StreamHashTagCounts.
+ */
+public class StreamHashTagCountsTest
+{
+    /** Bucket length. */
+    private static final long BUCKET = 1000L;
+
+    /** Window length (3 buckets). */
+    private static final long WINDOW = 3000L;
+
+    /** Current time for the tests (start of a bucket). */
+    private static final long NOW = 100000L;
+
+    /** System under test. */
+    private final StreamHashTagCounts sut = new StreamHashTagCounts(BUCKET, WINDOW, new Date(NOW));
+
+    /**
+     * Tests the top hashtags are ordered by count then alphabetically, and limited.
+     */
+    @Test
+    public void testGetTop()
+    {
+        sut.add("#b", NOW, 2, NOW);
+        sut.add("#a", NOW, 2, NOW);
+        sut.add("#c", NOW, 3, NOW);
+        sut.add("#d", NOW, 1, NOW);
+
+        assertEquals(Arrays.asList("#c", "#a", "#b", "#d"), sut.getTop(10));
+        assertEquals(Arrays.asList("#c", "#a"), sut.getTop(2));
+        assertEquals(0, sut.getTop(0).size());
+    }
+
+    /**
+     * Tests decrements, including past zero.
+     */
+    @Test
+    public void testSubtract()
+    {
+        sut.add("#a", NOW, 2, NOW);
+        sut.add("#a", NOW, -1, NOW);
+        assertEquals(1, sut.getCount("#a"));
+        sut.add("#a", NOW, -5, NOW);
+        assertEquals(0, sut.getCount("#a"));
+        assertEquals(0, sut.getTop(10).size());
+    }
+
+    /**
+     * Tests buckets slide out of the window, and uses older than the window are ignored.
+     */
+    @Test
+    public void testExpire()
+    {
+        sut.add("#old", NOW - 2 * BUCKET, 1, NOW);
+        sut.add("#new", NOW, 1, NOW);
+        sut.add("#ancient", NOW - WINDOW, 1, NOW);
+        assertEquals(0, sut.getCount("#ancient"));
+
+        sut.expire(NOW + BUCKET - 1);
+        assertEquals(1, sut.getCount("#old"));
+
+        sut.expire(NOW + BUCKET);
+        assertEquals(0, sut.getCount("#old"));
+        assertEquals(Arrays.asList("#new"), sut.getTop(10));
+    }
+
+    /**
+     * Tests the counts survive serialization (as they are cached).
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testSerializable() throws Exception
+    {
+        sut.add("#a", NOW, 2, NOW);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(sut);
+        out.close();
+        StreamHashTagCounts copy = (StreamHashTagCounts) new ObjectInputStream(new ByteArrayInputStream(bytes
+                .toByteArray())).readObject();
+
+        assertEquals(2, copy.getCount("#a"));
+        assertEquals(NOW, copy.getRebuiltDate().getTime());
+        copy.expire(NOW + WINDOW);
+        assertEquals(0, copy.getCount("#a"));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eurekastreams.server.service.actions.strategies.ImageBytesCache.CachedImage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests ImageBytesCache.
+ */
+public class ImageBytesCacheTest
+{
+    /** Memory limit used by the tests. */
+    private static final long MAX_BYTES = 800;
+
+    /** Disk directory. */
+    private File directory;
+
+    /**
+     * Creates the disk directory.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = File.createTempFile("imagecache", "");
+        directory.delete();
+    }
+
+    /**
+     * Removes the disk directory.
+     */
+    @After
+    public void tearDown()
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Makes an image of a given size.
+     *
+     * @param inSize
+     *            bytes.
+     * @param inFill
+     *            byte value.
+     * @return image.
+     */
+    private CachedImage image(final int inSize, final int inFill)
+    {
+        byte[] bytes = new byte[inSize];
+        Arrays.fill(bytes, (byte) inFill);
+        return CachedImage.create(bytes, "image/png");
+    }
+
+    /**
+     * Tests put, get, and invalidate in memory.
+     */
+    @Test
+    public void testMemory()
+    {
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, 60, "", 0);
+        CachedImage image = image(10, 1);
+
+        assertNull(sut.get("a"));
+        sut.put("a", image, sut.getLoadToken());
+        assertSame(image, sut.get("a"));
+        assertEquals(10, sut.getMemoryBytes());
+
+        sut.invalidate("a");
+        assertNull(sut.get("a"));
+        assertEquals(0, sut.getMemoryBytes());
+        assertEquals(1, sut.getStatistics().getCount(ImageBytesCache.MEMORY_HIT_STAT));
+        assertEquals(2, sut.getStatistics().getCount(ImageBytesCache.MISS_STAT));
+    }
+
+    /**
+     * Tests the least recently used images are evicted to stay under the byte limit.
+     */
+    @Test
+    public void testEviction()
+    {
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, 60, "", 0);
+        sut.put("a", image(100, 1), sut.getLoadToken());
+        sut.put("b", image(100, 2), sut.getLoadToken());
+        sut.put("c", image(100, 3), sut.getLoadToken());
+        sut.get("a");
+        for (int i = 0; i < 6; i++)
+        {
+            sut.put("x" + i, image(100, i), sut.getLoadToken());
+        }
+
+        assertTrue(sut.getMemoryBytes() <= MAX_BYTES);
+        assertNotNull(sut.get("a"));
+        assertNull(sut.get("b"));
+    }
+
+    /**
+     * Tests images too large for memory are not kept there.
+     */
+    @Test
+    public void testTooLarge()
+    {
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, 60, "", 0);
+        sut.put("a", image((int) MAX_BYTES / 2, 1), sut.getLoadToken());
+        assertNull(sut.get("a"));
+    }
+
+    /**
+     * Tests an image loaded before an invalidation is not cached.
+     */
+    @Test
+    public void testPutAfterInvalidate()
+    {
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, 60, "", 0);
+        long token = sut.getLoadToken();
+        sut.invalidate("a");
+        sut.put("a", image(10, 1), token);
+        assertNull(sut.get("a"));
+    }
+
+    /**
+     * Tests expired entries are not served.
+     */
+    @Test
+    public void testExpired()
+    {
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, -1, "", 0);
+        sut.put("a", image(10, 1), sut.getLoadToken());
+        assertNull(sut.get("a"));
+    }
+
+    /**
+     * Tests images come back from disk once out of memory, and are trimmed to the disk limit.
+     */
+    @Test
+    public void testDisk()
+    {
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, 60, directory.getPath(), 100000);
+        CachedImage image = image(90, 7);
+        sut.put("a", image, sut.getLoadToken());
+        assertEquals(1, directory.listFiles().length);
+
+        ImageBytesCache restarted = new ImageBytesCache(MAX_BYTES, 60, directory.getPath(), 100000);
+        CachedImage fromDisk = restarted.get("a");
+        assertNotNull(fromDisk);
+        assertEquals(image.getETag(), fromDisk.getETag());
+        assertEquals(image.getCachedTime(), fromDisk.getCachedTime());
+        assertEquals(image.getContentType(), fromDisk.getContentType());
+        assertTrue(Arrays.equals(image.getBytes(), fromDisk.getBytes()));
+        assertEquals(1, restarted.getStatistics().getCount(ImageBytesCache.DISK_HIT_STAT));
+
+        restarted.invalidate("a");
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    /**
+     * Tests the disk copies are trimmed to the limit.
+     */
+    @Test
+    public void testDiskLimit()
+    {
+        final long maxDisk = 1000;
+        ImageBytesCache sut = new ImageBytesCache(MAX_BYTES, 60, directory.getPath(), maxDisk);
+        for (int i = 0; i < 20; i++)
+        {
+            sut.put("x" + i, image(90, i), sut.getLoadToken());
+        }
+
+        long total = 0;
+        for (File file : directory.listFiles())
+        {
+            total += file.length();
+        }
+        assertTrue(total <= maxDisk);
+    }
+
+    /**
+     * Tests the entity tag depends only on the content.
+     */
+    @Test
+    public void testETag()
+    {
+        assertEquals(image(10, 1).getETag(), image(10, 1).getETag());
+        assertTrue(!image(10, 1).getETag().equals(image(10, 2).getETag()));
+        assertTrue(image(10, 1).getETag().startsWith("\""));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manual benchmark comparing colliding many sorted lists pairwise with OrSortedListCollider (as PersistenceDataSource
+ * used to) against a single KWayMergeCollider pass. Not run by the build (not named *Test); run its main() from the
+ * IDE or with the test classpath.
+ */
+public final class KWayMergeColliderBenchmark
+{
+    /** Numbers of input lists to measure. */
+    private static final int[] LIST_COUNTS = { 10, 100, 1000 };
+
+    /** Entries per input list. */
+    private static final int LIST_SIZE = 1000;
+
+    /** Results requested (first batch of a 10-item page). */
+    private static final int MAX_RESULTS = 20;
+
+    /** Minimum timed milliseconds per measurement. */
+    private static final long MIN_MILLIS = 1000;
+
+    /** Warmup iterations. */
+    private static final int WARMUP = 50;
+
+    /** Hide constructor. */
+    private KWayMergeColliderBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            ignored.
+     */
+    public static void main(final String[] args)
+    {
+        Random random = new Random(1);
+
+        System.out.println("lists\tpairwise us\tk-way us");
+        for (int listCount : LIST_COUNTS)
+        {
+            final List<List<Long>> lists = new ArrayList<List<Long>>(listCount);
+            for (int i = 0; i < listCount; i++)
+            {
+                // descending ids with gaps similar to a stream's activity list
+                List<Long> list = new ArrayList<Long>(LIST_SIZE);
+                long id = 50000000L - random.nextInt(100000);
+                for (int j = 0; j < LIST_SIZE; j++)
+                {
+                    id -= 1 + random.nextInt(2000);
+                    list.add(id);
+                }
+                lists.add(list);
+            }
+
+            final OrSortedListCollider pairwise = new OrSortedListCollider();
+            final KWayMergeCollider kway = new KWayMergeCollider();
+
+            double pairwiseMicros = time(new Runnable()
+            {
+                public void run()
+                {
+                    List<Long> returned = new ArrayList<Long>();
+                    for (List<Long> list : lists)
+                    {
+                        returned = pairwise.collide(list, returned, MAX_RESULTS);
+                    }
+                }
+            });
+            double kwayMicros = time(new Runnable()
+            {
+                public void run()
+                {
+                    kway.collide(lists, MAX_RESULTS);
+                }
+            });
+
+            System.out.println(listCount + "\t" + pairwiseMicros + "\t" + kwayMicros);
+        }
+    }
+
+    /**
+     * Times a task.
+     *
+     * @param inTask
+     *            task.
+     * @return average microseconds per run.
+     */
+    private static double time(final Runnable inTask)
+    {
+        for (int i = 0; i < WARMUP; i++)
+        {
+            inTask.run();
+        }
+        int iterations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            inTask.run();
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < MIN_MILLIS * 1000000L);
+        return elapsed / 1000.0 / iterations;
+    }
+}
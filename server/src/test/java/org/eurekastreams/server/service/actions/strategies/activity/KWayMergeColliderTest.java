@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.eurekastreams.server.persistence.mappers.cache.LongArrayList;
+import org.junit.Test;
+
+/**
+ * Tests KWayMergeCollider and DescendingIdMergeCursor.
+ */
+public class KWayMergeColliderTest
+{
+    /**
+     * System under test.
+     */
+    private final KWayMergeCollider sut = new KWayMergeCollider();
+
+    /**
+     * Tests merging several lists with overlapping values.
+     */
+    @Test
+    public void testCollideMany()
+    {
+        List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(9L, 7L, 3L));
+        lists.add(new LongArrayList(new long[] { 8L, 7L, 2L }, 3));
+        lists.add(Collections.<Long> emptyList());
+        lists.add(null);
+        lists.add(Arrays.asList(10L, 9L, 9L, 1L));
+
+        assertEquals(Arrays.asList(10L, 9L, 8L, 7L, 3L, 2L, 1L), sut.collide(lists, 100));
+        assertEquals(Arrays.asList(10L, 9L, 8L), sut.collide(lists, 3));
+        assertEquals(0, sut.collide(lists, 0).size());
+    }
+
+    /**
+     * Tests the two-list ListCollider form.
+     */
+    @Test
+    public void testCollideTwo()
+    {
+        assertEquals(Arrays.asList(5L, 4L, 3L, 1L), sut.collide(Arrays.asList(5L, 3L, 1L), Arrays.asList(4L, 3L), 10));
+        assertEquals(Arrays.asList(4L, 3L), sut.collide(new ArrayList<Long>(), Arrays.asList(4L, 3L), 10));
+    }
+
+    /**
+     * Tests reading results lazily a page at a time.
+     */
+    @Test
+    public void testCursorPaging()
+    {
+        List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(6L, 4L, 2L));
+        lists.add(Arrays.asList(5L, 3L, 1L));
+
+        DescendingIdMergeCursor cursor = sut.cursor(lists, 5);
+        assertEquals(Arrays.asList(6L, 5L), cursor.next(2));
+        assertEquals(4L, cursor.nextLong());
+        assertEquals(Arrays.asList(3L, 2L), cursor.next(10));
+        assertFalse(cursor.hasNext());
+        assertEquals(0, cursor.next(10).size());
+    }
+
+    /**
+     * Tests the merge against sorting the union of many lists.
+     */
+    @Test
+    public void testMatchesSortedUnion()
+    {
+        final int listCount = 50;
+        final int maxId = 5000;
+        Random random = new Random(1);
+        TreeSet<Long> expected = new TreeSet<Long>(Collections.reverseOrder());
+        List<List<Long>> lists = new ArrayList<List<Long>>();
+        for (int i = 0; i < listCount; i++)
+        {
+            List<Long> list = new ArrayList<Long>();
+            for (long id = maxId; id > 0; id -= 1 + random.nextInt(listCount * 2))
+            {
+                list.add(id);
+                expected.add(id);
+            }
+            lists.add(list);
+        }
+
+        assertEquals(new ArrayList<Long>(expected), sut.collide(lists, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Tests reading past the end.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void testCursorExhausted()
+    {
+        DescendingIdMergeCursor cursor = sut.cursor(Collections.singletonList(Arrays.asList(1L)), 1);
+        cursor.nextLong();
+        cursor.nextLong();
+    }
+
+    /**
+     * Tests skipping ahead to resume after a given ID.
+     */
+    @Test
+    public void testSkipToBelow()
+    {
+        List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(9L, 7L, 5L, 3L, 1L));
+        lists.add(new LongArrayList(new long[] { 8L, 6L, 4L }, 3));
+
+        DescendingIdMergeCursor cursor = sut.cursor(lists, 100);
+        assertEquals(9L, cursor.nextLong());
+        cursor.skipToBelow(6L);
+        assertEquals(Arrays.asList(5L, 4L, 3L), cursor.next(3));
+
+        // skipping backwards doesn't rewind
+        cursor.skipToBelow(100L);
+        assertEquals(Arrays.asList(1L), cursor.next(10));
+    }
+}
@@ -22,6 +22,7 @@ import junit.framework.Assert;
 import net.sf.json.JSONObject;
 
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.persistence.mappers.cache.FollowingTimelinePolicy;
 import org.eurekastreams.server.persistence.mappers.requests.GetAllFollowedByActivityIdsRequest;
 import org.eurekastreams.server.search.modelview.DomainGroupModelView;
 import org.jmock.Expectations;
@@ -126,6 +127,63 @@ public class AllFollowedByPersistenceRequestTransformerTest
                 .getGroupStreamIds());
 
         Assert.assertEquals(entityId, result.getUserId());
+        Assert.assertNull(result.getTimelineSignature());
+
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Tests groups small enough to be pushed into the following list are left out of the pulled streams.
+     */
+    @Test
+    public void transformTestWithTimeline()
+    {
+        final Long entityId = 10L;
+        final String entityAcctName = "acctName";
+        final int threshold = 50;
+        sut.setTimelinePolicy(new FollowingTimelinePolicy(threshold));
+
+        final JSONObject jsonReq = new JSONObject();
+        jsonReq.accumulate("followedBy", entityAcctName);
+
+        final List<Long> followedGroups = Arrays.asList(1L, 2L, 3L);
+
+        DomainGroupModelView group1 = new DomainGroupModelView();
+        group1.setEntityId(1L);
+        group1.setStreamId(4L);
+        group1.setFollowersCount(threshold);
+
+        DomainGroupModelView group2 = new DomainGroupModelView();
+        group2.setEntityId(2L);
+        group2.setStreamId(5L);
+        group2.setFollowersCount(threshold + 1);
+
+        DomainGroupModelView group3 = new DomainGroupModelView();
+        group3.setEntityId(3L);
+        group3.setStreamId(6L);
+        group3.setFollowersCount(1);
+
+        final List<DomainGroupModelView> groups = Arrays.asList(group1, group2, group3);
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(getPersonIdByAccountId).execute(entityAcctName);
+                will(returnValue(entityId));
+
+                oneOf(followeGroupsMapper).execute(entityId);
+                will(returnValue(followedGroups));
+
+                oneOf(groupMapper).execute(followedGroups);
+                will(returnValue(groups));
+            }
+        });
+
+        GetAllFollowedByActivityIdsRequest result = (GetAllFollowedByActivityIdsRequest) sut.transform(jsonReq,
+                entityId);
+        Assert.assertEquals(Arrays.asList(group2.getStreamId()), result.getGroupStreamIds());
+        Assert.assertEquals(FollowingTimelinePolicy.getSignature(Arrays.asList(3L, 1L)), result
+                .getTimelineSignature().longValue());
 
         context.assertIsSatisfied();
     }
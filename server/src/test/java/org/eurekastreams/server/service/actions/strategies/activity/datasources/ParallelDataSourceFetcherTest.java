@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity.datasources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests ParallelDataSourceFetcher.
+ */
+public class ParallelDataSourceFetcherTest
+{
+    /** Deadline used in tests. */
+    private static final long TIMEOUT = 200;
+
+    /** System under test. */
+    private ParallelDataSourceFetcher sut = new ParallelDataSourceFetcher(4, TIMEOUT);
+
+    /**
+     * Cleanup.
+     */
+    @After
+    public void tearDown()
+    {
+        sut.shutdown();
+    }
+
+    /**
+     * Builds a fetch returning a value.
+     *
+     * @param inValue
+     *            value.
+     * @return fetch.
+     */
+    private Callable<String> fetch(final String inValue)
+    {
+        return new Callable<String>()
+        {
+            public String call()
+            {
+                return inValue;
+            }
+        };
+    }
+
+    /**
+     * Tests results come back in order.
+     */
+    @Test
+    public void testFetchAll()
+    {
+        List<Callable<String>> fetches = new ArrayList<Callable<String>>();
+        fetches.add(fetch("a"));
+        fetches.add(fetch("b"));
+        fetches.add(fetch("c"));
+
+        assertEquals(Arrays.asList("a", "b", "c"), sut.fetchAll(fetches, "test", null));
+    }
+
+    /**
+     * Tests the fetches actually run at the same time.
+     */
+    @Test
+    public void testFetchesOverlap()
+    {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Callable<String> waiter = new Callable<String>()
+        {
+            public String call() throws InterruptedException
+            {
+                latch.countDown();
+                return latch.await(TIMEOUT, TimeUnit.MILLISECONDS) ? "met" : "alone";
+            }
+        };
+        List<Callable<String>> fetches = new ArrayList<Callable<String>>();
+        fetches.add(waiter);
+        fetches.add(waiter);
+
+        assertEquals(Arrays.asList("met", "met"), sut.fetchAll(fetches, "test", null));
+    }
+
+    /**
+     * Tests a slow fetch yields the fallback without holding up the others.
+     */
+    @Test
+    public void testSlowFetchGivesPartialResults()
+    {
+        Callable<String> slow = new Callable<String>()
+        {
+            public String call() throws InterruptedException
+            {
+                Thread.sleep(TIMEOUT * 10);
+                return "slow";
+            }
+        };
+        List<Callable<String>> fetches = new ArrayList<Callable<String>>();
+        fetches.add(fetch("a"));
+        fetches.add(slow);
+
+        long start = System.currentTimeMillis();
+        assertEquals(Arrays.asList("a", "missing"), sut.fetchAll(fetches, "test", "missing"));
+        assertTrue(System.currentTimeMillis() - start < TIMEOUT * 5);
+        assertEquals(1, sut.getStatistics().getCount("test" + ParallelDataSourceFetcher.TIMEOUT_STAT));
+    }
+
+    /**
+     * Tests a failing fetch rethrows its exception.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFailingFetch()
+    {
+        Callable<String> failing = new Callable<String>()
+        {
+            public String call()
+            {
+                throw new IllegalStateException();
+            }
+        };
+        List<Callable<String>> fetches = new ArrayList<Callable<String>>();
+        fetches.add(fetch("a"));
+        fetches.add(failing);
+
+        sut.fetchAll(fetches, "test", null);
+    }
+
+    /**
+     * Tests fetches run on the calling thread when no threads are configured.
+     */
+    @Test
+    public void testNoThreads()
+    {
+        sut.shutdown();
+        sut = new ParallelDataSourceFetcher(0, TIMEOUT);
+        final Thread caller = Thread.currentThread();
+        Callable<String> where = new Callable<String>()
+        {
+            public String call()
+            {
+                return Thread.currentThread() == caller ? "caller" : "other";
+            }
+        };
+        List<Callable<String>> fetches = new ArrayList<Callable<String>>();
+        fetches.add(where);
+        fetches.add(where);
+
+        assertEquals(Arrays.asList("caller", "caller"), sut.fetchAll(fetches, "test", null));
+    }
+}
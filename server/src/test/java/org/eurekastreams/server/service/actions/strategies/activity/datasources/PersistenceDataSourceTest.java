@@ -16,15 +16,19 @@
 package org.eurekastreams.server.service.actions.strategies.activity.datasources;
 
 import static org.eurekastreams.commons.test.IsEqualInternally.equalInternally;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
 import net.sf.json.JSONObject;
 
 import org.eurekastreams.server.persistence.mappers.DomainMapper;
+import org.eurekastreams.server.service.actions.strategies.activity.DescendingIdMergeCursor;
+import org.eurekastreams.server.service.actions.strategies.activity.KWayMergeCollider;
 import org.eurekastreams.server.service.actions.strategies.activity.ListCollider;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -218,4 +222,68 @@ public class PersistenceDataSourceTest
         assertNull(sut.fetch(request, 0L));
         context.assertIsSatisfied();
     }
+
+    /**
+     * With a merge collider, all the lists are merged in one pass instead of with the OR collider.
+     */
+    @Test
+    public void fetchWithMergeCollider()
+    {
+        ((JSONObject) request.get("query")).put("followedBy", "shawkings");
+        sut.setMergeCollider(new KWayMergeCollider());
+
+        final List<List<Long>> lists = new ArrayList<List<Long>>();
+        lists.add(Arrays.asList(9L, 5L, 1L));
+        lists.add(Arrays.asList(8L, 5L, 2L));
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(transformer).transform(with(any(JSONObject.class)), with(equal(0L)));
+                will(returnValue(2L));
+                oneOf(followedMapper).execute(2L);
+                will(returnValue(lists));
+            }
+        });
+
+        assertEquals(Arrays.asList(9L, 8L, 5L, 2L, 1L), sut.fetch(request, 0L));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * With a merge collider, a cursor over all results (not limited by count) is available.
+     */
+    @Test
+    public void fetchCursorWithMergeCollider()
+    {
+        sut.setMergeCollider(new KWayMergeCollider());
+
+        final List<Long> everyoneIds = new ArrayList<Long>();
+        for (long id = COUNT * 2; id > 0; id--)
+        {
+            everyoneIds.add(id);
+        }
+
+        context.checking(new Expectations()
+        {
+            {
+                oneOf(everyoneMapper).execute(null);
+                will(returnValue(everyoneIds));
+            }
+        });
+
+        DescendingIdMergeCursor cursor = sut.fetchCursor(request, 0L);
+        assertEquals(everyoneIds, cursor.next(Integer.MAX_VALUE));
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Without a merge collider, the data source does not stream.
+     */
+    @Test
+    public void fetchCursorWithoutMergeCollider()
+    {
+        assertNull(sut.fetchCursor(request, 0L));
+        context.assertIsSatisfied();
+    }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.activity.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eurekastreams.commons.server.UserActionRequest;
+import org.eurekastreams.commons.task.TaskHandler;
+import org.eurekastreams.commons.util.KeyedStatistics;
+import org.eurekastreams.server.action.request.feed.RefreshFeedRequest;
+import org.junit.Test;
+
+/**
+ * Tests FeedRefreshEngine.
+ */
+public class FeedRefreshEngineTest
+{
+    /** Number of refreshes per host. */
+    private static final int PER_HOST = 6;
+
+    /** Hosts. */
+    private static final String[] HOSTS = { "a.example.com", "b.example.com", "c.example.com" };
+
+    /** How long each refresh takes. */
+    private static final long REFRESH_MILLIS = 20;
+
+    /** Most refreshes waiting. */
+    private static final int MAX_WAITING = 100;
+
+    /** Host used by the single-host tests. */
+    private static final String HOST = "x.com";
+
+    /**
+     * Task handler recording how many refreshes run at once per host.
+     */
+    private static class RecordingHandler implements TaskHandler
+    {
+        /** Running by host. */
+        private final Map<String, Integer> running = new HashMap<String, Integer>();
+
+        /** Most running at once by host. */
+        private final Map<String, Integer> maxRunning = new HashMap<String, Integer>();
+
+        /** Requests handled. */
+        private final List<UserActionRequest> handled = Collections
+                .synchronizedList(new ArrayList<UserActionRequest>());
+
+        /** Counts down as requests finish. */
+        private final CountDownLatch done;
+
+        /**
+         * Constructor.
+         *
+         * @param inCount
+         *            requests expected.
+         */
+        RecordingHandler(final int inCount)
+        {
+            done = new CountDownLatch(inCount);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void handleTask(final UserActionRequest inUserActionRequest) throws Exception
+        {
+            String host = ((RefreshFeedRequest) inUserActionRequest.getParams()).getHost();
+            synchronized (this)
+            {
+                Integer count = running.get(host);
+                count = count == null ? 1 : count + 1;
+                running.put(host, count);
+                Integer max = maxRunning.get(host);
+                maxRunning.put(host, max == null ? count : Math.max(max, count));
+            }
+            Thread.sleep(REFRESH_MILLIS);
+            synchronized (this)
+            {
+                running.put(host, running.get(host) - 1);
+            }
+            handled.add(inUserActionRequest);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Task handler which holds each refresh until released.
+     */
+    private static class BlockingHandler implements TaskHandler
+    {
+        /** Counts down as refreshes start. */
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        /** Released to let the refreshes finish. */
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        /** Requests handled. */
+        private final List<UserActionRequest> handled = Collections
+                .synchronizedList(new ArrayList<UserActionRequest>());
+
+        /**
+         * {@inheritDoc}
+         */
+        public void handleTask(final UserActionRequest inUserActionRequest) throws Exception
+        {
+            started.countDown();
+            release.await();
+            handled.add(inUserActionRequest);
+        }
+    }
+
+    /**
+     * Builds a refresh request.
+     *
+     * @param inFeedId
+     *            Feed id.
+     * @return Request.
+     */
+    private static UserActionRequest refresh(final long inFeedId)
+    {
+        return new UserActionRequest("refreshFeedAction", null, new RefreshFeedRequest(inFeedId, HOST));
+    }
+
+    /**
+     * Waits for the engine to go idle.
+     *
+     * @param inSut
+     *            Engine.
+     * @param inHandler
+     *            Handler.
+     * @param inCount
+     *            Refreshes expected.
+     * @throws InterruptedException
+     *             Shouldn't.
+     */
+    private static void awaitHandled(final FeedRefreshEngine inSut, final BlockingHandler inHandler,
+            final int inCount) throws InterruptedException
+    {
+        long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while ((inHandler.handled.size() < inCount || inSut.getWaitingCount() > 0)
+                && System.currentTimeMillis() < until)
+        {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Tests a refresh of a feed already waiting or running is skipped.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testSkipsFeedsAlreadyQueued() throws Exception
+    {
+        BlockingHandler executor = new BlockingHandler();
+        KeyedStatistics statistics = new KeyedStatistics();
+        FeedRefreshEngine sut = new FeedRefreshEngine(executor, null, 1, 1, MAX_WAITING, statistics);
+        try
+        {
+            sut.handleTask(refresh(1L));
+            assertTrue(executor.started.await(10, TimeUnit.SECONDS));
+            sut.handleTask(refresh(2L));
+            sut.handleTask(refresh(1L));
+            sut.handleTask(refresh(2L));
+
+            assertEquals(1, sut.getWaitingCount());
+            assertEquals(2, statistics.getCount(HOST + FeedRefreshEngine.STAT_SEPARATOR
+                    + FeedRefreshEngine.DUPLICATE_STAT));
+
+            executor.release.countDown();
+            awaitHandled(sut, executor, 2);
+            assertEquals(2, executor.handled.size());
+
+            // once finished, the feed may be refreshed again
+            sut.handleTask(refresh(1L));
+            awaitHandled(sut, executor, 3);
+            assertEquals(3, executor.handled.size());
+        }
+        finally
+        {
+            sut.shutdown();
+        }
+    }
+
+    /**
+     * Tests refreshes beyond the waiting limit are dropped.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testDropsWhenTooManyWaiting() throws Exception
+    {
+        BlockingHandler executor = new BlockingHandler();
+        KeyedStatistics statistics = new KeyedStatistics();
+        FeedRefreshEngine sut = new FeedRefreshEngine(executor, null, 1, 1, 2, statistics);
+        try
+        {
+            sut.handleTask(refresh(1L));
+            assertTrue(executor.started.await(10, TimeUnit.SECONDS));
+            sut.handleTask(refresh(2L));
+            sut.handleTask(refresh(3L));
+            sut.handleTask(refresh(4L));
+
+            assertEquals(2, sut.getWaitingCount());
+            assertEquals(1, statistics.getCount(HOST + FeedRefreshEngine.STAT_SEPARATOR
+                    + FeedRefreshEngine.DROPPED_STAT));
+
+            executor.release.countDown();
+            awaitHandled(sut, executor, 3);
+            assertEquals(3, executor.handled.size());
+        }
+        finally
+        {
+            sut.shutdown();
+        }
+    }
+
+    /**
+     * Tests all refreshes run with no more than the limit per host at once.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testLimitsPerHost() throws Exception
+    {
+        final int threads = 4;
+        RecordingHandler executor = new RecordingHandler(PER_HOST * HOSTS.length);
+        KeyedStatistics statistics = new KeyedStatistics();
+        FeedRefreshEngine sut = new FeedRefreshEngine(executor, null, threads, 2, MAX_WAITING, statistics);
+        try
+        {
+            long id = 0;
+            for (int i = 0; i < PER_HOST; i++)
+            {
+                for (String host : HOSTS)
+                {
+                    sut.handleTask(new UserActionRequest("refreshFeedAction", null, new RefreshFeedRequest(id++,
+                            host)));
+                }
+            }
+
+            assertTrue(executor.done.await(10, TimeUnit.SECONDS));
+            assertEquals(PER_HOST * HOSTS.length, executor.handled.size());
+            for (String host : HOSTS)
+            {
+                assertTrue(executor.maxRunning.get(host) <= 2);
+                assertEquals(PER_HOST, statistics.getCount(host + FeedRefreshEngine.STAT_SEPARATOR
+                        + FeedRefreshEngine.WAIT_MILLIS_STAT));
+            }
+        }
+        finally
+        {
+            sut.shutdown();
+        }
+    }
+
+    /**
+     * Tests requests go to the fallback handler when the engine has no threads.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testNoThreadsUsesFallback() throws Exception
+    {
+        RecordingHandler fallback = new RecordingHandler(1);
+        FeedRefreshEngine sut = new FeedRefreshEngine(null, fallback, 0, 2, MAX_WAITING, new KeyedStatistics());
+
+        sut.handleTask(new UserActionRequest("refreshFeedAction", null, new RefreshFeedRequest(1L, HOST)));
+
+        assertEquals(1, fallback.handled.size());
+    }
+
+    /**
+     * Tests getting hosts from feed URLs.
+     */
+    @Test
+    public void testGetHost()
+    {
+        assertEquals("www.example.com", FeedRefreshEngine.getHost("http://WWW.Example.com:8080/feed?x=1"));
+        assertEquals("", FeedRefreshEngine.getHost("not a url"));
+        assertEquals("", FeedRefreshEngine.getHost(null));
+    }
+}
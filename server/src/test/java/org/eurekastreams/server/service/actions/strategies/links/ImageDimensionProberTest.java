@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.links;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.eurekastreams.server.domain.stream.LinkInformation;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests ImageDimensionProber and BasicLinkImageParser's use of it.
+ */
+public class ImageDimensionProberTest
+{
+    /** Time a "slow" image takes. */
+    private static final long SLOW_MILLIS = 2000;
+
+    /** Time out given to the prober. */
+    private static final long TIME_OUT = 300;
+
+    /** Big image size. */
+    private static final int BIG = 200;
+
+    /** Connection facade returning canned dimensions, sizes encoded in the URL as .../WIDTHxHEIGHT[-slow]. */
+    private final ConnectionFacade facade = new ConnectionFacade(new ArrayList<ConnectionFacadeDecorator>())
+    {
+        @Override
+        protected ImageDimensions getImgDimensions(final String inUrl, final String inAccountId) throws IOException
+        {
+            String name = inUrl.substring(inUrl.lastIndexOf('/') + 1);
+            if (name.endsWith("-slow"))
+            {
+                try
+                {
+                    Thread.sleep(SLOW_MILLIS);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                name = name.substring(0, name.length() - "-slow".length());
+            }
+            if (name.equals("broken"))
+            {
+                throw new IOException("broken");
+            }
+            String[] parts = name.split("x");
+            return new ImageDimensions(Integer.parseInt(parts[1]), Integer.parseInt(parts[0]));
+        }
+    };
+
+    /** System under test. */
+    private final ImageDimensionProber sut = new ImageDimensionProber(facade, 4, 10);
+
+    /**
+     * Stops the prober.
+     */
+    @After
+    public void tearDown()
+    {
+        sut.shutdown();
+    }
+
+    /**
+     * Tests probing returns what finished in time, in order, skipping failures.
+     */
+    @Test
+    public void testProbe()
+    {
+        long start = System.currentTimeMillis();
+        Map<String, ConnectionFacade.ImageDimensions> results = sut.probe(Arrays.asList("http://x/10x20",
+                "http://x/broken", "http://x/30x40-slow", "http://x/50x60"), "acct", TIME_OUT);
+
+        assertTrue(System.currentTimeMillis() - start < SLOW_MILLIS);
+        assertEquals(Arrays.asList("http://x/10x20", "http://x/50x60"), new ArrayList<String>(results.keySet()));
+        assertEquals(10, results.get("http://x/10x20").getWidth());
+        assertEquals(20, results.get("http://x/10x20").getHeight());
+        assertEquals(1, sut.getStatistics().getCount(ImageDimensionProber.TIMEOUT_STAT));
+    }
+
+    /**
+     * Tests the parser picks the big images and the largest, leaving out small and slow ones.
+     */
+    @Test
+    public void testParserUsesProber()
+    {
+        BasicLinkImageParser parser = new BasicLinkImageParser(facade, 2, TIME_OUT);
+        parser.setDimensionProber(sut);
+
+        LinkInformation link = new LinkInformation();
+        link.setUrl("http://x/dir/page");
+        parser.parseInformation("<img src=\"/10x10\"><img src=\"/" + BIG + "x" + BIG + "-slow\">"
+                + "<img src=\"/100x100\"><img width=\"5\" src=\"/300x300\"><img src=\"150x150\">"
+                + "<img src=\"/100x100\"><img src=\"/400x400\">", link, "acct");
+
+        assertEquals(2, link.getImageUrls().size());
+        assertTrue(link.getImageUrls().contains("http://x/100x100"));
+        assertTrue(link.getImageUrls().contains("http://x/dir/150x150"));
+        assertEquals("http://x/dir/150x150", link.getLargestImageUrl());
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.links;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * Tests ImageHeaderReader.
+ */
+public class ImageHeaderReaderTest
+{
+    /** Width of the test images. */
+    private static final int WIDTH = 123;
+
+    /** Height of the test images. */
+    private static final int HEIGHT = 45;
+
+    /** Byte limit for reads. */
+    private static final int MAX_BYTES = 65536;
+
+    /**
+     * Encodes a test image.
+     *
+     * @param inFormat
+     *            ImageIO format name.
+     * @return bytes.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private byte[] encode(final String inFormat) throws IOException
+    {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, inFormat, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Asserts the dimensions read.
+     *
+     * @param inBytes
+     *            image.
+     * @throws IOException
+     *             Shouldn't.
+     */
+    private void assertDimensions(final byte[] inBytes) throws IOException
+    {
+        int[] result = ImageHeaderReader.readDimensions(new ByteArrayInputStream(inBytes), MAX_BYTES);
+        assertEquals(WIDTH, result[0]);
+        assertEquals(HEIGHT, result[1]);
+    }
+
+    /**
+     * Tests PNG.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testPng() throws IOException
+    {
+        assertDimensions(encode("png"));
+    }
+
+    /**
+     * Tests GIF.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testGif() throws IOException
+    {
+        assertDimensions(encode("gif"));
+    }
+
+    /**
+     * Tests JPEG.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testJpeg() throws IOException
+    {
+        assertDimensions(encode("jpg"));
+    }
+
+    /**
+     * Tests a format handled by ImageIO.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testBmp() throws IOException
+    {
+        assertDimensions(encode("bmp"));
+    }
+
+    /**
+     * Tests an extended WebP header.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testWebPExtended() throws IOException
+    {
+        byte[] bytes = new byte[30];
+        System.arraycopy("RIFF\0\0\0\0WEBPVP8X".getBytes("ISO-8859-1"), 0, bytes, 0, 16);
+        bytes[24] = (byte) (WIDTH - 1);
+        bytes[27] = (byte) (HEIGHT - 1);
+        assertDimensions(bytes);
+    }
+
+    /**
+     * Tests a lossy WebP header.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testWebPLossy() throws IOException
+    {
+        byte[] bytes = new byte[30];
+        System.arraycopy("RIFF\0\0\0\0WEBPVP8 ".getBytes("ISO-8859-1"), 0, bytes, 0, 16);
+        bytes[26] = (byte) WIDTH;
+        bytes[28] = (byte) HEIGHT;
+        assertDimensions(bytes);
+    }
+
+    /**
+     * Tests a lossless WebP header.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testWebPLossless() throws IOException
+    {
+        byte[] bytes = new byte[30];
+        System.arraycopy("RIFF\0\0\0\0WEBPVP8L".getBytes("ISO-8859-1"), 0, bytes, 0, 16);
+        int bits = (WIDTH - 1) | ((HEIGHT - 1) << 14);
+        bytes[21] = (byte) bits;
+        bytes[22] = (byte) (bits >> 8);
+        bytes[23] = (byte) (bits >> 16);
+        bytes[24] = (byte) (bits >> 24);
+        assertDimensions(bytes);
+    }
+
+    /**
+     * Tests only the header is read.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testReadsOnlyHeader() throws IOException
+    {
+        byte[] png = encode("png");
+        byte[] large = new byte[png.length + MAX_BYTES];
+        System.arraycopy(png, 0, large, 0, png.length);
+        final int[] consumed = new int[1];
+        InputStream in = new ByteArrayInputStream(large)
+        {
+            @Override
+            public synchronized int read(final byte[] inBuffer, final int inOffset, final int inLength)
+            {
+                int read = super.read(inBuffer, inOffset, inLength);
+                consumed[0] += read;
+                return read;
+            }
+        };
+        ImageHeaderReader.readDimensions(in, MAX_BYTES);
+        assertEquals(2048, consumed[0]);
+    }
+
+    /**
+     * Tests data that isn't an image.
+     *
+     * @throws IOException
+     *             Shouldn't.
+     */
+    @Test
+    public void testNotImage() throws IOException
+    {
+        assertNull(ImageHeaderReader.readDimensions(new ByteArrayInputStream("<html><body></body></html>"
+                .getBytes("UTF-8")), MAX_BYTES));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.actions.strategies.links;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eurekastreams.server.domain.stream.LinkInformation;
+import org.junit.Test;
+
+/**
+ * Tests LinkInformationCache.
+ */
+public class LinkInformationCacheTest
+{
+    /** Test URL. */
+    private static final String URL = "http://www.example.com/page";
+
+    /** Number of fetches made. */
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    /**
+     * Builds a fetcher.
+     *
+     * @param inResult
+     *            link to return.
+     * @return fetcher.
+     */
+    private Callable<LinkInformation> fetcher(final LinkInformation inResult)
+    {
+        return new Callable<LinkInformation>()
+        {
+            public LinkInformation call()
+            {
+                fetches.incrementAndGet();
+                return inResult;
+            }
+        };
+    }
+
+    /**
+     * Tests a fetched link is served from the cache afterwards.
+     */
+    @Test
+    public void testCachesLink()
+    {
+        LinkInformationCache sut = new LinkInformationCache(10, 60, 60);
+        LinkInformation link = new LinkInformation();
+        link.setTitle("Title");
+
+        assertEquals("Title", sut.get(URL, fetcher(link)).getTitle());
+        assertEquals("Title", sut.get(URL, fetcher(null)).getTitle());
+        assertEquals(1, fetches.get());
+        assertEquals(1, sut.getStatistics().getCount(LinkInformationCache.HIT_STAT));
+        assertEquals(1, sut.getStatistics().getCount(LinkInformationCache.FETCH_MILLIS_STAT));
+    }
+
+    /**
+     * Tests each caller gets its own copy, so changing one doesn't change the cached link.
+     */
+    @Test
+    public void testReturnsCopies()
+    {
+        LinkInformationCache sut = new LinkInformationCache(10, 60, 60);
+        LinkInformation link = new LinkInformation();
+        link.setTitle("Title");
+
+        LinkInformation first = sut.get(URL, fetcher(link));
+        assertNotSame(link, first);
+        first.setTitle("Changed");
+        link.setTitle("Changed too");
+
+        LinkInformation second = sut.get(URL, fetcher(null));
+        assertNotSame(first, second);
+        assertEquals("Title", second.getTitle());
+    }
+
+    /**
+     * Tests failures are cached for the failure time to live.
+     */
+    @Test
+    public void testCachesFailure()
+    {
+        LinkInformationCache sut = new LinkInformationCache(10, 60, 60);
+        assertNull(sut.get(URL, fetcher(null)));
+        assertNull(sut.get(URL, fetcher(new LinkInformation())));
+        assertEquals(1, fetches.get());
+        assertEquals(1, sut.getStatistics().getCount(LinkInformationCache.FAILURE_STAT));
+
+        sut.remove(URL);
+        assertNull(sut.get(URL, fetcher(null)));
+        assertEquals(2, fetches.get());
+    }
+
+    /**
+     * Tests links without information are retried once the failure time to live passes.
+     */
+    @Test
+    public void testRetriesEmptyLink()
+    {
+        LinkInformationCache sut = new LinkInformationCache(10, 60, 0);
+        LinkInformation empty = new LinkInformation();
+
+        assertNotNull(sut.get(URL, fetcher(empty)));
+        assertNotNull(sut.get(URL, fetcher(empty)));
+        assertEquals(2, fetches.get());
+    }
+
+    /**
+     * Tests a fetch which throws is treated as a failure.
+     */
+    @Test
+    public void testFetchThrows()
+    {
+        LinkInformationCache sut = new LinkInformationCache(10, 60, 60);
+        assertNull(sut.get(URL, new Callable<LinkInformation>()
+        {
+            public LinkInformation call() throws Exception
+            {
+                throw new Exception("bad");
+            }
+        }));
+        assertEquals(1, sut.getStatistics().getCount(LinkInformationCache.FAILURE_STAT));
+    }
+
+    /**
+     * Tests concurrent requests for the same link share one fetch.
+     *
+     * @throws Exception
+     *             Shouldn't.
+     */
+    @Test
+    public void testCoalescesConcurrentFetches() throws Exception
+    {
+        final LinkInformationCache sut = new LinkInformationCache(10, 60, 60);
+        final LinkInformation link = new LinkInformation();
+        link.setTitle("Title");
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Thread first = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                sut.get(URL, new Callable<LinkInformation>()
+                {
+                    public LinkInformation call() throws Exception
+                    {
+                        fetches.incrementAndGet();
+                        fetching.countDown();
+                        release.await();
+                        return link;
+                    }
+                });
+            }
+        };
+        first.start();
+        fetching.await();
+
+        final LinkInformation[] second = new LinkInformation[1];
+        Thread waiter = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                second[0] = sut.get(URL, fetcher(null));
+            }
+        };
+        waiter.start();
+        while (sut.getStatistics().getCount(LinkInformationCache.COALESCED_STAT) == 0)
+        {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.join();
+        waiter.join();
+
+        assertNotSame(link, second[0]);
+        assertEquals("Title", second[0].getTitle());
+        assertEquals(1, fetches.get());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011 Lockheed Martin Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eurekastreams.server.service.servlets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eurekastreams.server.service.actions.strategies.ImageBytesCache.CachedImage;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+
+/**
+ * Tests GetImageServlet's conditional request handling.
+ */
+public class GetImageServletTest
+{
+    /** Context for building mock objects. */
+    private final Mockery context = new JUnit4Mockery();
+
+    /** Request. */
+    private final HttpServletRequest request = context.mock(HttpServletRequest.class);
+
+    /** Image. */
+    private final CachedImage image = CachedImage.create(new byte[] { 1, 2, 3 }, "image/png");
+
+    /**
+     * Sets up the request headers.
+     *
+     * @param inIfNoneMatch
+     *            If-None-Match header.
+     */
+    private void headers(final String inIfNoneMatch)
+    {
+        context.checking(new Expectations()
+        {
+            {
+                allowing(request).getHeader("If-None-Match");
+                will(returnValue(inIfNoneMatch));
+
+                allowing(request).getDateHeader("If-Modified-Since");
+                will(returnValue(System.currentTimeMillis()));
+            }
+        });
+    }
+
+    /**
+     * Tests a matching entity tag.
+     */
+    @Test
+    public void testETagMatches()
+    {
+        headers("\"other\", " + image.getETag());
+        assertTrue(GetImageServlet.isNotModified(request, image));
+    }
+
+    /**
+     * Tests a weak matching entity tag.
+     */
+    @Test
+    public void testWeakETagMatches()
+    {
+        headers("W/" + image.getETag());
+        assertTrue(GetImageServlet.isNotModified(request, image));
+    }
+
+    /**
+     * Tests a different entity tag.
+     */
+    @Test
+    public void testETagDiffers()
+    {
+        headers("\"other\"");
+        assertFalse(GetImageServlet.isNotModified(request, image));
+    }
+
+    /**
+     * Tests a modified date alone is not enough, since none is sent.
+     */
+    @Test
+    public void testModifiedSinceIgnored()
+    {
+        headers(null);
+        assertFalse(GetImageServlet.isNotModified(request, image));
+    }
+}